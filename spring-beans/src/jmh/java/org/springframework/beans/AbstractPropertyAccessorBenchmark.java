@@ -26,6 +26,7 @@ import org.openjdk.jmh.annotations.State;
 
 import org.springframework.beans.propertyeditors.CustomNumberEditor;
 import org.springframework.beans.propertyeditors.StringTrimmerEditor;
+import org.springframework.core.SpringProperties;
 
 /**
  * Benchmark for {@link AbstractPropertyAccessor} use on beans.
@@ -38,7 +39,7 @@ public class AbstractPropertyAccessorBenchmark {
 	@State(Scope.Benchmark)
 	public static class BenchmarkState {
 
-		@Param({"DirectFieldAccessor", "BeanWrapper"})
+		@Param({"DirectFieldAccessor", "BeanWrapper", "BeanWrapperWithGeneratedAccessors"})
 		public String accessor;
 
 		@Param({"none", "stringTrimmer", "numberOnPath", "numberOnNestedPath", "numberOnType"})
@@ -50,19 +51,30 @@ public class AbstractPropertyAccessorBenchmark {
 
 		public AbstractPropertyAccessor propertyAccessor;
 
+		public SimpleBean simpleTarget;
+
+		public AbstractPropertyAccessor simplePropertyAccessor;
+
 		@Setup
 		public void setup() {
 			this.target = new PrimitiveArrayBean();
 			this.input = new int[1024];
+			this.simpleTarget = new SimpleBean();
 			if (this.accessor.equals("DirectFieldAccessor")) {
 				this.propertyAccessor = new DirectFieldAccessor(this.target);
+				this.simplePropertyAccessor = new DirectFieldAccessor(this.simpleTarget);
 			}
 			else {
+				if (this.accessor.equals("BeanWrapperWithGeneratedAccessors")) {
+					SpringProperties.setFlag(CachedIntrospectionResults.GENERATE_ACCESSORS_PROPERTY_NAME);
+				}
 				this.propertyAccessor = new BeanWrapperImpl(this.target);
+				this.simplePropertyAccessor = new BeanWrapperImpl(this.simpleTarget);
 			}
 			switch (this.customEditor) {
 				case "stringTrimmer":
 					this.propertyAccessor.registerCustomEditor(String.class, new StringTrimmerEditor(false));
+					this.simplePropertyAccessor.registerCustomEditor(String.class, new StringTrimmerEditor(false));
 					break;
 				case "numberOnPath":
 					this.propertyAccessor.registerCustomEditor(int.class, "array.somePath", new CustomNumberEditor(Integer.class, false));
@@ -72,6 +84,7 @@ public class AbstractPropertyAccessorBenchmark {
 					break;
 				case "numberOnType":
 					this.propertyAccessor.registerCustomEditor(int.class, new CustomNumberEditor(Integer.class, false));
+					this.simplePropertyAccessor.registerCustomEditor(int.class, new CustomNumberEditor(Integer.class, false));
 					break;
 			}
 
@@ -85,6 +98,18 @@ public class AbstractPropertyAccessorBenchmark {
 		return state.target;
 	}
 
+	@Benchmark
+	public SimpleBean setSimplePropertyValues(BenchmarkState state) {
+		state.simplePropertyAccessor.setPropertyValue("name", "test");
+		state.simplePropertyAccessor.setPropertyValue("age", 42);
+		return state.simpleTarget;
+	}
+
+	@Benchmark
+	public Object getSimplePropertyValue(BenchmarkState state) {
+		return state.simplePropertyAccessor.getPropertyValue("name");
+	}
+
 	@SuppressWarnings("unused")
 	private static class PrimitiveArrayBean {
 
@@ -98,4 +123,28 @@ public class AbstractPropertyAccessorBenchmark {
 			this.array = array;
 		}
 	}
+
+	@SuppressWarnings("unused")
+	public static class SimpleBean {
+
+		private String name;
+
+		private int age;
+
+		public String getName() {
+			return this.name;
+		}
+
+		public void setName(String name) {
+			this.name = name;
+		}
+
+		public int getAge() {
+			return this.age;
+		}
+
+		public void setAge(int age) {
+			this.age = age;
+		}
+	}
 }
@@ -18,10 +18,13 @@ package org.springframework.beans.factory;
 
 import java.text.SimpleDateFormat;
 import java.util.Date;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.openjdk.jmh.annotations.Benchmark;
 import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
 import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Param;
 import org.openjdk.jmh.annotations.Scope;
 import org.openjdk.jmh.annotations.Setup;
 import org.openjdk.jmh.annotations.State;
@@ -34,7 +37,8 @@ import org.springframework.beans.propertyeditors.CustomDateEditor;
 import static org.springframework.core.testfixture.io.ResourceTestUtils.qualifiedResource;
 
 /**
- * Benchmark for creating prototype beans in a concurrent fashion.
+ * Benchmark for creating prototype beans in a concurrent fashion, as well as for
+ * creating distinct singleton beans concurrently (contending for the singleton registry).
  * This benchmark requires to customize the number of worker threads {@code -t <int>} on the
  * CLI when running this particular benchmark to leverage concurrency.
  *
@@ -61,12 +65,41 @@ public class ConcurrentBeanFactoryBenchmark {
 
 	}
 
+	@State(Scope.Benchmark)
+	public static class SingletonCreationState {
+
+		@Param({"0", "1000"})
+		public long initTokens;
+
+		public DefaultListableBeanFactory factory;
+
+		public final AtomicInteger counter = new AtomicInteger();
+
+		@Setup(Level.Iteration)
+		public void setup() {
+			this.factory = new DefaultListableBeanFactory();
+			this.counter.set(0);
+		}
+
+		public Object createSingleton() {
+			Blackhole.consumeCPU(this.initTokens);
+			return new ConcurrentBean();
+		}
+	}
+
+
 	@Benchmark
 	public void concurrentBeanCreation(BenchmarkState state, Blackhole bh) {
 		bh.consume(state.factory.getBean("bean1"));
 		bh.consume(state.factory.getBean("bean2"));
 	}
 
+	@Benchmark
+	public void concurrentSingletonCreation(SingletonCreationState state, Blackhole bh) {
+		String beanName = "singleton" + state.counter.incrementAndGet();
+		bh.consume(state.factory.getSingleton(beanName, state::createSingleton));
+	}
+
 
 	public static class ConcurrentBean {
 
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2020 the original author or authors.
+ * Copyright 2002-2021 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -133,10 +133,50 @@ public class DefaultListableBeanFactoryBenchmark {
 		return state.beanFactory.getBean(B.class);
 	}
 
+	@State(Scope.Benchmark)
+	public static class TypeLookupManyBeansState extends Shared {
+
+		@Param({"100", "1000", "6000"})
+		public int beanCount;
+
+		@Setup
+		public void setup() {
+			this.beanFactory = new DefaultListableBeanFactory();
+			for (int i = 0; i < this.beanCount; i++) {
+				Class<?> beanClass = (i % 3 == 0 ? A.class : (i % 3 == 1 ? B.class : C.class));
+				this.beanFactory.registerBeanDefinition("bean" + i, new RootBeanDefinition(beanClass));
+			}
+			this.beanFactory.registerBeanDefinition("test", new RootBeanDefinition(TestBean.class));
+			this.beanFactory.freezeConfiguration();
+		}
+	}
+
+	// Bypasses the by-type cache, performing the type matching on every invocation
+	@Benchmark
+	public Object typeLookupSingleMatchManyBeans(TypeLookupManyBeansState state) {
+		return state.beanFactory.getBeanNamesForType(TestBean.class, true, false);
+	}
+
+	@Benchmark
+	public Object typeLookupInterfaceManyBeans(TypeLookupManyBeansState state) {
+		return state.beanFactory.getBeanNamesForType(Marker.class, true, false);
+	}
+
+	@Benchmark
+	public Object typeLookupNoMatchManyBeans(TypeLookupManyBeansState state) {
+		return state.beanFactory.getBeanNamesForType(Runnable.class, true, false);
+	}
+
+	interface Marker {
+	}
+
 	static class A {
 	}
 
 	static class B {
 	}
 
+	static class C implements Marker {
+	}
+
 }
@@ -42,6 +42,7 @@ import org.springframework.core.convert.ConverterNotFoundException;
 import org.springframework.core.convert.TypeDescriptor;
 import org.springframework.lang.Nullable;
 import org.springframework.util.Assert;
+import org.springframework.util.ClassUtils;
 import org.springframework.util.ObjectUtils;
 import org.springframework.util.StringUtils;
 
@@ -440,6 +441,10 @@ public abstract class AbstractNestablePropertyAccessor extends AbstractPropertyA
 				if (pv.isConverted()) {
 					valueToApply = pv.getConvertedValue();
 				}
+				else if (isDirectlyApplicable(tokens.canonicalName, ph.getPropertyType(), originalValue)) {
+					// Simple value of the exact property type: no conversion to apply.
+					valueToApply = originalValue;
+				}
 				else {
 					if (isExtractOldValueForEditor() && ph.isReadable()) {
 						try {
@@ -487,6 +492,27 @@ public abstract class AbstractNestablePropertyAccessor extends AbstractPropertyA
 		}
 	}
 
+	/**
+	 * Determine whether the given value can be applied to the specified property
+	 * as-is, bypassing the type conversion algorithm: that is, if the value is a
+	 * String or primitive wrapper matching the property type exactly, with no
+	 * ConversionService and no custom editor involved for the property.
+	 * @param propertyPath the path of the property
+	 * @param requiredType the type of the property
+	 * @param value the value to apply
+	 */
+	private boolean isDirectlyApplicable(
+			String propertyPath, @Nullable Class<?> requiredType, @Nullable Object value) {
+
+		if (value == null || requiredType == null || getConversionService() != null) {
+			return false;
+		}
+		Class<?> valueType = value.getClass();
+		return ((valueType == String.class || ClassUtils.isPrimitiveWrapper(valueType)) &&
+				valueType == ClassUtils.resolvePrimitiveIfNecessary(requiredType) &&
+				findCustomEditor(requiredType, propertyPath) == null);
+	}
+
 	@Override
 	@Nullable
 	public Class<?> getPropertyType(String propertyName) throws BeansException {
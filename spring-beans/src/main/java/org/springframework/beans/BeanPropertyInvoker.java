@@ -0,0 +1,54 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.beans;
+
+import org.springframework.lang.Nullable;
+
+/**
+ * Contract for generated classes that invoke the read and write methods of
+ * the properties of a specific bean class directly, without reflection.
+ * Properties are identified by their index within the introspected class.
+ *
+ * <p>Internal interface, only public for implementation by classes generated
+ * in a separate ClassLoader. Not intended for direct use by application code.
+ *
+ * @author Lars Hofmann
+ * @since 5.3.8
+ * @see CachedIntrospectionResults#GENERATE_ACCESSORS_PROPERTY_NAME
+ */
+public interface BeanPropertyInvoker {
+
+	/**
+	 * Invoke the read method of the property with the given index.
+	 * <p>Any exception thrown by the read method is propagated as-is.
+	 * @param target the bean instance to read the property from
+	 * @param index the index of the property
+	 * @return the property value (primitive values are returned in boxed form)
+	 */
+	@Nullable
+	Object invokeReadMethod(Object target, int index);
+
+	/**
+	 * Invoke the write method of the property with the given index.
+	 * <p>Any exception thrown by the write method is propagated as-is.
+	 * @param target the bean instance to write the property to
+	 * @param index the index of the property
+	 * @param value the value to write (primitive values in boxed form)
+	 */
+	void invokeWriteMethod(Object target, int index, @Nullable Object value);
+
+}
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2020 the original author or authors.
+ * Copyright 2002-2021 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -227,8 +227,10 @@ public class BeanWrapperImpl extends AbstractNestablePropertyAccessor implements
 	@Override
 	@Nullable
 	protected BeanPropertyHandler getLocalPropertyHandler(String propertyName) {
-		PropertyDescriptor pd = getCachedIntrospectionResults().getPropertyDescriptor(propertyName);
-		return (pd != null ? new BeanPropertyHandler(pd) : null);
+		CachedIntrospectionResults cachedIntrospectionResults = getCachedIntrospectionResults();
+		PropertyDescriptor pd = cachedIntrospectionResults.getPropertyDescriptor(propertyName);
+		return (pd != null ?
+				new BeanPropertyHandler(pd, cachedIntrospectionResults.getGeneratedPropertyAccessor(pd)) : null);
 	}
 
 	@Override
@@ -265,9 +267,13 @@ public class BeanWrapperImpl extends AbstractNestablePropertyAccessor implements
 
 		private final PropertyDescriptor pd;
 
-		public BeanPropertyHandler(PropertyDescriptor pd) {
+		@Nullable
+		private final GeneratedPropertyAccessor generatedAccessor;
+
+		public BeanPropertyHandler(PropertyDescriptor pd, @Nullable GeneratedPropertyAccessor generatedAccessor) {
 			super(pd.getPropertyType(), pd.getReadMethod() != null, pd.getWriteMethod() != null);
 			this.pd = pd;
+			this.generatedAccessor = generatedAccessor;
 		}
 
 		@Override
@@ -303,6 +309,9 @@ public class BeanWrapperImpl extends AbstractNestablePropertyAccessor implements
 					throw pae.getException();
 				}
 			}
+			else if (this.generatedAccessor != null && this.generatedAccessor.isReadable()) {
+				return this.generatedAccessor.getValue(getWrappedInstance());
+			}
 			else {
 				ReflectionUtils.makeAccessible(readMethod);
 				return readMethod.invoke(getWrappedInstance(), (Object[]) null);
@@ -327,6 +336,9 @@ public class BeanWrapperImpl extends AbstractNestablePropertyAccessor implements
 					throw ex.getException();
 				}
 			}
+			else if (this.generatedAccessor != null && this.generatedAccessor.isWritable(value)) {
+				this.generatedAccessor.setValue(getWrappedInstance(), value);
+			}
 			else {
 				ReflectionUtils.makeAccessible(writeMethod);
 				writeMethod.invoke(getWrappedInstance(), value);
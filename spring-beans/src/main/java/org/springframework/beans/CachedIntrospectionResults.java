@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2020 the original author or authors.
+ * Copyright 2002-2021 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -95,6 +95,19 @@ public final class CachedIntrospectionResults {
 	 */
 	public static final String IGNORE_BEANINFO_PROPERTY_NAME = "spring.beaninfo.ignore";
 
+	/**
+	 * System property that instructs Spring to generate accessor classes for the read
+	 * and write methods of introspected bean properties: "spring.beaninfo.accessors.generate",
+	 * with a value of "true" invoking public read and write methods on public bean classes
+	 * directly rather than through reflection (for {@link BeanWrapperImpl} access).
+	 * <p>The default is "false". Consider switching this flag to "true" for intensive
+	 * property access on a stable set of bean classes, e.g. in data binding scenarios.
+	 * Note that a separate class will be generated for each introspected bean class,
+	 * on first property access through a {@code BeanWrapperImpl}.
+	 * @since 5.3.8
+	 */
+	public static final String GENERATE_ACCESSORS_PROPERTY_NAME = "spring.beaninfo.accessors.generate";
+
 	private static final PropertyDescriptor[] EMPTY_PROPERTY_DESCRIPTOR_ARRAY = {};
 
 
@@ -263,6 +276,13 @@ public final class CachedIntrospectionResults {
 	/** TypeDescriptor objects keyed by PropertyDescriptor. */
 	private final ConcurrentMap<PropertyDescriptor, TypeDescriptor> typeDescriptorCache;
 
+	/** Whether to generate accessors for the property read and write methods. */
+	private final boolean generateAccessors;
+
+	/** Generated accessors keyed by property name, lazily initialized. */
+	@Nullable
+	private volatile Map<String, GeneratedPropertyAccessor> generatedAccessors;
+
 
 	/**
 	 * Create a new CachedIntrospectionResults instance for the given class.
@@ -319,6 +339,7 @@ public final class CachedIntrospectionResults {
 			introspectPlainAccessors(beanClass, readMethodNames);
 
 			this.typeDescriptorCache = new ConcurrentReferenceHashMap<>();
+			this.generateAccessors = SpringProperties.getFlag(GENERATE_ACCESSORS_PROPERTY_NAME);
 		}
 		catch (IntrospectionException ex) {
 			throw new FatalBeanException("Failed to obtain BeanInfo for class [" + beanClass.getName() + "]", ex);
@@ -423,4 +444,30 @@ public final class CachedIntrospectionResults {
 		return this.typeDescriptorCache.get(pd);
 	}
 
+	/**
+	 * Return the generated accessor for the given property, generating the
+	 * accessor class for the introspected bean class on first access.
+	 * @param pd the property descriptor (as obtained from this instance)
+	 * @return the accessor, or {@code null} if accessor generation is disabled
+	 * or not applicable to the given property
+	 * @see #GENERATE_ACCESSORS_PROPERTY_NAME
+	 */
+	@Nullable
+	GeneratedPropertyAccessor getGeneratedPropertyAccessor(PropertyDescriptor pd) {
+		if (!this.generateAccessors) {
+			return null;
+		}
+		Map<String, GeneratedPropertyAccessor> accessors = this.generatedAccessors;
+		if (accessors == null) {
+			synchronized (this) {
+				accessors = this.generatedAccessors;
+				if (accessors == null) {
+					accessors = GeneratedPropertyAccessor.generate(getBeanClass(), this.propertyDescriptors.values());
+					this.generatedAccessors = accessors;
+				}
+			}
+		}
+		return accessors.get(pd.getName());
+	}
+
 }
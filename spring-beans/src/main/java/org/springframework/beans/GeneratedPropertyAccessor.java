@@ -0,0 +1,380 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.beans;
+
+import java.beans.PropertyDescriptor;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import org.springframework.asm.ClassWriter;
+import org.springframework.asm.Label;
+import org.springframework.asm.MethodVisitor;
+import org.springframework.asm.Opcodes;
+import org.springframework.asm.Type;
+import org.springframework.lang.Nullable;
+import org.springframework.util.ClassUtils;
+import org.springframework.util.ReflectionUtils;
+
+/**
+ * Direct access to the read and write methods of a specific bean property,
+ * through a {@link BeanPropertyInvoker} class generated for the bean class.
+ *
+ * <p>Invokers are generated with ASM and defined in a dedicated child of the
+ * bean's ClassLoader. They are therefore only able to call public methods on
+ * public classes; any other read or write method remains reflectively invoked.
+ * The generated code does not perform any type conversion: it is up to the
+ * caller to check {@link #isWritable(Object)} for the value to write.
+ *
+ * <p>Target and value are type-checked before invoking the generated code,
+ * throwing an {@link IllegalArgumentException} on mismatch just like
+ * {@link Method#invoke}. An {@link InvocationTargetException} therefore
+ * always indicates an exception thrown by the read or write method itself.
+ *
+ * @author Lars Hofmann
+ * @since 5.3.8
+ * @see CachedIntrospectionResults#getGeneratedPropertyAccessor
+ */
+final class GeneratedPropertyAccessor {
+
+	private static final String INVOKER_CLASS_SUFFIX = "$$PropertyInvoker";
+
+	private static final String INVOKER_INTERFACE = Type.getInternalName(BeanPropertyInvoker.class);
+
+	private static final Log logger = LogFactory.getLog(GeneratedPropertyAccessor.class);
+
+
+	private final BeanPropertyInvoker invoker;
+
+	private final int index;
+
+	@Nullable
+	private final Class<?> readTargetType;
+
+	@Nullable
+	private final Class<?> writeTargetType;
+
+	@Nullable
+	private final Class<?> writeType;
+
+
+	private GeneratedPropertyAccessor(BeanPropertyInvoker invoker, int index,
+			@Nullable Method readMethod, @Nullable Method writeMethod) {
+
+		this.invoker = invoker;
+		this.index = index;
+		this.readTargetType = (readMethod != null ? readMethod.getDeclaringClass() : null);
+		this.writeTargetType = (writeMethod != null ? writeMethod.getDeclaringClass() : null);
+		this.writeType = (writeMethod != null ? writeMethod.getParameterTypes()[0] : null);
+	}
+
+
+	/**
+	 * Return whether the read method can be invoked through this accessor.
+	 */
+	public boolean isReadable() {
+		return (this.readTargetType != null);
+	}
+
+	/**
+	 * Return whether the write method can be invoked through this accessor
+	 * for the given value, i.e. without any type conversion.
+	 * @param value the value to write
+	 */
+	public boolean isWritable(@Nullable Object value) {
+		Class<?> writeType = this.writeType;
+		if (writeType == null) {
+			return false;
+		}
+		return (value != null ? ClassUtils.isAssignableValue(writeType, value) : !writeType.isPrimitive());
+	}
+
+	/**
+	 * Invoke the read method on the given target.
+	 * @param target the bean instance
+	 * @return the property value
+	 * @throws IllegalArgumentException if the target is not an instance of the
+	 * read method's declaring class, or if the property is not readable
+	 * @throws InvocationTargetException if the read method threw an exception
+	 * (consistent with reflective invocation)
+	 */
+	@Nullable
+	public Object getValue(Object target) throws InvocationTargetException {
+		checkTarget(target, this.readTargetType);
+		try {
+			return this.invoker.invokeReadMethod(target, this.index);
+		}
+		catch (Throwable ex) {
+			throw new InvocationTargetException(ex);
+		}
+	}
+
+	/**
+	 * Invoke the write method on the given target.
+	 * @param target the bean instance
+	 * @param value the value to write (needs to match {@link #isWritable(Object)})
+	 * @throws IllegalArgumentException if the target is not an instance of the
+	 * write method's declaring class, or if the value is not writable
+	 * @throws InvocationTargetException if the write method threw an exception
+	 * (consistent with reflective invocation)
+	 */
+	public void setValue(Object target, @Nullable Object value) throws InvocationTargetException {
+		checkTarget(target, this.writeTargetType);
+		if (!isWritable(value)) {
+			throw new IllegalArgumentException("argument type mismatch");
+		}
+		try {
+			this.invoker.invokeWriteMethod(target, this.index, value);
+		}
+		catch (Throwable ex) {
+			throw new InvocationTargetException(ex);
+		}
+	}
+
+	private void checkTarget(Object target, @Nullable Class<?> targetType) {
+		if (targetType == null) {
+			throw new IllegalArgumentException("No generated accessor method for this property");
+		}
+		if (!targetType.isInstance(target)) {
+			throw new IllegalArgumentException("object is not an instance of declaring class");
+		}
+	}
+
+
+	/**
+	 * Generate a {@link BeanPropertyInvoker} for the given bean class and build
+	 * accessors for all properties with a read or write method that it covers.
+	 * @param beanClass the bean class
+	 * @param pds the property descriptors of the bean class
+	 * @return the accessors keyed by property name (empty if no invoker
+	 * could be generated for the given bean class)
+	 */
+	static Map<String, GeneratedPropertyAccessor> generate(Class<?> beanClass, Collection<PropertyDescriptor> pds) {
+		ClassLoader classLoader = beanClass.getClassLoader();
+		if (classLoader == null || beanClass.getName().startsWith("java.") ||
+				!ClassUtils.isVisible(BeanPropertyInvoker.class, classLoader)) {
+			return Collections.emptyMap();
+		}
+
+		Method[] readMethods = new Method[pds.size()];
+		Method[] writeMethods = new Method[pds.size()];
+		String[] propertyNames = new String[pds.size()];
+		boolean found = false;
+		int index = 0;
+		for (PropertyDescriptor pd : pds) {
+			propertyNames[index] = pd.getName();
+			Method readMethod = pd.getReadMethod();
+			if (readMethod != null && isInvocable(readMethod, classLoader)) {
+				readMethods[index] = readMethod;
+				found = true;
+			}
+			Method writeMethod = pd.getWriteMethod();
+			if (writeMethod != null && writeMethod.getParameterCount() == 1 && isInvocable(writeMethod, classLoader)) {
+				writeMethods[index] = writeMethod;
+				found = true;
+			}
+			index++;
+		}
+		if (!found) {
+			return Collections.emptyMap();
+		}
+
+		BeanPropertyInvoker invoker;
+		try {
+			String className = beanClass.getName() + INVOKER_CLASS_SUFFIX;
+			byte[] bytes = generateInvokerClass(className.replace('.', '/'), readMethods, writeMethods);
+			Class<?> invokerClass = new InvokerClassLoader(classLoader).defineClass(className, bytes);
+			invoker = (BeanPropertyInvoker) ReflectionUtils.accessibleConstructor(invokerClass).newInstance();
+		}
+		catch (Throwable ex) {
+			if (logger.isDebugEnabled()) {
+				logger.debug("Failed to generate property invoker for class [" + beanClass.getName() + "]", ex);
+			}
+			return Collections.emptyMap();
+		}
+
+		Map<String, GeneratedPropertyAccessor> accessors = new HashMap<>();
+		for (int i = 0; i < propertyNames.length; i++) {
+			if (readMethods[i] != null || writeMethods[i] != null) {
+				accessors.put(propertyNames[i], new GeneratedPropertyAccessor(invoker, i, readMethods[i], writeMethods[i]));
+			}
+		}
+		return accessors;
+	}
+
+	/**
+	 * Determine whether the given method can be invoked from a class in a
+	 * child of the given ClassLoader, including all casts involved.
+	 */
+	private static boolean isInvocable(Method method, ClassLoader classLoader) {
+		if (!Modifier.isPublic(method.getModifiers()) || Modifier.isStatic(method.getModifiers()) ||
+				!isAccessible(method.getDeclaringClass(), classLoader) ||
+				!isAccessible(method.getReturnType(), classLoader)) {
+			return false;
+		}
+		for (Class<?> parameterType : method.getParameterTypes()) {
+			if (!isAccessible(parameterType, classLoader)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static boolean isAccessible(Class<?> type, ClassLoader classLoader) {
+		if (type.isPrimitive()) {
+			return true;
+		}
+		if (type.isArray()) {
+			return isAccessible(type.getComponentType(), classLoader);
+		}
+		return (Modifier.isPublic(type.getModifiers()) && ClassUtils.isVisible(type, classLoader));
+	}
+
+	private static byte[] generateInvokerClass(String className, Method[] readMethods, Method[] writeMethods) {
+		ClassWriter cw = new ClassWriter(ClassWriter.COMPUTE_MAXS | ClassWriter.COMPUTE_FRAMES);
+		cw.visit(Opcodes.V1_8, Opcodes.ACC_PUBLIC | Opcodes.ACC_FINAL | Opcodes.ACC_SYNTHETIC,
+				className, null, "java/lang/Object", new String[] {INVOKER_INTERFACE});
+
+		MethodVisitor mv = cw.visitMethod(Opcodes.ACC_PUBLIC, "<init>", "()V", null, null);
+		mv.visitCode();
+		mv.visitVarInsn(Opcodes.ALOAD, 0);
+		mv.visitMethodInsn(Opcodes.INVOKESPECIAL, "java/lang/Object", "<init>", "()V", false);
+		mv.visitInsn(Opcodes.RETURN);
+		mv.visitMaxs(0, 0);
+		mv.visitEnd();
+
+		// Object invokeReadMethod(Object target, int index)
+		mv = cw.visitMethod(Opcodes.ACC_PUBLIC, "invokeReadMethod", "(Ljava/lang/Object;I)Ljava/lang/Object;",
+				null, null);
+		mv.visitCode();
+		Label defaultLabel = new Label();
+		Label[] labels = visitIndexSwitch(mv, readMethods, defaultLabel);
+		for (int i = 0; i < readMethods.length; i++) {
+			Method readMethod = readMethods[i];
+			if (readMethod != null) {
+				mv.visitLabel(labels[i]);
+				mv.visitVarInsn(Opcodes.ALOAD, 1);
+				mv.visitTypeInsn(Opcodes.CHECKCAST, Type.getInternalName(readMethod.getDeclaringClass()));
+				invokeMethod(mv, readMethod);
+				Class<?> returnType = readMethod.getReturnType();
+				if (returnType.isPrimitive()) {
+					Class<?> wrapperType = ClassUtils.resolvePrimitiveIfNecessary(returnType);
+					mv.visitMethodInsn(Opcodes.INVOKESTATIC, Type.getInternalName(wrapperType), "valueOf",
+							"(" + Type.getDescriptor(returnType) + ")" + Type.getDescriptor(wrapperType), false);
+				}
+				mv.visitInsn(Opcodes.ARETURN);
+			}
+		}
+		visitDefaultCase(mv, defaultLabel);
+
+		// void invokeWriteMethod(Object target, int index, Object value)
+		mv = cw.visitMethod(Opcodes.ACC_PUBLIC, "invokeWriteMethod", "(Ljava/lang/Object;ILjava/lang/Object;)V",
+				null, null);
+		mv.visitCode();
+		defaultLabel = new Label();
+		labels = visitIndexSwitch(mv, writeMethods, defaultLabel);
+		for (int i = 0; i < writeMethods.length; i++) {
+			Method writeMethod = writeMethods[i];
+			if (writeMethod != null) {
+				mv.visitLabel(labels[i]);
+				mv.visitVarInsn(Opcodes.ALOAD, 1);
+				mv.visitTypeInsn(Opcodes.CHECKCAST, Type.getInternalName(writeMethod.getDeclaringClass()));
+				mv.visitVarInsn(Opcodes.ALOAD, 3);
+				Class<?> parameterType = writeMethod.getParameterTypes()[0];
+				if (parameterType.isPrimitive()) {
+					String wrapperType = Type.getInternalName(ClassUtils.resolvePrimitiveIfNecessary(parameterType));
+					mv.visitTypeInsn(Opcodes.CHECKCAST, wrapperType);
+					mv.visitMethodInsn(Opcodes.INVOKEVIRTUAL, wrapperType, parameterType.getName() + "Value",
+							"()" + Type.getDescriptor(parameterType), false);
+				}
+				else if (parameterType != Object.class) {
+					mv.visitTypeInsn(Opcodes.CHECKCAST, Type.getInternalName(parameterType));
+				}
+				invokeMethod(mv, writeMethod);
+				Class<?> returnType = writeMethod.getReturnType();
+				if (returnType == long.class || returnType == double.class) {
+					mv.visitInsn(Opcodes.POP2);
+				}
+				else if (returnType != void.class) {
+					mv.visitInsn(Opcodes.POP);
+				}
+				mv.visitInsn(Opcodes.RETURN);
+			}
+		}
+		visitDefaultCase(mv, defaultLabel);
+
+		cw.visitEnd();
+		return cw.toByteArray();
+	}
+
+	/**
+	 * Emit a table switch on the index argument, with a case label for each
+	 * given method and the given default label for indexes without a method.
+	 */
+	private static Label[] visitIndexSwitch(MethodVisitor mv, Method[] methods, Label defaultLabel) {
+		Label[] labels = new Label[methods.length];
+		for (int i = 0; i < methods.length; i++) {
+			labels[i] = (methods[i] != null ? new Label() : defaultLabel);
+		}
+		mv.visitVarInsn(Opcodes.ILOAD, 2);
+		mv.visitTableSwitchInsn(0, methods.length - 1, defaultLabel, labels);
+		return labels;
+	}
+
+	/**
+	 * Emit the default case of the index switch, throwing an IllegalArgumentException.
+	 */
+	private static void visitDefaultCase(MethodVisitor mv, Label defaultLabel) {
+		mv.visitLabel(defaultLabel);
+		mv.visitTypeInsn(Opcodes.NEW, "java/lang/IllegalArgumentException");
+		mv.visitInsn(Opcodes.DUP);
+		mv.visitMethodInsn(Opcodes.INVOKESPECIAL, "java/lang/IllegalArgumentException", "<init>", "()V", false);
+		mv.visitInsn(Opcodes.ATHROW);
+		mv.visitMaxs(0, 0);
+		mv.visitEnd();
+	}
+
+	private static void invokeMethod(MethodVisitor mv, Method method) {
+		Class<?> declaringClass = method.getDeclaringClass();
+		boolean isInterface = declaringClass.isInterface();
+		mv.visitMethodInsn((isInterface ? Opcodes.INVOKEINTERFACE : Opcodes.INVOKEVIRTUAL),
+				Type.getInternalName(declaringClass), method.getName(), Type.getMethodDescriptor(method), isInterface);
+	}
+
+
+	/**
+	 * ClassLoader for a generated invoker class, as a child of the bean's ClassLoader.
+	 */
+	private static class InvokerClassLoader extends ClassLoader {
+
+		InvokerClassLoader(ClassLoader parent) {
+			super(parent);
+		}
+
+		Class<?> defineClass(String name, byte[] bytes) {
+			return defineClass(name, bytes, 0, bytes.length);
+		}
+	}
+
+}
@@ -985,6 +985,39 @@ public abstract class AbstractAutowireCapableBeanFactory extends AbstractBeanFac
 	 */
 	@Nullable
 	private FactoryBean<?> getSingletonFactoryBeanForTypeCheck(String beanName, RootBeanDefinition mbd) {
+		if (isConcurrentSingletonCreation()) {
+			// A FactoryBean in creation by another thread is about to be available:
+			// wait for it rather than reporting an undetermined type for the time being.
+			boolean creationClaimed;
+			try {
+				creationClaimed = claimSingletonCreation(beanName);
+			}
+			catch (BeanCurrentlyInCreationException ex) {
+				// Cannot wait for the creating thread...
+				return null;
+			}
+			try {
+				return doGetSingletonFactoryBeanForTypeCheck(beanName, mbd);
+			}
+			finally {
+				if (creationClaimed) {
+					releaseSingletonCreation(beanName);
+				}
+			}
+		}
+		return doGetSingletonFactoryBeanForTypeCheck(beanName, mbd);
+	}
+
+	/**
+	 * Obtain a "shortcut" singleton FactoryBean instance within the singleton mutex.
+	 * @param beanName the name of the bean
+	 * @param mbd the bean definition for the bean
+	 * @return the FactoryBean instance, or {@code null} to indicate
+	 * that we couldn't obtain a shortcut FactoryBean instance
+	 * @see #getSingletonFactoryBeanForTypeCheck
+	 */
+	@Nullable
+	private FactoryBean<?> doGetSingletonFactoryBeanForTypeCheck(String beanName, RootBeanDefinition mbd) {
 		synchronized (getSingletonMutex()) {
 			BeanWrapper bw = this.factoryBeanInstanceCache.get(beanName);
 			if (bw != null) {
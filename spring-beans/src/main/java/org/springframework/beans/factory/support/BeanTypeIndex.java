@@ -0,0 +1,271 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.beans.factory.support;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.springframework.lang.Nullable;
+
+/**
+ * Incrementally maintained index of bean definition names by type hierarchy,
+ * used by {@link DefaultListableBeanFactory} to narrow down the bean definitions
+ * that need a full type check for a by-type lookup.
+ *
+ * <p>Each bean name is registered under the given types as well as all of their
+ * superclasses and interfaces. Bean names whose types could not be determined
+ * (e.g. {@code FactoryBean} definitions) are kept as candidates for every type,
+ * as are bean names which have been registered or invalidated but not been
+ * re-indexed yet. The index therefore reports a superset of the matching bean
+ * names, leaving the actual (potentially generics-aware) type check to the
+ * calling factory.
+ *
+ * <p>Type determination happens outside of this index: callers retrieve the
+ * pending bean names via {@link #claimPendingBeanNames()}, determine the types
+ * without holding any lock and report them back via {@link #indexBeanTypes}.
+ * A bean name that has been invalidated in the meantime will be ignored in
+ * the latter step and remains pending.
+ *
+ * @author Lars Hofmann
+ * @since 5.3.8
+ * @see DefaultListableBeanFactory#getBeanNamesForType
+ */
+final class BeanTypeIndex {
+
+	private static final Comparator<Entry> REGISTRATION_ORDER = Comparator.comparingInt(entry -> entry.order);
+
+
+	/** Index entries, keyed by bean name. */
+	private final Map<String, Entry> entries = new HashMap<>(256);
+
+	/** Indexed bean names, keyed by each type in their type hierarchy. */
+	private final Map<Class<?>, Set<String>> beanNamesByType = new HashMap<>(256);
+
+	/** Bean names which need to be checked for every type: unindexed, pending or in progress. */
+	private final Set<String> unresolvedBeanNames = new LinkedHashSet<>(64);
+
+	private int nextOrder;
+
+
+	/**
+	 * Reset this index to the given bean names, marking all of them as pending.
+	 * @param beanNames the bean definition names, in registration order
+	 */
+	public synchronized void reset(Collection<String> beanNames) {
+		this.entries.clear();
+		this.beanNamesByType.clear();
+		this.unresolvedBeanNames.clear();
+		this.nextOrder = 0;
+		for (String beanName : beanNames) {
+			register(beanName);
+		}
+	}
+
+	/**
+	 * Register the given bean name, or invalidate it if already registered.
+	 * @param beanName the name of the bean definition
+	 */
+	public synchronized void register(String beanName) {
+		Entry entry = this.entries.get(beanName);
+		if (entry != null) {
+			invalidate(entry);
+		}
+		else {
+			this.entries.put(beanName, new Entry(beanName, this.nextOrder++));
+			this.unresolvedBeanNames.add(beanName);
+		}
+	}
+
+	/**
+	 * Remove the given bean name from this index.
+	 * @param beanName the name of the bean definition
+	 */
+	public synchronized void remove(String beanName) {
+		Entry entry = this.entries.remove(beanName);
+		if (entry != null) {
+			removeTypes(entry);
+			this.unresolvedBeanNames.remove(beanName);
+		}
+	}
+
+	/**
+	 * Invalidate the types for the given bean name, marking it as pending.
+	 * <p>Does nothing if the given bean name is not registered.
+	 * @param beanName the name of the bean definition
+	 */
+	public synchronized void invalidate(String beanName) {
+		Entry entry = this.entries.get(beanName);
+		if (entry != null) {
+			invalidate(entry);
+		}
+	}
+
+	/**
+	 * Invalidate the types for all bean names, marking them as pending.
+	 */
+	public synchronized void invalidateAll() {
+		this.beanNamesByType.clear();
+		for (Entry entry : this.entries.values()) {
+			entry.types = null;
+			entry.pending = true;
+			entry.generation++;
+			this.unresolvedBeanNames.add(entry.beanName);
+		}
+	}
+
+	private void invalidate(Entry entry) {
+		removeTypes(entry);
+		entry.types = null;
+		entry.pending = true;
+		entry.generation++;
+		this.unresolvedBeanNames.add(entry.beanName);
+	}
+
+	private void removeTypes(Entry entry) {
+		if (entry.types != null) {
+			for (Class<?> type : entry.types) {
+				Set<String> beanNames = this.beanNamesByType.get(type);
+				if (beanNames != null) {
+					beanNames.remove(entry.beanName);
+					if (beanNames.isEmpty()) {
+						this.beanNamesByType.remove(type);
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Claim all currently pending bean names for type determination.
+	 * <p>Claimed bean names remain candidates for every type until
+	 * their types have been reported via {@link #indexBeanTypes}.
+	 * @return the claimed bean names, mapped to their current generation
+	 * (to be passed back to {@link #indexBeanTypes})
+	 */
+	public synchronized Map<String, Integer> claimPendingBeanNames() {
+		if (this.unresolvedBeanNames.isEmpty()) {
+			return Collections.emptyMap();
+		}
+		Map<String, Integer> claimed = new LinkedHashMap<>();
+		for (String beanName : this.unresolvedBeanNames) {
+			Entry entry = this.entries.get(beanName);
+			if (entry != null && entry.pending) {
+				entry.pending = false;
+				claimed.put(beanName, entry.generation);
+			}
+		}
+		return claimed;
+	}
+
+	/**
+	 * Index the given bean name under the given types and their type hierarchy.
+	 * <p>Ignored if the bean name has been removed or invalidated since it was claimed.
+	 * @param beanName the name of the bean definition
+	 * @param generation the generation that the bean name was claimed with
+	 * @param types the types to index, or {@code null} if the type of the bean
+	 * cannot be determined upfront (keeping it as a candidate for every type)
+	 */
+	public synchronized void indexBeanTypes(String beanName, int generation, @Nullable Class<?>... types) {
+		Entry entry = this.entries.get(beanName);
+		if (entry == null || entry.pending || entry.generation != generation || entry.types != null) {
+			return;
+		}
+		if (types == null) {
+			// Not indexable: remains a candidate for every type.
+			return;
+		}
+		Set<Class<?>> hierarchy = new LinkedHashSet<>();
+		for (Class<?> type : types) {
+			if (type != null) {
+				collectTypeHierarchy(type, hierarchy);
+			}
+		}
+		if (!hierarchy.isEmpty()) {
+			hierarchy.add(Object.class);
+		}
+		for (Class<?> type : hierarchy) {
+			this.beanNamesByType.computeIfAbsent(type, key -> new LinkedHashSet<>()).add(beanName);
+		}
+		entry.types = hierarchy.toArray(new Class<?>[0]);
+		this.unresolvedBeanNames.remove(beanName);
+	}
+
+	private static void collectTypeHierarchy(Class<?> type, Set<Class<?>> hierarchy) {
+		Class<?> current = type;
+		while (current != null && hierarchy.add(current)) {
+			for (Class<?> ifc : current.getInterfaces()) {
+				collectTypeHierarchy(ifc, hierarchy);
+			}
+			current = current.getSuperclass();
+		}
+	}
+
+	/**
+	 * Return the candidate bean names for the given type, in registration order:
+	 * all bean names indexed under the given type plus all unresolved bean names.
+	 * @param type the raw type to match
+	 * @return the candidate bean names (never {@code null})
+	 */
+	public synchronized List<String> getCandidateBeanNames(Class<?> type) {
+		Set<String> indexed = this.beanNamesByType.getOrDefault(type, Collections.emptySet());
+		List<Entry> candidates = new ArrayList<>(indexed.size() + this.unresolvedBeanNames.size());
+		for (String beanName : indexed) {
+			candidates.add(this.entries.get(beanName));
+		}
+		for (String beanName : this.unresolvedBeanNames) {
+			candidates.add(this.entries.get(beanName));
+		}
+		candidates.sort(REGISTRATION_ORDER);
+		List<String> result = new ArrayList<>(candidates.size());
+		for (Entry candidate : candidates) {
+			result.add(candidate.beanName);
+		}
+		return result;
+	}
+
+
+	/**
+	 * Index state for a specific bean name.
+	 */
+	private static class Entry {
+
+		final String beanName;
+
+		final int order;
+
+		int generation;
+
+		boolean pending = true;
+
+		@Nullable
+		Class<?>[] types;
+
+		Entry(String beanName, int order) {
+			this.beanName = beanName;
+			this.order = order;
+		}
+	}
+
+}
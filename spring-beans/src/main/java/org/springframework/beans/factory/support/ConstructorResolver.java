@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2020 the original author or authors.
+ * Copyright 2002-2021 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -45,6 +45,7 @@ import org.springframework.beans.TypeConverter;
 import org.springframework.beans.TypeMismatchException;
 import org.springframework.beans.factory.BeanCreationException;
 import org.springframework.beans.factory.BeanDefinitionStoreException;
+import org.springframework.beans.factory.BeanFactory;
 import org.springframework.beans.factory.InjectionPoint;
 import org.springframework.beans.factory.NoSuchBeanDefinitionException;
 import org.springframework.beans.factory.NoUniqueBeanDefinitionException;
@@ -76,6 +77,7 @@ import org.springframework.util.StringUtils;
  * @author Costin Leau
  * @author Sebastien Deleuze
  * @author Sam Brannen
+ * @author Lars Hofmann
  * @since 2.0
  * @see #autowireConstructor
  * @see #instantiateUsingFactoryMethod
@@ -788,11 +790,13 @@ class ConstructorResolver {
 							"] - did you specify the correct bean references as arguments?");
 				}
 				try {
+					Set<String> argumentBeanNames = new LinkedHashSet<>(2);
 					Object autowiredArgument = resolveAutowiredArgument(
-							methodParam, beanName, autowiredBeanNames, converter, fallback);
+							methodParam, beanName, argumentBeanNames, converter, fallback);
+					autowiredBeanNames.addAll(argumentBeanNames);
 					args.rawArguments[paramIndex] = autowiredArgument;
 					args.arguments[paramIndex] = autowiredArgument;
-					args.preparedArguments[paramIndex] = autowiredArgumentMarker;
+					args.preparedArguments[paramIndex] = prepareAutowiredArgument(methodParam, argumentBeanNames);
 					args.resolveNecessary = true;
 				}
 				catch (BeansException ex) {
@@ -814,6 +818,24 @@ class ConstructorResolver {
 		return args;
 	}
 
+	/**
+	 * Prepare the given autowired argument for caching in the bean definition:
+	 * as a shortcut to the autowired bean if the argument has been resolved to
+	 * a single bean of the parameter type, avoiding a by-type lookup when
+	 * re-creating the same bean (e.g. a prototype or a request-scoped bean).
+	 */
+	private Object prepareAutowiredArgument(MethodParameter methodParam, Set<String> autowiredBeanNames) {
+		if (autowiredBeanNames.size() == 1) {
+			String autowiredBeanName = autowiredBeanNames.iterator().next();
+			Class<?> paramType = methodParam.getParameterType();
+			if (this.beanFactory.containsBean(autowiredBeanName) &&
+					this.beanFactory.isTypeMatch(autowiredBeanName, paramType)) {
+				return new ShortcutDependencyDescriptor(methodParam, autowiredBeanName, paramType);
+			}
+		}
+		return autowiredArgumentMarker;
+	}
+
 	/**
 	 * Resolve the prepared arguments stored in the given bean definition.
 	 */
@@ -833,6 +855,16 @@ class ConstructorResolver {
 			if (argValue == autowiredArgumentMarker) {
 				argValue = resolveAutowiredArgument(methodParam, beanName, null, converter, true);
 			}
+			else if (argValue instanceof ShortcutDependencyDescriptor) {
+				try {
+					argValue = this.beanFactory.resolveDependency(
+							(ShortcutDependencyDescriptor) argValue, beanName, null, converter);
+				}
+				catch (NoSuchBeanDefinitionException ex) {
+					// Shortcut bean not available anymore -> regular resolution by type
+					argValue = resolveAutowiredArgument(methodParam, beanName, null, converter, true);
+				}
+			}
 			else if (argValue instanceof BeanMetadataElement) {
 				argValue = valueResolver.resolveValueIfNecessary("constructor argument", argValue);
 			}
@@ -984,6 +1016,30 @@ class ConstructorResolver {
 	}
 
 
+	/**
+	 * DependencyDescriptor variant with a pre-resolved target bean name,
+	 * for a cached autowired argument.
+	 */
+	@SuppressWarnings("serial")
+	private static class ShortcutDependencyDescriptor extends DependencyDescriptor {
+
+		private final String shortcut;
+
+		private final Class<?> requiredType;
+
+		public ShortcutDependencyDescriptor(MethodParameter methodParameter, String shortcut, Class<?> requiredType) {
+			super(methodParameter, true);
+			this.shortcut = shortcut;
+			this.requiredType = requiredType;
+		}
+
+		@Override
+		public Object resolveShortcut(BeanFactory beanFactory) {
+			return beanFactory.getBean(this.shortcut, this.requiredType);
+		}
+	}
+
+
 	/**
 	 * Delegate for checking Java 6's {@link ConstructorProperties} annotation.
 	 */
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2020 the original author or authors.
+ * Copyright 2002-2021 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -25,20 +25,28 @@ import java.lang.annotation.Annotation;
 import java.lang.ref.Reference;
 import java.lang.ref.WeakReference;
 import java.lang.reflect.Method;
+import java.lang.reflect.TypeVariable;
+import java.lang.reflect.WildcardType;
 import java.security.AccessController;
 import java.security.PrivilegedAction;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.IdentityHashMap;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.function.Consumer;
 import java.util.function.Predicate;
 import java.util.stream.Stream;
@@ -46,6 +54,7 @@ import java.util.stream.Stream;
 import javax.inject.Provider;
 
 import org.springframework.beans.BeansException;
+import org.springframework.beans.PropertyValue;
 import org.springframework.beans.TypeConverter;
 import org.springframework.beans.factory.BeanCreationException;
 import org.springframework.beans.factory.BeanCurrentlyInCreationException;
@@ -68,8 +77,11 @@ import org.springframework.beans.factory.config.BeanDefinition;
 import org.springframework.beans.factory.config.BeanDefinitionHolder;
 import org.springframework.beans.factory.config.ConfigurableBeanFactory;
 import org.springframework.beans.factory.config.ConfigurableListableBeanFactory;
+import org.springframework.beans.factory.config.ConstructorArgumentValues;
 import org.springframework.beans.factory.config.DependencyDescriptor;
 import org.springframework.beans.factory.config.NamedBeanHolder;
+import org.springframework.beans.factory.config.RuntimeBeanReference;
+import org.springframework.core.Conventions;
 import org.springframework.core.OrderComparator;
 import org.springframework.core.ResolvableType;
 import org.springframework.core.annotation.MergedAnnotation;
@@ -121,6 +133,19 @@ import org.springframework.util.StringUtils;
 public class DefaultListableBeanFactory extends AbstractAutowireCapableBeanFactory
 		implements ConfigurableListableBeanFactory, BeanDefinitionRegistry, Serializable {
 
+	/**
+	 * Bean definition attribute that marks a non-lazy singleton as eligible for
+	 * creation on the {@link #setBootstrapExecutor bootstrap executor}. Only to be
+	 * set for beans which declare all of their dependencies in their bean definition,
+	 * i.e. without annotation-driven injection points such as {@code @Autowired}
+	 * fields, since those are only discovered during creation.
+	 * @since 5.3.8
+	 * @see #setBootstrapExecutor
+	 */
+	public static final String CONCURRENT_BOOTSTRAP_ATTRIBUTE =
+			Conventions.getQualifiedAttributeName(DefaultListableBeanFactory.class, "concurrentBootstrap");
+
+
 	@Nullable
 	private static Class<?> javaxInjectProviderClass;
 
@@ -172,6 +197,9 @@ public class DefaultListableBeanFactory extends AbstractAutowireCapableBeanFacto
 	/** Map of singleton-only bean names, keyed by dependency type. */
 	private final Map<Class<?>, String[]> singletonBeanNamesByType = new ConcurrentHashMap<>(64);
 
+	/** Index of bean definition names by type hierarchy, used in case of frozen configuration. */
+	private final BeanTypeIndex beanTypeIndex = new BeanTypeIndex();
+
 	/** List of bean definition names, in registration order. */
 	private volatile List<String> beanDefinitionNames = new ArrayList<>(256);
 
@@ -185,6 +213,10 @@ public class DefaultListableBeanFactory extends AbstractAutowireCapableBeanFacto
 	/** Whether bean definition metadata may be cached for all beans. */
 	private volatile boolean configurationFrozen;
 
+	/** Optional Executor for creating independent singletons concurrently on startup. */
+	@Nullable
+	private Executor bootstrapExecutor;
+
 
 	/**
 	 * Create a new DefaultListableBeanFactory.
@@ -269,6 +301,52 @@ public class DefaultListableBeanFactory extends AbstractAutowireCapableBeanFacto
 		return this.allowEagerClassLoading;
 	}
 
+	/**
+	 * Specify an {@link Executor} for creating non-lazy singletons concurrently
+	 * in {@link #preInstantiateSingletons()}.
+	 * <p>Only singletons marked through the {@link #CONCURRENT_BOOTSTRAP_ATTRIBUTE}
+	 * (and not autowired by type or constructor) are submitted to the executor.
+	 * Those are scheduled according to the dependencies declared in their bean
+	 * definitions: {@code depends-on} declarations, bean references in constructor
+	 * arguments and property values, factory bean references and dependencies
+	 * registered already. A marked singleton is only submitted once all of those
+	 * dependencies have been created. All other singletons are created on the
+	 * calling thread in the meantime, in registration order. Singletons within
+	 * (or depending on) a circular dependency are created on the calling thread
+	 * afterwards, in registration order, as are singletons whose creation failed
+	 * with a {@link BeanCurrentlyInCreationException}, e.g. on a circular reference
+	 * between threads. {@link SmartInitializingSingleton} callbacks are always
+	 * invoked on the calling thread in registration order.
+	 * <p>While the marked singletons are being created,
+	 * {@link #setConcurrentSingletonCreation concurrent singleton creation} is
+	 * enabled: a thread requesting a singleton in creation by another thread waits
+	 * for it, including type checks against a {@link FactoryBean} in creation.
+	 * <p>Since singletons are created on several threads, the configured
+	 * {@link #setApplicationStartup ApplicationStartup} must be thread-safe,
+	 * tracking the current step per thread, as is the case for the default
+	 * no-op implementation and for the Java Flight Recorder variant.
+	 * <p>Default is none, creating all singletons sequentially on the calling
+	 * thread. Note that the given executor should have a bounded number of
+	 * threads; the calling thread waits for all submitted singletons, so
+	 * the executor must not use the calling thread's resources itself.
+	 * @since 5.3.8
+	 * @see #CONCURRENT_BOOTSTRAP_ATTRIBUTE
+	 * @see #preInstantiateSingletons()
+	 */
+	public void setBootstrapExecutor(@Nullable Executor bootstrapExecutor) {
+		this.bootstrapExecutor = bootstrapExecutor;
+	}
+
+	/**
+	 * Return the {@link Executor} for creating independent singletons
+	 * concurrently, if any.
+	 * @since 5.3.8
+	 */
+	@Nullable
+	public Executor getBootstrapExecutor() {
+		return this.bootstrapExecutor;
+	}
+
 	/**
 	 * Set a {@link java.util.Comparator} for dependency Lists and arrays.
 	 * @since 4.0
@@ -325,6 +403,7 @@ public class DefaultListableBeanFactory extends AbstractAutowireCapableBeanFacto
 			this.allowBeanDefinitionOverriding = otherListableFactory.allowBeanDefinitionOverriding;
 			this.allowEagerClassLoading = otherListableFactory.allowEagerClassLoading;
 			this.dependencyComparator = otherListableFactory.dependencyComparator;
+			this.bootstrapExecutor = otherListableFactory.bootstrapExecutor;
 			// A clone of the AutowireCandidateResolver since it is potentially BeanFactoryAware
 			setAutowireCandidateResolver(otherListableFactory.getAutowireCandidateResolver().cloneIfNecessary());
 			// Make resolvable dependencies (e.g. ResourceLoader) available here as well
@@ -557,8 +636,8 @@ public class DefaultListableBeanFactory extends AbstractAutowireCapableBeanFacto
 	private String[] doGetBeanNamesForType(ResolvableType type, boolean includeNonSingletons, boolean allowEagerInit) {
 		List<String> result = new ArrayList<>();
 
-		// Check all bean definitions.
-		for (String beanName : this.beanDefinitionNames) {
+		// Check all bean definitions, or just the indexed candidates for the given type.
+		for (String beanName : getBeanDefinitionNamesToMatch(type)) {
 			// Only consider bean as eligible if the bean name is not defined as alias for some other bean.
 			if (!isAlias(beanName)) {
 				try {
@@ -639,6 +718,95 @@ public class DefaultListableBeanFactory extends AbstractAutowireCapableBeanFacto
 		return StringUtils.toStringArray(result);
 	}
 
+	/**
+	 * Determine the bean definition names to check against the given type:
+	 * all bean definition names or, in case of frozen configuration, just the
+	 * candidates from the type index (a superset of the actual matches).
+	 * @param type the type to match
+	 * @return the bean definition names to check, in registration order
+	 * @since 5.3.8
+	 * @see #freezeConfiguration()
+	 */
+	private List<String> getBeanDefinitionNamesToMatch(ResolvableType type) {
+		Class<?> rawType = type.resolve();
+		if (!isConfigurationFrozen() || getTempClassLoader() != null || rawType == null ||
+				rawType.isArray() || rawType.isPrimitive() ||
+				type.getType() instanceof TypeVariable || type.getType() instanceof WildcardType) {
+			return this.beanDefinitionNames;
+		}
+		Map<String, Integer> pendingBeanNames = this.beanTypeIndex.claimPendingBeanNames();
+		for (Map.Entry<String, Integer> entry : pendingBeanNames.entrySet()) {
+			String beanName = entry.getKey();
+			this.beanTypeIndex.indexBeanTypes(beanName, entry.getValue(), determineIndexedTypes(beanName));
+		}
+		return this.beanTypeIndex.getCandidateBeanNames(rawType);
+	}
+
+	/**
+	 * Determine the types to index the given bean definition under: the type of an
+	 * exposed singleton instance or the predicted bean type, as well as the defined
+	 * target type or factory method return type (for generic matches).
+	 * <p>Mirrors the type determination in {@link #isTypeMatch(String, ResolvableType, boolean)}:
+	 * a bean that may match a type which is not part of the returned types' hierarchy
+	 * must not be indexed at all.
+	 * @param beanName the name of the bean definition
+	 * @return the types to index, or {@code null} if the bean needs to be
+	 * checked for every type (e.g. in case of a {@code FactoryBean})
+	 * @since 5.3.8
+	 */
+	@Nullable
+	private Class<?>[] determineIndexedTypes(String beanName) {
+		try {
+			if (isAlias(beanName)) {
+				return null;
+			}
+			RootBeanDefinition mbd = getMergedLocalBeanDefinition(beanName);
+			if (mbd.isAbstract()) {
+				return new Class<?>[0];
+			}
+			if ((!mbd.hasBeanClass() && mbd.isLazyInit() && !isAllowEagerClassLoading()) ||
+					requiresEagerInitForType(mbd.getFactoryBeanName())) {
+				return null;
+			}
+			Class<?> beanType;
+			Object beanInstance = getSingleton(beanName, false);
+			if (beanInstance != null && beanInstance.getClass() != NullBean.class) {
+				if (beanInstance instanceof FactoryBean) {
+					return null;
+				}
+				beanType = beanInstance.getClass();
+			}
+			else {
+				if (isFactoryBean(beanName, mbd)) {
+					return null;
+				}
+				beanType = predictBeanType(beanName, mbd);
+				if (beanType == null || FactoryBean.class.isAssignableFrom(beanType)) {
+					return null;
+				}
+			}
+			if (beanType.isArray() || beanType.isPrimitive()) {
+				return null;
+			}
+			ResolvableType definedType = mbd.targetType;
+			if (definedType == null) {
+				definedType = mbd.factoryMethodReturnType;
+			}
+			Class<?> definedClass = (definedType != null ? definedType.resolve() : null);
+			if (definedClass != null && definedClass != beanType) {
+				if (definedClass.isArray() || definedClass.isPrimitive()) {
+					return null;
+				}
+				return new Class<?>[] {beanType, definedClass};
+			}
+			return new Class<?>[] {beanType};
+		}
+		catch (BeansException ex) {
+			// Leave it to the regular type check, including its exception handling.
+			return null;
+		}
+	}
+
 	private boolean isSingleton(String beanName, RootBeanDefinition mbd, @Nullable BeanDefinitionHolder dbd) {
 		return (dbd != null ? mbd.isSingleton() : isSingleton(beanName));
 	}
@@ -883,6 +1051,7 @@ public class DefaultListableBeanFactory extends AbstractAutowireCapableBeanFacto
 	public void clearMetadataCache() {
 		super.clearMetadataCache();
 		this.mergedBeanDefinitionHolders.clear();
+		this.beanTypeIndex.invalidateAll();
 		clearByTypeCache();
 	}
 
@@ -890,6 +1059,7 @@ public class DefaultListableBeanFactory extends AbstractAutowireCapableBeanFacto
 	public void freezeConfiguration() {
 		this.configurationFrozen = true;
 		this.frozenBeanDefinitionNames = StringUtils.toStringArray(this.beanDefinitionNames);
+		this.beanTypeIndex.reset(this.beanDefinitionNames);
 	}
 
 	@Override
@@ -918,30 +1088,15 @@ public class DefaultListableBeanFactory extends AbstractAutowireCapableBeanFacto
 		List<String> beanNames = new ArrayList<>(this.beanDefinitionNames);
 
 		// Trigger initialization of all non-lazy singleton beans...
-		for (String beanName : beanNames) {
-			RootBeanDefinition bd = getMergedLocalBeanDefinition(beanName);
-			if (!bd.isAbstract() && bd.isSingleton() && !bd.isLazyInit()) {
-				if (isFactoryBean(beanName)) {
-					Object bean = getBean(FACTORY_BEAN_PREFIX + beanName);
-					if (bean instanceof FactoryBean) {
-						FactoryBean<?> factory = (FactoryBean<?>) bean;
-						boolean isEagerInit;
-						if (System.getSecurityManager() != null && factory instanceof SmartFactoryBean) {
-							isEagerInit = AccessController.doPrivileged(
-									(PrivilegedAction<Boolean>) ((SmartFactoryBean<?>) factory)::isEagerInit,
-									getAccessControlContext());
-						}
-						else {
-							isEagerInit = (factory instanceof SmartFactoryBean &&
-									((SmartFactoryBean<?>) factory).isEagerInit());
-						}
-						if (isEagerInit) {
-							getBean(beanName);
-						}
-					}
-				}
-				else {
-					getBean(beanName);
+		Executor executor = getBootstrapExecutor();
+		if (executor != null) {
+			preInstantiateSingletonsConcurrently(beanNames, executor);
+		}
+		else {
+			for (String beanName : beanNames) {
+				RootBeanDefinition bd = getMergedLocalBeanDefinition(beanName);
+				if (!bd.isAbstract() && bd.isSingleton() && !bd.isLazyInit()) {
+					preInstantiateSingleton(beanName);
 				}
 			}
 		}
@@ -968,6 +1123,155 @@ public class DefaultListableBeanFactory extends AbstractAutowireCapableBeanFacto
 	}
 
 
+	/**
+	 * Instantiate the given non-lazy singleton bean, or just the FactoryBean
+	 * instance in case of a non-eager {@link FactoryBean}.
+	 * @param beanName the name of the bean
+	 */
+	private void preInstantiateSingleton(String beanName) {
+		if (isFactoryBean(beanName)) {
+			Object bean = getBean(FACTORY_BEAN_PREFIX + beanName);
+			if (bean instanceof FactoryBean) {
+				FactoryBean<?> factory = (FactoryBean<?>) bean;
+				boolean isEagerInit;
+				if (System.getSecurityManager() != null && factory instanceof SmartFactoryBean) {
+					isEagerInit = AccessController.doPrivileged(
+							(PrivilegedAction<Boolean>) ((SmartFactoryBean<?>) factory)::isEagerInit,
+							getAccessControlContext());
+				}
+				else {
+					isEagerInit = (factory instanceof SmartFactoryBean &&
+							((SmartFactoryBean<?>) factory).isEagerInit());
+				}
+				if (isEagerInit) {
+					getBean(beanName);
+				}
+			}
+		}
+		else {
+			getBean(beanName);
+		}
+	}
+
+	/**
+	 * Instantiate all non-lazy singletons among the given bean names, creating
+	 * singletons marked for concurrent bootstrap through the given executor.
+	 * @param beanNames the bean definition names, in registration order
+	 * @param executor the executor to submit singleton creation to
+	 * @since 5.3.8
+	 * @see #setBootstrapExecutor
+	 */
+	private void preInstantiateSingletonsConcurrently(List<String> beanNames, Executor executor) {
+		Map<String, Set<String>> dependencies = new LinkedHashMap<>();
+		Set<String> concurrentBeanNames = new HashSet<>();
+		for (String beanName : beanNames) {
+			RootBeanDefinition bd = getMergedLocalBeanDefinition(beanName);
+			if (!bd.isAbstract() && bd.isSingleton() && !bd.isLazyInit()) {
+				Set<String> dependenciesForBean = new LinkedHashSet<>();
+				Collections.addAll(dependenciesForBean, getDependenciesForBean(beanName));
+				collectDeclaredDependencies(bd, dependenciesForBean);
+				dependencies.put(beanName, dependenciesForBean);
+				if (isConcurrentBootstrapCandidate(bd)) {
+					concurrentBeanNames.add(beanName);
+				}
+			}
+		}
+
+		Set<String> remainingBeanNames = dependencies.keySet();
+		if (!concurrentBeanNames.isEmpty()) {
+			ConcurrentSingletonInstantiation instantiation =
+					new ConcurrentSingletonInstantiation(dependencies, concurrentBeanNames, executor);
+			setConcurrentSingletonCreation(true);
+			try {
+				instantiation.run();
+			}
+			finally {
+				setConcurrentSingletonCreation(false);
+			}
+			remainingBeanNames = instantiation.getRemainingBeanNames();
+		}
+
+		// Circular dependencies among the remaining singletons: create them one by one.
+		for (String beanName : remainingBeanNames) {
+			preInstantiateSingleton(beanName);
+		}
+	}
+
+	/**
+	 * Determine whether the given bean definition is marked for creation on the
+	 * bootstrap executor, with all of its dependencies declared upfront.
+	 * @param bd the merged bean definition to check
+	 * @since 5.3.8
+	 * @see #CONCURRENT_BOOTSTRAP_ATTRIBUTE
+	 */
+	private boolean isConcurrentBootstrapCandidate(RootBeanDefinition bd) {
+		if (bd.getResolvedAutowireMode() != AUTOWIRE_NO) {
+			return false;
+		}
+		Object value = bd.getAttribute(CONCURRENT_BOOTSTRAP_ATTRIBUTE);
+		return (value != null && (Boolean.TRUE.equals(value) || Boolean.parseBoolean(value.toString())));
+	}
+
+	/**
+	 * Collect the names of all beans that the given bean definition declares
+	 * dependencies on: {@code depends-on} beans, the factory bean, as well as
+	 * bean references in constructor arguments and property values, including
+	 * those within inner bean definitions and managed collections.
+	 * @param bd the bean definition to introspect
+	 * @param result the Set to add the (canonical) bean names to
+	 * @since 5.3.8
+	 */
+	private void collectDeclaredDependencies(BeanDefinition bd, Set<String> result) {
+		String[] dependsOn = bd.getDependsOn();
+		if (dependsOn != null) {
+			for (String dependsOnBean : dependsOn) {
+				result.add(canonicalName(transformedBeanName(dependsOnBean)));
+			}
+		}
+		String factoryBeanName = bd.getFactoryBeanName();
+		if (factoryBeanName != null) {
+			result.add(canonicalName(transformedBeanName(factoryBeanName)));
+		}
+		if (bd.hasConstructorArgumentValues()) {
+			ConstructorArgumentValues cav = bd.getConstructorArgumentValues();
+			for (ConstructorArgumentValues.ValueHolder valueHolder : cav.getIndexedArgumentValues().values()) {
+				collectReferencedBeanNames(valueHolder.getValue(), result);
+			}
+			for (ConstructorArgumentValues.ValueHolder valueHolder : cav.getGenericArgumentValues()) {
+				collectReferencedBeanNames(valueHolder.getValue(), result);
+			}
+		}
+		if (bd.hasPropertyValues()) {
+			for (PropertyValue pv : bd.getPropertyValues().getPropertyValues()) {
+				collectReferencedBeanNames(pv.getValue(), result);
+			}
+		}
+	}
+
+	private void collectReferencedBeanNames(@Nullable Object value, Set<String> result) {
+		if (value instanceof RuntimeBeanReference) {
+			result.add(canonicalName(transformedBeanName(((RuntimeBeanReference) value).getBeanName())));
+		}
+		else if (value instanceof BeanDefinitionHolder) {
+			collectDeclaredDependencies(((BeanDefinitionHolder) value).getBeanDefinition(), result);
+		}
+		else if (value instanceof BeanDefinition) {
+			collectDeclaredDependencies((BeanDefinition) value, result);
+		}
+		else if (value instanceof Collection) {
+			for (Object element : (Collection<?>) value) {
+				collectReferencedBeanNames(element, result);
+			}
+		}
+		else if (value instanceof Map) {
+			for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+				collectReferencedBeanNames(entry.getKey(), result);
+				collectReferencedBeanNames(entry.getValue(), result);
+			}
+		}
+	}
+
+
 	//---------------------------------------------------------------------
 	// Implementation of BeanDefinitionRegistry interface
 	//---------------------------------------------------------------------
@@ -1037,6 +1341,7 @@ public class DefaultListableBeanFactory extends AbstractAutowireCapableBeanFacto
 				removeManualSingletonName(beanName);
 			}
 			this.frozenBeanDefinitionNames = null;
+			this.beanTypeIndex.register(beanName);
 		}
 
 		if (existingDefinition != null || containsSingleton(beanName)) {
@@ -1072,6 +1377,7 @@ public class DefaultListableBeanFactory extends AbstractAutowireCapableBeanFacto
 			this.beanDefinitionNames.remove(beanName);
 		}
 		this.frozenBeanDefinitionNames = null;
+		this.beanTypeIndex.remove(beanName);
 
 		resetBeanDefinition(beanName);
 	}
@@ -1090,6 +1396,7 @@ public class DefaultListableBeanFactory extends AbstractAutowireCapableBeanFacto
 	protected void resetBeanDefinition(String beanName) {
 		// Remove the merged bean definition for the given bean, if already created.
 		clearMergedBeanDefinition(beanName);
+		this.beanTypeIndex.invalidate(beanName);
 
 		// Remove corresponding bean from singleton cache, if any. Shouldn't usually
 		// be necessary, rather just meant for overriding a context's default beans
@@ -1140,10 +1447,21 @@ public class DefaultListableBeanFactory extends AbstractAutowireCapableBeanFacto
 		clearByTypeCache();
 	}
 
+	/**
+	 * Overridden to let the type index pick up the actual type of the
+	 * singleton instance (e.g. a proxy) instead of the predicted bean type.
+	 */
+	@Override
+	protected void addSingleton(String beanName, Object singletonObject) {
+		super.addSingleton(beanName, singletonObject);
+		this.beanTypeIndex.invalidate(beanName);
+	}
+
 	@Override
 	public void destroySingletons() {
 		super.destroySingletons();
 		updateManualSingletonNames(Set::clear, set -> !set.isEmpty());
+		this.beanTypeIndex.invalidateAll();
 		clearByTypeCache();
 	}
 
@@ -1151,6 +1469,7 @@ public class DefaultListableBeanFactory extends AbstractAutowireCapableBeanFacto
 	public void destroySingleton(String beanName) {
 		super.destroySingleton(beanName);
 		removeManualSingletonName(beanName);
+		this.beanTypeIndex.invalidate(beanName);
 		clearByTypeCache();
 	}
 
@@ -2173,4 +2492,182 @@ public class DefaultListableBeanFactory extends AbstractAutowireCapableBeanFacto
 		}
 	}
 
+
+	/**
+	 * Concurrent creation of non-lazy singletons along their dependency graph:
+	 * a singleton marked for concurrent bootstrap is submitted to the executor
+	 * once all of its dependencies within the graph have been created, whereas
+	 * all other singletons are created on the calling thread in registration order.
+	 */
+	private class ConcurrentSingletonInstantiation {
+
+		private final Executor executor;
+
+		private final Set<String> concurrentBeanNames;
+
+		private final Map<String, List<String>> dependents = new HashMap<>();
+
+		private final Map<String, Integer> pendingDependencyCounts = new HashMap<>();
+
+		/** Singletons which have not been created yet, in registration order. */
+		private final Set<String> remainingBeanNames;
+
+		private final List<String> initialBeanNames = new ArrayList<>();
+
+		private int activeCount;
+
+		@Nullable
+		private Throwable failure;
+
+		ConcurrentSingletonInstantiation(
+				Map<String, Set<String>> dependencies, Set<String> concurrentBeanNames, Executor executor) {
+
+			this.executor = executor;
+			this.concurrentBeanNames = concurrentBeanNames;
+			this.remainingBeanNames = new LinkedHashSet<>(dependencies.keySet());
+			dependencies.forEach((beanName, dependenciesForBean) -> {
+				int count = 0;
+				for (String dependency : dependenciesForBean) {
+					if (!dependency.equals(beanName) && dependencies.containsKey(dependency)) {
+						this.dependents.computeIfAbsent(dependency, key -> new ArrayList<>()).add(beanName);
+						count++;
+					}
+				}
+				if (count > 0) {
+					this.pendingDependencyCounts.put(beanName, count);
+				}
+				else if (concurrentBeanNames.contains(beanName)) {
+					this.initialBeanNames.add(beanName);
+				}
+			});
+		}
+
+		/**
+		 * Create all singletons which are not part of a dependency cycle, the
+		 * unmarked ones on the calling thread, waiting for the completion of all
+		 * submitted creation tasks.
+		 */
+		public void run() {
+			synchronized (this) {
+				this.activeCount += this.initialBeanNames.size();
+			}
+			submit(this.initialBeanNames);
+			for (String beanName : getRemainingBeanNames()) {
+				if (!this.concurrentBeanNames.contains(beanName)) {
+					synchronized (this) {
+						if (this.failure != null) {
+							break;
+						}
+					}
+					instantiate(beanName);
+				}
+			}
+			synchronized (this) {
+				while (this.activeCount > 0) {
+					try {
+						wait();
+					}
+					catch (InterruptedException ex) {
+						Thread.currentThread().interrupt();
+						throw new IllegalStateException(
+								"Interrupted while waiting for concurrent creation of singleton beans", ex);
+					}
+				}
+			}
+			Throwable failure = this.failure;
+			if (failure instanceof RuntimeException) {
+				throw (RuntimeException) failure;
+			}
+			if (failure instanceof Error) {
+				throw (Error) failure;
+			}
+		}
+
+		/**
+		 * Return the names of all singletons which have not been created,
+		 * in registration order: i.e. those within or depending on a cycle,
+		 * as well as those which failed with a {@link BeanCurrentlyInCreationException}.
+		 */
+		public synchronized Set<String> getRemainingBeanNames() {
+			return new LinkedHashSet<>(this.remainingBeanNames);
+		}
+
+		private void submit(List<String> beanNames) {
+			for (String beanName : beanNames) {
+				Runnable task = () -> {
+					try {
+						instantiate(beanName);
+					}
+					finally {
+						synchronized (this) {
+							this.activeCount--;
+							notifyAll();
+						}
+					}
+				};
+				try {
+					this.executor.execute(task);
+				}
+				catch (RejectedExecutionException ex) {
+					// Executor saturated or shut down: create the singleton on the current thread.
+					task.run();
+				}
+			}
+		}
+
+		/**
+		 * Create the given singleton on the current thread, then submit the
+		 * marked dependents which are ready for creation.
+		 */
+		private void instantiate(String beanName) {
+			Throwable failure = null;
+			Thread currentThread = Thread.currentThread();
+			ClassLoader previousClassLoader = currentThread.getContextClassLoader();
+			ClassLoader beanClassLoader = getBeanClassLoader();
+			boolean overrideClassLoader = (beanClassLoader != null && beanClassLoader != previousClassLoader);
+			if (overrideClassLoader) {
+				currentThread.setContextClassLoader(beanClassLoader);
+			}
+			try {
+				preInstantiateSingleton(beanName);
+			}
+			catch (Throwable ex) {
+				failure = ex;
+			}
+			finally {
+				if (overrideClassLoader) {
+					currentThread.setContextClassLoader(previousClassLoader);
+				}
+			}
+
+			List<String> readyBeanNames = new ArrayList<>();
+			synchronized (this) {
+				if (failure == null) {
+					this.remainingBeanNames.remove(beanName);
+					if (this.failure == null) {
+						for (String dependent : this.dependents.getOrDefault(beanName, Collections.emptyList())) {
+							int count = this.pendingDependencyCounts.merge(dependent, -1, Integer::sum);
+							if (count == 0 && this.concurrentBeanNames.contains(dependent)) {
+								readyBeanNames.add(dependent);
+							}
+						}
+						this.activeCount += readyBeanNames.size();
+					}
+				}
+				else if (failure instanceof BeanCreationException &&
+						((BeanCreationException) failure).contains(BeanCurrentlyInCreationException.class)) {
+					// Remains to be created on the calling thread afterwards, without other threads involved.
+					if (logger.isDebugEnabled()) {
+						logger.debug("Deferring creation of singleton bean '" + beanName +
+								"' after concurrent bootstrap: " + failure);
+					}
+				}
+				else if (this.failure == null) {
+					this.failure = failure;
+				}
+			}
+			submit(readyBeanNames);
+		}
+	}
+
 }
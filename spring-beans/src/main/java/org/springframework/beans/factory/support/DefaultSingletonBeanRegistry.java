@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2020 the original author or authors.
+ * Copyright 2002-2021 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -16,12 +16,14 @@
 
 package org.springframework.beans.factory.support;
 
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
@@ -32,6 +34,7 @@ import org.springframework.beans.factory.BeanCurrentlyInCreationException;
 import org.springframework.beans.factory.DisposableBean;
 import org.springframework.beans.factory.ObjectFactory;
 import org.springframework.beans.factory.config.SingletonBeanRegistry;
+import org.springframework.core.NamedThreadLocal;
 import org.springframework.core.SimpleAliasRegistry;
 import org.springframework.lang.Nullable;
 import org.springframework.util.Assert;
@@ -61,6 +64,16 @@ import org.springframework.util.StringUtils;
  * (which inherit from it). Can alternatively also be used as a nested
  * helper to delegate to.
  *
+ * <p>Singleton creation happens within the singleton mutex by default.
+ * {@link #setConcurrentSingletonCreation Concurrent singleton creation} may be
+ * enabled for a limited phase such as a concurrent bootstrap: singleton creation
+ * is coordinated per bean name then, with the mutex only held for registry
+ * updates. Concurrent requests for the same singleton wait for the creating
+ * thread, whereas unrelated singletons may be created concurrently. An early
+ * singleton reference is never exposed to a thread other than the creating one:
+ * a circular reference between singletons in creation by different threads
+ * leads to a {@link BeanCurrentlyInCreationException} in one of those threads.
+ *
  * @author Juergen Hoeller
  * @since 2.0
  * @see #registerSingleton
@@ -78,7 +91,7 @@ public class DefaultSingletonBeanRegistry extends SimpleAliasRegistry implements
 	private final Map<String, Object> singletonObjects = new ConcurrentHashMap<>(256);
 
 	/** Cache of singleton factories: bean name to ObjectFactory. */
-	private final Map<String, ObjectFactory<?>> singletonFactories = new HashMap<>(16);
+	private final Map<String, ObjectFactory<?>> singletonFactories = new ConcurrentHashMap<>(16);
 
 	/** Cache of early singleton objects: bean name to bean instance. */
 	private final Map<String, Object> earlySingletonObjects = new ConcurrentHashMap<>(16);
@@ -90,13 +103,25 @@ public class DefaultSingletonBeanRegistry extends SimpleAliasRegistry implements
 	private final Set<String> singletonsCurrentlyInCreation =
 			Collections.newSetFromMap(new ConcurrentHashMap<>(16));
 
+	/** Threads that currently create a singleton: bean name to creating Thread. */
+	private final Map<String, Thread> singletonCreationThreads = new ConcurrentHashMap<>(16);
+
+	/** Threads that currently wait for a singleton in creation: Thread to bean name. */
+	private final Map<Thread, String> singletonCreationWaits = new HashMap<>(16);
+
+	/** Monitor for claiming singleton creation and for waiting on other creating threads. */
+	private final Object singletonCreationMonitor = new Object();
+
+	/** Whether singletons may currently be created concurrently, outside of the singleton mutex. */
+	private volatile boolean concurrentSingletonCreation = false;
+
 	/** Names of beans currently excluded from in creation checks. */
 	private final Set<String> inCreationCheckExclusions =
 			Collections.newSetFromMap(new ConcurrentHashMap<>(16));
 
-	/** Collection of suppressed Exceptions, available for associating related causes. */
-	@Nullable
-	private Set<Exception> suppressedExceptions;
+	/** Collection of suppressed Exceptions per creating thread, available for associating related causes. */
+	private final ThreadLocal<Set<Exception>> suppressedExceptions =
+			new NamedThreadLocal<>("Suppressed exceptions during singleton creation");
 
 	/** Flag that indicates whether we're currently within destroySingletons. */
 	private boolean singletonsCurrentlyInDestruction = false;
@@ -172,6 +197,10 @@ public class DefaultSingletonBeanRegistry extends SimpleAliasRegistry implements
 	 * Return the (raw) singleton object registered under the given name.
 	 * <p>Checks already instantiated singletons and also allows for an early
 	 * reference to a currently created singleton (resolving a circular reference).
+	 * <p>A singleton currently in creation by another thread (in case of
+	 * {@link #setConcurrentSingletonCreation concurrent singleton creation})
+	 * is not exposed here: {@link #getSingleton(String, ObjectFactory)} waits
+	 * for the creating thread instead.
 	 * @param beanName the name of the bean to look for
 	 * @param allowEarlyReference whether early references should be created or not
 	 * @return the registered singleton object, or {@code null} if none found
@@ -180,7 +209,8 @@ public class DefaultSingletonBeanRegistry extends SimpleAliasRegistry implements
 	protected Object getSingleton(String beanName, boolean allowEarlyReference) {
 		// Quick check for existing instance without full singleton lock
 		Object singletonObject = this.singletonObjects.get(beanName);
-		if (singletonObject == null && isSingletonCurrentlyInCreation(beanName)) {
+		if (singletonObject == null && isSingletonCurrentlyInCreation(beanName) &&
+				!isSingletonCurrentlyInCreationByOtherThread(beanName)) {
 			singletonObject = this.earlySingletonObjects.get(beanName);
 			if (singletonObject == null && allowEarlyReference) {
 				synchronized (this.singletonObjects) {
@@ -206,78 +236,245 @@ public class DefaultSingletonBeanRegistry extends SimpleAliasRegistry implements
 	/**
 	 * Return the (raw) singleton object registered under the given name,
 	 * creating and registering a new one if none registered yet.
+	 * <p>If {@link #setConcurrentSingletonCreation concurrent singleton creation}
+	 * is enabled, the singleton lock is not held while the given factory creates
+	 * the singleton object. If the singleton is currently in creation by another
+	 * thread then, this method waits for that thread to finish the creation.
 	 * @param beanName the name of the bean
 	 * @param singletonFactory the ObjectFactory to lazily create the singleton
 	 * with, if necessary
 	 * @return the registered singleton object
+	 * @throws BeanCurrentlyInCreationException in case of concurrent singleton
+	 * creation, if the singleton is in creation by another thread that cannot be
+	 * waited for
 	 */
 	public Object getSingleton(String beanName, ObjectFactory<?> singletonFactory) {
 		Assert.notNull(beanName, "Bean name must not be null");
+		if (this.concurrentSingletonCreation) {
+			return getSingletonConcurrently(beanName, singletonFactory);
+		}
 		synchronized (this.singletonObjects) {
 			Object singletonObject = this.singletonObjects.get(beanName);
 			if (singletonObject == null) {
-				if (this.singletonsCurrentlyInDestruction) {
-					throw new BeanCreationNotAllowedException(beanName,
-							"Singleton bean creation not allowed while singletons of this factory are in destruction " +
-							"(Do not request a bean from a BeanFactory in a destroy method implementation!)");
-				}
-				if (logger.isDebugEnabled()) {
-					logger.debug("Creating shared instance of singleton bean '" + beanName + "'");
-				}
-				beforeSingletonCreation(beanName);
-				boolean newSingleton = false;
-				boolean recordSuppressedExceptions = (this.suppressedExceptions == null);
-				if (recordSuppressedExceptions) {
-					this.suppressedExceptions = new LinkedHashSet<>();
-				}
-				try {
-					singletonObject = singletonFactory.getObject();
-					newSingleton = true;
+				singletonObject = createSingleton(beanName, singletonFactory);
+			}
+			return singletonObject;
+		}
+	}
+
+	/**
+	 * Return the (raw) singleton object registered under the given name,
+	 * creating and registering a new one outside of the singleton lock
+	 * if none registered yet.
+	 * @param beanName the name of the bean
+	 * @param singletonFactory the ObjectFactory to lazily create the singleton
+	 * with, if necessary
+	 * @return the registered singleton object
+	 * @see #claimSingletonCreation
+	 */
+	private Object getSingletonConcurrently(String beanName, ObjectFactory<?> singletonFactory) {
+		Object singletonObject = this.singletonObjects.get(beanName);
+		if (singletonObject != null) {
+			return singletonObject;
+		}
+		boolean creationClaimed = claimSingletonCreation(beanName);
+		try {
+			singletonObject = this.singletonObjects.get(beanName);
+			if (singletonObject == null) {
+				singletonObject = createSingleton(beanName, singletonFactory);
+			}
+			return singletonObject;
+		}
+		finally {
+			if (creationClaimed) {
+				releaseSingletonCreation(beanName);
+			}
+		}
+	}
+
+	/**
+	 * Create and register a new singleton object through the given factory.
+	 * @param beanName the name of the bean
+	 * @param singletonFactory the ObjectFactory to create the singleton with
+	 * @return the registered singleton object
+	 */
+	private Object createSingleton(String beanName, ObjectFactory<?> singletonFactory) {
+		synchronized (this.singletonObjects) {
+			if (this.singletonsCurrentlyInDestruction) {
+				throw new BeanCreationNotAllowedException(beanName,
+						"Singleton bean creation not allowed while singletons of this factory are in destruction " +
+						"(Do not request a bean from a BeanFactory in a destroy method implementation!)");
+			}
+			if (logger.isDebugEnabled()) {
+				logger.debug("Creating shared instance of singleton bean '" + beanName + "'");
+			}
+			beforeSingletonCreation(beanName);
+		}
+		Object singletonObject;
+		boolean newSingleton = false;
+		boolean recordSuppressedExceptions = (this.suppressedExceptions.get() == null);
+		if (recordSuppressedExceptions) {
+			this.suppressedExceptions.set(new LinkedHashSet<>());
+		}
+		try {
+			singletonObject = singletonFactory.getObject();
+			newSingleton = true;
+		}
+		catch (IllegalStateException ex) {
+			// Has the singleton object implicitly appeared in the meantime ->
+			// if yes, proceed with it since the exception indicates that state.
+			singletonObject = this.singletonObjects.get(beanName);
+			if (singletonObject == null) {
+				throw ex;
+			}
+		}
+		catch (BeanCreationException ex) {
+			if (recordSuppressedExceptions) {
+				for (Exception suppressedException : this.suppressedExceptions.get()) {
+					ex.addRelatedCause(suppressedException);
 				}
-				catch (IllegalStateException ex) {
-					// Has the singleton object implicitly appeared in the meantime ->
-					// if yes, proceed with it since the exception indicates that state.
-					singletonObject = this.singletonObjects.get(beanName);
-					if (singletonObject == null) {
-						throw ex;
+			}
+			throw ex;
+		}
+		finally {
+			if (recordSuppressedExceptions) {
+				this.suppressedExceptions.remove();
+			}
+			afterSingletonCreation(beanName);
+		}
+		if (newSingleton) {
+			addSingleton(beanName, singletonObject);
+		}
+		return singletonObject;
+	}
+
+	/**
+	 * Claim the creation identified by the given key for the current thread,
+	 * waiting while it is claimed by another thread. Used for the creation of
+	 * singletons (keyed by bean name) in case of concurrent singleton creation,
+	 * and available to subclasses for their own per-singleton creation phases.
+	 * <p>Waits on a dedicated creation monitor, with the singleton mutex not
+	 * being released: if the current thread holds the mutex, it cannot wait for
+	 * another thread without risking a deadlock. Neither can it wait if the other
+	 * thread in turn (directly or indirectly) waits for a creation claimed by the
+	 * current thread. A {@link BeanCurrentlyInCreationException} is thrown in both
+	 * cases; the other threads involved proceed once the current thread released
+	 * its claims, since an early singleton reference is never exposed across threads.
+	 * @param creationKey the key of the creation, e.g. a bean name
+	 * @return {@code true} if the creation has been claimed by this call,
+	 * {@code false} if the current thread had claimed it already
+	 * @throws BeanCurrentlyInCreationException if the current thread cannot
+	 * wait for the other thread
+	 * @since 5.3.8
+	 * @see #releaseSingletonCreation
+	 */
+	protected boolean claimSingletonCreation(String creationKey) {
+		Thread currentThread = Thread.currentThread();
+		boolean mutexHeld = Thread.holdsLock(this.singletonObjects);
+		boolean interrupted = false;
+		try {
+			synchronized (this.singletonCreationMonitor) {
+				while (true) {
+					Thread creatingThread = this.singletonCreationThreads.putIfAbsent(creationKey, currentThread);
+					if (creatingThread == null) {
+						return true;
 					}
-				}
-				catch (BeanCreationException ex) {
-					if (recordSuppressedExceptions) {
-						for (Exception suppressedException : this.suppressedExceptions) {
-							ex.addRelatedCause(suppressedException);
-						}
+					if (creatingThread == currentThread) {
+						return false;
 					}
-					throw ex;
-				}
-				finally {
-					if (recordSuppressedExceptions) {
-						this.suppressedExceptions = null;
+					if (mutexHeld) {
+						throw new BeanCurrentlyInCreationException(creationKey,
+								"Requested bean is currently in creation by another thread while the current thread " +
+								"holds the singleton mutex: cannot wait for its creation without risking a deadlock");
+					}
+					List<String> cycle = getSingletonCreationCycle(creationKey, creatingThread, currentThread);
+					if (cycle != null) {
+						throw new BeanCurrentlyInCreationException(creationKey,
+								"Circular reference between singletons in creation by different threads: " + cycle);
+					}
+					this.singletonCreationWaits.put(currentThread, creationKey);
+					try {
+						this.singletonCreationMonitor.wait();
+					}
+					catch (InterruptedException ex) {
+						interrupted = true;
+					}
+					finally {
+						this.singletonCreationWaits.remove(currentThread);
 					}
-					afterSingletonCreation(beanName);
-				}
-				if (newSingleton) {
-					addSingleton(beanName, singletonObject);
 				}
 			}
-			return singletonObject;
 		}
+		finally {
+			if (interrupted) {
+				currentThread.interrupt();
+			}
+		}
+	}
+
+	/**
+	 * Release a creation claimed by the current thread, resuming any threads
+	 * waiting for it.
+	 * @param creationKey the key of the creation, e.g. a bean name
+	 * @since 5.3.8
+	 * @see #claimSingletonCreation
+	 */
+	protected void releaseSingletonCreation(String creationKey) {
+		synchronized (this.singletonCreationMonitor) {
+			this.singletonCreationThreads.remove(creationKey);
+			this.singletonCreationMonitor.notifyAll();
+		}
+	}
+
+	/**
+	 * Determine the creations that are awaited along the chain of waiting threads,
+	 * starting with the given thread, if that chain leads back to a creation that
+	 * is currently claimed by the given target thread.
+	 * <p>To be called within the singleton creation monitor.
+	 * @param creationKey the key of the creation claimed by the given thread
+	 * @param thread the thread to start with
+	 * @param targetThread the thread to look for
+	 * @return the keys of all creations in the cycle, starting with the given
+	 * key, or {@code null} if the chain does not lead to the target thread
+	 */
+	@Nullable
+	private List<String> getSingletonCreationCycle(String creationKey, Thread thread, Thread targetThread) {
+		List<String> cycle = new ArrayList<>();
+		cycle.add(creationKey);
+		Set<Thread> visitedThreads = new HashSet<>();
+		Thread waitingThread = thread;
+		while (visitedThreads.add(waitingThread)) {
+			String awaitedKey = this.singletonCreationWaits.get(waitingThread);
+			if (awaitedKey == null) {
+				return null;
+			}
+			Thread creatingThread = this.singletonCreationThreads.get(awaitedKey);
+			if (creatingThread == null) {
+				return null;
+			}
+			cycle.add(awaitedKey);
+			if (creatingThread == targetThread) {
+				return cycle;
+			}
+			waitingThread = creatingThread;
+		}
+		return null;
 	}
 
 	/**
 	 * Register an exception that happened to get suppressed during the creation of a
 	 * singleton bean instance, e.g. a temporary circular reference resolution problem.
 	 * <p>The default implementation preserves any given exception in this registry's
-	 * collection of suppressed exceptions, up to a limit of 100 exceptions, adding
-	 * them as related causes to an eventual top-level {@link BeanCreationException}.
+	 * collection of suppressed exceptions for the current thread, up to a limit of
+	 * 100 exceptions, adding them as related causes to an eventual top-level
+	 * {@link BeanCreationException}.
 	 * @param ex the Exception to register
 	 * @see BeanCreationException#getRelatedCauses()
 	 */
 	protected void onSuppressedException(Exception ex) {
-		synchronized (this.singletonObjects) {
-			if (this.suppressedExceptions != null && this.suppressedExceptions.size() < SUPPRESSED_EXCEPTIONS_LIMIT) {
-				this.suppressedExceptions.add(ex);
-			}
+		Set<Exception> suppressedExceptions = this.suppressedExceptions.get();
+		if (suppressedExceptions != null && suppressedExceptions.size() < SUPPRESSED_EXCEPTIONS_LIMIT) {
+			suppressedExceptions.add(ex);
 		}
 	}
 
@@ -316,6 +513,29 @@ public class DefaultSingletonBeanRegistry extends SimpleAliasRegistry implements
 	}
 
 
+	/**
+	 * Set whether singletons may be created concurrently, with singleton creation
+	 * coordinated per bean name instead of holding the singleton mutex throughout.
+	 * <p>Default is "false". Meant to be enabled for a limited phase only, e.g. for a
+	 * concurrent bootstrap of pre-instantiated singletons, while no other threads
+	 * are creating singletons in this registry.
+	 * @since 5.3.8
+	 * @see #getSingleton(String, ObjectFactory)
+	 * @see #claimSingletonCreation
+	 */
+	protected void setConcurrentSingletonCreation(boolean concurrentSingletonCreation) {
+		this.concurrentSingletonCreation = concurrentSingletonCreation;
+	}
+
+	/**
+	 * Return whether singletons may currently be created concurrently.
+	 * @since 5.3.8
+	 * @see #setConcurrentSingletonCreation
+	 */
+	protected boolean isConcurrentSingletonCreation() {
+		return this.concurrentSingletonCreation;
+	}
+
 	public void setCurrentlyInCreation(String beanName, boolean inCreation) {
 		Assert.notNull(beanName, "Bean name must not be null");
 		if (!inCreation) {
@@ -344,6 +564,17 @@ public class DefaultSingletonBeanRegistry extends SimpleAliasRegistry implements
 		return this.singletonsCurrentlyInCreation.contains(beanName);
 	}
 
+	/**
+	 * Return whether the specified singleton bean is currently in creation
+	 * by a thread other than the current thread.
+	 * @param beanName the name of the bean
+	 * @see #getSingleton(String, ObjectFactory)
+	 */
+	private boolean isSingletonCurrentlyInCreationByOtherThread(String beanName) {
+		Thread creatingThread = this.singletonCreationThreads.get(beanName);
+		return (creatingThread != null && creatingThread != Thread.currentThread());
+	}
+
 	/**
 	 * Callback before singleton creation.
 	 * <p>The default implementation register the singleton as currently in creation.
@@ -627,6 +858,12 @@ public class DefaultSingletonBeanRegistry extends SimpleAliasRegistry implements
 	 * any sort of extended singleton creation phase. In particular, subclasses
 	 * should <i>not</i> have their own mutexes involved in singleton creation,
 	 * to avoid the potential for deadlocks in lazy-init situations.
+	 * <p>Note that the mutex is not held during regular singleton creation via
+	 * {@link #getSingleton(String, ObjectFactory)} while
+	 * {@link #setConcurrentSingletonCreation concurrent singleton creation} is
+	 * enabled. A thread holding the mutex does not release it for waiting on a
+	 * singleton that is currently in creation by another thread then; it fails
+	 * to obtain that singleton instead.
 	 */
 	@Override
 	public final Object getSingletonMutex() {
@@ -18,19 +18,24 @@ package org.springframework.beans;
 
 import java.beans.BeanInfo;
 import java.beans.PropertyDescriptor;
+import java.lang.reflect.InvocationTargetException;
 import java.util.ArrayList;
 
 import org.junit.jupiter.api.Test;
 
 import org.springframework.beans.testfixture.beans.TestBean;
 import org.springframework.core.OverridingClassLoader;
+import org.springframework.core.SpringProperties;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
 
 /**
  * @author Juergen Hoeller
  * @author Chris Beams
  * @author Arjen Poutsma
+ * @author Lars Hofmann
  */
 public class CachedIntrospectionResultsTests {
 
@@ -90,4 +95,128 @@ public class CachedIntrospectionResultsTests {
 		assertThat(pd.getWriteMethod()).isEqualTo(C.class.getMethod("setFoo", String.class));
 	}
 
+	@Test
+	public void generatedPropertyAccessors() {
+		SpringProperties.setFlag(CachedIntrospectionResults.GENERATE_ACCESSORS_PROPERTY_NAME);
+		try {
+			CachedIntrospectionResults results = CachedIntrospectionResults.forClass(AccessorBean.class);
+			GeneratedPropertyAccessor accessor = results.getGeneratedPropertyAccessor(results.getPropertyDescriptor("count"));
+			assertThat(accessor).isNotNull();
+			assertThat(accessor.isReadable()).isTrue();
+			assertThat(accessor.isWritable(5)).isTrue();
+			assertThat(accessor.isWritable(null)).isFalse();
+			assertThat(accessor.isWritable("5")).isFalse();
+
+			AccessorBean target = new AccessorBean();
+			BeanWrapper bw = new BeanWrapperImpl(target);
+			bw.setPropertyValue("count", 5);
+			assertThat(target.getCount()).isEqualTo(5);
+			bw.setPropertyValue("count", "7");
+			assertThat(bw.getPropertyValue("count")).isEqualTo(7);
+			bw.setPropertyValue("values", new long[] {1L, 2L});
+			assertThat(bw.getPropertyValue("values")).isEqualTo(new long[] {1L, 2L});
+			bw.setPropertyValue("name", "tom");
+			assertThat(bw.getPropertyValue("name")).isEqualTo("tom");
+			assertThatExceptionOfType(MethodInvocationException.class).isThrownBy(() ->
+					bw.setPropertyValue("name", "invalid"))
+				.satisfies(ex -> assertThat(ex.getCause()).isInstanceOf(IllegalArgumentException.class));
+		}
+		finally {
+			SpringProperties.setProperty(CachedIntrospectionResults.GENERATE_ACCESSORS_PROPERTY_NAME, null);
+		}
+	}
+
+	@Test
+	public void generatedPropertyAccessorTypeMismatch() {
+		SpringProperties.setFlag(CachedIntrospectionResults.GENERATE_ACCESSORS_PROPERTY_NAME);
+		try {
+			CachedIntrospectionResults results = CachedIntrospectionResults.forClass(AccessorBean.class);
+			GeneratedPropertyAccessor countAccessor = results.getGeneratedPropertyAccessor(results.getPropertyDescriptor("count"));
+			GeneratedPropertyAccessor nameAccessor = results.getGeneratedPropertyAccessor(results.getPropertyDescriptor("name"));
+			AccessorBean target = new AccessorBean();
+
+			// Mismatches are rejected upfront, just like with reflective invocation
+			assertThatIllegalArgumentException().isThrownBy(() -> countAccessor.setValue(target, "5"));
+			assertThatIllegalArgumentException().isThrownBy(() -> countAccessor.setValue(target, null));
+			assertThatIllegalArgumentException().isThrownBy(() -> countAccessor.setValue(new Object(), 5));
+			assertThatIllegalArgumentException().isThrownBy(() -> countAccessor.getValue(new Object()));
+
+			// Only exceptions thrown by the write method itself are wrapped
+			assertThatExceptionOfType(InvocationTargetException.class).isThrownBy(() ->
+					nameAccessor.setValue(target, "invalid"))
+				.satisfies(ex -> assertThat(ex.getTargetException()).isInstanceOf(IllegalArgumentException.class));
+		}
+		finally {
+			SpringProperties.setProperty(CachedIntrospectionResults.GENERATE_ACCESSORS_PROPERTY_NAME, null);
+		}
+	}
+
+	@Test
+	public void generatedPropertyAccessorsNotApplicableToNonPublicClass() {
+		SpringProperties.setFlag(CachedIntrospectionResults.GENERATE_ACCESSORS_PROPERTY_NAME);
+		try {
+			CachedIntrospectionResults results = CachedIntrospectionResults.forClass(NonPublicAccessorBean.class);
+			assertThat(results.getGeneratedPropertyAccessor(results.getPropertyDescriptor("name"))).isNull();
+
+			NonPublicAccessorBean target = new NonPublicAccessorBean();
+			BeanWrapper bw = new BeanWrapperImpl(target);
+			bw.setPropertyValue("name", "tom");
+			assertThat(bw.getPropertyValue("name")).isEqualTo("tom");
+		}
+		finally {
+			SpringProperties.setProperty(CachedIntrospectionResults.GENERATE_ACCESSORS_PROPERTY_NAME, null);
+		}
+	}
+
+
+	public static class AccessorBean {
+
+		private int count;
+
+		private String name;
+
+		private long[] values;
+
+		public int getCount() {
+			return this.count;
+		}
+
+		public void setCount(int count) {
+			this.count = count;
+		}
+
+		public String getName() {
+			return this.name;
+		}
+
+		public void setName(String name) {
+			if ("invalid".equals(name)) {
+				throw new IllegalArgumentException("Invalid name");
+			}
+			this.name = name;
+		}
+
+		public long[] getValues() {
+			return this.values;
+		}
+
+		public void setValues(long[] values) {
+			this.values = values;
+		}
+	}
+
+
+	static class NonPublicAccessorBean {
+
+		private String name;
+
+		public String getName() {
+			return this.name;
+		}
+
+		public void setName(String name) {
+			this.name = name;
+		}
+	}
+
 }
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2020 the original author or authors.
+ * Copyright 2002-2021 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -27,6 +27,7 @@ import java.security.PrivilegedAction;
 import java.text.NumberFormat;
 import java.text.ParseException;
 import java.util.Arrays;
+import java.util.Comparator;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
@@ -37,6 +38,13 @@ import java.util.Optional;
 import java.util.Properties;
 import java.util.Set;
 import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 
@@ -1443,6 +1451,45 @@ class DefaultListableBeanFactoryTests {
 		assertThat(bean.getBeanName()).isEqualTo("bd1");
 	}
 
+	@Test
+	void getBeanNamesForTypeAgainstFrozenWithLateRegistrationAndRemoval() {
+		lbf.registerBeanDefinition("tb", new RootBeanDefinition(TestBean.class));
+		lbf.registerBeanDefinition("factory", new RootBeanDefinition(DummyFactory.class));
+		lbf.freezeConfiguration();
+		assertThat(lbf.getBeanNamesForType(ITestBean.class)).containsExactly("tb", "factory");
+		assertThat(lbf.getBeanNamesForType(DerivedTestBean.class)).isEmpty();
+
+		lbf.registerBeanDefinition("dtb", new RootBeanDefinition(DerivedTestBean.class));
+		assertThat(lbf.getBeanNamesForType(ITestBean.class)).containsExactly("tb", "factory", "dtb");
+		assertThat(lbf.getBeanNamesForType(DerivedTestBean.class)).containsExactly("dtb");
+
+		lbf.registerBeanDefinition("tb", new RootBeanDefinition(NestedTestBean.class));
+		assertThat(lbf.getBeanNamesForType(ITestBean.class)).containsExactly("factory", "dtb");
+		assertThat(lbf.getBeanNamesForType(Object.class)).containsExactly("tb", "factory", "dtb");
+
+		lbf.removeBeanDefinition("dtb");
+		assertThat(lbf.getBeanNamesForType(ITestBean.class)).containsExactly("factory");
+		assertThat(lbf.getBeanNamesForType(DerivedTestBean.class)).isEmpty();
+	}
+
+	@Test
+	void getBeanNamesForTypeAgainstFrozenWithReplacedSingletonInstance() {
+		lbf.registerBeanDefinition("tb", new RootBeanDefinition(TestBean.class));
+		lbf.addBeanPostProcessor(new BeanPostProcessor() {
+			@Override
+			public Object postProcessAfterInitialization(Object bean, String beanName) {
+				return new NestedTestBean("replaced");
+			}
+		});
+		lbf.freezeConfiguration();
+		assertThat(lbf.getBeanNamesForType(TestBean.class, true, false)).containsExactly("tb");
+		assertThat(lbf.getBeanNamesForType(NestedTestBean.class, true, false)).isEmpty();
+
+		lbf.getBean("tb");
+		assertThat(lbf.getBeanNamesForType(TestBean.class, true, false)).isEmpty();
+		assertThat(lbf.getBeanNamesForType(NestedTestBean.class, true, false)).containsExactly("tb");
+	}
+
 	@Test
 	void getBeanByTypeDefinedInParent() {
 		DefaultListableBeanFactory parent = new DefaultListableBeanFactory();
@@ -2169,6 +2216,167 @@ class DefaultListableBeanFactoryTests {
 		}
 	}
 
+	@Test
+	void preInstantiateSingletonsWithBootstrapExecutor() {
+		for (int i = 0; i < 20; i++) {
+			RootBeanDefinition bd = new RootBeanDefinition(BootstrapRecordingBean.class);
+			bd.setAttribute(DefaultListableBeanFactory.CONCURRENT_BOOTSTRAP_ATTRIBUTE, true);
+			if (i >= 5) {
+				bd.getPropertyValues().add("dependency", new RuntimeBeanReference("bean" + (i % 5)));
+			}
+			lbf.registerBeanDefinition("bean" + i, bd);
+		}
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			lbf.setBootstrapExecutor(executor);
+			lbf.preInstantiateSingletons();
+		}
+		finally {
+			executor.shutdownNow();
+		}
+		for (int i = 0; i < 20; i++) {
+			BootstrapRecordingBean bean = lbf.getBean("bean" + i, BootstrapRecordingBean.class);
+			assertThat(bean.creationThread).isNotSameAs(Thread.currentThread());
+			assertThat(bean.initializationThread).isSameAs(Thread.currentThread());
+			if (i >= 5) {
+				assertThat(bean.dependency).isSameAs(lbf.getBean("bean" + (i % 5)));
+			}
+		}
+		assertThat(BootstrapRecordingBean.initializedBeanNames(lbf)).containsExactlyElementsOf(
+				IntStream.range(0, 20).mapToObj(i -> "bean" + i).collect(Collectors.toList()));
+	}
+
+	@Test
+	void extensiveCircularReferenceWithBootstrapExecutor() {
+		for (int i = 0; i < 100; i++) {
+			MutablePropertyValues pvs = new MutablePropertyValues();
+			pvs.addPropertyValue(new PropertyValue("spouse", new RuntimeBeanReference("bean" + (i < 99 ? i + 1 : 0))));
+			RootBeanDefinition bd = new RootBeanDefinition(TestBean.class);
+			bd.setPropertyValues(pvs);
+			bd.setAttribute(DefaultListableBeanFactory.CONCURRENT_BOOTSTRAP_ATTRIBUTE, true);
+			lbf.registerBeanDefinition("bean" + i, bd);
+		}
+		RootBeanDefinition independent = new RootBeanDefinition(TestBean.class);
+		independent.setAttribute(DefaultListableBeanFactory.CONCURRENT_BOOTSTRAP_ATTRIBUTE, true);
+		lbf.registerBeanDefinition("independent", independent);
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			lbf.setBootstrapExecutor(executor);
+			lbf.preInstantiateSingletons();
+		}
+		finally {
+			executor.shutdownNow();
+		}
+		for (int i = 0; i < 100; i++) {
+			TestBean bean = (TestBean) lbf.getBean("bean" + i);
+			TestBean otherBean = (TestBean) lbf.getBean("bean" + (i < 99 ? i + 1 : 0));
+			assertThat(bean.getSpouse()).isSameAs(otherBean);
+		}
+		assertThat(lbf.containsSingleton("independent")).isTrue();
+	}
+
+	@Test
+	void preInstantiateSingletonsWithBootstrapExecutorAndUnmarkedSingletons() {
+		RootBeanDefinition marked = new RootBeanDefinition(BootstrapRecordingBean.class);
+		marked.setAttribute(DefaultListableBeanFactory.CONCURRENT_BOOTSTRAP_ATTRIBUTE, "true");
+		lbf.registerBeanDefinition("marked", marked);
+		lbf.registerBeanDefinition("unmarked", new RootBeanDefinition(BootstrapRecordingBean.class));
+		// Dependencies only known through autowiring: not eligible for the bootstrap executor
+		RootBeanDefinition autowired = new RootBeanDefinition(BootstrapRecordingBean.class);
+		autowired.setAttribute(DefaultListableBeanFactory.CONCURRENT_BOOTSTRAP_ATTRIBUTE, true);
+		autowired.setAutowireMode(RootBeanDefinition.AUTOWIRE_BY_NAME);
+		lbf.registerBeanDefinition("autowired", autowired);
+		ExecutorService executor = Executors.newFixedThreadPool(2);
+		try {
+			lbf.setBootstrapExecutor(executor);
+			lbf.preInstantiateSingletons();
+		}
+		finally {
+			executor.shutdownNow();
+		}
+		assertThat(lbf.getBean("marked", BootstrapRecordingBean.class).creationThread)
+				.isNotSameAs(Thread.currentThread());
+		assertThat(lbf.getBean("unmarked", BootstrapRecordingBean.class).creationThread)
+				.isSameAs(Thread.currentThread());
+		assertThat(lbf.getBean("autowired", BootstrapRecordingBean.class).creationThread)
+				.isSameAs(Thread.currentThread());
+		assertThat(BootstrapRecordingBean.initializedBeanNames(lbf)).containsExactly("marked", "unmarked", "autowired");
+	}
+
+	@Test
+	void preInstantiateSingletonsWithBootstrapExecutorAndCreationFailure() {
+		RootBeanDefinition tb = new RootBeanDefinition(TestBean.class);
+		tb.setAttribute(DefaultListableBeanFactory.CONCURRENT_BOOTSTRAP_ATTRIBUTE, true);
+		lbf.registerBeanDefinition("tb", tb);
+		RootBeanDefinition bd = new RootBeanDefinition(TestBean.class);
+		bd.setAttribute(DefaultListableBeanFactory.CONCURRENT_BOOTSTRAP_ATTRIBUTE, true);
+		bd.getPropertyValues().add("spouse", new RuntimeBeanReference("missing"));
+		lbf.registerBeanDefinition("failing", bd);
+		ExecutorService executor = Executors.newFixedThreadPool(2);
+		try {
+			lbf.setBootstrapExecutor(executor);
+			assertThatExceptionOfType(BeanCreationException.class).isThrownBy(lbf::preInstantiateSingletons)
+					.satisfies(ex -> assertThat(ex.getBeanName()).isEqualTo("failing"));
+		}
+		finally {
+			executor.shutdownNow();
+		}
+	}
+
+	@Test
+	void singletonFactoryBeanWithDependencyInCreationByOtherThread() throws Exception {
+		CountDownLatch latch = new CountDownLatch(1);
+		lbf.registerBeanDefinition("dependency", new RootBeanDefinition(TestBean.class, () -> {
+			try {
+				latch.await(10, TimeUnit.SECONDS);
+			}
+			catch (InterruptedException ex) {
+				throw new IllegalStateException(ex);
+			}
+			return new TestBean();
+		}));
+		AtomicInteger concurrentInvocations = new AtomicInteger();
+		AtomicInteger maxConcurrentInvocations = new AtomicInteger();
+		lbf.registerSingleton("factoryBean", new FactoryBean<TestBean>() {
+			@Override
+			public TestBean getObject() {
+				maxConcurrentInvocations.accumulateAndGet(concurrentInvocations.incrementAndGet(), Math::max);
+				try {
+					return new TestBean(lbf.getBean("dependency", TestBean.class));
+				}
+				finally {
+					concurrentInvocations.decrementAndGet();
+				}
+			}
+			@Override
+			public Class<?> getObjectType() {
+				return TestBean.class;
+			}
+		});
+		ExecutorService executor = Executors.newFixedThreadPool(3);
+		try {
+			Future<Object> dependency = executor.submit(() -> lbf.getBean("dependency"));
+			while (!lbf.isSingletonCurrentlyInCreation("dependency")) {
+				Thread.sleep(10);
+			}
+			// Both FactoryBean object requests wait for "dependency" to be created
+			Future<Object> product1 = executor.submit(() -> lbf.getBean("factoryBean"));
+			Future<Object> product2 = executor.submit(() -> lbf.getBean("factoryBean"));
+
+			latch.countDown();
+			Object dependencyBean = dependency.get(10, TimeUnit.SECONDS);
+			TestBean product = (TestBean) product1.get(10, TimeUnit.SECONDS);
+			assertThat(product2.get(10, TimeUnit.SECONDS)).isSameAs(product);
+			assertThat(product.getSpouse()).isSameAs(dependencyBean);
+			assertThat(lbf.getBean("factoryBean")).isSameAs(product);
+			assertThat(maxConcurrentInvocations.get()).isEqualTo(1);
+		}
+		finally {
+			latch.countDown();
+			executor.shutdownNow();
+		}
+	}
+
 	@Test
 	void circularReferenceThroughAutowiring() {
 		RootBeanDefinition bd = new RootBeanDefinition(ConstructorDependencyBean.class);
@@ -2323,6 +2531,37 @@ class DefaultListableBeanFactoryTests {
 		assertThat(tb2.getBeanName()).isEqualTo("myBeanName");
 	}
 
+	@Test
+	void prototypeWithAutowiredConstructorArgumentShortcut() {
+		AtomicInteger typeLookups = new AtomicInteger();
+		DefaultListableBeanFactory lbf = new DefaultListableBeanFactory() {
+			@Override
+			public String[] getBeanNamesForType(@Nullable Class<?> type, boolean includeNonSingletons, boolean allowEagerInit) {
+				typeLookups.incrementAndGet();
+				return super.getBeanNamesForType(type, includeNonSingletons, allowEagerInit);
+			}
+		};
+		lbf.registerBeanDefinition("spouse", new RootBeanDefinition(TestBean.class));
+		RootBeanDefinition bd = new RootBeanDefinition(ConstructorDependency.class);
+		bd.setScope(BeanDefinition.SCOPE_PROTOTYPE);
+		bd.setAutowireMode(RootBeanDefinition.AUTOWIRE_CONSTRUCTOR);
+		lbf.registerBeanDefinition("test", bd);
+		TestBean spouse = lbf.getBean("spouse", TestBean.class);
+
+		ConstructorDependency tb = (ConstructorDependency) lbf.getBean("test");
+		assertThat(tb.spouse).isSameAs(spouse);
+		int lookupsAfterFirstCreation = typeLookups.get();
+		ConstructorDependency tb2 = (ConstructorDependency) lbf.getBean("test");
+		assertThat(tb2).isNotSameAs(tb);
+		assertThat(tb2.spouse).isSameAs(spouse);
+		assertThat(typeLookups.get()).isEqualTo(lookupsAfterFirstCreation);
+
+		lbf.removeBeanDefinition("spouse");
+		lbf.registerBeanDefinition("otherSpouse", new RootBeanDefinition(TestBean.class));
+		ConstructorDependency tb3 = (ConstructorDependency) lbf.getBean("test");
+		assertThat(tb3.spouse).isSameAs(lbf.getBean("otherSpouse"));
+	}
+
 	@Test
 	void prototypeWithArrayConversionForFactoryMethod() {
 		List<String> list = new ManagedList<>();
@@ -3109,6 +3348,44 @@ class DefaultListableBeanFactoryTests {
 	}
 
 
+	public static class BootstrapRecordingBean implements BeanNameAware, SmartInitializingSingleton {
+
+		private static final AtomicLong initializationCounter = new AtomicLong();
+
+		private final Thread creationThread = Thread.currentThread();
+
+		private String beanName;
+
+		private BootstrapRecordingBean dependency;
+
+		private Thread initializationThread;
+
+		private long initializationOrder;
+
+		@Override
+		public void setBeanName(String beanName) {
+			this.beanName = beanName;
+		}
+
+		public void setDependency(BootstrapRecordingBean dependency) {
+			this.dependency = dependency;
+		}
+
+		@Override
+		public void afterSingletonsInstantiated() {
+			this.initializationThread = Thread.currentThread();
+			this.initializationOrder = initializationCounter.incrementAndGet();
+		}
+
+		static List<String> initializedBeanNames(ListableBeanFactory beanFactory) {
+			return beanFactory.getBeansOfType(BootstrapRecordingBean.class).values().stream()
+					.sorted(Comparator.comparingLong(bean -> bean.initializationOrder))
+					.map(bean -> bean.beanName)
+					.collect(Collectors.toList());
+		}
+	}
+
+
 	@Priority(5)
 	private static class HighPriorityTestBean extends TestBean {
 	}
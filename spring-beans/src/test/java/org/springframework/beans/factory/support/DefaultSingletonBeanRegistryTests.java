@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2019 the original author or authors.
+ * Copyright 2002-2021 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -16,10 +16,23 @@
 
 package org.springframework.beans.factory.support;
 
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
 import org.junit.jupiter.api.Test;
 
 import org.springframework.beans.BeansException;
+import org.springframework.beans.factory.BeanCreationException;
+import org.springframework.beans.factory.BeanCurrentlyInCreationException;
+import org.springframework.beans.factory.FactoryBean;
 import org.springframework.beans.factory.ObjectFactory;
+import org.springframework.beans.factory.config.RuntimeBeanReference;
 import org.springframework.beans.testfixture.beans.DerivedTestBean;
 import org.springframework.beans.testfixture.beans.TestBean;
 
@@ -101,4 +114,178 @@ public class DefaultSingletonBeanRegistryTests {
 		assertThat(beanRegistry.isDependent("c", "c")).isTrue();
 	}
 
+	@Test
+	public void testSingletonMutexHeldDuringCreationByDefault() {
+		DefaultSingletonBeanRegistry beanRegistry = new DefaultSingletonBeanRegistry();
+		ObjectFactory<Object> singletonFactory =
+				() -> new TestBean(String.valueOf(Thread.holdsLock(beanRegistry.getSingletonMutex())));
+
+		assertThat(((TestBean) beanRegistry.getSingleton("tb1", singletonFactory)).getName()).isEqualTo("true");
+		beanRegistry.setConcurrentSingletonCreation(true);
+		assertThat(((TestBean) beanRegistry.getSingleton("tb2", singletonFactory)).getName()).isEqualTo("false");
+	}
+
+	@Test
+	public void testConcurrentCreationOfUnrelatedSingletons() throws Exception {
+		DefaultSingletonBeanRegistry beanRegistry = new DefaultSingletonBeanRegistry();
+		beanRegistry.setConcurrentSingletonCreation(true);
+		CountDownLatch latch = new CountDownLatch(1);
+		ExecutorService executor = Executors.newSingleThreadExecutor();
+		try {
+			// Creation of "tb1" only completes once "tb2" got created by another thread
+			Future<Object> tb1 = executor.submit(() -> beanRegistry.getSingleton("tb1", () -> {
+				try {
+					return new TestBean(String.valueOf(latch.await(10, TimeUnit.SECONDS)));
+				}
+				catch (InterruptedException ex) {
+					throw new IllegalStateException(ex);
+				}
+			}));
+			while (!beanRegistry.isSingletonCurrentlyInCreation("tb1")) {
+				Thread.sleep(10);
+			}
+			beanRegistry.getSingleton("tb2", () -> {
+				latch.countDown();
+				return new TestBean();
+			});
+			assertThat(((TestBean) tb1.get(10, TimeUnit.SECONDS)).getName()).isEqualTo("true");
+			assertThat(beanRegistry.getSingletonCount()).isEqualTo(2);
+		}
+		finally {
+			executor.shutdownNow();
+		}
+	}
+
+	@Test
+	public void testConcurrentCreationOfSameSingleton() throws Exception {
+		DefaultSingletonBeanRegistry beanRegistry = new DefaultSingletonBeanRegistry();
+		beanRegistry.setConcurrentSingletonCreation(true);
+		AtomicInteger creationCount = new AtomicInteger();
+		CountDownLatch latch = new CountDownLatch(1);
+		ObjectFactory<Object> singletonFactory = () -> {
+			creationCount.incrementAndGet();
+			try {
+				latch.await(10, TimeUnit.SECONDS);
+			}
+			catch (InterruptedException ex) {
+				throw new IllegalStateException(ex);
+			}
+			return new TestBean();
+		};
+		ExecutorService executor = Executors.newFixedThreadPool(2);
+		try {
+			Future<Object> tb1 = executor.submit(() -> beanRegistry.getSingleton("tb", singletonFactory));
+			while (!beanRegistry.isSingletonCurrentlyInCreation("tb")) {
+				Thread.sleep(10);
+			}
+			Future<Object> tb2 = executor.submit(() -> beanRegistry.getSingleton("tb", singletonFactory));
+			assertThat(beanRegistry.getSingleton("tb")).isNull();
+			latch.countDown();
+			assertThat(tb1.get(10, TimeUnit.SECONDS)).isSameAs(tb2.get(10, TimeUnit.SECONDS));
+			assertThat(creationCount.get()).isEqualTo(1);
+		}
+		finally {
+			executor.shutdownNow();
+		}
+	}
+
+	@Test
+	public void testCircularReferenceBetweenConcurrentlyCreatedSingletons() throws Exception {
+		DefaultListableBeanFactory lbf = new DefaultListableBeanFactory();
+		lbf.setConcurrentSingletonCreation(true);
+		CountDownLatch latch = new CountDownLatch(2);
+		RootBeanDefinition bd1 = new RootBeanDefinition(TestBean.class, () -> countDownAndCreate(latch));
+		bd1.getPropertyValues().add("spouse", new RuntimeBeanReference("tb2"));
+		lbf.registerBeanDefinition("tb1", bd1);
+		RootBeanDefinition bd2 = new RootBeanDefinition(TestBean.class, () -> countDownAndCreate(latch));
+		bd2.getPropertyValues().add("spouse", new RuntimeBeanReference("tb1"));
+		lbf.registerBeanDefinition("tb2", bd2);
+		ExecutorService executor = Executors.newFixedThreadPool(2);
+		try {
+			Future<Object> tb1 = executor.submit(() -> lbf.getBean("tb1"));
+			Future<Object> tb2 = executor.submit(() -> lbf.getBean("tb2"));
+			// No early reference across threads: one thread fails, the other one creates both singletons
+			int failures = 0;
+			for (Future<Object> future : Arrays.asList(tb1, tb2)) {
+				try {
+					future.get(10, TimeUnit.SECONDS);
+				}
+				catch (ExecutionException ex) {
+					assertThat(ex.getCause()).isInstanceOf(BeanCreationException.class);
+					assertThat(((BeanCreationException) ex.getCause()).contains(BeanCurrentlyInCreationException.class)).isTrue();
+					failures++;
+				}
+			}
+			assertThat(failures).isEqualTo(1);
+			TestBean bean1 = lbf.getBean("tb1", TestBean.class);
+			TestBean bean2 = lbf.getBean("tb2", TestBean.class);
+			assertThat(bean1.getSpouse()).isSameAs(bean2);
+			assertThat(bean2.getSpouse()).isSameAs(bean1);
+		}
+		finally {
+			executor.shutdownNow();
+		}
+	}
+
+	@Test
+	public void testFactoryBeanObjectCreationWithConcurrentSingletonCreation() throws Exception {
+		DefaultListableBeanFactory lbf = new DefaultListableBeanFactory();
+		lbf.setConcurrentSingletonCreation(true);
+		CountDownLatch latch = new CountDownLatch(1);
+		lbf.registerBeanDefinition("dependency", new RootBeanDefinition(TestBean.class, () -> {
+			try {
+				latch.await(10, TimeUnit.SECONDS);
+			}
+			catch (InterruptedException ex) {
+				throw new IllegalStateException(ex);
+			}
+			return new TestBean();
+		}));
+		lbf.registerBeanDefinition("other", new RootBeanDefinition(TestBean.class));
+		AtomicInteger invocations = new AtomicInteger();
+		lbf.registerSingleton("factoryBean", new FactoryBean<TestBean>() {
+			@Override
+			public TestBean getObject() {
+				invocations.incrementAndGet();
+				return new TestBean(lbf.getBean("dependency", TestBean.class));
+			}
+			@Override
+			public Class<?> getObjectType() {
+				return TestBean.class;
+			}
+		});
+		ExecutorService executor = Executors.newFixedThreadPool(3);
+		try {
+			Future<Object> dependency = executor.submit(() -> lbf.getBean("dependency"));
+			while (!lbf.isSingletonCurrentlyInCreation("dependency")) {
+				Thread.sleep(10);
+			}
+			Future<Object> product1 = executor.submit(() -> lbf.getBean("factoryBean"));
+			Future<Object> product2 = executor.submit(() -> lbf.getBean("factoryBean"));
+			// Neither the creating thread nor the waiting ones hold the singleton mutex
+			assertThat(lbf.getBean("other")).isNotNull();
+
+			latch.countDown();
+			Object product = product1.get(10, TimeUnit.SECONDS);
+			assertThat(product2.get(10, TimeUnit.SECONDS)).isSameAs(product);
+			assertThat(((TestBean) product).getSpouse()).isSameAs(dependency.get(10, TimeUnit.SECONDS));
+			assertThat(invocations.get()).isEqualTo(1);
+		}
+		finally {
+			latch.countDown();
+			executor.shutdownNow();
+		}
+	}
+
+	private static TestBean countDownAndCreate(CountDownLatch latch) {
+		latch.countDown();
+		try {
+			latch.await(10, TimeUnit.SECONDS);
+		}
+		catch (InterruptedException ex) {
+			throw new IllegalStateException(ex);
+		}
+		return new TestBean();
+	}
+
 }
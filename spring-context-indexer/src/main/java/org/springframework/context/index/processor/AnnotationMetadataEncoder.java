@@ -0,0 +1,381 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.context.index.processor;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.annotation.processing.ProcessingEnvironment;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.AnnotationValue;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.ArrayType;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.Elements;
+import javax.lang.model.util.Types;
+
+/**
+ * Encode the annotation metadata of a {@link TypeElement} into the binary
+ * payload of an annotation metadata index entry, matching what an ASM-based
+ * class file visit would report: class structure, runtime-visible annotations
+ * with their explicitly declared attribute values, and annotated methods.
+ *
+ * @author Lars Hofmann
+ * @since 5.3.8
+ * @see AnnotationMetadataMarshaller
+ */
+class AnnotationMetadataEncoder {
+
+	// Class file access flags, as defined by the JVM specification
+
+	private static final int ACC_PUBLIC = 0x0001;
+
+	private static final int ACC_PRIVATE = 0x0002;
+
+	private static final int ACC_PROTECTED = 0x0004;
+
+	private static final int ACC_STATIC = 0x0008;
+
+	private static final int ACC_FINAL = 0x0010;
+
+	private static final int ACC_INTERFACE = 0x0200;
+
+	private static final int ACC_ABSTRACT = 0x0400;
+
+	private static final int ACC_ANNOTATION = 0x2000;
+
+	private static final int ACC_ENUM = 0x4000;
+
+	private static final int MAX_REFERENCES = 0xFFFF;
+
+
+	private final Elements elements;
+
+	private final Types types;
+
+
+	public AnnotationMetadataEncoder(ProcessingEnvironment env) {
+		this.elements = env.getElementUtils();
+		this.types = env.getTypeUtils();
+	}
+
+
+	/**
+	 * Encode the metadata of the specified type.
+	 * @param type the type to encode
+	 * @return the encoded payload, or {@code null} if the metadata cannot be
+	 * fully determined (e.g. due to unresolved types)
+	 */
+	public byte[] encode(TypeElement type) {
+		try {
+			return new Payload().write(type);
+		}
+		catch (UnsupportedMetadataException ex) {
+			return null;
+		}
+		catch (IOException ex) {
+			throw new IllegalStateException("Failed to encode annotation metadata for " + type, ex);
+		}
+	}
+
+	private int getClassAccess(TypeElement type) {
+		Set<Modifier> modifiers = type.getModifiers();
+		int access = 0;
+		if (modifiers.contains(Modifier.PUBLIC) || modifiers.contains(Modifier.PROTECTED)) {
+			access |= ACC_PUBLIC;
+		}
+		if (modifiers.contains(Modifier.FINAL)) {
+			access |= ACC_FINAL;
+		}
+		if (modifiers.contains(Modifier.ABSTRACT)) {
+			access |= ACC_ABSTRACT;
+		}
+		if (type.getKind() == ElementKind.INTERFACE) {
+			access |= ACC_INTERFACE | ACC_ABSTRACT;
+		}
+		else if (type.getKind() == ElementKind.ANNOTATION_TYPE) {
+			access |= ACC_ANNOTATION | ACC_INTERFACE | ACC_ABSTRACT;
+		}
+		else if (type.getKind() == ElementKind.ENUM) {
+			access |= ACC_ENUM;
+		}
+		return access;
+	}
+
+	private int getMethodAccess(ExecutableElement method) {
+		Set<Modifier> modifiers = method.getModifiers();
+		int access = 0;
+		if (modifiers.contains(Modifier.PUBLIC)) {
+			access |= ACC_PUBLIC;
+		}
+		if (modifiers.contains(Modifier.PRIVATE)) {
+			access |= ACC_PRIVATE;
+		}
+		if (modifiers.contains(Modifier.PROTECTED)) {
+			access |= ACC_PROTECTED;
+		}
+		if (modifiers.contains(Modifier.STATIC)) {
+			access |= ACC_STATIC;
+		}
+		if (modifiers.contains(Modifier.FINAL)) {
+			access |= ACC_FINAL;
+		}
+		if (modifiers.contains(Modifier.ABSTRACT)) {
+			access |= ACC_ABSTRACT;
+		}
+		return access;
+	}
+
+	private boolean isIndependentInnerClass(TypeElement type) {
+		return (type.getModifiers().contains(Modifier.STATIC) || type.getKind() != ElementKind.CLASS);
+	}
+
+	private String getClassName(TypeMirror type) {
+		TypeMirror erasedType = this.types.erasure(type);
+		switch (erasedType.getKind()) {
+			case ARRAY:
+				return getClassName(((ArrayType) erasedType).getComponentType()) + "[]";
+			case DECLARED:
+				return getClassName((TypeElement) ((DeclaredType) erasedType).asElement());
+			case BOOLEAN:
+			case BYTE:
+			case CHAR:
+			case SHORT:
+			case INT:
+			case LONG:
+			case FLOAT:
+			case DOUBLE:
+			case VOID:
+				return erasedType.toString();
+			default:
+				throw new UnsupportedMetadataException();
+		}
+	}
+
+	private String getClassName(TypeElement type) {
+		return this.elements.getBinaryName(type).toString();
+	}
+
+	private List<AnnotationMirror> getRuntimeVisibleAnnotations(Element element) {
+		List<AnnotationMirror> result = new ArrayList<>();
+		for (AnnotationMirror annotation : element.getAnnotationMirrors()) {
+			DeclaredType annotationType = annotation.getAnnotationType();
+			if (annotationType.getKind() == TypeKind.ERROR) {
+				throw new UnsupportedMetadataException();
+			}
+			Retention retention = annotationType.asElement().getAnnotation(Retention.class);
+			if (retention != null && retention.value() == RetentionPolicy.RUNTIME) {
+				result.add(annotation);
+			}
+		}
+		return result;
+	}
+
+
+	/**
+	 * The payload of a single type, collecting the referenced strings
+	 * while writing the metadata.
+	 */
+	private class Payload {
+
+		private final Map<String, Integer> strings = new LinkedHashMap<>();
+
+		private final ByteArrayOutputStream content = new ByteArrayOutputStream(256);
+
+		private final DataOutputStream out = new DataOutputStream(this.content);
+
+		byte[] write(TypeElement type) throws IOException {
+			this.out.writeInt(getClassAccess(type));
+			Element enclosingElement = type.getEnclosingElement();
+			boolean nested = (enclosingElement instanceof TypeElement);
+			writeString(nested ? getClassName((TypeElement) enclosingElement) : null);
+			TypeMirror superclass = type.getSuperclass();
+			writeString(superclass.getKind() != TypeKind.NONE ? getClassName(superclass) : null);
+			this.out.writeBoolean(nested && isIndependentInnerClass(type));
+			List<? extends TypeMirror> interfaces = type.getInterfaces();
+			writeCount(interfaces.size());
+			for (TypeMirror ifc : interfaces) {
+				writeString(getClassName(ifc));
+			}
+			List<TypeElement> memberTypes = new ArrayList<>();
+			List<ExecutableElement> annotatedMethods = new ArrayList<>();
+			for (Element element : type.getEnclosedElements()) {
+				if (element instanceof TypeElement) {
+					memberTypes.add((TypeElement) element);
+				}
+				else if ((element.getKind() == ElementKind.METHOD || element.getKind() == ElementKind.CONSTRUCTOR) &&
+						!getRuntimeVisibleAnnotations(element).isEmpty()) {
+					annotatedMethods.add((ExecutableElement) element);
+				}
+			}
+			writeCount(memberTypes.size());
+			for (TypeElement memberType : memberTypes) {
+				writeString(getClassName(memberType));
+			}
+			writeAnnotations(type);
+			writeCount(annotatedMethods.size());
+			for (ExecutableElement method : annotatedMethods) {
+				writeString(method.getKind() == ElementKind.CONSTRUCTOR ? "<init>" : method.getSimpleName().toString());
+				this.out.writeInt(getMethodAccess(method));
+				writeString(getClassName(method.getReturnType()));
+				writeAnnotations(method);
+			}
+			this.out.flush();
+
+			ByteArrayOutputStream result = new ByteArrayOutputStream(this.content.size() + this.strings.size() * 16);
+			DataOutputStream resultOut = new DataOutputStream(result);
+			resultOut.writeShort(this.strings.size());
+			for (String string : this.strings.keySet()) {
+				resultOut.writeUTF(string);
+			}
+			this.content.writeTo(resultOut);
+			resultOut.flush();
+			return result.toByteArray();
+		}
+
+		private void writeAnnotations(Element element) throws IOException {
+			List<AnnotationMirror> annotations = getRuntimeVisibleAnnotations(element);
+			writeCount(annotations.size());
+			for (AnnotationMirror annotation : annotations) {
+				writeAnnotation(annotation);
+			}
+		}
+
+		private void writeAnnotation(AnnotationMirror annotation) throws IOException {
+			writeString(getClassName(annotation.getAnnotationType()));
+			Map<? extends ExecutableElement, ? extends AnnotationValue> values = annotation.getElementValues();
+			writeCount(values.size());
+			for (Map.Entry<? extends ExecutableElement, ? extends AnnotationValue> entry : values.entrySet()) {
+				writeString(entry.getKey().getSimpleName().toString());
+				writeValue(entry.getValue());
+			}
+		}
+
+		private void writeValue(AnnotationValue annotationValue) throws IOException {
+			Object value = annotationValue.getValue();
+			if (value instanceof Boolean) {
+				this.out.writeByte('Z');
+				this.out.writeBoolean((Boolean) value);
+			}
+			else if (value instanceof Byte) {
+				this.out.writeByte('B');
+				this.out.writeByte((Byte) value);
+			}
+			else if (value instanceof Character) {
+				this.out.writeByte('C');
+				this.out.writeChar((Character) value);
+			}
+			else if (value instanceof Short) {
+				this.out.writeByte('S');
+				this.out.writeShort((Short) value);
+			}
+			else if (value instanceof Integer) {
+				this.out.writeByte('I');
+				this.out.writeInt((Integer) value);
+			}
+			else if (value instanceof Long) {
+				this.out.writeByte('J');
+				this.out.writeLong((Long) value);
+			}
+			else if (value instanceof Float) {
+				this.out.writeByte('F');
+				this.out.writeFloat((Float) value);
+			}
+			else if (value instanceof Double) {
+				this.out.writeByte('D');
+				this.out.writeDouble((Double) value);
+			}
+			else if (value instanceof String) {
+				this.out.writeByte('s');
+				writeString((String) value);
+			}
+			else if (value instanceof TypeMirror) {
+				this.out.writeByte('s');
+				writeString(getClassName((TypeMirror) value));
+			}
+			else if (value instanceof VariableElement) {
+				VariableElement constant = (VariableElement) value;
+				this.out.writeByte('e');
+				writeString(getClassName((TypeElement) constant.getEnclosingElement()));
+				writeString(constant.getSimpleName().toString());
+			}
+			else if (value instanceof AnnotationMirror) {
+				this.out.writeByte('@');
+				writeAnnotation((AnnotationMirror) value);
+			}
+			else if (value instanceof List) {
+				List<?> elements = (List<?>) value;
+				this.out.writeByte('[');
+				writeCount(elements.size());
+				for (Object element : elements) {
+					writeValue((AnnotationValue) element);
+				}
+			}
+			else {
+				throw new UnsupportedMetadataException();
+			}
+		}
+
+		private void writeString(String value) throws IOException {
+			if (value == null) {
+				this.out.writeShort(0);
+				return;
+			}
+			Integer index = this.strings.get(value);
+			if (index == null) {
+				index = this.strings.size() + 1;
+				if (index > MAX_REFERENCES) {
+					throw new UnsupportedMetadataException();
+				}
+				this.strings.put(value, index);
+			}
+			this.out.writeShort(index);
+		}
+
+		private void writeCount(int count) throws IOException {
+			if (count > MAX_REFERENCES) {
+				throw new UnsupportedMetadataException();
+			}
+			this.out.writeShort(count);
+		}
+	}
+
+
+	/**
+	 * Signals that the metadata of a type cannot be encoded, leaving it to
+	 * be read from the class file at runtime.
+	 */
+	@SuppressWarnings("serial")
+	private static class UnsupportedMetadataException extends RuntimeException {
+	}
+
+}
@@ -0,0 +1,71 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.context.index.processor;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Marshaller to write the annotation metadata of candidate components in the
+ * binary format read by {@code org.springframework.core.type.classreading.AnnotationMetadataIndex}.
+ *
+ * @author Lars Hofmann
+ * @since 5.3.8
+ * @see AnnotationMetadataEncoder
+ */
+abstract class AnnotationMetadataMarshaller {
+
+	static final int MAGIC = 0x5350434D;
+
+	static final int VERSION = 1;
+
+
+	public static void write(Map<String, byte[]> metadata, OutputStream out) throws IOException {
+		DataOutputStream dataOut = new DataOutputStream(out);
+		dataOut.writeInt(MAGIC);
+		dataOut.writeShort(VERSION);
+		dataOut.writeInt(metadata.size());
+		for (Map.Entry<String, byte[]> entry : new TreeMap<>(metadata).entrySet()) {
+			dataOut.writeUTF(entry.getKey());
+			dataOut.writeInt(entry.getValue().length);
+			dataOut.write(entry.getValue());
+		}
+		dataOut.flush();
+	}
+
+	public static Map<String, byte[]> read(InputStream in) throws IOException {
+		DataInputStream dataIn = new DataInputStream(in);
+		if (dataIn.readInt() != MAGIC || dataIn.readUnsignedShort() != VERSION) {
+			throw new IOException("Unsupported annotation metadata format");
+		}
+		Map<String, byte[]> result = new TreeMap<>();
+		int count = dataIn.readInt();
+		for (int i = 0; i < count; i++) {
+			String type = dataIn.readUTF();
+			byte[] payload = new byte[dataIn.readInt()];
+			dataIn.readFully(payload);
+			result.put(type, payload);
+		}
+		return result;
+	}
+
+}
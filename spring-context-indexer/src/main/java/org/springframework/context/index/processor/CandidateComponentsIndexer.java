@@ -39,12 +39,25 @@ import javax.lang.model.element.TypeElement;
  * Annotation {@link Processor} that writes {@link CandidateComponentsMetadata}
  * file for spring components.
  *
+ * <p>If the {@value #ANNOTATION_METADATA_OPTION} option is set to {@code true},
+ * the full annotation metadata of each candidate component is written to an
+ * additional binary index as well, allowing the runtime to build the metadata
+ * of indexed components without reading their class files.
+ *
  * @author Stephane Nicoll
  * @author Juergen Hoeller
+ * @author Lars Hofmann
  * @since 5.0
  */
 public class CandidateComponentsIndexer implements Processor {
 
+	/**
+	 * Processor option that enables the annotation metadata index.
+	 * @since 5.3.8
+	 */
+	public static final String ANNOTATION_METADATA_OPTION = "spring.index.metadata";
+
+
 	private MetadataStore metadataStore;
 
 	private MetadataCollector metadataCollector;
@@ -53,10 +66,12 @@ public class CandidateComponentsIndexer implements Processor {
 
 	private List<StereotypesProvider> stereotypesProviders;
 
+	private AnnotationMetadataEncoder annotationMetadataEncoder;
+
 
 	@Override
 	public Set<String> getSupportedOptions() {
-		return Collections.emptySet();
+		return Collections.singleton(ANNOTATION_METADATA_OPTION);
 	}
 
 	@Override
@@ -74,7 +89,14 @@ public class CandidateComponentsIndexer implements Processor {
 		this.stereotypesProviders = getStereotypesProviders(env);
 		this.typeHelper = new TypeHelper(env);
 		this.metadataStore = new MetadataStore(env);
-		this.metadataCollector = new MetadataCollector(env, this.metadataStore.readMetadata());
+		if (Boolean.parseBoolean(env.getOptions().get(ANNOTATION_METADATA_OPTION))) {
+			this.annotationMetadataEncoder = new AnnotationMetadataEncoder(env);
+			this.metadataCollector = new MetadataCollector(env,
+					this.metadataStore.readMetadata(), this.metadataStore.readAnnotationMetadata());
+		}
+		else {
+			this.metadataCollector = new MetadataCollector(env, this.metadataStore.readMetadata());
+		}
 	}
 
 	@Override
@@ -113,7 +135,14 @@ public class CandidateComponentsIndexer implements Processor {
 		Set<String> stereotypes = new LinkedHashSet<>();
 		this.stereotypesProviders.forEach(p -> stereotypes.addAll(p.getStereotypes(element)));
 		if (!stereotypes.isEmpty()) {
-			this.metadataCollector.add(new ItemMetadata(this.typeHelper.getType(element), stereotypes));
+			String type = this.typeHelper.getType(element);
+			this.metadataCollector.add(new ItemMetadata(type, stereotypes));
+			if (this.annotationMetadataEncoder != null && element instanceof TypeElement) {
+				byte[] payload = this.annotationMetadataEncoder.encode((TypeElement) element);
+				if (payload != null) {
+					this.metadataCollector.addAnnotationMetadata(type, payload);
+				}
+			}
 		}
 	}
 
@@ -122,6 +151,9 @@ public class CandidateComponentsIndexer implements Processor {
 		if (!metadata.getItems().isEmpty()) {
 			try {
 				this.metadataStore.writeMetadata(metadata);
+				if (this.annotationMetadataEncoder != null) {
+					this.metadataStore.writeAnnotationMetadata(this.metadataCollector.getAnnotationMetadata());
+				}
 			}
 			catch (IOException ex) {
 				throw new IllegalStateException("Failed to write metadata", ex);
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2018 the original author or authors.
+ * Copyright 2002-2021 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -18,7 +18,9 @@ package org.springframework.context.index.processor;
 
 import java.util.ArrayList;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 import javax.annotation.processing.ProcessingEnvironment;
@@ -36,10 +38,14 @@ class MetadataCollector {
 
 	private final List<ItemMetadata> metadataItems = new ArrayList<>();
 
+	private final Map<String, byte[]> annotationMetadata = new LinkedHashMap<>();
+
 	private final ProcessingEnvironment processingEnvironment;
 
 	private final CandidateComponentsMetadata previousMetadata;
 
+	private final Map<String, byte[]> previousAnnotationMetadata;
+
 	private final TypeHelper typeHelper;
 
 	private final Set<String> processedSourceTypes = new HashSet<>();
@@ -53,8 +59,22 @@ class MetadataCollector {
 	public MetadataCollector(ProcessingEnvironment processingEnvironment,
 			CandidateComponentsMetadata previousMetadata) {
 
+		this(processingEnvironment, previousMetadata, null);
+	}
+
+	/**
+	 * Create a new {@code MetadataProcessor} instance.
+	 * @param processingEnvironment the processing environment of the build
+	 * @param previousMetadata any previous metadata or {@code null}
+	 * @param previousAnnotationMetadata any previous annotation metadata or {@code null}
+	 * @since 5.3.8
+	 */
+	public MetadataCollector(ProcessingEnvironment processingEnvironment,
+			CandidateComponentsMetadata previousMetadata, Map<String, byte[]> previousAnnotationMetadata) {
+
 		this.processingEnvironment = processingEnvironment;
 		this.previousMetadata = previousMetadata;
+		this.previousAnnotationMetadata = previousAnnotationMetadata;
 		this.typeHelper = new TypeHelper(processingEnvironment);
 	}
 
@@ -75,6 +95,10 @@ class MetadataCollector {
 		this.metadataItems.add(metadata);
 	}
 
+	public void addAnnotationMetadata(String type, byte[] payload) {
+		this.annotationMetadata.put(type, payload);
+	}
+
 	public CandidateComponentsMetadata getMetadata() {
 		CandidateComponentsMetadata metadata = new CandidateComponentsMetadata();
 		for (ItemMetadata item : this.metadataItems) {
@@ -91,8 +115,23 @@ class MetadataCollector {
 		return metadata;
 	}
 
+	public Map<String, byte[]> getAnnotationMetadata() {
+		Map<String, byte[]> metadata = new LinkedHashMap<>(this.annotationMetadata);
+		if (this.previousAnnotationMetadata != null) {
+			this.previousAnnotationMetadata.forEach((type, payload) -> {
+				if (shouldBeMerged(type)) {
+					metadata.putIfAbsent(type, payload);
+				}
+			});
+		}
+		return metadata;
+	}
+
 	private boolean shouldBeMerged(ItemMetadata itemMetadata) {
-		String sourceType = itemMetadata.getType();
+		return shouldBeMerged(itemMetadata.getType());
+	}
+
+	private boolean shouldBeMerged(String sourceType) {
 		return (sourceType != null && !deletedInCurrentBuild(sourceType)
 				&& !processedInCurrentBuild(sourceType));
 	}
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2018 the original author or authors.
+ * Copyright 2002-2021 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -19,6 +19,7 @@ package org.springframework.context.index.processor;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.util.Map;
 
 import javax.annotation.processing.ProcessingEnvironment;
 import javax.tools.FileObject;
@@ -34,6 +35,8 @@ class MetadataStore {
 
 	static final String METADATA_PATH = "META-INF/spring.components";
 
+	static final String ANNOTATION_METADATA_PATH = "META-INF/spring.components.metadata";
+
 	private final ProcessingEnvironment environment;
 
 
@@ -61,6 +64,25 @@ class MetadataStore {
 	}
 
 
+	public Map<String, byte[]> readAnnotationMetadata() {
+		try (InputStream in = getMetadataResource(ANNOTATION_METADATA_PATH).openInputStream()) {
+			return AnnotationMetadataMarshaller.read(in);
+		}
+		catch (IOException ex) {
+			// Failed to read metadata -> ignore.
+			return null;
+		}
+	}
+
+	public void writeAnnotationMetadata(Map<String, byte[]> metadata) throws IOException {
+		if (!metadata.isEmpty()) {
+			try (OutputStream outputStream = createMetadataResource(ANNOTATION_METADATA_PATH).openOutputStream()) {
+				AnnotationMetadataMarshaller.write(metadata, outputStream);
+			}
+		}
+	}
+
+
 	private CandidateComponentsMetadata readMetadata(InputStream in) throws IOException {
 		try {
 			return PropertiesMarshaller.read(in);
@@ -71,11 +93,19 @@ class MetadataStore {
 	}
 
 	private FileObject getMetadataResource() throws IOException {
-		return this.environment.getFiler().getResource(StandardLocation.CLASS_OUTPUT, "", METADATA_PATH);
+		return getMetadataResource(METADATA_PATH);
+	}
+
+	private FileObject getMetadataResource(String path) throws IOException {
+		return this.environment.getFiler().getResource(StandardLocation.CLASS_OUTPUT, "", path);
 	}
 
 	private FileObject createMetadataResource() throws IOException {
-		return this.environment.getFiler().createResource(StandardLocation.CLASS_OUTPUT, "", METADATA_PATH);
+		return createMetadataResource(METADATA_PATH);
+	}
+
+	private FileObject createMetadataResource(String path) throws IOException {
+		return this.environment.getFiler().createResource(StandardLocation.CLASS_OUTPUT, "", path);
 	}
 
 }
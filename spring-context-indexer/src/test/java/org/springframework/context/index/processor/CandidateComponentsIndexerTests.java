@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2019 the original author or authors.
+ * Copyright 2002-2021 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -19,7 +19,12 @@ package org.springframework.context.index.processor;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
+import java.lang.annotation.Annotation;
 import java.nio.file.Path;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 import javax.annotation.ManagedBean;
 import javax.inject.Named;
@@ -33,9 +38,11 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.io.TempDir;
 
+import org.springframework.context.annotation.Bean;
 import org.springframework.context.index.sample.AbstractController;
 import org.springframework.context.index.sample.MetaControllerIndexed;
 import org.springframework.context.index.sample.SampleComponent;
+import org.springframework.context.index.sample.SampleConfiguration;
 import org.springframework.context.index.sample.SampleController;
 import org.springframework.context.index.sample.SampleEmbedded;
 import org.springframework.context.index.sample.SampleMetaController;
@@ -58,6 +65,13 @@ import org.springframework.context.index.sample.type.SampleSpecializedRepo;
 import org.springframework.context.index.sample.type.SmartRepo;
 import org.springframework.context.index.sample.type.SpecializedRepo;
 import org.springframework.context.index.test.TestCompiler;
+import org.springframework.core.annotation.MergedAnnotation;
+import org.springframework.core.annotation.MergedAnnotations;
+import org.springframework.core.type.AnnotationMetadata;
+import org.springframework.core.type.MethodMetadata;
+import org.springframework.core.type.classreading.AnnotationMetadataIndex;
+import org.springframework.core.type.classreading.MetadataReader;
+import org.springframework.core.type.classreading.SimpleMetadataReaderFactory;
 import org.springframework.stereotype.Component;
 import org.springframework.util.ClassUtils;
 
@@ -69,6 +83,7 @@ import static org.assertj.core.api.Assertions.assertThat;
  * @author Stephane Nicoll
  * @author Vedran Pavic
  * @author Sam Brannen
+ * @author Lars Hofmann
  */
 class CandidateComponentsIndexerTests {
 
@@ -218,6 +233,62 @@ class CandidateComponentsIndexerTests {
 		assertThat(metadata.getItems()).hasSize(0);
 	}
 
+	@Test
+	void annotationMetadataIsNotWrittenByDefault() {
+		compile(SampleConfiguration.class);
+		assertThat(new File(this.compiler.getOutputLocation(), MetadataStore.ANNOTATION_METADATA_PATH)).doesNotExist();
+	}
+
+	@Test
+	void annotationMetadataMatchesClassFileMetadata() throws IOException {
+		AnnotationMetadataIndex index = compileWithAnnotationMetadata(SampleConfiguration.class);
+		String nestedClassName = SampleConfiguration.class.getName() + "$NestedConfiguration";
+		assertThat(index.size()).isEqualTo(2);
+		assertThat(index.contains(SampleConfiguration.class.getName())).isTrue();
+		assertThat(index.contains(nestedClassName)).isTrue();
+
+		SimpleMetadataReaderFactory metadataReaderFactory = new SimpleMetadataReaderFactory(getClass().getClassLoader());
+		for (String className : new String[] {SampleConfiguration.class.getName(), nestedClassName}) {
+			MetadataReader indexed = index.getMetadataReader(className);
+			MetadataReader classFile = metadataReaderFactory.getMetadataReader(className);
+			assertThat(indexed).isNotNull();
+			assertThat(indexed.getResource()).isEqualTo(classFile.getResource());
+			assertSameMetadata(indexed.getAnnotationMetadata(), classFile.getAnnotationMetadata());
+		}
+		assertThat(index.getMetadataReader(SampleComponent.class.getName())).isNull();
+	}
+
+	private void assertSameMetadata(AnnotationMetadata actual, AnnotationMetadata expected) {
+		assertThat(actual.getClassName()).isEqualTo(expected.getClassName());
+		assertThat(actual.isInterface()).isEqualTo(expected.isInterface());
+		assertThat(actual.isAbstract()).isEqualTo(expected.isAbstract());
+		assertThat(actual.isFinal()).isEqualTo(expected.isFinal());
+		assertThat(actual.isIndependent()).isEqualTo(expected.isIndependent());
+		assertThat(actual.getEnclosingClassName()).isEqualTo(expected.getEnclosingClassName());
+		assertThat(actual.getSuperClassName()).isEqualTo(expected.getSuperClassName());
+		assertThat(actual.getInterfaceNames()).containsExactly(expected.getInterfaceNames());
+		assertThat(actual.getMemberClassNames()).containsExactly(expected.getMemberClassNames());
+		assertThat(synthesize(actual.getAnnotations())).containsExactlyElementsOf(synthesize(expected.getAnnotations()));
+		Set<MethodMetadata> actualMethods = actual.getAnnotatedMethods(Bean.class.getName());
+		Set<MethodMetadata> expectedMethods = expected.getAnnotatedMethods(Bean.class.getName());
+		assertThat(actualMethods).hasSameSizeAs(expectedMethods);
+		for (MethodMetadata expectedMethod : expectedMethods) {
+			MethodMetadata actualMethod = actualMethods.stream().filter(method -> method.getMethodName().equals(expectedMethod.getMethodName()))
+					.findFirst().orElseThrow(IllegalStateException::new);
+			assertThat(actualMethod.getDeclaringClassName()).isEqualTo(expectedMethod.getDeclaringClassName());
+			assertThat(actualMethod.getReturnTypeName()).isEqualTo(expectedMethod.getReturnTypeName());
+			assertThat(actualMethod.isStatic()).isEqualTo(expectedMethod.isStatic());
+			assertThat(actualMethod.isOverridable()).isEqualTo(expectedMethod.isOverridable());
+			assertThat(synthesize(actualMethod.getAnnotations()))
+					.containsExactlyElementsOf(synthesize(expectedMethod.getAnnotations()));
+		}
+	}
+
+	private List<Annotation> synthesize(MergedAnnotations annotations) {
+		return annotations.stream().filter(MergedAnnotation::isDirectlyPresent)
+				.map(MergedAnnotation::synthesize).collect(Collectors.toList());
+	}
+
 	private void testComponent(Class<?>... classes) {
 		CandidateComponentsMetadata metadata = compile(classes);
 		for (Class<?> c : classes) {
@@ -244,6 +315,18 @@ class CandidateComponentsIndexerTests {
 		return readGeneratedMetadata(this.compiler.getOutputLocation());
 	}
 
+	private AnnotationMetadataIndex compileWithAnnotationMetadata(Class<?>... types) throws IOException {
+		CandidateComponentsIndexer processor = new CandidateComponentsIndexer();
+		this.compiler.getTask(Collections.singletonList(
+				"-A" + CandidateComponentsIndexer.ANNOTATION_METADATA_OPTION + "=true"), types).call(processor);
+		AnnotationMetadataIndex index = new AnnotationMetadataIndex(getClass().getClassLoader());
+		File metadataFile = new File(this.compiler.getOutputLocation(), MetadataStore.ANNOTATION_METADATA_PATH);
+		try (FileInputStream fileInputStream = new FileInputStream(metadataFile)) {
+			index.read(fileInputStream);
+		}
+		return index;
+	}
+
 	private CandidateComponentsMetadata readGeneratedMetadata(File outputLocation) {
 		File metadataFile = new File(outputLocation, MetadataStore.METADATA_PATH);
 		if (metadataFile.isFile()) {
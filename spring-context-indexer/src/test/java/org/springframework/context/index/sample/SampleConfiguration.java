@@ -0,0 +1,78 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.context.index.sample;
+
+import java.io.Serializable;
+import java.lang.annotation.ElementType;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.context.annotation.Import;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.context.annotation.Role;
+import org.springframework.context.annotation.ScopedProxyMode;
+import org.springframework.core.annotation.Order;
+
+/**
+ * Test candidate for the annotation metadata index, declaring annotations
+ * with all kinds of attribute values.
+ *
+ * @author Lars Hofmann
+ */
+@Configuration(proxyBeanMethods = false)
+@SampleAttributes(flag = true, byteValue = 1, charValue = 'c', shortValue = 2, longValue = 3L,
+		floatValue = 4.0f, doubleValue = 5.0, numbers = {1, 2}, names = {}, types = {String.class, int[].class},
+		elementTypes = ElementType.TYPE, scope = @Scope("single"), scopes = {@Scope("first"), @Scope("second")})
+@org.springframework.context.annotation.Scope(value = "prototype", proxyMode = ScopedProxyMode.TARGET_CLASS)
+@DependsOn({"first", "second"})
+@Import(SampleComponent.class)
+@Role(BeanDefinition.ROLE_INFRASTRUCTURE)
+@Lazy
+@Deprecated
+@SuppressWarnings({"deprecation", "serial"})
+public class SampleConfiguration extends AbstractController implements Serializable {
+
+	@Autowired
+	public SampleConfiguration(SampleComponent component) {
+	}
+
+
+	@Bean(name = {"first", "second"}, autowireCandidate = false)
+	@Order(1)
+	public static SampleComponent first() {
+		return new SampleComponent();
+	}
+
+	@Bean
+	@Scope("request")
+	protected String[] second() {
+		return new String[0];
+	}
+
+	@Deprecated
+	public void deprecated() {
+	}
+
+
+	@Configuration
+	static class NestedConfiguration {
+	}
+
+}
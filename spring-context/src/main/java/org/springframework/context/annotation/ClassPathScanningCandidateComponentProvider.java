@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2020 the original author or authors.
+ * Copyright 2002-2021 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -18,11 +18,14 @@ package org.springframework.context.annotation;
 
 import java.io.IOException;
 import java.lang.annotation.Annotation;
+import java.lang.reflect.Method;
 import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
@@ -35,6 +38,7 @@ import org.springframework.beans.factory.support.BeanDefinitionRegistry;
 import org.springframework.context.ResourceLoaderAware;
 import org.springframework.context.index.CandidateComponentsIndex;
 import org.springframework.context.index.CandidateComponentsIndexLoader;
+import org.springframework.core.SpringProperties;
 import org.springframework.core.annotation.AnnotationUtils;
 import org.springframework.core.env.Environment;
 import org.springframework.core.env.EnvironmentCapable;
@@ -45,9 +49,11 @@ import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
 import org.springframework.core.io.support.ResourcePatternResolver;
 import org.springframework.core.io.support.ResourcePatternUtils;
 import org.springframework.core.type.AnnotationMetadata;
+import org.springframework.core.type.classreading.AnnotationPreFilter;
 import org.springframework.core.type.classreading.CachingMetadataReaderFactory;
 import org.springframework.core.type.classreading.MetadataReader;
 import org.springframework.core.type.classreading.MetadataReaderFactory;
+import org.springframework.core.type.classreading.SimpleMetadataReaderFactory;
 import org.springframework.core.type.filter.AnnotationTypeFilter;
 import org.springframework.core.type.filter.AssignableTypeFilter;
 import org.springframework.core.type.filter.TypeFilter;
@@ -59,6 +65,7 @@ import org.springframework.stereotype.Repository;
 import org.springframework.stereotype.Service;
 import org.springframework.util.Assert;
 import org.springframework.util.ClassUtils;
+import org.springframework.util.ReflectionUtils;
 
 /**
  * A component provider that provides candidate components from a base package. Can
@@ -78,6 +85,7 @@ import org.springframework.util.ClassUtils;
  * @author Ramnivas Laddad
  * @author Chris Beams
  * @author Stephane Nicoll
+ * @author Lars Hofmann
  * @since 2.5
  * @see org.springframework.core.type.classreading.MetadataReaderFactory
  * @see org.springframework.core.type.AnnotationMetadata
@@ -112,6 +120,13 @@ public class ClassPathScanningCandidateComponentProvider implements EnvironmentC
 	@Nullable
 	private CandidateComponentsIndex componentsIndex;
 
+	@Nullable
+	private AnnotationPreFilter annotationPreFilter;
+
+	@Nullable
+	private ForkJoinPool forkJoinPool = (SpringProperties.getFlag(
+			PathMatchingResourcePatternResolver.PARALLEL_SCANNING_PROPERTY_NAME) ? ForkJoinPool.commonPool() : null);
+
 
 	/**
 	 * Protected constructor for flexible subclass initialization.
@@ -166,6 +181,7 @@ public class ClassPathScanningCandidateComponentProvider implements EnvironmentC
 	 */
 	public void addIncludeFilter(TypeFilter includeFilter) {
 		this.includeFilters.add(includeFilter);
+		this.annotationPreFilter = null;
 	}
 
 	/**
@@ -186,6 +202,7 @@ public class ClassPathScanningCandidateComponentProvider implements EnvironmentC
 	public void resetFilters(boolean useDefaultFilters) {
 		this.includeFilters.clear();
 		this.excludeFilters.clear();
+		this.annotationPreFilter = null;
 		if (useDefaultFilters) {
 			registerDefaultFilters();
 		}
@@ -199,15 +216,21 @@ public class ClassPathScanningCandidateComponentProvider implements EnvironmentC
 	 * {@link Controller @Controller} stereotype annotations.
 	 * <p>Also supports Java EE 6's {@link javax.annotation.ManagedBean} and
 	 * JSR-330's {@link javax.inject.Named} annotations, if available.
-	 *
+	 * <p>As long as no other include filters are added, class files that
+	 * cannot carry any of these annotations are rejected upfront, based on
+	 * their constant pool, without building their metadata.
+	 * @see AnnotationPreFilter
 	 */
 	@SuppressWarnings("unchecked")
 	protected void registerDefaultFilters() {
+		List<String> annotationTypes = new ArrayList<>(3);
 		this.includeFilters.add(new AnnotationTypeFilter(Component.class));
+		annotationTypes.add(Component.class.getName());
 		ClassLoader cl = ClassPathScanningCandidateComponentProvider.class.getClassLoader();
 		try {
 			this.includeFilters.add(new AnnotationTypeFilter(
 					((Class<? extends Annotation>) ClassUtils.forName("javax.annotation.ManagedBean", cl)), false));
+			annotationTypes.add("javax.annotation.ManagedBean");
 			logger.trace("JSR-250 'javax.annotation.ManagedBean' found and supported for component scanning");
 		}
 		catch (ClassNotFoundException ex) {
@@ -216,11 +239,24 @@ public class ClassPathScanningCandidateComponentProvider implements EnvironmentC
 		try {
 			this.includeFilters.add(new AnnotationTypeFilter(
 					((Class<? extends Annotation>) ClassUtils.forName("javax.inject.Named", cl)), false));
+			annotationTypes.add("javax.inject.Named");
 			logger.trace("JSR-330 'javax.inject.Named' annotation found and supported for component scanning");
 		}
 		catch (ClassNotFoundException ex) {
 			// JSR-330 API not available - simply skip.
 		}
+		if (this.includeFilters.size() == annotationTypes.size() && !hasCustomCandidateCheck()) {
+			this.annotationPreFilter = new AnnotationPreFilter(annotationTypes);
+		}
+	}
+
+	/**
+	 * Determine whether {@link #isCandidateComponent(MetadataReader)} has been
+	 * overridden, possibly accepting classes beyond the include filters.
+	 */
+	private boolean hasCustomCandidateCheck() {
+		Method method = ReflectionUtils.findMethod(getClass(), "isCandidateComponent", MetadataReader.class);
+		return (method == null || method.getDeclaringClass() != ClassPathScanningCandidateComponentProvider.class);
 	}
 
 	/**
@@ -302,6 +338,26 @@ public class ClassPathScanningCandidateComponentProvider implements EnvironmentC
 	}
 
 
+	/**
+	 * Specify a {@link ForkJoinPool} for reading the metadata of scanned classes
+	 * in parallel. Candidate components are still identified on the calling
+	 * thread, in the order of the resolved resources.
+	 * <p>Default is none, reading class metadata on the calling thread, unless the
+	 * {@link PathMatchingResourcePatternResolver#PARALLEL_SCANNING_PROPERTY_NAME
+	 * "spring.scanning.parallel"} property is set, in which case the
+	 * {@link ForkJoinPool#commonPool() common pool} is used.
+	 * <p>Note that the resolution of the resource pattern for a base package is
+	 * parallelized by the {@link PathMatchingResourcePatternResolver} itself.
+	 * The {@linkplain #setMetadataReaderFactory MetadataReaderFactory} in use
+	 * needs to be thread-safe, as is the case with the default factory.
+	 * @since 5.3.8
+	 * @see PathMatchingResourcePatternResolver#setForkJoinPool
+	 */
+	public void setForkJoinPool(@Nullable ForkJoinPool forkJoinPool) {
+		this.forkJoinPool = forkJoinPool;
+	}
+
+
 	/**
 	 * Scan the class path for candidate components.
 	 * @param basePackage the package to check for annotated classes
@@ -383,7 +439,10 @@ public class ClassPathScanningCandidateComponentProvider implements EnvironmentC
 			boolean traceEnabled = logger.isTraceEnabled();
 			boolean debugEnabled = logger.isDebugEnabled();
 			for (String type : types) {
-				MetadataReader metadataReader = getMetadataReaderFactory().getMetadataReader(type);
+				MetadataReader metadataReader = index.getMetadataReader(type);
+				if (metadataReader == null) {
+					metadataReader = getMetadataReaderFactory().getMetadataReader(type);
+				}
 				if (isCandidateComponent(metadataReader)) {
 					ScannedGenericBeanDefinition sbd = new ScannedGenericBeanDefinition(metadataReader);
 					sbd.setSource(metadataReader.getResource());
@@ -418,16 +477,22 @@ public class ClassPathScanningCandidateComponentProvider implements EnvironmentC
 			String packageSearchPath = ResourcePatternResolver.CLASSPATH_ALL_URL_PREFIX +
 					resolveBasePackage(basePackage) + '/' + this.resourcePattern;
 			Resource[] resources = getResourcePatternResolver().getResources(packageSearchPath);
+			List<ForkJoinTask<MetadataReader>> metadataReaderTasks =
+					(this.forkJoinPool != null && resources.length > 1 ?
+							readMetadataInParallel(resources, this.forkJoinPool) : null);
 			boolean traceEnabled = logger.isTraceEnabled();
 			boolean debugEnabled = logger.isDebugEnabled();
-			for (Resource resource : resources) {
+			for (int i = 0; i < resources.length; i++) {
+				Resource resource = resources[i];
 				if (traceEnabled) {
 					logger.trace("Scanning " + resource);
 				}
 				if (resource.isReadable()) {
 					try {
-						MetadataReader metadataReader = getMetadataReaderFactory().getMetadataReader(resource);
-						if (isCandidateComponent(metadataReader)) {
+						MetadataReader metadataReader = (metadataReaderTasks != null ?
+								metadataReaderTasks.get(i).join() :
+								readMetadata(resource, getMetadataReaderFactory()));
+						if (metadataReader != null && isCandidateComponent(metadataReader)) {
 							ScannedGenericBeanDefinition sbd = new ScannedGenericBeanDefinition(metadataReader);
 							sbd.setSource(resource);
 							if (isCandidateComponent(sbd)) {
@@ -449,6 +514,9 @@ public class ClassPathScanningCandidateComponentProvider implements EnvironmentC
 						}
 					}
 					catch (Throwable ex) {
+						if (metadataReaderTasks != null) {
+							metadataReaderTasks.forEach(task -> task.cancel(false));
+						}
 						throw new BeanDefinitionStoreException(
 								"Failed to read candidate component class: " + resource, ex);
 					}
@@ -467,6 +535,45 @@ public class ClassPathScanningCandidateComponentProvider implements EnvironmentC
 	}
 
 
+	/**
+	 * Start reading the metadata of the given resources in the given pool,
+	 * returning a task per resource (in the order of the given resources).
+	 */
+	private List<ForkJoinTask<MetadataReader>> readMetadataInParallel(Resource[] resources, ForkJoinPool forkJoinPool) {
+		MetadataReaderFactory metadataReaderFactory = getMetadataReaderFactory();
+		boolean inPool = (ForkJoinTask.getPool() == forkJoinPool);
+		List<ForkJoinTask<MetadataReader>> tasks = new ArrayList<>(resources.length);
+		for (Resource resource : resources) {
+			ForkJoinTask<MetadataReader> task = ForkJoinTask.adapt(() ->
+					(resource.isReadable() ? readMetadata(resource, metadataReaderFactory) : null));
+			if (inPool) {
+				task.fork();
+			}
+			else {
+				forkJoinPool.execute(task);
+			}
+			tasks.add(task);
+		}
+		return tasks;
+	}
+
+	/**
+	 * Read the metadata of the given resource, applying the annotation pre-filter
+	 * for the default include filters if possible.
+	 * @return the MetadataReader, or {@code null} if the class has been rejected
+	 * by the pre-filter (i.e. cannot match any include filter)
+	 */
+	@Nullable
+	private MetadataReader readMetadata(Resource resource, MetadataReaderFactory metadataReaderFactory)
+			throws IOException {
+
+		AnnotationPreFilter preFilter = this.annotationPreFilter;
+		if (preFilter != null && metadataReaderFactory instanceof SimpleMetadataReaderFactory) {
+			return ((SimpleMetadataReaderFactory) metadataReaderFactory).getMetadataReader(resource, preFilter);
+		}
+		return metadataReaderFactory.getMetadataReader(resource);
+	}
+
 	/**
 	 * Resolve the specified base package into a pattern specification for
 	 * the package search path.
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2020 the original author or authors.
+ * Copyright 2002-2021 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -22,6 +22,11 @@ import java.util.Properties;
 import java.util.Set;
 import java.util.stream.Collectors;
 
+import org.springframework.core.type.classreading.AnnotationMetadataIndex;
+import org.springframework.core.type.classreading.IndexedMetadataReaderFactory;
+import org.springframework.core.type.classreading.MetadataReader;
+import org.springframework.core.type.classreading.MetadataReaderFactory;
+import org.springframework.lang.Nullable;
 import org.springframework.util.AntPathMatcher;
 import org.springframework.util.ClassUtils;
 import org.springframework.util.LinkedMultiValueMap;
@@ -43,7 +48,13 @@ import org.springframework.util.MultiValueMap;
  * not a rule. Similarly, the {@code stereotype} is usually the fully qualified name of
  * a target type but it can be any marker really.
  *
+ * <p>If the index has been generated with annotation metadata, as stored in
+ * {@code META-INF/spring.components.metadata}, the metadata of the candidate
+ * types is available via {@link #getMetadataReader(String)} without reading
+ * their class files.
+ *
  * @author Stephane Nicoll
+ * @author Lars Hofmann
  * @since 5.0
  */
 public class CandidateComponentsIndex {
@@ -52,9 +63,17 @@ public class CandidateComponentsIndex {
 
 	private final MultiValueMap<String, Entry> index;
 
+	@Nullable
+	private final AnnotationMetadataIndex metadataIndex;
+
 
 	CandidateComponentsIndex(List<Properties> content) {
+		this(content, null);
+	}
+
+	CandidateComponentsIndex(List<Properties> content, @Nullable AnnotationMetadataIndex metadataIndex) {
 		this.index = parseIndex(content);
+		this.metadataIndex = metadataIndex;
 	}
 
 	private static MultiValueMap<String, Entry> parseIndex(List<Properties> content) {
@@ -89,6 +108,30 @@ public class CandidateComponentsIndex {
 		return Collections.emptySet();
 	}
 
+	/**
+	 * Return a {@link MetadataReader} for the specified type, built from the
+	 * annotation metadata recorded at build time.
+	 * @param type the fully qualified class name of the candidate type
+	 * @return the metadata reader, or {@code null} if no annotation metadata
+	 * has been recorded for the specified {@code type}
+	 * @since 5.3.8
+	 */
+	@Nullable
+	public MetadataReader getMetadataReader(String type) {
+		return (this.metadataIndex != null ? this.metadataIndex.getMetadataReader(type) : null);
+	}
+
+	/**
+	 * Return a {@link MetadataReaderFactory} that serves the annotation metadata
+	 * recorded at build time, falling back to the given factory for any other type.
+	 * @param fallback the factory to use for types without recorded metadata
+	 * @return the factory to use (the given factory if no metadata is available)
+	 * @since 5.3.8
+	 */
+	public MetadataReaderFactory getMetadataReaderFactory(MetadataReaderFactory fallback) {
+		return (this.metadataIndex != null ? new IndexedMetadataReaderFactory(this.metadataIndex, fallback) : fallback);
+	}
+
 
 	private static class Entry {
 
@@ -17,6 +17,7 @@
 package org.springframework.context.index;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.net.URL;
 import java.util.ArrayList;
 import java.util.Enumeration;
@@ -30,6 +31,7 @@ import org.apache.commons.logging.LogFactory;
 import org.springframework.core.SpringProperties;
 import org.springframework.core.io.UrlResource;
 import org.springframework.core.io.support.PropertiesLoaderUtils;
+import org.springframework.core.type.classreading.AnnotationMetadataIndex;
 import org.springframework.lang.Nullable;
 import org.springframework.util.ConcurrentReferenceHashMap;
 
@@ -37,6 +39,7 @@ import org.springframework.util.ConcurrentReferenceHashMap;
  * Candidate components index loading mechanism for internal use within the framework.
  *
  * @author Stephane Nicoll
+ * @author Lars Hofmann
  * @since 5.0
  */
 public final class CandidateComponentsIndexLoader {
@@ -47,6 +50,15 @@ public final class CandidateComponentsIndexLoader {
 	 */
 	public static final String COMPONENTS_RESOURCE_LOCATION = "META-INF/spring.components";
 
+	/**
+	 * The location to look for the annotation metadata of components, generated
+	 * along with the components index if requested.
+	 * <p>Can be present in multiple JAR files.
+	 * @since 5.3.8
+	 * @see CandidateComponentsIndex#getMetadataReader(String)
+	 */
+	public static final String COMPONENTS_METADATA_RESOURCE_LOCATION = "META-INF/spring.components.metadata";
+
 	/**
 	 * System property that instructs Spring to ignore the components index, i.e.
 	 * to always return {@code null} from {@link #loadIndex(ClassLoader)}.
@@ -110,7 +122,7 @@ public final class CandidateComponentsIndexLoader {
 				logger.debug("Loaded " + result.size() + "] index(es)");
 			}
 			int totalCount = result.stream().mapToInt(Properties::size).sum();
-			return (totalCount > 0 ? new CandidateComponentsIndex(result) : null);
+			return (totalCount > 0 ? new CandidateComponentsIndex(result, loadMetadataIndex(classLoader)) : null);
 		}
 		catch (IOException ex) {
 			throw new IllegalStateException("Unable to load indexes from location [" +
@@ -118,4 +130,29 @@ public final class CandidateComponentsIndexLoader {
 		}
 	}
 
+	@Nullable
+	private static AnnotationMetadataIndex loadMetadataIndex(ClassLoader classLoader) {
+		try {
+			Enumeration<URL> urls = classLoader.getResources(COMPONENTS_METADATA_RESOURCE_LOCATION);
+			if (!urls.hasMoreElements()) {
+				return null;
+			}
+			AnnotationMetadataIndex metadataIndex = new AnnotationMetadataIndex(classLoader);
+			while (urls.hasMoreElements()) {
+				URL url = urls.nextElement();
+				try (InputStream inputStream = new UrlResource(url).getInputStream()) {
+					metadataIndex.read(inputStream);
+				}
+			}
+			if (logger.isDebugEnabled()) {
+				logger.debug("Loaded annotation metadata for " + metadataIndex.size() + " indexed component(s)");
+			}
+			return (metadataIndex.size() > 0 ? metadataIndex : null);
+		}
+		catch (IOException ex) {
+			throw new IllegalStateException("Unable to load annotation metadata from location [" +
+					COMPONENTS_METADATA_RESOURCE_LOCATION + "]", ex);
+		}
+	}
+
 }
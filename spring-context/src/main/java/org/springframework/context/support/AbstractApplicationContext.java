@@ -27,6 +27,7 @@ import java.util.Locale;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
@@ -124,6 +125,7 @@ import org.springframework.util.ReflectionUtils;
  * @author Sam Brannen
  * @author Sebastien Deleuze
  * @author Brian Clozel
+ * @author Lars Hofmann
  * @since January 21, 2001
  * @see #refreshBeanFactory
  * @see #getBeanFactory
@@ -159,6 +161,38 @@ public abstract class AbstractApplicationContext extends DefaultResourceLoader
 	 */
 	public static final String APPLICATION_EVENT_MULTICASTER_BEAN_NAME = "applicationEventMulticaster";
 
+	/**
+	 * Property name for a training run that exits the JVM once the context has
+	 * been refreshed: {@value}. Supports {@value #ON_REFRESH_VALUE} as value.
+	 * <p>Meant for recording the classes that an application loads on startup,
+	 * through a JVM launched with {@code -XX:ArchiveClassesAtExit=app.jsa} (or
+	 * {@code -XX:DumpLoadedClassList=app.classlist} for a static archive), so that
+	 * subsequent starts can use the resulting archive through
+	 * {@code -XX:SharedArchiveFile=app.jsa}. The training run includes the
+	 * instantiation of all non-lazy singletons, the start of lifecycle beans and
+	 * any {@link ContextRefreshedEvent} listeners, which may serve as a warm-up hook.
+	 * <p>In a context hierarchy, the JVM exits after the outermost refresh only,
+	 * i.e. once no other context refresh is in progress: child contexts that are
+	 * refreshed as part of the refresh of their parent (e.g. from a bean or a
+	 * {@link ContextRefreshedEvent} listener in the parent) are covered by the
+	 * training run. Child contexts that are refreshed separately after their
+	 * parent, such as a {@code DispatcherServlet} context after the root web
+	 * application context, are not: in such an arrangement, do not set this
+	 * property but let the launcher exit the JVM once the last context has been
+	 * refreshed, or override {@link #exitAfterRefresh()} accordingly.
+	 * Combine with {@link org.springframework.cglib.core.PersistentClassCache} for
+	 * stable names of generated CGLIB classes across runs.
+	 * @since 5.3.8
+	 * @see #exitAfterRefresh()
+	 */
+	public static final String EXIT_PROPERTY_NAME = "spring.context.exit";
+
+	/**
+	 * Recognized value for the {@link #EXIT_PROPERTY_NAME} property: {@value}.
+	 * @since 5.3.8
+	 */
+	public static final String ON_REFRESH_VALUE = "onRefresh";
+
 	/**
 	 * Boolean flag controlled by a {@code spring.spel.ignore} system property that instructs Spring to
 	 * ignore SpEL, i.e. to not initialize the SpEL infrastructure.
@@ -166,6 +200,12 @@ public abstract class AbstractApplicationContext extends DefaultResourceLoader
 	 */
 	private static final boolean shouldIgnoreSpel = SpringProperties.getFlag("spring.spel.ignore");
 
+	/**
+	 * The number of context refreshes in progress in this JVM, for exiting after
+	 * the outermost refresh only (see {@link #EXIT_PROPERTY_NAME}).
+	 */
+	private static final AtomicInteger refreshesInProgress = new AtomicInteger();
+
 
 	static {
 		// Eagerly load the ContextClosedEvent class to avoid weird classloader issues
@@ -543,6 +583,7 @@ public abstract class AbstractApplicationContext extends DefaultResourceLoader
 
 	@Override
 	public void refresh() throws BeansException, IllegalStateException {
+		boolean outermostRefresh = false;
 		synchronized (this.startupShutdownMonitor) {
 			StartupStep contextRefresh = this.applicationStartup.start("spring.context.refresh");
 
@@ -555,6 +596,7 @@ public abstract class AbstractApplicationContext extends DefaultResourceLoader
 			// Prepare the bean factory for use in this context.
 			prepareBeanFactory(beanFactory);
 
+			refreshesInProgress.incrementAndGet();
 			try {
 				// Allows post-processing of the bean factory in context subclasses.
 				postProcessBeanFactory(beanFactory);
@@ -603,12 +645,19 @@ public abstract class AbstractApplicationContext extends DefaultResourceLoader
 			}
 
 			finally {
+				outermostRefresh = (refreshesInProgress.decrementAndGet() == 0);
+
 				// Reset common introspection caches in Spring's core, since we
 				// might not ever need metadata for singleton beans anymore...
 				resetCommonCaches();
 				contextRefresh.end();
 			}
 		}
+
+		// Exit outside of the startup/shutdown monitor, for shutdown hooks to close the context.
+		if (outermostRefresh && ON_REFRESH_VALUE.equalsIgnoreCase(SpringProperties.getProperty(EXIT_PROPERTY_NAME))) {
+			exitAfterRefresh();
+		}
 	}
 
 	/**
@@ -943,6 +992,27 @@ public abstract class AbstractApplicationContext extends DefaultResourceLoader
 		}
 	}
 
+	/**
+	 * Exit the JVM after a refresh of this context, for a training run
+	 * as requested through the {@link #EXIT_PROPERTY_NAME} property.
+	 * <p>Only called for the outermost refresh in a context hierarchy,
+	 * i.e. if no other context refresh is in progress at that point.
+	 * <p>Uses {@link System#exit}, running the shutdown hooks of the JVM:
+	 * in particular, the context gets closed if a shutdown hook has been
+	 * {@link #registerShutdownHook() registered}, and an {@link ApplicationStartup}
+	 * such as the Java Flight Recorder based variant gets to write its recording.
+	 * @since 5.3.8
+	 */
+	protected void exitAfterRefresh() {
+		StartupStep exit = this.applicationStartup.start("spring.context.exit");
+		if (logger.isInfoEnabled()) {
+			logger.info("Exiting JVM after refresh of " + getDisplayName() +
+					" as requested through '" + EXIT_PROPERTY_NAME + "' property");
+		}
+		exit.end();
+		System.exit(0);
+	}
+
 	/**
 	 * Cancel this context's refresh attempt, resetting the {@code active} flag
 	 * after an exception got thrown.
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2020 the original author or authors.
+ * Copyright 2002-2021 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -25,9 +25,11 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.ImportAware;
 import org.springframework.core.annotation.AnnotationAttributes;
+import org.springframework.core.task.VirtualThreadTaskExecutor;
 import org.springframework.core.type.AnnotationMetadata;
 import org.springframework.lang.Nullable;
 import org.springframework.util.CollectionUtils;
+import org.springframework.util.function.SingletonSupplier;
 
 /**
  * Abstract base {@code Configuration} class providing common structure for enabling
@@ -36,6 +38,7 @@ import org.springframework.util.CollectionUtils;
  * @author Chris Beams
  * @author Juergen Hoeller
  * @author Stephane Nicoll
+ * @author Lars Hofmann
  * @since 3.1
  * @see EnableAsync
  */
@@ -78,4 +81,22 @@ public abstract class AbstractAsyncConfiguration implements ImportAware {
 		this.exceptionHandler = configurer::getAsyncUncaughtExceptionHandler;
 	}
 
+	/**
+	 * Return the supplier for the executor to configure, if any: the executor
+	 * of an {@link AsyncConfigurer}, falling back to a {@link VirtualThreadTaskExecutor}
+	 * if requested through {@link EnableAsync#virtualThreads()}.
+	 * @since 5.3.8
+	 */
+	@Nullable
+	protected Supplier<Executor> getExecutorSupplier() {
+		if (this.enableAsync != null && this.enableAsync.getBoolean("virtualThreads")) {
+			if (!VirtualThreadTaskExecutor.isSupported()) {
+				throw new IllegalStateException(
+						"@EnableAsync(virtualThreads = true) requires virtual threads - JDK 21 or higher");
+			}
+			return new SingletonSupplier<>(this.executor, VirtualThreadTaskExecutor::new);
+		}
+		return this.executor;
+	}
+
 }
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2018 the original author or authors.
+ * Copyright 2002-2021 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -208,4 +208,18 @@ public @interface EnableAsync {
 	 */
 	int order() default Ordered.LOWEST_PRECEDENCE;
 
+	/**
+	 * Indicate whether asynchronous methods should be executed on virtual threads
+	 * by default, through a {@link org.springframework.core.task.VirtualThreadTaskExecutor}
+	 * creating a new virtual thread per invocation. Requires JDK 21 or higher.
+	 * <p>The default is {@code false}, searching for a unique
+	 * {@link org.springframework.core.task.TaskExecutor} bean or an
+	 * {@link java.util.concurrent.Executor} bean named "taskExecutor" instead.
+	 * If set to {@code true}, the virtual thread executor takes precedence over
+	 * such beans, whereas an executor provided through {@link AsyncConfigurer}
+	 * as well as an executor qualifier on {@link Async} are still respected.
+	 * @since 5.3.8
+	 */
+	boolean virtualThreads() default false;
+
 }
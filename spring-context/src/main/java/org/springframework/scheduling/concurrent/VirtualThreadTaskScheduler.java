@@ -0,0 +1,214 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.scheduling.concurrent;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.RunnableScheduledFuture;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.springframework.core.task.TaskDecorator;
+import org.springframework.core.task.VirtualThreadTaskExecutor;
+
+/**
+ * Variant of {@link ThreadPoolTaskScheduler} that executes all tasks on
+ * virtual threads, for scheduled tasks performing blocking I/O without
+ * being limited by the pool size. Requires JDK 21 or higher.
+ *
+ * <p>The pool threads of the underlying {@link ScheduledThreadPoolExecutor}
+ * merely trigger tasks and hand them off to a {@link VirtualThreadTaskExecutor}
+ * when they are due. Each execution therefore runs on a new virtual thread,
+ * while the scheduling semantics remain unchanged: a repeating task is only
+ * rescheduled once its current execution has completed, so executions of the
+ * same task never overlap, and futures only complete with the task itself.
+ *
+ * <p>A {@link #setTaskDecorator TaskDecorator} and a
+ * {@link #setConcurrencyLimit concurrency limit} may be specified for the
+ * virtual threads. Note that on shutdown, waiting for tasks to complete
+ * only covers the scheduling threads, not virtual threads already started.
+ *
+ * @author Lars Hofmann
+ * @since 5.3.8
+ * @see VirtualThreadTaskExecutor
+ */
+@SuppressWarnings("serial")
+public class VirtualThreadTaskScheduler extends ThreadPoolTaskScheduler {
+
+	private final VirtualThreadTaskExecutor taskExecutor;
+
+
+	/**
+	 * Create a new VirtualThreadTaskScheduler.
+	 * @throws IllegalStateException if virtual threads are not supported
+	 * @see VirtualThreadTaskExecutor#isSupported()
+	 */
+	public VirtualThreadTaskScheduler() {
+		this.taskExecutor = new VirtualThreadTaskExecutor();
+	}
+
+
+	/**
+	 * Specify a custom {@link TaskDecorator} to be applied to any task
+	 * about to be executed on a virtual thread.
+	 * @see VirtualThreadTaskExecutor#setTaskDecorator
+	 */
+	public void setTaskDecorator(TaskDecorator taskDecorator) {
+		this.taskExecutor.setTaskDecorator(taskDecorator);
+	}
+
+	/**
+	 * Set the maximum number of tasks to execute concurrently.
+	 * Default is unlimited.
+	 * <p>Due tasks exceeding the limit are held back until other tasks
+	 * have completed, delaying the triggering of subsequent tasks as well.
+	 * @see VirtualThreadTaskExecutor#setConcurrencyLimit
+	 */
+	public void setConcurrencyLimit(int concurrencyLimit) {
+		this.taskExecutor.setConcurrencyLimit(concurrencyLimit);
+	}
+
+	/**
+	 * Return the maximum number of tasks to execute concurrently.
+	 */
+	public int getConcurrencyLimit() {
+		return this.taskExecutor.getConcurrencyLimit();
+	}
+
+	@Override
+	protected ScheduledExecutorService createExecutor(
+			int poolSize, ThreadFactory threadFactory, RejectedExecutionHandler rejectedExecutionHandler) {
+
+		this.taskExecutor.setThreadNamePrefix(getThreadNamePrefix() + "virtual-");
+		return new VirtualThreadScheduledExecutor(poolSize, threadFactory, rejectedExecutionHandler, this.taskExecutor);
+	}
+
+
+	/**
+	 * {@link ScheduledThreadPoolExecutor} that hands off due tasks to the given executor.
+	 */
+	private static class VirtualThreadScheduledExecutor extends ScheduledThreadPoolExecutor {
+
+		private final Executor taskExecutor;
+
+		public VirtualThreadScheduledExecutor(int corePoolSize, ThreadFactory threadFactory,
+				RejectedExecutionHandler handler, Executor taskExecutor) {
+
+			super(corePoolSize, threadFactory, handler);
+			this.taskExecutor = taskExecutor;
+		}
+
+		@Override
+		protected <V> RunnableScheduledFuture<V> decorateTask(Runnable runnable, RunnableScheduledFuture<V> task) {
+			return new HandOffScheduledFuture<>(task, this, this.taskExecutor);
+		}
+
+		@Override
+		protected <V> RunnableScheduledFuture<V> decorateTask(Callable<V> callable, RunnableScheduledFuture<V> task) {
+			return new HandOffScheduledFuture<>(task, this, this.taskExecutor);
+		}
+	}
+
+
+	/**
+	 * Scheduled future that runs the original task through the given executor
+	 * when due. The original task reschedules this future after completion
+	 * if periodic, and completes the future otherwise.
+	 */
+	private static class HandOffScheduledFuture<V> implements RunnableScheduledFuture<V> {
+
+		private final RunnableScheduledFuture<V> task;
+
+		private final ScheduledThreadPoolExecutor scheduledExecutor;
+
+		private final Executor taskExecutor;
+
+		public HandOffScheduledFuture(RunnableScheduledFuture<V> task,
+				ScheduledThreadPoolExecutor scheduledExecutor, Executor taskExecutor) {
+
+			this.task = task;
+			this.scheduledExecutor = scheduledExecutor;
+			this.taskExecutor = taskExecutor;
+		}
+
+		@Override
+		public void run() {
+			try {
+				this.taskExecutor.execute(this.task);
+			}
+			catch (RuntimeException ex) {
+				// Task not accepted (e.g. due to a concurrency limit of 0): never going to complete
+				this.task.cancel(false);
+				throw ex;
+			}
+		}
+
+		@Override
+		public boolean isPeriodic() {
+			return this.task.isPeriodic();
+		}
+
+		@Override
+		public long getDelay(TimeUnit unit) {
+			return this.task.getDelay(unit);
+		}
+
+		@Override
+		public int compareTo(Delayed other) {
+			// Compare with the original task, for its sequence-based ordering
+			return this.task.compareTo(other instanceof HandOffScheduledFuture ?
+					((HandOffScheduledFuture<?>) other).task : other);
+		}
+
+		@Override
+		public boolean cancel(boolean mayInterruptIfRunning) {
+			boolean cancelled = this.task.cancel(mayInterruptIfRunning);
+			// The original task is not in the queue itself: remove this future instead
+			if (cancelled && this.scheduledExecutor.getRemoveOnCancelPolicy()) {
+				this.scheduledExecutor.remove(this);
+			}
+			return cancelled;
+		}
+
+		@Override
+		public boolean isCancelled() {
+			return this.task.isCancelled();
+		}
+
+		@Override
+		public boolean isDone() {
+			return this.task.isDone();
+		}
+
+		@Override
+		public V get() throws InterruptedException, ExecutionException {
+			return this.task.get();
+		}
+
+		@Override
+		public V get(long timeout, TimeUnit unit) throws InterruptedException, ExecutionException, TimeoutException {
+			return this.task.get(timeout, unit);
+		}
+	}
+
+}
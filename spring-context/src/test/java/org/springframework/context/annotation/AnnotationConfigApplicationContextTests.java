@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2020 the original author or authors.
+ * Copyright 2002-2021 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -16,15 +16,24 @@
 
 package org.springframework.context.annotation;
 
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.regex.Pattern;
 
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
 import org.junit.jupiter.api.Test;
 
+import org.springframework.aop.framework.autoproxy.BeanNameAutoProxyCreator;
+import org.springframework.aop.support.AopUtils;
 import org.springframework.beans.factory.FactoryBean;
 import org.springframework.beans.factory.NoSuchBeanDefinitionException;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
 import org.springframework.beans.factory.support.RootBeanDefinition;
 import org.springframework.context.ApplicationContext;
 import org.springframework.context.annotation6.ComponentForScanning;
@@ -396,6 +405,63 @@ class AnnotationConfigApplicationContextTests {
 		assertThat(context.getBeanNamesForType(TypedFactoryBean.class)).hasSize(1);
 	}
 
+	@Test
+	void concurrentBootstrapWithAutowiringFactoryBeanAndAutoProxyCreator() {
+		for (int i = 0; i < 10; i++) {
+			ExecutorService executor = Executors.newFixedThreadPool(4);
+			AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext();
+			try {
+				DefaultListableBeanFactory beanFactory = context.getDefaultListableBeanFactory();
+				beanFactory.setBootstrapExecutor(executor);
+				context.registerBean("autoProxyCreator", BeanNameAutoProxyCreator.class, () -> {
+					BeanNameAutoProxyCreator autoProxyCreator = new BeanNameAutoProxyCreator();
+					autoProxyCreator.setBeanNames("repository*", "client");
+					autoProxyCreator.setInterceptorNames("interceptor");
+					return autoProxyCreator;
+				});
+				context.registerBean("interceptor", MethodInterceptor.class, () -> MethodInvocation::proceed);
+				// Let the autowiring by type below hit the FactoryBean while in creation
+				context.registerBean("clientInCreation", Object.class, () -> {
+					while (!beanFactory.isCurrentlyInCreation("client") && !beanFactory.containsSingleton("client")) {
+						Thread.yield();
+					}
+					return new Object();
+				});
+				context.registerBean(BootstrapService.class);
+				context.registerBean("repository1", BootstrapRepository.class, SlowBootstrapRepository::new,
+						bd -> bd.setAttribute(DefaultListableBeanFactory.CONCURRENT_BOOTSTRAP_ATTRIBUTE, true));
+				context.registerBean("repository2", BootstrapRepository.class, SlowBootstrapRepository::new,
+						bd -> {
+							bd.setAttribute(DefaultListableBeanFactory.CONCURRENT_BOOTSTRAP_ATTRIBUTE, true);
+							bd.setDependsOn("repository1");
+						});
+				// FactoryBean without generic object type: requires an instance for type checks
+				RootBeanDefinition client = new RootBeanDefinition(BootstrapClientFactoryBean.class);
+				client.setAttribute(DefaultListableBeanFactory.CONCURRENT_BOOTSTRAP_ATTRIBUTE, true);
+				context.registerBeanDefinition("client", client);
+				context.registerBean(BootstrapClientService.class);
+				context.refresh();
+
+				BootstrapService service = context.getBean(BootstrapService.class);
+				assertThat(service.creationThread).isSameAs(Thread.currentThread());
+				assertThat(service.repositories).containsExactly(
+						context.getBean("repository1", BootstrapRepository.class),
+						context.getBean("repository2", BootstrapRepository.class));
+				for (BootstrapRepository repository : service.repositories) {
+					assertThat(AopUtils.isJdkDynamicProxy(repository)).isTrue();
+				}
+				assertThat(service.client).isSameAs(context.getBean("client"));
+				assertThat(AopUtils.isJdkDynamicProxy(service.client)).isTrue();
+				assertThat(context.getBean(BootstrapClientService.class).client).isSameAs(service.client);
+				assertThat(context.getBean("&client", BootstrapClientFactoryBean.class).objectCount.get()).isEqualTo(1);
+			}
+			finally {
+				context.close();
+				executor.shutdownNow();
+			}
+		}
+	}
+
 
 	@Configuration
 	static class Config {
@@ -511,6 +577,77 @@ class AnnotationConfigApplicationContextTests {
 		}
 	}
 
+	interface BootstrapRepository {
+
+		String getName();
+	}
+
+	static class SlowBootstrapRepository implements BootstrapRepository {
+
+		SlowBootstrapRepository() {
+			try {
+				Thread.sleep(10);
+			}
+			catch (InterruptedException ex) {
+				Thread.currentThread().interrupt();
+			}
+		}
+
+		@Override
+		public String getName() {
+			return "repository";
+		}
+	}
+
+	interface BootstrapClient {
+
+		String getName();
+	}
+
+	static class BootstrapClientFactoryBean implements FactoryBean<Object> {
+
+		final AtomicInteger objectCount = new AtomicInteger();
+
+		BootstrapClientFactoryBean() {
+			try {
+				Thread.sleep(50);
+			}
+			catch (InterruptedException ex) {
+				Thread.currentThread().interrupt();
+			}
+		}
+
+		@Override
+		public Object getObject() {
+			this.objectCount.incrementAndGet();
+			BootstrapClient client = () -> "client";
+			return client;
+		}
+
+		@Override
+		public Class<?> getObjectType() {
+			return BootstrapClient.class;
+		}
+	}
+
+	static class BootstrapService {
+
+		final Thread creationThread = Thread.currentThread();
+
+		@Autowired List<BootstrapRepository> repositories;
+
+		@Autowired BootstrapClient client;
+	}
+
+	static class BootstrapClientService {
+
+		BootstrapClient client;
+
+		BootstrapClientService(BootstrapClient client) {
+			this.client = client;
+		}
+	}
+
 	static class UntypedFactoryBean implements FactoryBean<Object> {
 
 		@Override
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2020 the original author or authors.
+ * Copyright 2002-2021 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -19,7 +19,9 @@ package org.springframework.context.annotation;
 import java.lang.annotation.Retention;
 import java.lang.annotation.RetentionPolicy;
 import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
 import java.util.regex.Pattern;
+import java.util.stream.Collectors;
 
 import example.gh24375.AnnotatedComponent;
 import example.profilescan.DevComponent;
@@ -47,6 +49,7 @@ import org.springframework.core.env.ConfigurableEnvironment;
 import org.springframework.core.env.StandardEnvironment;
 import org.springframework.core.io.ClassPathResource;
 import org.springframework.core.io.DefaultResourceLoader;
+import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
 import org.springframework.core.type.filter.AnnotationTypeFilter;
 import org.springframework.core.type.filter.AssignableTypeFilter;
 import org.springframework.core.type.filter.RegexPatternTypeFilter;
@@ -102,6 +105,31 @@ public class ClassPathScanningCandidateComponentProviderTests {
 		assertBeanDefinitionType(candidates);
 	}
 
+	@Test
+	public void defaultsWithParallelScan() {
+		ClassPathScanningCandidateComponentProvider provider = new ClassPathScanningCandidateComponentProvider(true);
+		provider.setResourceLoader(new DefaultResourceLoader(
+				CandidateComponentsTestClassLoader.disableIndex(getClass().getClassLoader())));
+		provider.setForkJoinPool(ForkJoinPool.commonPool());
+		testDefault(provider);
+	}
+
+	@Test
+	public void parallelScanPreservesOrder() {
+		ClassPathScanningCandidateComponentProvider provider = new ClassPathScanningCandidateComponentProvider(true);
+		provider.setResourceLoader(new DefaultResourceLoader(
+				CandidateComponentsTestClassLoader.disableIndex(getClass().getClassLoader())));
+		ClassPathScanningCandidateComponentProvider parallelProvider = new ClassPathScanningCandidateComponentProvider(true);
+		PathMatchingResourcePatternResolver resolver = new PathMatchingResourcePatternResolver(
+				CandidateComponentsTestClassLoader.disableIndex(getClass().getClassLoader()));
+		resolver.setForkJoinPool(ForkJoinPool.commonPool());
+		parallelProvider.setResourceLoader(resolver);
+		parallelProvider.setForkJoinPool(ForkJoinPool.commonPool());
+		assertThat(parallelProvider.findCandidateComponents("example").stream().map(BeanDefinition::getBeanClassName))
+				.containsExactlyElementsOf(provider.findCandidateComponents("example").stream()
+						.map(BeanDefinition::getBeanClassName).collect(Collectors.toList()));
+	}
+
 	@Test
 	public void antStylePackageWithScan() {
 		ClassPathScanningCandidateComponentProvider provider = new ClassPathScanningCandidateComponentProvider(true);
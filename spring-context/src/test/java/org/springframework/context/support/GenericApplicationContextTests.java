@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2020 the original author or authors.
+ * Copyright 2002-2021 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -16,6 +16,10 @@
 
 package org.springframework.context.support;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
 import org.junit.jupiter.api.Test;
 
 import org.springframework.beans.factory.NoUniqueBeanDefinitionException;
@@ -23,7 +27,12 @@ import org.springframework.beans.factory.config.BeanDefinition;
 import org.springframework.beans.factory.support.RootBeanDefinition;
 import org.springframework.context.ApplicationContext;
 import org.springframework.context.ApplicationContextAware;
+import org.springframework.context.event.ContextRefreshedEvent;
+import org.springframework.core.SpringProperties;
+import org.springframework.core.annotation.AnnotationLookupCache;
 import org.springframework.core.metrics.jfr.FlightRecorderApplicationStartup;
+import org.springframework.stereotype.Component;
+import org.springframework.stereotype.Service;
 import org.springframework.util.ObjectUtils;
 
 import static org.assertj.core.api.Assertions.assertThat;
@@ -210,6 +219,85 @@ public class GenericApplicationContextTests {
 		assertThat(context.getBeanFactory().getApplicationStartup()).isEqualTo(applicationStartup);
 	}
 
+	@Test
+	void annotationLookupCacheRetainedAfterRefresh() {
+		GenericApplicationContext context = new GenericApplicationContext();
+		context.registerBeanDefinition("registrar", new RootBeanDefinition(AnnotationLookupRegistrar.class));
+		context.refresh();
+
+		Component component = context.getBean(AnnotationLookupRegistrar.class).component;
+		assertThat(component).isNotNull();
+		assertThat(AnnotationLookupCache.findMergedAnnotation(AnnotatedBean.class, Component.class)).isSameAs(component);
+		context.close();
+	}
+
+	@Test
+	void exitAfterRefreshIfRequested() {
+		AtomicBoolean exited = new AtomicBoolean();
+		GenericApplicationContext context = new GenericApplicationContext() {
+			@Override
+			protected void exitAfterRefresh() {
+				assertThat(isActive()).isTrue();
+				exited.set(true);
+			}
+		};
+		context.refresh();
+		assertThat(exited.get()).isFalse();
+		context.close();
+
+		SpringProperties.setProperty(AbstractApplicationContext.EXIT_PROPERTY_NAME, AbstractApplicationContext.ON_REFRESH_VALUE);
+		try {
+			GenericApplicationContext context2 = new GenericApplicationContext() {
+				@Override
+				protected void exitAfterRefresh() {
+					assertThat(isActive()).isTrue();
+					exited.set(true);
+				}
+			};
+			context2.refresh();
+			assertThat(exited.get()).isTrue();
+			context2.close();
+		}
+		finally {
+			SpringProperties.setProperty(AbstractApplicationContext.EXIT_PROPERTY_NAME, null);
+		}
+	}
+
+
+	@Test
+	void exitAfterOutermostRefreshOnly() {
+		List<String> exited = new ArrayList<>();
+		GenericApplicationContext child = new GenericApplicationContext() {
+			@Override
+			protected void exitAfterRefresh() {
+				exited.add("child");
+			}
+		};
+		GenericApplicationContext parent = new GenericApplicationContext() {
+			@Override
+			protected void exitAfterRefresh() {
+				exited.add("parent");
+			}
+		};
+		child.setParent(parent);
+		parent.addApplicationListener((ContextRefreshedEvent event) -> {
+			if (event.getApplicationContext() == parent) {
+				child.refresh();
+			}
+		});
+
+		SpringProperties.setProperty(AbstractApplicationContext.EXIT_PROPERTY_NAME, AbstractApplicationContext.ON_REFRESH_VALUE);
+		try {
+			parent.refresh();
+			assertThat(child.isActive()).isTrue();
+			assertThat(exited).containsExactly("parent");
+			child.close();
+			parent.close();
+		}
+		finally {
+			SpringProperties.setProperty(AbstractApplicationContext.EXIT_PROPERTY_NAME, null);
+		}
+	}
 
 	static class BeanA {
 
@@ -237,4 +325,17 @@ public class GenericApplicationContextTests {
 
 	static class BeanC {}
 
+	@Service
+	static class AnnotatedBean {}
+
+	static class AnnotationLookupRegistrar {
+
+		final Component component;
+
+		public AnnotationLookupRegistrar() {
+			AnnotationLookupCache.register(AnnotatedBean.class);
+			this.component = AnnotationLookupCache.findMergedAnnotation(AnnotatedBean.class, Component.class);
+		}
+	}
+
 }
@@ -0,0 +1,105 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.scheduling.concurrent;
+
+import java.util.Date;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+import org.springframework.core.task.AsyncListenableTaskExecutor;
+import org.springframework.core.task.VirtualThreadTaskExecutor;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * @author Lars Hofmann
+ * @since 5.3.8
+ */
+class VirtualThreadTaskSchedulerTests extends AbstractSchedulingTaskExecutorTests {
+
+	private VirtualThreadTaskScheduler scheduler;
+
+
+	@Override
+	protected AsyncListenableTaskExecutor buildExecutor() {
+		assumeTrue(VirtualThreadTaskExecutor.isSupported(), "Virtual threads not supported");
+		this.scheduler = new VirtualThreadTaskScheduler();
+		this.scheduler.setThreadNamePrefix(this.threadNamePrefix);
+		this.scheduler.afterPropertiesSet();
+		return this.scheduler;
+	}
+
+
+	@Test
+	void scheduleWithFixedDelayOnVirtualThreads() throws Exception {
+		CountDownLatch latch = new CountDownLatch(3);
+		AtomicInteger concurrentExecutions = new AtomicInteger();
+		AtomicInteger maxConcurrentExecutions = new AtomicInteger();
+		ScheduledFuture<?> future = this.scheduler.scheduleWithFixedDelay(() -> {
+			int current = concurrentExecutions.incrementAndGet();
+			maxConcurrentExecutions.accumulateAndGet(current, Math::max);
+			assertThat(Thread.currentThread().getName()).startsWith(this.threadNamePrefix + "virtual-");
+			try {
+				Thread.sleep(20);
+			}
+			catch (InterruptedException ex) {
+				Thread.currentThread().interrupt();
+			}
+			concurrentExecutions.decrementAndGet();
+			latch.countDown();
+		}, 1);
+		assertThat(latch.await(5, TimeUnit.SECONDS)).isTrue();
+		future.cancel(false);
+		assertThat(maxConcurrentExecutions.get()).isEqualTo(1);
+	}
+
+	@Test
+	void removeOnCancelPolicy() {
+		this.scheduler.setRemoveOnCancelPolicy(true);
+		ScheduledFuture<?> future = this.scheduler.schedule(() -> {}, new Date(System.currentTimeMillis() + 60000));
+		assertThat(this.scheduler.getScheduledThreadPoolExecutor().getQueue()).hasSize(1);
+		assertThat(future.cancel(false)).isTrue();
+		assertThat(future.isCancelled()).isTrue();
+		assertThat(this.scheduler.getScheduledThreadPoolExecutor().getQueue()).isEmpty();
+	}
+
+	@Test
+	void blockingTasksNotLimitedByPoolSize() throws Exception {
+		int taskCount = 1000;
+		CountDownLatch started = new CountDownLatch(taskCount);
+		CountDownLatch release = new CountDownLatch(1);
+		for (int i = 0; i < taskCount; i++) {
+			this.scheduler.schedule(() -> {
+				started.countDown();
+				try {
+					release.await();
+				}
+				catch (InterruptedException ex) {
+					Thread.currentThread().interrupt();
+				}
+			}, new Date());
+		}
+		assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+		release.countDown();
+	}
+
+}
@@ -0,0 +1,132 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.core.annotation;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+import java.lang.reflect.Method;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Benchmarks for request-time annotation lookups on a handler method, comparing
+ * {@link AnnotatedElementUtils} (scanning on every call) with the
+ * {@link AnnotationLookupCache}.
+ *
+ * @author Lars Hofmann
+ */
+@BenchmarkMode(Mode.Throughput)
+public class AnnotationLookupBenchmark {
+
+	@Benchmark
+	public void hasAnnotationWithScanner(BenchmarkState state, Blackhole bh) {
+		bh.consume(AnnotatedElementUtils.hasAnnotation(state.method, Body.class));
+		bh.consume(AnnotatedElementUtils.hasAnnotation(state.handlerType, Body.class));
+	}
+
+	@Benchmark
+	public void hasAnnotationWithCache(BenchmarkState state, Blackhole bh) {
+		bh.consume(AnnotationLookupCache.hasAnnotation(state.method, Body.class));
+		bh.consume(AnnotationLookupCache.hasAnnotation(state.handlerType, Body.class));
+	}
+
+	@Benchmark
+	public void findMergedAnnotationWithScanner(BenchmarkState state, Blackhole bh) {
+		bh.consume(AnnotatedElementUtils.findMergedAnnotation(state.method, Mapping.class));
+	}
+
+	@Benchmark
+	public void findMergedAnnotationWithCache(BenchmarkState state, Blackhole bh) {
+		bh.consume(AnnotationLookupCache.findMergedAnnotation(state.method, Mapping.class));
+	}
+
+
+	@State(Scope.Benchmark)
+	public static class BenchmarkState {
+
+		Class<?> handlerType;
+
+		Method method;
+
+		@Setup(Level.Trial)
+		public void setup() throws Exception {
+			this.handlerType = TestController.class;
+			this.method = TestController.class.getMethod("handle", String.class);
+			AnnotationLookupCache.register(this.handlerType);
+			AnnotationLookupCache.register(this.method);
+		}
+	}
+
+
+	@Retention(RetentionPolicy.RUNTIME)
+	@Target({ElementType.TYPE, ElementType.METHOD, ElementType.ANNOTATION_TYPE})
+	public @interface Body {
+	}
+
+	@Retention(RetentionPolicy.RUNTIME)
+	@Target({ElementType.TYPE, ElementType.METHOD, ElementType.ANNOTATION_TYPE})
+	public @interface Mapping {
+
+		@AliasFor("path")
+		String[] value() default {};
+
+		@AliasFor("value")
+		String[] path() default {};
+
+		String[] produces() default {};
+	}
+
+	@Retention(RetentionPolicy.RUNTIME)
+	@Target(ElementType.METHOD)
+	@Mapping(produces = "application/json")
+	public @interface GetJson {
+
+		@AliasFor(annotation = Mapping.class)
+		String[] value() default {};
+	}
+
+	@Retention(RetentionPolicy.RUNTIME)
+	@Target(ElementType.TYPE)
+	@Body
+	public @interface RestHandler {
+	}
+
+	public interface TestApi {
+
+		@GetJson("/test")
+		String handle(String input);
+	}
+
+	@RestHandler
+	public static class TestController implements TestApi {
+
+		@Override
+		public String handle(String input) {
+			return input;
+		}
+	}
+
+}
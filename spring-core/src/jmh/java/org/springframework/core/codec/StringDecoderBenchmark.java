@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2020 the original author or authors.
+ * Copyright 2002-2021 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -17,6 +17,7 @@ package org.springframework.core.codec;
 
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
@@ -43,6 +44,7 @@ import org.springframework.util.MimeType;
  * Benchmarks for {@link DataBufferUtils}.
  *
  * @author Rossen Stoyanchev
+ * @author Lars Hofmann
  */
 @BenchmarkMode(Mode.Throughput)
 public class StringDecoderBenchmark {
@@ -52,6 +54,11 @@ public class StringDecoderBenchmark {
 		blackhole.consume(state.parseLines().blockLast());
 	}
 
+	@Benchmark
+	public void parseLogLines(LogLinesState state, Blackhole blackhole) {
+		blackhole.consume(state.parseLines().blockLast());
+	}
+
 
 	@State(Scope.Benchmark)
 	@SuppressWarnings({"NotNullFieldNotInitialized", "ConstantConditions"})
@@ -107,4 +114,66 @@ public class StringDecoderBenchmark {
 		}
 	}
 
+
+	/**
+	 * Log-style lines of about 120 bytes, read in fixed-size chunks so that
+	 * lines span chunk boundaries.
+	 */
+	@State(Scope.Benchmark)
+	@SuppressWarnings({"NotNullFieldNotInitialized", "ConstantConditions"})
+	public static class LogLinesState {
+
+		private static final Charset CHARSET = StandardCharsets.UTF_8;
+
+		private static final ResolvableType ELEMENT_TYPE = ResolvableType.forClass(String.class);
+
+
+		@Param("1048576")
+		int totalSize;
+
+		@Param("8192")
+		int chunkSize;
+
+		@Param({"lf", "crlf-lf"})
+		String delimiters;
+
+		List<DataBuffer> chunks;
+
+		StringDecoder decoder;
+
+		MimeType mimeType = new MimeType("text", "plain", CHARSET);
+
+
+		@Setup(Level.Trial)
+		public void setup() {
+			String lineTemplate = "2021-05-11 10:15:30.%03d  INFO 4711 --- [nio-8080-exec-%d] " +
+					"o.s.web.servlet.DispatcherServlet : Completed request %06d in 5 ms\n";
+			List<String> delimiters = ("lf".equals(this.delimiters) ?
+					Collections.singletonList("\n") : Arrays.asList("\r\n", "\n"));
+			this.decoder = StringDecoder.textPlainOnly(delimiters, true);
+
+			StringBuilder builder = new StringBuilder(this.totalSize);
+			for (int i = 0; builder.length() < this.totalSize; i++) {
+				builder.append(String.format(lineTemplate, i % 1000, i % 10, i));
+			}
+			byte[] bytes = builder.toString().getBytes(CHARSET);
+			DataBufferFactory bufferFactory = new DefaultDataBufferFactory();
+
+			this.chunks = new ArrayList<>();
+			for (int offset = 0; offset < bytes.length; offset += this.chunkSize) {
+				int length = Math.min(this.chunkSize, bytes.length - offset);
+				DataBuffer buffer = bufferFactory.allocateBuffer(length);
+				buffer.write(bytes, offset, length);
+				this.chunks.add(buffer);
+			}
+		}
+
+		public Flux<String> parseLines() {
+			// Slices, since the decoder consumes the buffers
+			Flux<DataBuffer> input = Flux.fromIterable(this.chunks)
+					.map(buffer -> buffer.slice(0, buffer.readableByteCount()));
+			return this.decoder.decode(input, ELEMENT_TYPE, this.mimeType, Collections.emptyMap());
+		}
+	}
+
 }
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2020 the original author or authors.
+ * Copyright 2002-2021 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -17,6 +17,7 @@
 package org.springframework.core.convert.support;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -40,6 +41,7 @@ import org.springframework.util.CollectionUtils;
  * Benchmarks for {@link GenericConversionService}.
  *
  * @author Brian Clozel
+ * @author Lars Hofmann
  */
 @BenchmarkMode(Mode.Throughput)
 public class GenericConversionServiceBenchmark {
@@ -102,6 +104,69 @@ public class GenericConversionServiceBenchmark {
 	}
 
 
+	@Benchmark
+	public void convertStringArrayToIntArrayWithConversionService(ArrayBenchmarkState state, Blackhole bh) {
+		bh.consume(state.conversionService.convert(state.stringArray, int[].class));
+	}
+
+	@Benchmark
+	public void convertStringArrayToIntArrayBaseline(ArrayBenchmarkState state, Blackhole bh) {
+		int[] target = new int[state.stringArray.length];
+		for (int i = 0; i < target.length; i++) {
+			target[i] = Integer.parseInt(state.stringArray[i]);
+		}
+		bh.consume(target);
+	}
+
+	@Benchmark
+	public void convertIntArrayToLongArrayWithConversionService(ArrayBenchmarkState state, Blackhole bh) {
+		bh.consume(state.conversionService.convert(state.intArray, long[].class));
+	}
+
+	@Benchmark
+	public void convertIntArrayToLongArrayBaseline(ArrayBenchmarkState state, Blackhole bh) {
+		long[] target = new long[state.intArray.length];
+		for (int i = 0; i < target.length; i++) {
+			target[i] = state.intArray[i];
+		}
+		bh.consume(target);
+	}
+
+	@Benchmark
+	public void convertListOfStringToListOfLongWithConversionService(ArrayBenchmarkState state, Blackhole bh) {
+		bh.consume(state.conversionService.convert(state.stringList, state.stringListTypeDesc, state.longListTypeDesc));
+	}
+
+
+	@State(Scope.Benchmark)
+	public static class ArrayBenchmarkState {
+
+		DefaultConversionService conversionService = new DefaultConversionService();
+
+		@Param({"10", "1000"})
+		int arraySize;
+
+		String[] stringArray;
+
+		int[] intArray;
+
+		List<String> stringList;
+
+		TypeDescriptor stringListTypeDesc;
+
+		TypeDescriptor longListTypeDesc;
+
+		@Setup(Level.Trial)
+		public void setup() {
+			this.stringArray = IntStream.range(0, this.arraySize).mapToObj(String::valueOf).toArray(String[]::new);
+			this.intArray = IntStream.range(0, this.arraySize).toArray();
+			this.stringList = Arrays.asList(this.stringArray);
+			this.stringListTypeDesc = TypeDescriptor.collection(List.class, TypeDescriptor.valueOf(String.class));
+			this.longListTypeDesc = TypeDescriptor.collection(List.class, TypeDescriptor.valueOf(Long.class));
+		}
+	}
+
+
 	@State(Scope.Benchmark)
 	public static class BenchmarkState {
 
@@ -0,0 +1,135 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.util;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.function.Function;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Benchmarks for {@link ConcurrentLruCache} and {@link ConcurrentTinyLfuCache}
+ * under concurrent access, with a skewed (Zipf-distributed) key sequence and
+ * with a scan-heavy key sequence (a small hot set interleaved with one-off keys).
+ * Each generated value costs a small amount of CPU, so that a poor hit ratio
+ * shows up in the throughput.
+ *
+ * @author Lars Hofmann
+ */
+@BenchmarkMode(Mode.Throughput)
+@Threads(8)
+public class ConcurrentCacheBenchmark {
+
+	@Benchmark
+	public void lruCache(CacheState cacheState, AccessState accessState, Blackhole bh) {
+		bh.consume(cacheState.lruCache.get(accessState.nextKey(cacheState.keys)));
+	}
+
+	@Benchmark
+	public void tinyLfuCache(CacheState cacheState, AccessState accessState, Blackhole bh) {
+		bh.consume(cacheState.tinyLfuCache.get(accessState.nextKey(cacheState.keys)));
+	}
+
+
+	@State(Scope.Benchmark)
+	public static class CacheState {
+
+		private static final int SEQUENCE_LENGTH = 1 << 16;
+
+		@Param({"skewed", "scan"})
+		public String pattern;
+
+		@Param({"256"})
+		public int cacheSize;
+
+		Integer[] keys;
+
+		ConcurrentLruCache<Integer, String> lruCache;
+
+		ConcurrentTinyLfuCache<Integer, String> tinyLfuCache;
+
+		@Setup(Level.Trial)
+		public void setup() {
+			Random random = new Random(42);
+			this.keys = new Integer[SEQUENCE_LENGTH];
+			if ("skewed".equals(this.pattern)) {
+				double[] cumulative = zipfDistribution(this.cacheSize * 16, 0.99);
+				for (int i = 0; i < SEQUENCE_LENGTH; i++) {
+					int index = Arrays.binarySearch(cumulative, random.nextDouble());
+					this.keys[i] = (index >= 0 ? index : -index - 1);
+				}
+			}
+			else {
+				int hotSetSize = this.cacheSize / 2;
+				int oneOffKey = hotSetSize;
+				for (int i = 0; i < SEQUENCE_LENGTH; i++) {
+					this.keys[i] = (i % 4 == 0 ? random.nextInt(hotSetSize) : oneOffKey++);
+				}
+			}
+			Function<Integer, String> generator = key -> {
+				String value = String.valueOf(key);
+				for (int i = 0; i < 16; i++) {
+					value = Integer.toHexString(value.hashCode());
+				}
+				return value;
+			};
+			this.lruCache = new ConcurrentLruCache<>(this.cacheSize, generator);
+			this.tinyLfuCache = new ConcurrentTinyLfuCache<>(this.cacheSize, generator);
+		}
+
+		private static double[] zipfDistribution(int size, double exponent) {
+			double[] cumulative = new double[size];
+			double sum = 0;
+			for (int i = 0; i < size; i++) {
+				sum += 1 / Math.pow(i + 1, exponent);
+				cumulative[i] = sum;
+			}
+			for (int i = 0; i < size; i++) {
+				cumulative[i] /= sum;
+			}
+			return cumulative;
+		}
+	}
+
+
+	@State(Scope.Thread)
+	public static class AccessState {
+
+		private int index;
+
+		@Setup(Level.Trial)
+		public void setup() {
+			this.index = new Random().nextInt(CacheState.SEQUENCE_LENGTH);
+		}
+
+		Integer nextKey(Integer[] keys) {
+			this.index = (this.index + 1) & (keys.length - 1);
+			return keys[this.index];
+		}
+	}
+
+}
@@ -0,0 +1,118 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.util;
+
+import java.util.Locale;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Benchmarks for {@link LinkedCaseInsensitiveMap} used as an HTTP header map,
+ * comparing ASCII key lookups against lookups through converted keys (as
+ * enforced by a {@link LinkedCaseInsensitiveMap#convertKey} override).
+ *
+ * @author Lars Hofmann
+ */
+@BenchmarkMode(Mode.Throughput)
+public class LinkedCaseInsensitiveMapBenchmark {
+
+	@Benchmark
+	public void populate(HeadersState state, Blackhole bh) {
+		LinkedCaseInsensitiveMap<String> map = state.newMap();
+		for (String name : state.headerNames) {
+			map.put(name, "value");
+		}
+		bh.consume(map);
+	}
+
+	@Benchmark
+	public void lookup(HeadersState state, Blackhole bh) {
+		for (String name : state.lookupNames) {
+			bh.consume(state.headers.get(name));
+		}
+	}
+
+	@Benchmark
+	public void containsKey(HeadersState state, Blackhole bh) {
+		for (String name : state.lookupNames) {
+			bh.consume(state.headers.containsKey(name));
+		}
+	}
+
+
+	@State(Scope.Benchmark)
+	public static class HeadersState {
+
+		@Param({"ascii", "converted"})
+		public String keys;
+
+		@Param({"browser", "lowercase"})
+		public String headerSet;
+
+		String[] headerNames;
+
+		String[] lookupNames;
+
+		LinkedCaseInsensitiveMap<String> headers;
+
+		@Setup(Level.Trial)
+		public void setup() {
+			this.headerNames = new String[] {"Host", "Connection", "Cache-Control", "User-Agent", "Accept",
+					"Sec-Fetch-Site", "Sec-Fetch-Mode", "Sec-Fetch-Dest", "Referer", "Accept-Encoding",
+					"Accept-Language", "Cookie", "X-Forwarded-For", "X-Forwarded-Proto", "X-Request-Id"};
+			// Lookups as performed by filters, content negotiation and CORS processing
+			this.lookupNames = new String[] {"Content-Type", "Accept", "Origin", "Forwarded",
+					"X-Forwarded-Host", "X-Forwarded-Proto", "Accept-Language", "If-None-Match",
+					"Access-Control-Request-Method", "Authorization", "Cookie", "Content-Length"};
+			if ("lowercase".equals(this.headerSet)) {
+				toLowerCase(this.headerNames);
+				toLowerCase(this.lookupNames);
+			}
+			this.headers = newMap();
+			for (String name : this.headerNames) {
+				this.headers.put(name, "value");
+			}
+		}
+
+		LinkedCaseInsensitiveMap<String> newMap() {
+			if ("converted".equals(this.keys)) {
+				return new LinkedCaseInsensitiveMap<String>(8, Locale.ENGLISH) {
+					@Override
+					protected String convertKey(String key) {
+						return super.convertKey(key);
+					}
+				};
+			}
+			return new LinkedCaseInsensitiveMap<>(8, Locale.ENGLISH);
+		}
+
+		private static void toLowerCase(String[] names) {
+			for (int i = 0; i < names.length; i++) {
+				names[i] = names[i].toLowerCase(Locale.ENGLISH);
+			}
+		}
+	}
+
+}
@@ -725,6 +725,73 @@ public class ClassReader {
     classVisitor.visitEnd();
   }
 
+  // SPRING PATCH: lightweight pre-checks for annotation-based class filtering
+
+  /**
+   * Returns whether the constant pool of this class contains any of the given CONSTANT_Utf8 values,
+   * without decoding the constant pool strings. Values are compared in their encoded form, so this
+   * method only detects values consisting of ASCII characters.
+   *
+   * @param values the values to look for.
+   * @return whether at least one of the values is present in the constant pool.
+   */
+  public boolean containsUtf8(final String... values) {
+    final byte[] classBuffer = classFileBuffer;
+    for (int i = 1; i < cpInfoOffsets.length; ++i) {
+      int cpInfoOffset = cpInfoOffsets[i];
+      // Long and double entries use two slots, the second one having no offset.
+      if (cpInfoOffset == 0 || classBuffer[cpInfoOffset - 1] != Symbol.CONSTANT_UTF8_TAG) {
+        continue;
+      }
+      int utfLength = readUnsignedShort(cpInfoOffset);
+      for (String value : values) {
+        if (value.length() == utfLength && regionMatches(cpInfoOffset + 2, value)) {
+          return true;
+        }
+      }
+    }
+    return false;
+  }
+
+  private boolean regionMatches(final int offset, final String value) {
+    for (int i = 0; i < value.length(); ++i) {
+      if (classFileBuffer[offset + i] != (byte) value.charAt(i)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Returns the descriptors of the runtime visible annotations declared on this class, without
+   * visiting the class. Annotations on fields, methods and parameters are not included.
+   *
+   * @return the annotation descriptors, in declaration order (possibly empty).
+   */
+  public String[] getVisibleAnnotationDescriptors() {
+    char[] charBuffer = new char[maxStringLength];
+    int currentAttributeOffset = getFirstAttributeOffset();
+    for (int i = readUnsignedShort(currentAttributeOffset - 2); i > 0; --i) {
+      String attributeName = readUTF8(currentAttributeOffset, charBuffer);
+      int attributeLength = readInt(currentAttributeOffset + 2);
+      currentAttributeOffset += 6;
+      if (Constants.RUNTIME_VISIBLE_ANNOTATIONS.equals(attributeName)) {
+        int numAnnotations = readUnsignedShort(currentAttributeOffset);
+        String[] descriptors = new String[numAnnotations];
+        int currentAnnotationOffset = currentAttributeOffset + 2;
+        for (int j = 0; j < numAnnotations; ++j) {
+          descriptors[j] = readUTF8(currentAnnotationOffset, charBuffer);
+          // Skip the element-value pairs without visiting them.
+          currentAnnotationOffset =
+              readElementValues(null, currentAnnotationOffset + 2, /* named = */ true, charBuffer);
+        }
+        return descriptors;
+      }
+      currentAttributeOffset += attributeLength;
+    }
+    return new String[0];
+  }
+
   // ----------------------------------------------------------------------------------------------
   // Methods to parse modules, fields and methods
   // ----------------------------------------------------------------------------------------------
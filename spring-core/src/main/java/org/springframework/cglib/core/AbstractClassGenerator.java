@@ -177,6 +177,20 @@ abstract public class AbstractClassGenerator<T> implements ClassGenerator {
 		return namingPolicy.getClassName(namePrefix, source.name, key, nameTestPredicate);
 	}
 
+	// SPRING PATCH BEGIN
+	/**
+	 * Return the generator input that determines the generated class, as the basis
+	 * for a class name that is stable across restarts (see {@link PersistentClassCache}).
+	 * <p>The default implementation returns the string representation of the key.
+	 * Subclasses should override this if the key refers to objects that do not
+	 * represent their effect on the generated class in their string representation.
+	 * @return the generator input
+	 */
+	protected String getStableKeyInput() {
+		return key.toString();
+	}
+	// SPRING PATCH END
+
 	/**
 	 * Set the <code>ClassLoader</code> in which the class will be generated.
 	 * Concrete subclasses of <code>AbstractClassGenerator</code> (such as <code>Enhancer</code>)
@@ -341,8 +355,17 @@ abstract public class AbstractClassGenerator<T> implements ClassGenerator {
 						getClassName() + ". It seems that the loader has been expired from a weak reference somehow. " +
 						"Please file an issue at cglib's issue tracker.");
 			}
+			// SPRING PATCH BEGIN
+			PersistentClassCache classCache = PersistentClassCache.getInstance();
+			Object stableKey = (classCache != null && key != null ?
+					classCache.getStableKey(source.name, namePrefix, getStableKeyInput(), getClassLoader()) : null);
+			// SPRING PATCH END
 			synchronized (classLoader) {
-				String name = generateClassName(data.getUniqueNamePredicate());
+				// SPRING PATCH BEGIN
+				String name = (stableKey != null ?
+						namingPolicy.getClassName(namePrefix, source.name, stableKey, data.getUniqueNamePredicate()) :
+						generateClassName(data.getUniqueNamePredicate()));
+				// SPRING PATCH END
 				data.reserveName(name);
 				this.setClassName(name);
 			}
@@ -355,7 +378,15 @@ abstract public class AbstractClassGenerator<T> implements ClassGenerator {
 					// ignore
 				}
 			}
-			byte[] b = strategy.generate(this);
+			// SPRING PATCH BEGIN
+			byte[] b = (stableKey != null ? classCache.load(getClassName()) : null);
+			if (b == null) {
+				b = strategy.generate(this);
+				if (stableKey != null) {
+					classCache.store(getClassName(), b);
+				}
+			}
+			// SPRING PATCH END
 			String className = ClassNameReader.getClassName(new ClassReader(b));
 			ProtectionDomain protectionDomain = getProtectionDomain();
 			synchronized (classLoader) { // just in case
@@ -0,0 +1,247 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cglib.core;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.regex.Pattern;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import org.springframework.asm.ClassReader;
+import org.springframework.core.SpringProperties;
+import org.springframework.core.SpringVersion;
+import org.springframework.lang.Nullable;
+import org.springframework.util.DigestUtils;
+
+/**
+ * Persistent cache for the bytecode of CGLIB-generated classes, such as enhanced
+ * {@code @Configuration} classes, AOP proxies and scoped proxies, avoiding their
+ * generation on subsequent starts of the same application.
+ *
+ * <p>Activated through the {@value #CACHE_DIRECTORY_PROPERTY_NAME} property,
+ * specified as a JVM system property or in a {@code spring.properties} file
+ * (see {@link SpringProperties}), pointing to a directory. Generated classes
+ * are written to that directory as regular class files, e.g. in a training run
+ * at build time or on the first start, and are loaded from there on later starts.
+ *
+ * <p>While the cache is active, generated class names are derived from a stable
+ * hash of the generator input (the generator type, the name of the enhanced
+ * class, the {@linkplain AbstractClassGenerator#getStableKeyInput() generator
+ * key} and the bytecode of the enhanced class) instead of the identity-based
+ * hash code of the generator key, so that the same classes get the same names
+ * across restarts. For an {@code Enhancer}, the generator key covers the
+ * callback that each proxied method is assigned to by the callback filter,
+ * rather than the filter itself. Classes whose generator input contains
+ * identity-based hash codes are not cached at all. A cached class is only
+ * reused under the exact name it was generated for.
+ *
+ * <p><b>Note:</b> Changes to the enhanced classes themselves, to the Spring
+ * version or to the callback assignment lead to different class names, but
+ * changes in superclasses of the enhanced classes are not detected. The cache
+ * directory is therefore meant to be created for a specific build of an
+ * application, and to be cleared whenever the application changes.
+ *
+ * @author Lars Hofmann
+ * @since 5.3.8
+ * @see AbstractClassGenerator
+ */
+public final class PersistentClassCache {
+
+	/**
+	 * System property that specifies the directory for persisting generated classes:
+	 * {@value}. The cache is not active unless this property is set.
+	 */
+	public static final String CACHE_DIRECTORY_PROPERTY_NAME = "spring.cglib.cacheDirectory";
+
+	private static final Pattern IDENTITY_HASH_CODE_PATTERN = Pattern.compile("@[0-9a-f]{1,8}\\b");
+
+	private static final Log logger = LogFactory.getLog(PersistentClassCache.class);
+
+	@Nullable
+	private static final PersistentClassCache instance;
+
+	static {
+		String directory = SpringProperties.getProperty(CACHE_DIRECTORY_PROPERTY_NAME);
+		instance = (directory != null ? new PersistentClassCache(Paths.get(directory)) : null);
+	}
+
+
+	private final Path directory;
+
+
+	PersistentClassCache(Path directory) {
+		this.directory = directory;
+	}
+
+
+	/**
+	 * Return the directory that generated classes are persisted in.
+	 */
+	public Path getDirectory() {
+		return this.directory;
+	}
+
+	/**
+	 * Create a key for the naming policy of the given generator input,
+	 * with a hash code that is stable across restarts.
+	 * <p>Generator input that contains identity-based hash codes cannot be
+	 * identified across restarts: no key is created for it, and the class is
+	 * neither loaded from nor stored in this cache.
+	 * @param source the name of the generator type
+	 * @param namePrefix the name of the enhanced class, if any
+	 * @param keyInput the generator input that determines the generated class
+	 * @param classLoader the ClassLoader to read the enhanced class from
+	 * @return the key to use for naming the generated class,
+	 * or {@code null} if the generator input is not stable
+	 * @see AbstractClassGenerator#getStableKeyInput()
+	 */
+	@Nullable
+	Object getStableKey(String source, @Nullable String namePrefix, String keyInput, ClassLoader classLoader) {
+		if (IDENTITY_HASH_CODE_PATTERN.matcher(keyInput).find()) {
+			if (logger.isTraceEnabled()) {
+				logger.trace("Not caching class generated by " + source + " for '" + namePrefix +
+						"': generator input contains identity hash codes: " + keyInput);
+			}
+			return null;
+		}
+		StringBuilder input = new StringBuilder(256);
+		input.append(SpringVersion.getVersion()).append('|').append(source).append('|').append(namePrefix).append('|');
+		input.append(keyInput);
+		if (namePrefix != null) {
+			try (InputStream classFile = classLoader.getResourceAsStream(namePrefix.replace('.', '/') + ".class")) {
+				if (classFile != null) {
+					input.append('|');
+					DigestUtils.appendMd5DigestAsHex(classFile, input);
+				}
+			}
+			catch (IOException ex) {
+				// Name only based on the remaining input
+			}
+		}
+		byte[] digest = DigestUtils.md5Digest(input.toString().getBytes(StandardCharsets.UTF_8));
+		int hashCode = 0;
+		for (int i = 0; i < 4; i++) {
+			hashCode = (hashCode << 8) | (digest[i] & 0xFF);
+		}
+		return new StableKey(hashCode);
+	}
+
+	/**
+	 * Load the persisted bytecode of the given class, if any.
+	 * @param className the name of the class to load
+	 * @return the bytecode, or {@code null} if not found
+	 */
+	@Nullable
+	byte[] load(String className) {
+		Path classFile = getClassFile(className);
+		if (!Files.isRegularFile(classFile)) {
+			return null;
+		}
+		try {
+			byte[] bytes = Files.readAllBytes(classFile);
+			if (!className.equals(ClassNameReader.getClassName(new ClassReader(bytes)))) {
+				return null;
+			}
+			if (logger.isTraceEnabled()) {
+				logger.trace("Loaded generated class '" + className + "' from " + classFile);
+			}
+			return bytes;
+		}
+		catch (IOException | RuntimeException ex) {
+			if (logger.isDebugEnabled()) {
+				logger.debug("Failed to load generated class '" + className + "' from " + classFile, ex);
+			}
+			return null;
+		}
+	}
+
+	/**
+	 * Persist the bytecode of the given class.
+	 * @param className the name of the generated class
+	 * @param bytes the bytecode of the generated class
+	 */
+	void store(String className, byte[] bytes) {
+		Path classFile = getClassFile(className);
+		Path tempFile = null;
+		try {
+			// Write to a temporary file first, for concurrently starting applications
+			Files.createDirectories(classFile.getParent());
+			tempFile = Files.createTempFile(classFile.getParent(), classFile.getFileName().toString(), ".tmp");
+			Files.write(tempFile, bytes);
+			Files.move(tempFile, classFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		}
+		catch (IOException | RuntimeException ex) {
+			if (logger.isDebugEnabled()) {
+				logger.debug("Failed to store generated class '" + className + "' in " + this.directory, ex);
+			}
+			if (tempFile != null) {
+				try {
+					Files.deleteIfExists(tempFile);
+				}
+				catch (IOException ex2) {
+					// ignore
+				}
+			}
+		}
+	}
+
+	private Path getClassFile(String className) {
+		return this.directory.resolve(className.replace('.', '/') + ".class");
+	}
+
+
+	/**
+	 * Return the persistent class cache, if activated.
+	 * @return the cache, or {@code null} if not activated
+	 * @see #CACHE_DIRECTORY_PROPERTY_NAME
+	 */
+	@Nullable
+	public static PersistentClassCache getInstance() {
+		return instance;
+	}
+
+
+	/**
+	 * Key for the naming policy, exposing the stable hash code.
+	 */
+	private static final class StableKey {
+
+		private final int hashCode;
+
+		StableKey(int hashCode) {
+			this.hashCode = hashCode;
+		}
+
+		@Override
+		public int hashCode() {
+			return this.hashCode;
+		}
+
+		@Override
+		public String toString() {
+			return Integer.toHexString(this.hashCode);
+		}
+	}
+
+}
@@ -585,6 +585,28 @@ public class Enhancer extends AbstractClassGenerator {
 		return super.generate(data);
 	}
 
+	// SPRING PATCH BEGIN
+	@Override
+	protected String getStableKeyInput() {
+		// The callback filter itself may only have an identity-based or otherwise
+		// unspecific string representation: use the callback index per method instead
+		StringBuilder input = new StringBuilder(1024);
+		input.append((superclass != null) ? superclass.getName() : null).append('|');
+		input.append(Arrays.toString(ReflectUtils.getNames(interfaces))).append('|');
+		for (Type callbackType : callbackTypes) {
+			input.append(callbackType.getClassName()).append(',');
+		}
+		input.append('|').append(useFactory).append('|').append(interceptDuringConstruction);
+		input.append('|').append(serialVersionUID).append('|');
+		List methods = new ArrayList();
+		getMethods((superclass == null) ? Object.class : superclass, interfaces, methods);
+		for (Object method : methods) {
+			input.append(method).append('=').append(filter.accept((Method) method)).append(';');
+		}
+		return input.toString();
+	}
+	// SPRING PATCH END
+
 	protected ClassLoader getDefaultClassLoader() {
 		if (superclass != null) {
 			return superclass.getClassLoader();
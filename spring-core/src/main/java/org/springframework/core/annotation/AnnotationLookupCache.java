@@ -0,0 +1,165 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.core.annotation;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.AnnotatedElement;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.springframework.core.annotation.MergedAnnotations.SearchStrategy;
+import org.springframework.lang.Nullable;
+import org.springframework.util.ConcurrentReferenceHashMap;
+
+/**
+ * Shared cache for the {@linkplain AnnotatedElementUtils find semantics}
+ * annotation lookups that are performed repeatedly against the same
+ * {@link AnnotatedElement elements}, typically per request against handler
+ * methods and their declaring classes.
+ *
+ * <p>The annotation hierarchy of an element is scanned once, when the element
+ * is {@linkplain #register registered} or first looked up, determining the set
+ * of all present annotation types (including meta-annotations). Presence checks
+ * are then answered from that set, and merged annotations are synthesized once
+ * per annotation type and shared.
+ *
+ * <p>Cached elements are held through soft references, so that they do not
+ * prevent class unloading and can be reclaimed under memory pressure. Results
+ * are consistent with {@link AnnotatedElementUtils#hasAnnotation} and
+ * {@link AnnotatedElementUtils#findMergedAnnotation}.
+ *
+ * <p>Note that this cache is deliberately not cleared along with the other
+ * annotation caches in {@link AnnotationUtils#clearCache()}, which is called
+ * at the end of every application context refresh: elements registered
+ * while initializing the context are meant to be looked up afterwards.
+ *
+ * @author Lars Hofmann
+ * @since 5.3.8
+ * @see AnnotatedElementUtils
+ */
+public abstract class AnnotationLookupCache {
+
+	private static final Object NOT_FOUND = new Object();
+
+	private static final Map<AnnotatedElement, ElementAnnotations> cache =
+			new ConcurrentReferenceHashMap<>(256);
+
+
+	/**
+	 * Eagerly scan the annotation hierarchy of the given element, for example
+	 * when registering a handler method, so that subsequent lookups do not have
+	 * to perform the scan at request time.
+	 * @param element the annotated element
+	 */
+	public static void register(AnnotatedElement element) {
+		if (!AnnotationsScanner.hasPlainJavaAnnotationsOnly(element)) {
+			getElementAnnotations(element);
+		}
+	}
+
+	/**
+	 * Determine if an annotation of the specified {@code annotationType}
+	 * is <em>available</em> on the supplied {@link AnnotatedElement} or
+	 * within the annotation hierarchy <em>above</em> the specified element,
+	 * consistent with {@link AnnotatedElementUtils#hasAnnotation}.
+	 * @param element the annotated element
+	 * @param annotationType the annotation type to find
+	 * @return {@code true} if a matching annotation is present
+	 */
+	public static boolean hasAnnotation(AnnotatedElement element, Class<? extends Annotation> annotationType) {
+		if (AnnotationFilter.PLAIN.matches(annotationType) ||
+				AnnotationsScanner.hasPlainJavaAnnotationsOnly(element)) {
+			return element.isAnnotationPresent(annotationType);
+		}
+		return getElementAnnotations(element).isPresent(annotationType);
+	}
+
+	/**
+	 * Find the first annotation of the specified {@code annotationType} within
+	 * the annotation hierarchy <em>above</em> the supplied {@code element} and
+	 * merge that annotation's attributes with <em>matching</em> attributes from
+	 * annotations in lower levels of the annotation hierarchy, consistent with
+	 * {@link AnnotatedElementUtils#findMergedAnnotation}.
+	 * <p>The returned synthesized annotation is shared between callers.
+	 * @param element the annotated element
+	 * @param annotationType the annotation type to find
+	 * @return the merged, synthesized {@code Annotation}, or {@code null} if not found
+	 */
+	@Nullable
+	public static <A extends Annotation> A findMergedAnnotation(AnnotatedElement element, Class<A> annotationType) {
+		if (AnnotationFilter.PLAIN.matches(annotationType) ||
+				AnnotationsScanner.hasPlainJavaAnnotationsOnly(element)) {
+			return element.getDeclaredAnnotation(annotationType);
+		}
+		return getElementAnnotations(element).findMergedAnnotation(annotationType);
+	}
+
+	/**
+	 * Clear the internal annotation lookup cache.
+	 * <p>Not called from {@link AnnotationUtils#clearCache()}: elements remain
+	 * cached across application context refreshes unless cleared explicitly.
+	 */
+	public static void clearCache() {
+		cache.clear();
+	}
+
+	private static ElementAnnotations getElementAnnotations(AnnotatedElement element) {
+		return cache.computeIfAbsent(element, ElementAnnotations::new);
+	}
+
+
+	/**
+	 * The cached annotations of a specific element.
+	 */
+	private static final class ElementAnnotations {
+
+		private final MergedAnnotations annotations;
+
+		private final Set<Class<? extends Annotation>> presentTypes;
+
+		private final Map<Class<? extends Annotation>, Object> mergedAnnotations = new ConcurrentHashMap<>(4);
+
+		ElementAnnotations(AnnotatedElement element) {
+			this.annotations = MergedAnnotations.from(element, SearchStrategy.TYPE_HIERARCHY,
+					RepeatableContainers.none());
+			Set<Class<? extends Annotation>> presentTypes = new HashSet<>();
+			this.annotations.stream().forEach(annotation -> presentTypes.add(annotation.getType()));
+			this.presentTypes = presentTypes;
+		}
+
+		boolean isPresent(Class<? extends Annotation> annotationType) {
+			return this.presentTypes.contains(annotationType);
+		}
+
+		@Nullable
+		@SuppressWarnings("unchecked")
+		<A extends Annotation> A findMergedAnnotation(Class<A> annotationType) {
+			if (!isPresent(annotationType)) {
+				return null;
+			}
+			Object result = this.mergedAnnotations.computeIfAbsent(annotationType, type -> {
+				Annotation merged = this.annotations.get(type, null, MergedAnnotationSelectors.firstDirectlyDeclared())
+						.synthesize(MergedAnnotation::isPresent).orElse(null);
+				return (merged != null ? merged : NOT_FOUND);
+			});
+			return (result != NOT_FOUND ? (A) result : null);
+		}
+	}
+
+}
@@ -0,0 +1,461 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.core.annotation;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Supplier;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import org.springframework.asm.ClassWriter;
+import org.springframework.asm.Label;
+import org.springframework.asm.MethodVisitor;
+import org.springframework.asm.Opcodes;
+import org.springframework.asm.Type;
+import org.springframework.core.NativeDetector;
+import org.springframework.lang.Nullable;
+import org.springframework.util.ClassUtils;
+import org.springframework.util.ConcurrentReferenceHashMap;
+
+/**
+ * Creates <em>synthesized</em> annotations as instances of a class generated
+ * for the annotation type, as an alternative to a JDK dynamic proxy backed by
+ * a {@link SynthesizedMergedAnnotationInvocationHandler}.
+ *
+ * <p>The generated class holds all attribute values in final fields, resolved
+ * once when the annotation is synthesized: attribute methods are plain field
+ * reads (cloning non-empty arrays), and {@code equals}/{@code hashCode} are
+ * implemented without any reflection, following the algorithms specified by
+ * {@link Annotation}.
+ *
+ * <p>Classes are generated with ASM and defined in a dedicated child of the
+ * annotation type's ClassLoader, reused for all annotation types of that
+ * ClassLoader. They can therefore only be generated for public annotation
+ * types whose attribute types are public as well. In all other cases, as well
+ * as for annotations with missing or invalid attribute values (which need to
+ * fail on attribute access rather than on synthesis), {@link #synthesize}
+ * returns {@code null} and callers are expected to fall back to a proxy.
+ *
+ * @author Lars Hofmann
+ * @since 5.3.8
+ * @see TypeMappedAnnotation#createSynthesized()
+ */
+final class SynthesizedAnnotationGenerator {
+
+	private static final String CLASS_SUFFIX = "$$SpringSynthesized";
+
+	private static final String VALUES_FIELD = "values";
+
+	private static final String TO_STRING_FIELD = "toString";
+
+	private static final String HASH_CODE_FIELD = "hashCode";
+
+	private static final String SUPPLIER_DESCRIPTOR = Type.getDescriptor(Supplier.class);
+
+	private static final String CONSTRUCTOR_DESCRIPTOR =
+			"([Ljava/lang/Object;" + SUPPLIER_DESCRIPTOR + ")V";
+
+	private static final Object NOT_GENERATED = new Object();
+
+	private static final Log logger = LogFactory.getLog(SynthesizedAnnotationGenerator.class);
+
+	private static final Map<Class<?>, Object> constructorCache = new ConcurrentReferenceHashMap<>();
+
+	private static final Map<ClassLoader, SynthesizedClassLoader> classLoaderCache =
+			new ConcurrentReferenceHashMap<>();
+
+
+	private SynthesizedAnnotationGenerator() {
+	}
+
+
+	/**
+	 * Synthesize the given merged annotation as an instance of a generated class.
+	 * @param annotation the merged annotation to synthesize
+	 * @param type the annotation type
+	 * @return the synthesized annotation, or {@code null} if no class could be
+	 * generated for the annotation type or if not all attribute values could be
+	 * resolved
+	 */
+	@Nullable
+	@SuppressWarnings("unchecked")
+	static <A extends Annotation> A synthesize(MergedAnnotation<A> annotation, Class<A> type) {
+		Object constructor = constructorCache.computeIfAbsent(type, SynthesizedAnnotationGenerator::generate);
+		if (constructor == NOT_GENERATED) {
+			return null;
+		}
+		AttributeMethods attributes = AttributeMethods.forAnnotationType(type);
+		Object[] values = new Object[attributes.size()];
+		for (int i = 0; i < values.length; i++) {
+			Method attribute = attributes.get(i);
+			Optional<?> value;
+			try {
+				value = annotation.getValue(attribute.getName(),
+						ClassUtils.resolvePrimitiveIfNecessary(attribute.getReturnType()));
+			}
+			catch (RuntimeException ex) {
+				return null;
+			}
+			if (!value.isPresent()) {
+				return null;
+			}
+			values[i] = value.get();
+		}
+		try {
+			return ((Constructor<A>) constructor).newInstance(values, new AnnotationToString(type, attributes, values));
+		}
+		catch (Throwable ex) {
+			return null;
+		}
+	}
+
+	private static Object generate(Class<?> type) {
+		ClassLoader classLoader = type.getClassLoader();
+		if (classLoader == null || NativeDetector.inNativeImage() || type.getName().startsWith("java.") ||
+				!isAccessible(type, classLoader)) {
+			return NOT_GENERATED;
+		}
+		AttributeMethods attributes = AttributeMethods.forAnnotationType(type.asSubclass(Annotation.class));
+		for (int i = 0; i < attributes.size(); i++) {
+			if (!isAccessible(attributes.get(i).getReturnType(), classLoader)) {
+				return NOT_GENERATED;
+			}
+		}
+		try {
+			String className = type.getName() + CLASS_SUFFIX;
+			boolean synthesizedAnnotation = ClassUtils.isVisible(SynthesizedAnnotation.class, classLoader);
+			SynthesizedClassLoader synthesizedClassLoader =
+					classLoaderCache.computeIfAbsent(classLoader, SynthesizedClassLoader::new);
+			Class<?> generatedClass = synthesizedClassLoader.defineClass(className,
+					() -> generateClass(className.replace('.', '/'), type, attributes, synthesizedAnnotation));
+			return generatedClass.getConstructor(Object[].class, Supplier.class);
+		}
+		catch (Throwable ex) {
+			if (logger.isDebugEnabled()) {
+				logger.debug("Failed to generate synthesized annotation class for [" + type.getName() + "]", ex);
+			}
+			return NOT_GENERATED;
+		}
+	}
+
+	private static boolean isAccessible(Class<?> type, ClassLoader classLoader) {
+		if (type.isPrimitive()) {
+			return true;
+		}
+		if (type.isArray()) {
+			return isAccessible(type.getComponentType(), classLoader);
+		}
+		return (Modifier.isPublic(type.getModifiers()) && ClassUtils.isVisible(type, classLoader));
+	}
+
+	private static byte[] generateClass(String className, Class<?> type, AttributeMethods attributes,
+			boolean synthesizedAnnotation) {
+
+		String typeName = Type.getInternalName(type);
+		String[] interfaces = (synthesizedAnnotation ?
+				new String[] {typeName, Type.getInternalName(SynthesizedAnnotation.class)} : new String[] {typeName});
+		ClassWriter cw = new ClassWriter(ClassWriter.COMPUTE_MAXS | ClassWriter.COMPUTE_FRAMES);
+		cw.visit(Opcodes.V1_8, Opcodes.ACC_PUBLIC | Opcodes.ACC_FINAL | Opcodes.ACC_SYNTHETIC,
+				className, null, "java/lang/Object", interfaces);
+
+		for (int i = 0; i < attributes.size(); i++) {
+			cw.visitField(Opcodes.ACC_PRIVATE | Opcodes.ACC_FINAL, VALUES_FIELD + i,
+					Type.getDescriptor(attributes.get(i).getReturnType()), null, null).visitEnd();
+		}
+		cw.visitField(Opcodes.ACC_PRIVATE | Opcodes.ACC_FINAL, TO_STRING_FIELD,
+				SUPPLIER_DESCRIPTOR, null, null).visitEnd();
+		cw.visitField(Opcodes.ACC_PRIVATE, HASH_CODE_FIELD, "I", null, null).visitEnd();
+
+		generateConstructor(cw, className, attributes);
+		for (int i = 0; i < attributes.size(); i++) {
+			generateAttributeMethod(cw, className, attributes.get(i), i);
+		}
+		generateAnnotationTypeMethod(cw, type);
+		generateEqualsMethod(cw, className, typeName, attributes);
+		generateHashCodeMethod(cw, className, attributes);
+		generateToStringMethod(cw, className);
+
+		cw.visitEnd();
+		return cw.toByteArray();
+	}
+
+	private static void generateConstructor(ClassWriter cw, String className, AttributeMethods attributes) {
+		MethodVisitor mv = cw.visitMethod(Opcodes.ACC_PUBLIC, "<init>", CONSTRUCTOR_DESCRIPTOR, null, null);
+		mv.visitCode();
+		mv.visitVarInsn(Opcodes.ALOAD, 0);
+		mv.visitMethodInsn(Opcodes.INVOKESPECIAL, "java/lang/Object", "<init>", "()V", false);
+		for (int i = 0; i < attributes.size(); i++) {
+			Class<?> attributeType = attributes.get(i).getReturnType();
+			mv.visitVarInsn(Opcodes.ALOAD, 0);
+			mv.visitVarInsn(Opcodes.ALOAD, 1);
+			mv.visitLdcInsn(i);
+			mv.visitInsn(Opcodes.AALOAD);
+			if (attributeType.isPrimitive()) {
+				String wrapperType = Type.getInternalName(ClassUtils.resolvePrimitiveIfNecessary(attributeType));
+				mv.visitTypeInsn(Opcodes.CHECKCAST, wrapperType);
+				mv.visitMethodInsn(Opcodes.INVOKEVIRTUAL, wrapperType, attributeType.getName() + "Value",
+						"()" + Type.getDescriptor(attributeType), false);
+			}
+			else {
+				mv.visitTypeInsn(Opcodes.CHECKCAST, Type.getInternalName(attributeType));
+			}
+			mv.visitFieldInsn(Opcodes.PUTFIELD, className, VALUES_FIELD + i, Type.getDescriptor(attributeType));
+		}
+		mv.visitVarInsn(Opcodes.ALOAD, 0);
+		mv.visitVarInsn(Opcodes.ALOAD, 2);
+		mv.visitFieldInsn(Opcodes.PUTFIELD, className, TO_STRING_FIELD, SUPPLIER_DESCRIPTOR);
+		mv.visitInsn(Opcodes.RETURN);
+		mv.visitMaxs(0, 0);
+		mv.visitEnd();
+	}
+
+	private static void generateAttributeMethod(ClassWriter cw, String className, Method attribute, int index) {
+		Class<?> attributeType = attribute.getReturnType();
+		String descriptor = Type.getDescriptor(attributeType);
+		MethodVisitor mv = cw.visitMethod(Opcodes.ACC_PUBLIC, attribute.getName(), "()" + descriptor, null, null);
+		mv.visitCode();
+		mv.visitVarInsn(Opcodes.ALOAD, 0);
+		mv.visitFieldInsn(Opcodes.GETFIELD, className, VALUES_FIELD + index, descriptor);
+		if (attributeType.isArray()) {
+			// Clone non-empty arrays so that users cannot alter the contents of our values.
+			Label returnLabel = new Label();
+			mv.visitInsn(Opcodes.DUP);
+			mv.visitInsn(Opcodes.ARRAYLENGTH);
+			mv.visitJumpInsn(Opcodes.IFEQ, returnLabel);
+			mv.visitMethodInsn(Opcodes.INVOKEVIRTUAL, descriptor, "clone", "()Ljava/lang/Object;", false);
+			mv.visitTypeInsn(Opcodes.CHECKCAST, descriptor);
+			mv.visitLabel(returnLabel);
+		}
+		mv.visitInsn(Type.getType(attributeType).getOpcode(Opcodes.IRETURN));
+		mv.visitMaxs(0, 0);
+		mv.visitEnd();
+	}
+
+	private static void generateAnnotationTypeMethod(ClassWriter cw, Class<?> type) {
+		MethodVisitor mv = cw.visitMethod(Opcodes.ACC_PUBLIC, "annotationType", "()Ljava/lang/Class;", null, null);
+		mv.visitCode();
+		mv.visitLdcInsn(Type.getType(type));
+		mv.visitInsn(Opcodes.ARETURN);
+		mv.visitMaxs(0, 0);
+		mv.visitEnd();
+	}
+
+	/**
+	 * See {@link Annotation#equals(Object)} for a definition of the required algorithm.
+	 */
+	private static void generateEqualsMethod(ClassWriter cw, String className, String typeName,
+			AttributeMethods attributes) {
+
+		MethodVisitor mv = cw.visitMethod(Opcodes.ACC_PUBLIC, "equals", "(Ljava/lang/Object;)Z", null, null);
+		mv.visitCode();
+		Label trueLabel = new Label();
+		Label falseLabel = new Label();
+		mv.visitVarInsn(Opcodes.ALOAD, 0);
+		mv.visitVarInsn(Opcodes.ALOAD, 1);
+		mv.visitJumpInsn(Opcodes.IF_ACMPEQ, trueLabel);
+		mv.visitVarInsn(Opcodes.ALOAD, 1);
+		mv.visitTypeInsn(Opcodes.INSTANCEOF, typeName);
+		mv.visitJumpInsn(Opcodes.IFEQ, falseLabel);
+		mv.visitVarInsn(Opcodes.ALOAD, 1);
+		mv.visitTypeInsn(Opcodes.CHECKCAST, typeName);
+		mv.visitVarInsn(Opcodes.ASTORE, 2);
+		for (int i = 0; i < attributes.size(); i++) {
+			Method attribute = attributes.get(i);
+			Class<?> attributeType = attribute.getReturnType();
+			String descriptor = Type.getDescriptor(attributeType);
+			mv.visitVarInsn(Opcodes.ALOAD, 0);
+			mv.visitFieldInsn(Opcodes.GETFIELD, className, VALUES_FIELD + i, descriptor);
+			mv.visitVarInsn(Opcodes.ALOAD, 2);
+			mv.visitMethodInsn(Opcodes.INVOKEINTERFACE, typeName, attribute.getName(), "()" + descriptor, true);
+			if (attributeType == long.class) {
+				mv.visitInsn(Opcodes.LCMP);
+				mv.visitJumpInsn(Opcodes.IFNE, falseLabel);
+			}
+			else if (attributeType == float.class || attributeType == double.class) {
+				// Consistent with Float.equals and Double.equals for NaN and signed zeros
+				String wrapperType = Type.getInternalName(ClassUtils.resolvePrimitiveIfNecessary(attributeType));
+				mv.visitMethodInsn(Opcodes.INVOKESTATIC, wrapperType, "compare",
+						"(" + descriptor + descriptor + ")I", false);
+				mv.visitJumpInsn(Opcodes.IFNE, falseLabel);
+			}
+			else if (attributeType.isPrimitive()) {
+				mv.visitJumpInsn(Opcodes.IF_ICMPNE, falseLabel);
+			}
+			else if (attributeType.isArray()) {
+				String arrayDescriptor = getArrayDescriptor(attributeType);
+				mv.visitMethodInsn(Opcodes.INVOKESTATIC, "java/util/Arrays", "equals",
+						"(" + arrayDescriptor + arrayDescriptor + ")Z", false);
+				mv.visitJumpInsn(Opcodes.IFEQ, falseLabel);
+			}
+			else {
+				mv.visitMethodInsn(Opcodes.INVOKEVIRTUAL, "java/lang/Object", "equals",
+						"(Ljava/lang/Object;)Z", false);
+				mv.visitJumpInsn(Opcodes.IFEQ, falseLabel);
+			}
+		}
+		mv.visitLabel(trueLabel);
+		mv.visitInsn(Opcodes.ICONST_1);
+		mv.visitInsn(Opcodes.IRETURN);
+		mv.visitLabel(falseLabel);
+		mv.visitInsn(Opcodes.ICONST_0);
+		mv.visitInsn(Opcodes.IRETURN);
+		mv.visitMaxs(0, 0);
+		mv.visitEnd();
+	}
+
+	/**
+	 * See {@link Annotation#hashCode()} for a definition of the required algorithm.
+	 * The computed hash code is cached in a non-volatile field, analogous to
+	 * {@link String#hashCode()}.
+	 */
+	private static void generateHashCodeMethod(ClassWriter cw, String className, AttributeMethods attributes) {
+		MethodVisitor mv = cw.visitMethod(Opcodes.ACC_PUBLIC, "hashCode", "()I", null, null);
+		mv.visitCode();
+		Label computeLabel = new Label();
+		mv.visitVarInsn(Opcodes.ALOAD, 0);
+		mv.visitFieldInsn(Opcodes.GETFIELD, className, HASH_CODE_FIELD, "I");
+		mv.visitInsn(Opcodes.DUP);
+		mv.visitJumpInsn(Opcodes.IFEQ, computeLabel);
+		mv.visitInsn(Opcodes.IRETURN);
+		mv.visitLabel(computeLabel);
+		for (int i = 0; i < attributes.size(); i++) {
+			Method attribute = attributes.get(i);
+			Class<?> attributeType = attribute.getReturnType();
+			String descriptor = Type.getDescriptor(attributeType);
+			mv.visitLdcInsn(127 * attribute.getName().hashCode());
+			mv.visitVarInsn(Opcodes.ALOAD, 0);
+			mv.visitFieldInsn(Opcodes.GETFIELD, className, VALUES_FIELD + i, descriptor);
+			if (attributeType.isPrimitive()) {
+				mv.visitMethodInsn(Opcodes.INVOKESTATIC,
+						Type.getInternalName(ClassUtils.resolvePrimitiveIfNecessary(attributeType)),
+						"hashCode", "(" + descriptor + ")I", false);
+			}
+			else if (attributeType.isArray()) {
+				// Use Arrays.hashCode(...) as required by Annotation#hashCode()
+				mv.visitMethodInsn(Opcodes.INVOKESTATIC, "java/util/Arrays", "hashCode",
+						"(" + getArrayDescriptor(attributeType) + ")I", false);
+			}
+			else {
+				mv.visitMethodInsn(Opcodes.INVOKEVIRTUAL, "java/lang/Object", "hashCode", "()I", false);
+			}
+			mv.visitInsn(Opcodes.IXOR);
+			mv.visitInsn(Opcodes.IADD);
+		}
+		mv.visitInsn(Opcodes.DUP);
+		mv.visitVarInsn(Opcodes.ISTORE, 1);
+		mv.visitVarInsn(Opcodes.ALOAD, 0);
+		mv.visitInsn(Opcodes.SWAP);
+		mv.visitFieldInsn(Opcodes.PUTFIELD, className, HASH_CODE_FIELD, "I");
+		mv.visitVarInsn(Opcodes.ILOAD, 1);
+		mv.visitInsn(Opcodes.IRETURN);
+		mv.visitMaxs(0, 0);
+		mv.visitEnd();
+	}
+
+	private static void generateToStringMethod(ClassWriter cw, String className) {
+		MethodVisitor mv = cw.visitMethod(Opcodes.ACC_PUBLIC, "toString", "()Ljava/lang/String;", null, null);
+		mv.visitCode();
+		mv.visitVarInsn(Opcodes.ALOAD, 0);
+		mv.visitFieldInsn(Opcodes.GETFIELD, className, TO_STRING_FIELD, SUPPLIER_DESCRIPTOR);
+		mv.visitMethodInsn(Opcodes.INVOKEINTERFACE, Type.getInternalName(Supplier.class), "get",
+				"()Ljava/lang/Object;", true);
+		mv.visitTypeInsn(Opcodes.CHECKCAST, "java/lang/String");
+		mv.visitInsn(Opcodes.ARETURN);
+		mv.visitMaxs(0, 0);
+		mv.visitEnd();
+	}
+
+	/**
+	 * Return the descriptor of the {@code java.util.Arrays} method parameter
+	 * applicable to the given array type.
+	 */
+	private static String getArrayDescriptor(Class<?> arrayType) {
+		return (arrayType.getComponentType().isPrimitive() ?
+				Type.getDescriptor(arrayType) : "[Ljava/lang/Object;");
+	}
+
+
+	/**
+	 * Lazily computed {@code toString()} representation of a generated
+	 * synthesized annotation, consistent with the proxy-based variant.
+	 */
+	private static class AnnotationToString implements Supplier<String> {
+
+		private final Class<?> type;
+
+		private final AttributeMethods attributes;
+
+		private final Object[] values;
+
+		@Nullable
+		private volatile String string;
+
+		AnnotationToString(Class<?> type, AttributeMethods attributes, Object[] values) {
+			this.type = type;
+			this.attributes = attributes;
+			this.values = values;
+		}
+
+		@Override
+		public String get() {
+			String string = this.string;
+			if (string == null) {
+				StringBuilder builder = new StringBuilder("@").append(this.type.getName()).append("(");
+				for (int i = 0; i < this.values.length; i++) {
+					if (i > 0) {
+						builder.append(", ");
+					}
+					builder.append(this.attributes.get(i).getName());
+					builder.append("=");
+					builder.append(SynthesizedMergedAnnotationInvocationHandler.toString(this.values[i]));
+				}
+				builder.append(")");
+				string = builder.toString();
+				this.string = string;
+			}
+			return string;
+		}
+	}
+
+
+	/**
+	 * ClassLoader for generated synthesized annotation classes, as a child of
+	 * the annotation type's ClassLoader.
+	 */
+	private static class SynthesizedClassLoader extends ClassLoader {
+
+		SynthesizedClassLoader(ClassLoader parent) {
+			super(parent);
+		}
+
+		synchronized Class<?> defineClass(String name, Supplier<byte[]> bytes) {
+			Class<?> clazz = findLoadedClass(name);
+			if (clazz == null) {
+				byte[] b = bytes.get();
+				clazz = defineClass(name, b, 0, b.length);
+			}
+			return clazz;
+		}
+	}
+
+}
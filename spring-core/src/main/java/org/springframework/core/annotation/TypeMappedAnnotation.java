@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2020 the original author or authors.
+ * Copyright 2002-2021 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -332,7 +332,9 @@ final class TypeMappedAnnotation<A extends Annotation> extends AbstractMergedAnn
 		if (getType().isInstance(this.rootAttributes) && !isSynthesizable()) {
 			return (A) this.rootAttributes;
 		}
-		return SynthesizedMergedAnnotationInvocationHandler.createProxy(this, getType());
+		A synthesized = SynthesizedAnnotationGenerator.synthesize(this, getType());
+		return (synthesized != null ? synthesized :
+				SynthesizedMergedAnnotationInvocationHandler.createProxy(this, getType()));
 	}
 
 	private boolean isSynthesizable() {
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2019 the original author or authors.
+ * Copyright 2002-2021 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -35,6 +35,7 @@ import org.springframework.util.StreamUtils;
  * Encoder for {@link Resource Resources}.
  *
  * @author Arjen Poutsma
+ * @author Lars Hofmann
  * @since 5.0
  */
 public class ResourceEncoder extends AbstractSingleValueEncoder<Resource> {
@@ -46,6 +47,8 @@ public class ResourceEncoder extends AbstractSingleValueEncoder<Resource> {
 
 	private final int bufferSize;
 
+	private boolean useMemoryMapping;
+
 
 	public ResourceEncoder() {
 		this(DEFAULT_BUFFER_SIZE);
@@ -58,6 +61,27 @@ public class ResourceEncoder extends AbstractSingleValueEncoder<Resource> {
 	}
 
 
+	/**
+	 * Whether to {@linkplain DataBufferUtils#readMapped(Resource, long, DataBufferFactory, int)
+	 * map} file resources into memory rather than copying their content into
+	 * allocated buffers. Recommended for large files that do not change while
+	 * being served.
+	 * <p>By default this is set to {@code false}.
+	 * @since 5.3.8
+	 */
+	public void setUseMemoryMapping(boolean useMemoryMapping) {
+		this.useMemoryMapping = useMemoryMapping;
+	}
+
+	/**
+	 * Return whether file resources are mapped into memory.
+	 * @since 5.3.8
+	 */
+	public boolean isUseMemoryMapping() {
+		return this.useMemoryMapping;
+	}
+
+
 	@Override
 	public boolean canEncode(ResolvableType elementType, @Nullable MimeType mimeType) {
 		Class<?> clazz = elementType.toClass();
@@ -72,6 +96,9 @@ public class ResourceEncoder extends AbstractSingleValueEncoder<Resource> {
 			String logPrefix = Hints.getLogPrefix(hints);
 			logger.debug(logPrefix + "Writing [" + resource + "]");
 		}
+		if (this.useMemoryMapping) {
+			return DataBufferUtils.readMapped(resource, 0, bufferFactory, this.bufferSize);
+		}
 		return DataBufferUtils.read(resource, bufferFactory, this.bufferSize);
 	}
 
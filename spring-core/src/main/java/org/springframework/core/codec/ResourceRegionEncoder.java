@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2020 the original author or authors.
+ * Copyright 2002-2021 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -42,6 +42,7 @@ import org.springframework.util.StreamUtils;
  * Encoder for {@link ResourceRegion ResourceRegions}.
  *
  * @author Brian Clozel
+ * @author Lars Hofmann
  * @since 5.0
  */
 public class ResourceRegionEncoder extends AbstractEncoder<ResourceRegion> {
@@ -58,6 +59,8 @@ public class ResourceRegionEncoder extends AbstractEncoder<ResourceRegion> {
 
 	private final int bufferSize;
 
+	private boolean useMemoryMapping;
+
 
 	public ResourceRegionEncoder() {
 		this(DEFAULT_BUFFER_SIZE);
@@ -69,6 +72,27 @@ public class ResourceRegionEncoder extends AbstractEncoder<ResourceRegion> {
 		this.bufferSize = bufferSize;
 	}
 
+
+	/**
+	 * Whether to {@linkplain DataBufferUtils#readMapped(Resource, long, DataBufferFactory, int)
+	 * map} file resources into memory rather than copying their content into
+	 * allocated buffers. Recommended for large files that do not change while
+	 * being served.
+	 * <p>By default this is set to {@code false}.
+	 * @since 5.3.8
+	 */
+	public void setUseMemoryMapping(boolean useMemoryMapping) {
+		this.useMemoryMapping = useMemoryMapping;
+	}
+
+	/**
+	 * Return whether file resources are mapped into memory.
+	 * @since 5.3.8
+	 */
+	public boolean isUseMemoryMapping() {
+		return this.useMemoryMapping;
+	}
+
 	@Override
 	public boolean canEncode(ResolvableType elementType, @Nullable MimeType mimeType) {
 		return super.canEncode(elementType, mimeType)
@@ -129,7 +153,9 @@ public class ResourceRegionEncoder extends AbstractEncoder<ResourceRegion> {
 					"Writing region " + position + "-" + (position + count) + " of [" + resource + "]");
 		}
 
-		Flux<DataBuffer> in = DataBufferUtils.read(resource, position, bufferFactory, this.bufferSize);
+		Flux<DataBuffer> in = (this.useMemoryMapping ?
+				DataBufferUtils.readMapped(resource, position, bufferFactory, this.bufferSize) :
+				DataBufferUtils.read(resource, position, bufferFactory, this.bufferSize));
 		if (logger.isDebugEnabled()) {
 			in = in.doOnNext(buffer -> Hints.touchDataBuffer(buffer, hints, logger));
 		}
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2017 the original author or authors.
+ * Copyright 2002-2021 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -16,6 +16,7 @@
 
 package org.springframework.core.convert.support;
 
+import java.lang.reflect.Array;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
@@ -28,12 +29,13 @@ import org.springframework.lang.Nullable;
 import org.springframework.util.ObjectUtils;
 
 /**
- * Converts an array to another array. First adapts the source array to a List,
- * then delegates to {@link CollectionToArrayConverter} to perform the target
- * array conversion.
+ * Converts an array to another array, converting each element of the source
+ * array to the target component type. Primitive number arrays get widened
+ * directly if the default number conversion applies.
  *
  * @author Keith Donald
  * @author Phillip Webb
+ * @author Lars Hofmann
  * @since 3.0
  */
 final class ArrayToArrayConverter implements ConditionalGenericConverter {
@@ -62,14 +64,27 @@ final class ArrayToArrayConverter implements ConditionalGenericConverter {
 	@Override
 	@Nullable
 	public Object convert(@Nullable Object source, TypeDescriptor sourceType, TypeDescriptor targetType) {
+		TypeDescriptor targetElement = targetType.getElementTypeDescriptor();
 		if (this.conversionService instanceof GenericConversionService) {
-			TypeDescriptor targetElement = targetType.getElementTypeDescriptor();
 			if (targetElement != null &&
 					((GenericConversionService) this.conversionService).canBypassConvert(
 							sourceType.getElementTypeDescriptor(), targetElement)) {
 				return source;
 			}
 		}
+		if (source != null && targetElement != null) {
+			Class<?> targetComponentType = targetElement.getType();
+			if (ElementConverter.canWidenPrimitiveArray(this.conversionService, source.getClass(), targetComponentType)) {
+				return ElementConverter.widenPrimitiveArray(source, targetComponentType);
+			}
+			int length = Array.getLength(source);
+			Object target = Array.newInstance(targetComponentType, length);
+			ElementConverter elementConverter = new ElementConverter(this.conversionService, sourceType, targetElement);
+			for (int i = 0; i < length; i++) {
+				ElementConverter.setElement(target, i, elementConverter.convert(ElementConverter.getElement(source, i)));
+			}
+			return target;
+		}
 		List<Object> sourceList = Arrays.asList(ObjectUtils.toObjectArray(source));
 		return this.helperConverter.convert(sourceList, sourceType, targetType);
 	}
@@ -0,0 +1,235 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.core.convert.support;
+
+import java.lang.reflect.Array;
+
+import org.springframework.core.convert.ConversionService;
+import org.springframework.core.convert.TypeDescriptor;
+import org.springframework.core.convert.converter.Converter;
+import org.springframework.lang.Nullable;
+import org.springframework.util.ClassUtils;
+
+/**
+ * Converts the elements of an array or collection to a given target element
+ * type, for use within a single conversion of the array or collection.
+ *
+ * <p>With a {@link GenericConversionService}, the element converter is resolved
+ * once per source element class rather than once per element, so that elements
+ * get converted in a tight loop without a converter lookup and without creating
+ * a {@link TypeDescriptor} for each element. Any other {@link ConversionService}
+ * gets called for each element.
+ *
+ * <p>Also provides typed access to primitive arrays, avoiding reflective
+ * {@link Array} calls, as well as a fast path for widening primitive number
+ * arrays (e.g. {@code int[]} to {@code long[]}).
+ *
+ * @author Lars Hofmann
+ * @since 5.3.8
+ * @see GenericConversionService#getElementConverter
+ */
+final class ElementConverter {
+
+	private final ConversionService conversionService;
+
+	private final TypeDescriptor sourceType;
+
+	private final TypeDescriptor targetElementType;
+
+	@Nullable
+	private Class<?> resolvedElementClass;
+
+	@Nullable
+	private Converter<Object, Object> resolvedConverter;
+
+
+	/**
+	 * Create a new element converter.
+	 * @param conversionService the conversion service to use
+	 * @param sourceType the type of the source array or collection
+	 * @param targetElementType the target element type
+	 */
+	ElementConverter(ConversionService conversionService, TypeDescriptor sourceType, TypeDescriptor targetElementType) {
+		this.conversionService = conversionService;
+		this.sourceType = sourceType;
+		this.targetElementType = targetElementType;
+	}
+
+
+	/**
+	 * Convert the given source element to the target element type.
+	 * @param sourceElement the source element
+	 * @return the converted element
+	 */
+	@Nullable
+	public Object convert(@Nullable Object sourceElement) {
+		if (sourceElement != null && this.conversionService instanceof GenericConversionService) {
+			Class<?> elementClass = sourceElement.getClass();
+			if (elementClass != this.resolvedElementClass) {
+				this.resolvedConverter = ((GenericConversionService) this.conversionService).getElementConverter(
+						this.sourceType.elementTypeDescriptor(sourceElement), this.targetElementType);
+				this.resolvedElementClass = elementClass;
+			}
+			if (this.resolvedConverter != null) {
+				return this.resolvedConverter.convert(sourceElement);
+			}
+		}
+		return this.conversionService.convert(sourceElement,
+				this.sourceType.elementTypeDescriptor(sourceElement), this.targetElementType);
+	}
+
+
+	/**
+	 * Return the element at the given index of the given array,
+	 * avoiding reflection for common array types.
+	 */
+	@Nullable
+	static Object getElement(Object array, int index) {
+		if (array instanceof Object[]) {
+			return ((Object[]) array)[index];
+		}
+		if (array instanceof int[]) {
+			return ((int[]) array)[index];
+		}
+		if (array instanceof long[]) {
+			return ((long[]) array)[index];
+		}
+		if (array instanceof double[]) {
+			return ((double[]) array)[index];
+		}
+		return Array.get(array, index);
+	}
+
+	/**
+	 * Set the element at the given index of the given array,
+	 * avoiding reflection for common array types.
+	 */
+	static void setElement(Object array, int index, @Nullable Object element) {
+		if (array instanceof Object[]) {
+			((Object[]) array)[index] = element;
+		}
+		else if (array instanceof int[] && element instanceof Integer) {
+			((int[]) array)[index] = (Integer) element;
+		}
+		else if (array instanceof long[] && element instanceof Long) {
+			((long[]) array)[index] = (Long) element;
+		}
+		else if (array instanceof double[] && element instanceof Double) {
+			((double[]) array)[index] = (Double) element;
+		}
+		else {
+			Array.set(array, index, element);
+		}
+	}
+
+	/**
+	 * Determine whether the given primitive number array can be widened
+	 * to the given primitive target component type through
+	 * {@link #widenPrimitiveArray}, consistent with the default number
+	 * conversion of the given conversion service.
+	 * @param conversionService the conversion service
+	 * @param sourceArrayType the type of the source array
+	 * @param targetComponentType the target component type
+	 */
+	static boolean canWidenPrimitiveArray(ConversionService conversionService,
+			Class<?> sourceArrayType, Class<?> targetComponentType) {
+
+		Class<?> sourceComponentType = sourceArrayType.getComponentType();
+		if (!(conversionService instanceof GenericConversionService) || sourceComponentType == null ||
+				!isWidening(sourceComponentType, targetComponentType)) {
+			return false;
+		}
+		return ((GenericConversionService) conversionService).isDefaultNumberConversion(
+				ClassUtils.resolvePrimitiveIfNecessary(sourceComponentType),
+				ClassUtils.resolvePrimitiveIfNecessary(targetComponentType));
+	}
+
+	private static boolean isWidening(Class<?> sourceComponentType, Class<?> targetComponentType) {
+		if (targetComponentType == long.class) {
+			return (sourceComponentType == int.class || sourceComponentType == short.class ||
+					sourceComponentType == byte.class);
+		}
+		if (targetComponentType == double.class) {
+			return (sourceComponentType == int.class || sourceComponentType == long.class ||
+					sourceComponentType == float.class || sourceComponentType == short.class ||
+					sourceComponentType == byte.class);
+		}
+		if (targetComponentType == int.class) {
+			return (sourceComponentType == short.class || sourceComponentType == byte.class);
+		}
+		return false;
+	}
+
+	/**
+	 * Widen the given primitive number array to the given primitive target
+	 * component type, as determined by {@link #canWidenPrimitiveArray}.
+	 * @param source the source array
+	 * @param targetComponentType the target component type
+	 * @return the new target array
+	 */
+	static Object widenPrimitiveArray(Object source, Class<?> targetComponentType) {
+		int length = Array.getLength(source);
+		if (targetComponentType == long.class) {
+			long[] target = new long[length];
+			if (source instanceof int[]) {
+				int[] array = (int[]) source;
+				for (int i = 0; i < length; i++) {
+					target[i] = array[i];
+				}
+			}
+			else {
+				for (int i = 0; i < length; i++) {
+					target[i] = ((Number) Array.get(source, i)).longValue();
+				}
+			}
+			return target;
+		}
+		if (targetComponentType == double.class) {
+			double[] target = new double[length];
+			if (source instanceof int[]) {
+				int[] array = (int[]) source;
+				for (int i = 0; i < length; i++) {
+					target[i] = array[i];
+				}
+			}
+			else if (source instanceof long[]) {
+				long[] array = (long[]) source;
+				for (int i = 0; i < length; i++) {
+					target[i] = array[i];
+				}
+			}
+			else if (source instanceof float[]) {
+				float[] array = (float[]) source;
+				for (int i = 0; i < length; i++) {
+					target[i] = array[i];
+				}
+			}
+			else {
+				for (int i = 0; i < length; i++) {
+					target[i] = ((Number) Array.get(source, i)).doubleValue();
+				}
+			}
+			return target;
+		}
+		int[] target = new int[length];
+		for (int i = 0; i < length; i++) {
+			target[i] = ((Number) Array.get(source, i)).intValue();
+		}
+		return target;
+	}
+
+}
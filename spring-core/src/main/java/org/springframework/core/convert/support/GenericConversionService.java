@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2020 the original author or authors.
+ * Copyright 2002-2021 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -59,6 +59,7 @@ import org.springframework.util.StringUtils;
  * @author Chris Beams
  * @author Phillip Webb
  * @author David Haraburda
+ * @author Lars Hofmann
  * @since 3.0
  */
 public class GenericConversionService implements ConfigurableConversionService {
@@ -285,6 +286,72 @@ public class GenericConversionService implements ConfigurableConversionService {
 		return (sourceType.isAssignableTo(targetType) ? NO_OP_CONVERTER : null);
 	}
 
+	/**
+	 * Resolve a converter for multiple non-null source objects of the given
+	 * source type, as used for the bulk conversion of array and collection elements.
+	 * <p>Applying the returned converter is equivalent to calling
+	 * {@link #convert(Object, TypeDescriptor, TypeDescriptor)} with the given
+	 * type descriptors, without looking up the converter for every element
+	 * (and without obtaining a new {@link Converter} from a {@link ConverterFactory}).
+	 * @param sourceType the source element type to convert from
+	 * @param targetType the target element type to convert to
+	 * @return the element converter, or {@code null} if no suitable converter was found
+	 * @since 5.3.8
+	 * @see ElementConverter
+	 */
+	@Nullable
+	@SuppressWarnings("unchecked")
+	Converter<Object, Object> getElementConverter(TypeDescriptor sourceType, TypeDescriptor targetType) {
+		GenericConverter converter = getConverter(sourceType, targetType);
+		if (converter == null) {
+			return null;
+		}
+		if (converter == NO_OP_CONVERTER) {
+			return source -> source;
+		}
+		Converter<Object, Object> delegate;
+		if (converter instanceof ConverterAdapter) {
+			delegate = ((ConverterAdapter) converter).converter;
+		}
+		else if (converter instanceof ConverterFactoryAdapter) {
+			delegate = (Converter<Object, Object>) ((ConverterFactoryAdapter) converter).converterFactory
+					.getConverter((Class<Object>) targetType.getObjectType());
+		}
+		else {
+			delegate = source -> converter.convert(source, sourceType, targetType);
+		}
+		return source -> {
+			Object result;
+			try {
+				result = delegate.convert(source);
+			}
+			catch (ConversionFailedException ex) {
+				throw ex;
+			}
+			catch (Throwable ex) {
+				throw new ConversionFailedException(sourceType, targetType, source, ex);
+			}
+			return handleResult(sourceType, targetType, result);
+		};
+	}
+
+	/**
+	 * Determine whether numbers of the given source type get converted to the
+	 * given target type by the default {@link NumberToNumberConverterFactory},
+	 * i.e. whether no other converter has been registered for the given types.
+	 * @param sourceType the source number type (a wrapper type)
+	 * @param targetType the target number type (a wrapper type)
+	 * @since 5.3.8
+	 */
+	boolean isDefaultNumberConversion(Class<?> sourceType, Class<?> targetType) {
+		GenericConverter converter = getConverter(TypeDescriptor.valueOf(sourceType), TypeDescriptor.valueOf(targetType));
+		if (!(converter instanceof ConverterFactoryAdapter)) {
+			return false;
+		}
+		ConverterFactory<?, ?> converterFactory = ((ConverterFactoryAdapter) converter).converterFactory;
+		return (converterFactory instanceof NumberToNumberConverterFactory);
+	}
+
 
 	// Internal helpers
 
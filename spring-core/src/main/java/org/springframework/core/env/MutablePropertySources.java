@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2020 the original author or authors.
+ * Copyright 2002-2021 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -36,6 +36,7 @@ import org.springframework.lang.Nullable;
  *
  * @author Chris Beams
  * @author Juergen Hoeller
+ * @author Lars Hofmann
  * @since 3.1
  * @see PropertySourcesPropertyResolver
  */
@@ -43,6 +44,8 @@ public class MutablePropertySources implements PropertySources {
 
 	private final List<PropertySource<?>> propertySourceList = new CopyOnWriteArrayList<>();
 
+	private volatile int version;
+
 
 	/**
 	 * Create a new {@link MutablePropertySources} object.
@@ -106,6 +109,7 @@ public class MutablePropertySources implements PropertySources {
 		synchronized (this.propertySourceList) {
 			removeIfPresent(propertySource);
 			this.propertySourceList.add(0, propertySource);
+			this.version++;
 		}
 	}
 
@@ -116,6 +120,7 @@ public class MutablePropertySources implements PropertySources {
 		synchronized (this.propertySourceList) {
 			removeIfPresent(propertySource);
 			this.propertySourceList.add(propertySource);
+			this.version++;
 		}
 	}
 
@@ -129,6 +134,7 @@ public class MutablePropertySources implements PropertySources {
 			removeIfPresent(propertySource);
 			int index = assertPresentAndGetIndex(relativePropertySourceName);
 			addAtIndex(index, propertySource);
+			this.version++;
 		}
 	}
 
@@ -142,6 +148,7 @@ public class MutablePropertySources implements PropertySources {
 			removeIfPresent(propertySource);
 			int index = assertPresentAndGetIndex(relativePropertySourceName);
 			addAtIndex(index + 1, propertySource);
+			this.version++;
 		}
 	}
 
@@ -160,7 +167,12 @@ public class MutablePropertySources implements PropertySources {
 	public PropertySource<?> remove(String name) {
 		synchronized (this.propertySourceList) {
 			int index = this.propertySourceList.indexOf(PropertySource.named(name));
-			return (index != -1 ? this.propertySourceList.remove(index) : null);
+			if (index == -1) {
+				return null;
+			}
+			PropertySource<?> removed = this.propertySourceList.remove(index);
+			this.version++;
+			return removed;
 		}
 	}
 
@@ -175,6 +187,7 @@ public class MutablePropertySources implements PropertySources {
 		synchronized (this.propertySourceList) {
 			int index = assertPresentAndGetIndex(name);
 			this.propertySourceList.set(index, propertySource);
+			this.version++;
 		}
 	}
 
@@ -185,6 +198,17 @@ public class MutablePropertySources implements PropertySources {
 		return this.propertySourceList.size();
 	}
 
+	/**
+	 * Return the current version of this set of property sources, changing
+	 * whenever a property source gets added, removed or replaced.
+	 * <p>Changes within individual property sources are not reflected.
+	 * @since 5.3.8
+	 * @see PropertySourcesPropertyResolver#setCacheResolvedProperties
+	 */
+	int getVersion() {
+		return this.version;
+	}
+
 	@Override
 	public String toString() {
 		return this.propertySourceList.toString();
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2018 the original author or authors.
+ * Copyright 2002-2021 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -16,14 +16,22 @@
 
 package org.springframework.core.env;
 
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
 import org.springframework.lang.Nullable;
+import org.springframework.util.ClassUtils;
 
 /**
  * {@link PropertyResolver} implementation that resolves property values against
  * an underlying set of {@link PropertySources}.
  *
+ * <p>Resolved property values may optionally be cached, see
+ * {@link #setCacheResolvedProperties}.
+ *
  * @author Chris Beams
  * @author Juergen Hoeller
+ * @author Lars Hofmann
  * @since 3.1
  * @see PropertySource
  * @see PropertySources
@@ -31,9 +39,19 @@ import org.springframework.lang.Nullable;
  */
 public class PropertySourcesPropertyResolver extends AbstractPropertyResolver {
 
+	/**
+	 * The maximum number of resolved properties to cache.
+	 */
+	private static final int CACHE_LIMIT = 1024;
+
+
 	@Nullable
 	private final PropertySources propertySources;
 
+	private volatile boolean cacheResolvedProperties;
+
+	private final Map<CacheKey, CachedValue> resolvedPropertyCache = new ConcurrentHashMap<>(64);
+
 
 	/**
 	 * Create a new resolver against the given property sources.
@@ -44,6 +62,34 @@ public class PropertySourcesPropertyResolver extends AbstractPropertyResolver {
 	}
 
 
+	/**
+	 * Set whether to cache resolved property values, keyed by property name
+	 * and target type, in order to avoid searching all property sources as well
+	 * as resolving nested placeholders and converting the value on every call.
+	 * <p>Default is "false". Only applies to {@link MutablePropertySources}:
+	 * the cache gets invalidated whenever a property source gets added, removed
+	 * or replaced. Switch this flag to "true" only if the individual property
+	 * sources as well as the placeholder and conversion configuration of this
+	 * resolver do not change once properties are being resolved.
+	 * <p>Only immutable values get cached, i.e. values converted to
+	 * {@code String}, primitive wrappers, enums and {@code Class}.
+	 * @since 5.3.8
+	 * @see MutablePropertySources
+	 */
+	public void setCacheResolvedProperties(boolean cacheResolvedProperties) {
+		this.cacheResolvedProperties = cacheResolvedProperties;
+		this.resolvedPropertyCache.clear();
+	}
+
+	/**
+	 * Return whether to cache resolved property values.
+	 * @since 5.3.8
+	 */
+	public boolean isCacheResolvedProperties() {
+		return this.cacheResolvedProperties;
+	}
+
+
 	@Override
 	public boolean containsProperty(String key) {
 		if (this.propertySources != null) {
@@ -76,6 +122,34 @@ public class PropertySourcesPropertyResolver extends AbstractPropertyResolver {
 
 	@Nullable
 	protected <T> T getProperty(String key, Class<T> targetValueType, boolean resolveNestedPlaceholders) {
+		if (this.cacheResolvedProperties && this.propertySources instanceof MutablePropertySources &&
+				isCacheableValueType(targetValueType)) {
+			return getCachedProperty(key, targetValueType, resolveNestedPlaceholders,
+					(MutablePropertySources) this.propertySources);
+		}
+		return doGetProperty(key, targetValueType, resolveNestedPlaceholders);
+	}
+
+	@Nullable
+	@SuppressWarnings("unchecked")
+	private <T> T getCachedProperty(String key, Class<T> targetValueType, boolean resolveNestedPlaceholders,
+			MutablePropertySources propertySources) {
+
+		int version = propertySources.getVersion();
+		CacheKey cacheKey = new CacheKey(key, targetValueType, resolveNestedPlaceholders);
+		CachedValue cachedValue = this.resolvedPropertyCache.get(cacheKey);
+		if (cachedValue != null && cachedValue.version == version) {
+			return (T) cachedValue.value;
+		}
+		T value = doGetProperty(key, targetValueType, resolveNestedPlaceholders);
+		if (cachedValue != null || this.resolvedPropertyCache.size() < CACHE_LIMIT) {
+			this.resolvedPropertyCache.put(cacheKey, new CachedValue(version, value));
+		}
+		return value;
+	}
+
+	@Nullable
+	private <T> T doGetProperty(String key, Class<T> targetValueType, boolean resolveNestedPlaceholders) {
 		if (this.propertySources != null) {
 			for (PropertySource<?> propertySource : this.propertySources) {
 				if (logger.isTraceEnabled()) {
@@ -117,4 +191,65 @@ public class PropertySourcesPropertyResolver extends AbstractPropertyResolver {
 		}
 	}
 
+	private static boolean isCacheableValueType(Class<?> targetValueType) {
+		return (targetValueType == String.class || ClassUtils.isPrimitiveOrWrapper(targetValueType) ||
+				targetValueType.isEnum() || targetValueType == Class.class);
+	}
+
+
+	/**
+	 * Cache key for a resolved property.
+	 */
+	private static final class CacheKey {
+
+		private final String key;
+
+		private final Class<?> targetValueType;
+
+		private final boolean resolveNestedPlaceholders;
+
+		CacheKey(String key, Class<?> targetValueType, boolean resolveNestedPlaceholders) {
+			this.key = key;
+			this.targetValueType = targetValueType;
+			this.resolveNestedPlaceholders = resolveNestedPlaceholders;
+		}
+
+		@Override
+		public boolean equals(@Nullable Object other) {
+			if (this == other) {
+				return true;
+			}
+			if (!(other instanceof CacheKey)) {
+				return false;
+			}
+			CacheKey otherKey = (CacheKey) other;
+			return (this.key.equals(otherKey.key) && this.targetValueType == otherKey.targetValueType &&
+					this.resolveNestedPlaceholders == otherKey.resolveNestedPlaceholders);
+		}
+
+		@Override
+		public int hashCode() {
+			return (this.key.hashCode() * 31 + this.targetValueType.hashCode()) * 2 +
+					(this.resolveNestedPlaceholders ? 1 : 0);
+		}
+	}
+
+
+	/**
+	 * A resolved property value, including {@code null} for a missing property,
+	 * for a specific version of the property sources.
+	 */
+	private static final class CachedValue {
+
+		final int version;
+
+		@Nullable
+		final Object value;
+
+		CachedValue(int version, @Nullable Object value) {
+			this.version = version;
+			this.value = value;
+		}
+	}
+
 }
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2015 the original author or authors.
+ * Copyright 2002-2021 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -17,6 +17,7 @@
 package org.springframework.core.env;
 
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.springframework.lang.Nullable;
 import org.springframework.util.Assert;
@@ -50,6 +51,10 @@ import org.springframework.util.Assert;
  *
  * <pre class="code">SPRING_PROFILES_ACTIVE=p1 java -classpath ... MyApp</pre>
  *
+ * <p>For the actual {@linkplain System#getenv() system environment}, which cannot
+ * change at runtime, the resolved name for a given property name is determined once
+ * and then reused for subsequent lookups.
+ *
  * <p>Enable debug- or trace-level logging for this class (or package) for messages
  * explaining when these 'property name resolutions' occur.
  *
@@ -58,6 +63,7 @@ import org.springframework.util.Assert;
  *
  * @author Chris Beams
  * @author Juergen Hoeller
+ * @author Lars Hofmann
  * @since 3.1
  * @see StandardEnvironment
  * @see AbstractEnvironment#getSystemEnvironment()
@@ -65,12 +71,23 @@ import org.springframework.util.Assert;
  */
 public class SystemEnvironmentPropertySource extends MapPropertySource {
 
+	/**
+	 * The maximum number of resolved property names to cache.
+	 */
+	private static final int RESOLVED_NAME_CACHE_LIMIT = 1024;
+
+
+	@Nullable
+	private final Map<String, String> resolvedNameCache;
+
+
 	/**
 	 * Create a new {@code SystemEnvironmentPropertySource} with the given name and
 	 * delegating to the given {@code MapPropertySource}.
 	 */
 	public SystemEnvironmentPropertySource(String name, Map<String, Object> source) {
 		super(name, source);
+		this.resolvedNameCache = (isSystemEnvironment(source) ? new ConcurrentHashMap<>(64) : null);
 	}
 
 
@@ -105,6 +122,20 @@ public class SystemEnvironmentPropertySource extends MapPropertySource {
 	 */
 	protected final String resolvePropertyName(String name) {
 		Assert.notNull(name, "Property name must not be null");
+		if (this.resolvedNameCache == null || isSecurityManagerPresent()) {
+			return doResolvePropertyName(name);
+		}
+		String resolvedName = this.resolvedNameCache.get(name);
+		if (resolvedName == null) {
+			resolvedName = doResolvePropertyName(name);
+			if (this.resolvedNameCache.size() < RESOLVED_NAME_CACHE_LIMIT) {
+				this.resolvedNameCache.put(name, resolvedName);
+			}
+		}
+		return resolvedName;
+	}
+
+	private String doResolvePropertyName(String name) {
 		String resolvedName = checkPropertyName(name);
 		if (resolvedName != null) {
 			return resolvedName;
@@ -152,4 +183,18 @@ public class SystemEnvironmentPropertySource extends MapPropertySource {
 		return (System.getSecurityManager() != null);
 	}
 
+	/**
+	 * Determine whether the given source is the unmodifiable map of the actual
+	 * system environment, allowing resolved property names to be cached.
+	 */
+	private static boolean isSystemEnvironment(Map<String, Object> source) {
+		try {
+			Object systemEnvironment = System.getenv();
+			return (source == systemEnvironment);
+		}
+		catch (SecurityException ex) {
+			return false;
+		}
+	}
+
 }
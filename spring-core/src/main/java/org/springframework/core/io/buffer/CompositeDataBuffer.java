@@ -0,0 +1,565 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.core.io.buffer;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.function.IntPredicate;
+
+import org.springframework.util.Assert;
+import org.springframework.util.ObjectUtils;
+
+/**
+ * {@link DataBuffer} that presents the readable bytes of several component
+ * buffers as a single buffer, without copying them. Created through
+ * {@link DefaultDataBufferFactory#compose(List)}.
+ *
+ * <p>The contents of the component buffers are shared, i.e. the composite
+ * reads from and writes into the component buffers directly. Additional
+ * capacity is provided by appending buffers allocated from the factory.
+ * Note that {@link #asByteBuffer(int, int)} can only share the content
+ * of a range within a single component buffer; ranges that span several
+ * component buffers are returned as a copy.
+ *
+ * <p>A composite buffer starts with a reference count of 1, releasing all of
+ * its component buffers once {@link DataBufferUtils#release released} to 0.
+ * As with pooled buffers, {@linkplain #slice slices} share the reference
+ * count of their parent buffer.
+ *
+ * @author Lars Hofmann
+ * @since 5.3.8
+ * @see DefaultDataBufferFactory#compose(List)
+ */
+final class CompositeDataBuffer implements PooledDataBuffer {
+
+	private static final AtomicIntegerFieldUpdater<CompositeDataBuffer> REF_COUNT_UPDATER =
+			AtomicIntegerFieldUpdater.newUpdater(CompositeDataBuffer.class, "refCount");
+
+
+	private final DefaultDataBufferFactory dataBufferFactory;
+
+	/** The buffer holding the reference count: this buffer, or the parent of a slice. */
+	private final CompositeDataBuffer root;
+
+	/** The buffers to release, empty for slices. */
+	private final List<DataBuffer> components;
+
+	private ByteBuffer[] segments;
+
+	private int[] offsets;
+
+	private int capacity;
+
+	private int readPosition;
+
+	private int writePosition;
+
+	private volatile int refCount = 1;
+
+
+	CompositeDataBuffer(DefaultDataBufferFactory dataBufferFactory, List<? extends DataBuffer> dataBuffers) {
+		Assert.notNull(dataBufferFactory, "DefaultDataBufferFactory must not be null");
+		Assert.notNull(dataBuffers, "DataBuffer List must not be null");
+		this.dataBufferFactory = dataBufferFactory;
+		this.root = this;
+		this.components = new ArrayList<>(dataBuffers);
+		List<ByteBuffer> segments = new ArrayList<>(dataBuffers.size());
+		for (DataBuffer dataBuffer : dataBuffers) {
+			if (dataBuffer instanceof CompositeDataBuffer) {
+				CompositeDataBuffer composite = (CompositeDataBuffer) dataBuffer;
+				composite.collectSegments(composite.readPosition, composite.readableByteCount(), segments);
+			}
+			else if (dataBuffer.readableByteCount() > 0) {
+				segments.add(dataBuffer.asByteBuffer());
+			}
+		}
+		setSegments(segments.toArray(new ByteBuffer[0]));
+		this.writePosition = this.capacity;
+	}
+
+	private CompositeDataBuffer(CompositeDataBuffer root, ByteBuffer[] segments) {
+		this.dataBufferFactory = root.dataBufferFactory;
+		this.root = root;
+		this.components = new ArrayList<>(0);
+		setSegments(segments);
+		this.writePosition = this.capacity;
+	}
+
+	private void setSegments(ByteBuffer[] segments) {
+		int[] offsets = new int[segments.length];
+		int capacity = 0;
+		for (int i = 0; i < segments.length; i++) {
+			offsets[i] = capacity;
+			capacity += segments[i].remaining();
+		}
+		this.segments = segments;
+		this.offsets = offsets;
+		this.capacity = capacity;
+	}
+
+
+	@Override
+	public DefaultDataBufferFactory factory() {
+		return this.dataBufferFactory;
+	}
+
+	@Override
+	public int indexOf(IntPredicate predicate, int fromIndex) {
+		Assert.notNull(predicate, "IntPredicate must not be null");
+		if (fromIndex < 0) {
+			fromIndex = 0;
+		}
+		else if (fromIndex >= this.writePosition) {
+			return -1;
+		}
+		for (int i = segmentIndex(fromIndex); i < this.segments.length && this.offsets[i] < this.writePosition; i++) {
+			ByteBuffer segment = this.segments[i];
+			int offset = this.offsets[i];
+			int end = Math.min(segment.remaining(), this.writePosition - offset);
+			for (int j = Math.max(fromIndex - offset, 0); j < end; j++) {
+				if (predicate.test(segment.get(j))) {
+					return offset + j;
+				}
+			}
+		}
+		return -1;
+	}
+
+	@Override
+	public int lastIndexOf(IntPredicate predicate, int fromIndex) {
+		Assert.notNull(predicate, "IntPredicate must not be null");
+		int index = Math.min(fromIndex, this.writePosition - 1);
+		if (index < 0) {
+			return -1;
+		}
+		for (int i = segmentIndex(index); i >= 0; i--) {
+			ByteBuffer segment = this.segments[i];
+			int offset = this.offsets[i];
+			for (int j = Math.min(index - offset, segment.remaining() - 1); j >= 0; j--) {
+				if (predicate.test(segment.get(j))) {
+					return offset + j;
+				}
+			}
+		}
+		return -1;
+	}
+
+	@Override
+	public int readableByteCount() {
+		return this.writePosition - this.readPosition;
+	}
+
+	@Override
+	public int writableByteCount() {
+		return this.capacity - this.writePosition;
+	}
+
+	@Override
+	public int readPosition() {
+		return this.readPosition;
+	}
+
+	@Override
+	public CompositeDataBuffer readPosition(int readPosition) {
+		assertIndex(readPosition >= 0, "'readPosition' %d must be >= 0", readPosition);
+		assertIndex(readPosition <= this.writePosition, "'readPosition' %d must be <= %d",
+				readPosition, this.writePosition);
+		this.readPosition = readPosition;
+		return this;
+	}
+
+	@Override
+	public int writePosition() {
+		return this.writePosition;
+	}
+
+	@Override
+	public CompositeDataBuffer writePosition(int writePosition) {
+		assertIndex(writePosition >= this.readPosition, "'writePosition' %d must be >= %d",
+				writePosition, this.readPosition);
+		assertIndex(writePosition <= this.capacity, "'writePosition' %d must be <= %d",
+				writePosition, this.capacity);
+		this.writePosition = writePosition;
+		return this;
+	}
+
+	@Override
+	public int capacity() {
+		return this.capacity;
+	}
+
+	@Override
+	public CompositeDataBuffer capacity(int newCapacity) {
+		if (newCapacity <= 0) {
+			throw new IllegalArgumentException(String.format("'newCapacity' %d must be higher than 0", newCapacity));
+		}
+		if (this.root != this) {
+			throw new UnsupportedOperationException("Changing the capacity of a sliced buffer is not supported");
+		}
+		if (newCapacity > this.capacity) {
+			DataBuffer dataBuffer = this.dataBufferFactory.allocateBuffer(newCapacity - this.capacity);
+			this.components.add(dataBuffer);
+			ByteBuffer[] segments = Arrays.copyOf(this.segments, this.segments.length + 1);
+			segments[this.segments.length] = dataBuffer.asByteBuffer(0, newCapacity - this.capacity);
+			setSegments(segments);
+		}
+		else if (newCapacity < this.capacity) {
+			List<ByteBuffer> segments = new ArrayList<>(this.segments.length);
+			collectSegments(0, newCapacity, segments);
+			setSegments(segments.toArray(new ByteBuffer[0]));
+			if (this.writePosition > newCapacity) {
+				this.writePosition = newCapacity;
+			}
+			if (this.readPosition > newCapacity) {
+				this.readPosition = newCapacity;
+			}
+		}
+		return this;
+	}
+
+	@Override
+	public CompositeDataBuffer ensureCapacity(int length) {
+		int missing = length - writableByteCount();
+		if (missing > 0) {
+			capacity(this.capacity + Math.max(missing, DefaultDataBufferFactory.DEFAULT_INITIAL_CAPACITY));
+		}
+		return this;
+	}
+
+	@Override
+	public byte getByte(int index) {
+		assertIndex(index >= 0, "index %d must be >= 0", index);
+		assertIndex(index <= this.writePosition - 1, "index %d must be <= %d", index, this.writePosition - 1);
+		int i = segmentIndex(index);
+		return this.segments[i].get(index - this.offsets[i]);
+	}
+
+	@Override
+	public byte read() {
+		assertIndex(this.readPosition <= this.writePosition - 1, "readPosition %d must be <= %d",
+				this.readPosition, this.writePosition - 1);
+		byte b = getByte(this.readPosition);
+		this.readPosition++;
+		return b;
+	}
+
+	@Override
+	public CompositeDataBuffer read(byte[] destination) {
+		Assert.notNull(destination, "Byte array must not be null");
+		read(destination, 0, destination.length);
+		return this;
+	}
+
+	@Override
+	public CompositeDataBuffer read(byte[] destination, int offset, int length) {
+		Assert.notNull(destination, "Byte array must not be null");
+		assertIndex(this.readPosition <= this.writePosition - length,
+				"readPosition %d and length %d should be smaller than writePosition %d",
+				this.readPosition, length, this.writePosition);
+		getBytes(this.readPosition, ByteBuffer.wrap(destination, offset, length));
+		this.readPosition += length;
+		return this;
+	}
+
+	@Override
+	public CompositeDataBuffer write(byte b) {
+		ensureCapacity(1);
+		int i = segmentIndex(this.writePosition);
+		this.segments[i].put(this.writePosition - this.offsets[i], b);
+		this.writePosition++;
+		return this;
+	}
+
+	@Override
+	public CompositeDataBuffer write(byte[] source) {
+		Assert.notNull(source, "Byte array must not be null");
+		write(source, 0, source.length);
+		return this;
+	}
+
+	@Override
+	public CompositeDataBuffer write(byte[] source, int offset, int length) {
+		Assert.notNull(source, "Byte array must not be null");
+		write(ByteBuffer.wrap(source, offset, length));
+		return this;
+	}
+
+	@Override
+	public CompositeDataBuffer write(DataBuffer... buffers) {
+		if (!ObjectUtils.isEmpty(buffers)) {
+			write(Arrays.stream(buffers).map(DataBuffer::asByteBuffer).toArray(ByteBuffer[]::new));
+		}
+		return this;
+	}
+
+	@Override
+	public CompositeDataBuffer write(ByteBuffer... buffers) {
+		if (!ObjectUtils.isEmpty(buffers)) {
+			int capacity = Arrays.stream(buffers).mapToInt(ByteBuffer::remaining).sum();
+			ensureCapacity(capacity);
+			for (ByteBuffer buffer : buffers) {
+				int length = buffer.remaining();
+				setBytes(this.writePosition, buffer.duplicate());
+				this.writePosition += length;
+			}
+		}
+		return this;
+	}
+
+	@Override
+	public CompositeDataBuffer slice(int index, int length) {
+		checkIndex(index, length);
+		List<ByteBuffer> segments = new ArrayList<>();
+		collectSegments(index, length, segments);
+		return new CompositeDataBuffer(this.root, segments.toArray(new ByteBuffer[0]));
+	}
+
+	@Override
+	public ByteBuffer asByteBuffer() {
+		return asByteBuffer(this.readPosition, readableByteCount());
+	}
+
+	@Override
+	public ByteBuffer asByteBuffer(int index, int length) {
+		checkIndex(index, length);
+		List<ByteBuffer> segments = new ArrayList<>(1);
+		collectSegments(index, length, segments);
+		if (segments.size() == 1) {
+			return segments.get(0);
+		}
+		ByteBuffer copy = ByteBuffer.allocate(length);
+		getBytes(index, copy);
+		copy.flip();
+		return copy;
+	}
+
+	@Override
+	public InputStream asInputStream() {
+		return new CompositeDataBufferInputStream(false);
+	}
+
+	@Override
+	public InputStream asInputStream(boolean releaseOnClose) {
+		return new CompositeDataBufferInputStream(releaseOnClose);
+	}
+
+	@Override
+	public OutputStream asOutputStream() {
+		return new CompositeDataBufferOutputStream();
+	}
+
+	@Override
+	public String toString(int index, int length, Charset charset) {
+		checkIndex(index, length);
+		Assert.notNull(charset, "Charset must not be null");
+		ByteBuffer byteBuffer = asByteBuffer(index, length);
+		if (byteBuffer.hasArray()) {
+			return new String(byteBuffer.array(), byteBuffer.arrayOffset() + byteBuffer.position(), length, charset);
+		}
+		byte[] bytes = new byte[length];
+		byteBuffer.get(bytes);
+		return new String(bytes, charset);
+	}
+
+	@Override
+	public boolean isAllocated() {
+		return (this.root.refCount > 0);
+	}
+
+	@Override
+	public CompositeDataBuffer retain() {
+		CompositeDataBuffer root = this.root;
+		int refCount;
+		do {
+			refCount = root.refCount;
+			if (refCount <= 0) {
+				throw new IllegalStateException("Cannot retain released buffer: " + this);
+			}
+		}
+		while (!REF_COUNT_UPDATER.compareAndSet(root, refCount, refCount + 1));
+		return this;
+	}
+
+	@Override
+	public CompositeDataBuffer touch(Object hint) {
+		this.root.components.forEach(component -> DataBufferUtils.touch(component, hint));
+		return this;
+	}
+
+	@Override
+	public boolean release() {
+		CompositeDataBuffer root = this.root;
+		int refCount;
+		do {
+			refCount = root.refCount;
+			if (refCount <= 0) {
+				throw new IllegalStateException("Buffer already released: " + this);
+			}
+		}
+		while (!REF_COUNT_UPDATER.compareAndSet(root, refCount, refCount - 1));
+		if (refCount > 1) {
+			return false;
+		}
+		root.components.forEach(DataBufferUtils::release);
+		return true;
+	}
+
+
+	@Override
+	public String toString() {
+		return String.format("CompositeDataBuffer (r: %d, w: %d, c: %d, segments: %d)",
+				this.readPosition, this.writePosition, this.capacity, this.segments.length);
+	}
+
+
+	/**
+	 * Copy bytes starting at the given index into the remaining space of the target.
+	 */
+	private void getBytes(int index, ByteBuffer target) {
+		for (int i = segmentIndex(index); target.hasRemaining(); i++) {
+			ByteBuffer segment = this.segments[i].duplicate();
+			segment.position(index - this.offsets[i]);
+			if (segment.remaining() > target.remaining()) {
+				segment.limit(segment.position() + target.remaining());
+			}
+			index += segment.remaining();
+			target.put(segment);
+		}
+	}
+
+	/**
+	 * Copy the remaining bytes of the source into this buffer, starting at the given index.
+	 */
+	private void setBytes(int index, ByteBuffer source) {
+		for (int i = segmentIndex(index); source.hasRemaining(); i++) {
+			ByteBuffer segment = this.segments[i].duplicate();
+			segment.position(index - this.offsets[i]);
+			ByteBuffer chunk = source.duplicate();
+			if (chunk.remaining() > segment.remaining()) {
+				chunk.limit(chunk.position() + segment.remaining());
+			}
+			index += chunk.remaining();
+			source.position(source.position() + chunk.remaining());
+			segment.put(chunk);
+		}
+	}
+
+	/**
+	 * Add views of the segments covering the given range to the given list.
+	 */
+	private void collectSegments(int index, int length, List<ByteBuffer> result) {
+		if (length == 0) {
+			return;
+		}
+		for (int i = segmentIndex(index); length > 0; i++) {
+			ByteBuffer segment = this.segments[i].duplicate();
+			segment.position(index - this.offsets[i]);
+			if (segment.remaining() > length) {
+				segment.limit(segment.position() + length);
+			}
+			index += segment.remaining();
+			length -= segment.remaining();
+			result.add(segment.slice());
+		}
+	}
+
+	/**
+	 * Return the index of the segment containing the byte at the given index.
+	 */
+	private int segmentIndex(int index) {
+		int i = Arrays.binarySearch(this.offsets, index);
+		return (i >= 0 ? i : -i - 2);
+	}
+
+	private void checkIndex(int index, int length) {
+		assertIndex(index >= 0, "index %d must be >= 0", index);
+		assertIndex(length >= 0, "length %d must be >= 0", length);
+		assertIndex(index <= this.capacity - length, "index %d and length %d must be <= %d",
+				index, length, this.capacity);
+	}
+
+	private void assertIndex(boolean expression, String format, Object... args) {
+		if (!expression) {
+			String message = String.format(format, args);
+			throw new IndexOutOfBoundsException(message);
+		}
+	}
+
+
+	private class CompositeDataBufferInputStream extends InputStream {
+
+		private final boolean releaseOnClose;
+
+		private boolean closed;
+
+		CompositeDataBufferInputStream(boolean releaseOnClose) {
+			this.releaseOnClose = releaseOnClose;
+		}
+
+		@Override
+		public int available() {
+			return readableByteCount();
+		}
+
+		@Override
+		public int read() {
+			return available() > 0 ? CompositeDataBuffer.this.read() & 0xFF : -1;
+		}
+
+		@Override
+		public int read(byte[] bytes, int off, int len) {
+			int available = available();
+			if (available > 0) {
+				len = Math.min(len, available);
+				CompositeDataBuffer.this.read(bytes, off, len);
+				return len;
+			}
+			else {
+				return -1;
+			}
+		}
+
+		@Override
+		public void close() {
+			if (this.releaseOnClose && !this.closed) {
+				this.closed = true;
+				DataBufferUtils.release(CompositeDataBuffer.this);
+			}
+		}
+	}
+
+
+	private class CompositeDataBufferOutputStream extends OutputStream {
+
+		@Override
+		public void write(int b) {
+			CompositeDataBuffer.this.write((byte) b);
+		}
+
+		@Override
+		public void write(byte[] bytes, int off, int len) {
+			CompositeDataBuffer.this.write(bytes, off, len);
+		}
+	}
+
+}
@@ -21,16 +21,23 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
 import java.nio.channels.AsynchronousFileChannel;
 import java.nio.channels.Channel;
 import java.nio.channels.Channels;
 import java.nio.channels.CompletionHandler;
+import java.nio.channels.FileChannel;
 import java.nio.channels.ReadableByteChannel;
 import java.nio.channels.WritableByteChannel;
 import java.nio.file.OpenOption;
 import java.nio.file.Path;
 import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.Callable;
 import java.util.concurrent.atomic.AtomicBoolean;
@@ -57,6 +64,7 @@ import org.springframework.util.Assert;
  *
  * @author Arjen Poutsma
  * @author Brian Clozel
+ * @author Lars Hofmann
  * @since 5.0
  */
 public abstract class DataBufferUtils {
@@ -65,6 +73,8 @@ public abstract class DataBufferUtils {
 
 	private static final Consumer<DataBuffer> RELEASE_CONSUMER = DataBufferUtils::release;
 
+	private static final int MAPPED_REGION_SIZE = 64 * 1024 * 1024;
+
 
 	//---------------------------------------------------------------------
 	// Reading
@@ -232,6 +242,68 @@ public abstract class DataBufferUtils {
 		return position == 0 ? result : skipUntilByteCount(result, position);
 	}
 
+	/**
+	 * Map the given file {@code Path} into memory and emit its content as a
+	 * {@code Flux} of {@code DataBuffer}s, starting at the given position.
+	 * Instead of copying the file content into allocated buffers, each data
+	 * buffer {@linkplain DataBufferFactory#wrap(ByteBuffer) wraps} a slice of
+	 * a read-only {@link MappedByteBuffer}, sharing the operating system's page
+	 * cache with any other reader of the same file.
+	 * <p>This is meant for large files that do not change while being read:
+	 * a file that gets truncated concurrently may cause the reading thread to
+	 * fail with an {@link InternalError}. Note that mapped memory cannot be
+	 * unmapped explicitly; a mapped region of the file is unmapped once the
+	 * emitted data buffers wrapping it have been released (if applicable)
+	 * and garbage collected. The emitted buffers are read-only.
+	 * @param path the path of the file to map
+	 * @param position the position in the file to start reading from
+	 * @param bufferFactory the factory to wrap mapped slices with
+	 * @param bufferSize the maximum size of the data buffers
+	 * @return a Flux of data buffers wrapping the mapped file content
+	 * @since 5.3.8
+	 */
+	public static Flux<DataBuffer> readMapped(
+			Path path, long position, DataBufferFactory bufferFactory, int bufferSize) {
+
+		Assert.notNull(path, "Path must not be null");
+		Assert.notNull(bufferFactory, "BufferFactory must not be null");
+		Assert.isTrue(position >= 0, "'position' must be >= 0");
+		Assert.isTrue(bufferSize > 0, "'bufferSize' must be > 0");
+
+		return Flux.using(() -> FileChannel.open(path, StandardOpenOption.READ),
+				channel -> Flux.generate(new MappedFileGenerator(channel, position, bufferFactory, bufferSize)),
+				DataBufferUtils::closeChannel);
+
+		// No doOnDiscard as operators used do not cache
+	}
+
+	/**
+	 * Variant of {@link #read(Resource, long, DataBufferFactory, int)} that
+	 * {@linkplain #readMapped(Path, long, DataBufferFactory, int) maps} the
+	 * resource into memory if it is a file, and otherwise falls back on
+	 * reading it from its {@linkplain Resource#readableChannel() channel}.
+	 * @param resource the resource to read from
+	 * @param position the position to start reading from
+	 * @param bufferFactory the factory to create data buffers with
+	 * @param bufferSize the maximum size of the data buffers
+	 * @return a Flux of data buffers read from the given resource
+	 * @since 5.3.8
+	 */
+	public static Flux<DataBuffer> readMapped(
+			Resource resource, long position, DataBufferFactory bufferFactory, int bufferSize) {
+
+		try {
+			if (resource.isFile()) {
+				return readMapped(resource.getFile().toPath(), position, bufferFactory, bufferSize);
+			}
+		}
+		catch (IOException ignore) {
+			// fallback to resource.readableChannel(), below
+		}
+		Flux<DataBuffer> result = readByteChannel(resource::readableChannel, bufferFactory, bufferSize);
+		return position == 0 ? result : skipUntilByteCount(result, position);
+	}
+
 
 	//---------------------------------------------------------------------
 	// Writing
@@ -568,8 +640,29 @@ public abstract class DataBufferUtils {
 	 * @throws DataBufferLimitException if maxByteCount is exceeded
 	 * @since 5.1.11
 	 */
-	@SuppressWarnings("unchecked")
 	public static Mono<DataBuffer> join(Publisher<? extends DataBuffer> buffers, int maxByteCount) {
+		return join(buffers, maxByteCount, false);
+	}
+
+	/**
+	 * Variant of {@link #join(Publisher, int)} that optionally composes the
+	 * given buffers instead of copying them into a single buffer.
+	 * <p>With {@code compose} set to {@code true}, buffers allocated by a
+	 * {@link DefaultDataBufferFactory} are joined through
+	 * {@link DefaultDataBufferFactory#compose(List)}: the returned buffer is
+	 * then a {@link PooledDataBuffer} that holds on to the given buffers and
+	 * <strong>must</strong> be {@linkplain #release(DataBuffer) released} by
+	 * the caller. Buffers of other factories are joined as usual.
+	 * @param buffers the data buffers that are to be composed
+	 * @param maxByteCount the max number of bytes to buffer, or -1 for unlimited
+	 * @param compose whether to compose the buffers without copying them
+	 * @return a buffer with the aggregated content, possibly an empty Mono if
+	 * the max number of bytes to buffer is exceeded.
+	 * @throws DataBufferLimitException if maxByteCount is exceeded
+	 * @since 5.3.8
+	 */
+	@SuppressWarnings("unchecked")
+	public static Mono<DataBuffer> join(Publisher<? extends DataBuffer> buffers, int maxByteCount, boolean compose) {
 		Assert.notNull(buffers, "'dataBuffers' must not be null");
 
 		if (buffers instanceof Mono) {
@@ -579,10 +672,18 @@ public abstract class DataBufferUtils {
 		return Flux.from(buffers)
 				.collect(() -> new LimitedDataBufferList(maxByteCount), LimitedDataBufferList::add)
 				.filter(list -> !list.isEmpty())
-				.map(list -> list.get(0).factory().join(list))
+				.map(list -> (compose ? composeOrJoin(list) : list.get(0).factory().join(list)))
 				.doOnDiscard(PooledDataBuffer.class, DataBufferUtils::release);
 	}
 
+	private static DataBuffer composeOrJoin(List<DataBuffer> dataBuffers) {
+		DataBufferFactory bufferFactory = dataBuffers.get(0).factory();
+		if (bufferFactory instanceof DefaultDataBufferFactory) {
+			return ((DefaultDataBufferFactory) bufferFactory).compose(dataBuffers);
+		}
+		return bufferFactory.join(dataBuffers);
+	}
+
 	/**
 	 * Return a {@link Matcher} for the given delimiter.
 	 * The matcher can be used to find the delimiters in a stream of data buffers.
@@ -603,7 +704,7 @@ public abstract class DataBufferUtils {
 	 */
 	public static Matcher matcher(byte[]... delimiters) {
 		Assert.isTrue(delimiters.length > 0, "Delimiters must not be empty");
-		return (delimiters.length == 1 ? createMatcher(delimiters[0]) : new CompositeMatcher(delimiters));
+		return (delimiters.length == 1 ? createMatcher(delimiters[0]) : new MultiDelimiterMatcher(delimiters));
 	}
 
 	private static NestedMatcher createMatcher(byte[] delimiter) {
@@ -647,68 +748,216 @@ public abstract class DataBufferUtils {
 
 
 	/**
-	 * Matcher that supports searching for multiple delimiters.
+	 * Matcher that searches for multiple delimiters in a single pass. The data
+	 * is scanned for the last byte of any delimiter eight bytes at a time (SWAR),
+	 * comparing the preceding bytes of the candidate delimiters only on a hit.
+	 * Bytes consumed by previous invocations are kept as far as needed, so that
+	 * delimiters spanning several data buffers are found as well.
 	 */
-	private static class CompositeMatcher implements Matcher {
+	private static class MultiDelimiterMatcher implements Matcher {
 
-		private static final byte[] NO_DELIMITER = new byte[0];
+		private static final long LOW_BITS = 0x7F7F7F7F7F7F7F7FL;
 
 
-		private final NestedMatcher[] matchers;
+		/** Distinct last bytes of the delimiters. */
+		private final byte[] lastBytes;
 
-		byte[] longestDelimiter = NO_DELIMITER;
+		/** The last bytes, each repeated across a {@code long}. */
+		private final long[] lastBytePatterns;
 
-		CompositeMatcher(byte[][] delimiters) {
-			this.matchers = initMatchers(delimiters);
-		}
+		/** The delimiters per last byte, longest first. */
+		private final byte[][][] delimiters;
+
+		/** Bytes consumed since the last match, up to the longest delimiter length - 1. */
+		private final byte[] history;
+
+		private int historyLength;
+
+		@Nullable
+		private byte[] matchedDelimiter;
 
-		private static NestedMatcher[] initMatchers(byte[][] delimiters) {
-			NestedMatcher[] matchers = new NestedMatcher[delimiters.length];
-			for (int i = 0; i < delimiters.length; i++) {
-				matchers[i] = createMatcher(delimiters[i]);
+		@Nullable
+		private DataBuffer viewBuffer;
+
+		@Nullable
+		private ByteBuffer view;
+
+		private int viewOffset;
+
+		MultiDelimiterMatcher(byte[][] delimiters) {
+			Map<Byte, List<byte[]>> delimitersByLastByte = new LinkedHashMap<>();
+			int maxLength = 0;
+			for (byte[] delimiter : delimiters) {
+				Assert.isTrue(delimiter.length > 0, "Delimiter must not be empty");
+				delimitersByLastByte.computeIfAbsent(delimiter[delimiter.length - 1], b -> new ArrayList<>())
+						.add(delimiter);
+				maxLength = Math.max(maxLength, delimiter.length);
+			}
+			this.lastBytes = new byte[delimitersByLastByte.size()];
+			this.lastBytePatterns = new long[this.lastBytes.length];
+			this.delimiters = new byte[this.lastBytes.length][][];
+			int i = 0;
+			for (Map.Entry<Byte, List<byte[]>> entry : delimitersByLastByte.entrySet()) {
+				List<byte[]> candidates = entry.getValue();
+				candidates.sort((d1, d2) -> Integer.compare(d2.length, d1.length));
+				this.lastBytes[i] = entry.getKey();
+				this.lastBytePatterns[i] = (entry.getKey() & 0xFFL) * 0x0101010101010101L;
+				this.delimiters[i] = candidates.toArray(new byte[0][]);
+				i++;
 			}
-			return matchers;
+			this.history = new byte[maxLength - 1];
 		}
 
 		@Override
 		public int match(DataBuffer dataBuffer) {
-			this.longestDelimiter = NO_DELIMITER;
+			int start = dataBuffer.readPosition();
+			int end = dataBuffer.writePosition();
+			ByteBuffer view = getView(dataBuffer, start, end);
+			int offset = this.viewOffset;
+			int from = start - offset;
+			int limit = end - offset;
+			for (int index = from; index < limit; ) {
+				int candidate = indexOfLastByte(view, index, limit);
+				if (candidate == -1) {
+					break;
+				}
+				byte[] delimiter = matchDelimiter(view, candidate, from);
+				if (delimiter != null) {
+					this.matchedDelimiter = delimiter;
+					this.historyLength = 0;
+					return offset + candidate;
+				}
+				index = candidate + 1;
+			}
+			updateHistory(view, from, limit);
+			this.viewBuffer = null;
+			this.view = null;
+			return -1;
+		}
 
-			for (int pos = dataBuffer.readPosition(); pos < dataBuffer.writePosition(); pos++) {
-				byte b = dataBuffer.getByte(pos);
+		/**
+		 * Return a view of the given buffer up to its write position, reusing
+		 * the previous view while the same buffer is being consumed.
+		 */
+		private ByteBuffer getView(DataBuffer dataBuffer, int start, int end) {
+			ByteBuffer view = this.view;
+			if (view == null || dataBuffer != this.viewBuffer ||
+					start < this.viewOffset || end != this.viewOffset + view.limit()) {
+				view = dataBuffer.asByteBuffer(start, end - start).order(ByteOrder.LITTLE_ENDIAN);
+				this.viewBuffer = dataBuffer;
+				this.view = view;
+				this.viewOffset = start;
+			}
+			return view;
+		}
 
-				for (NestedMatcher matcher : this.matchers) {
-					if (matcher.match(b) && matcher.delimiter().length > this.longestDelimiter.length) {
-						this.longestDelimiter = matcher.delimiter();
+		private int indexOfLastByte(ByteBuffer view, int from, int limit) {
+			int index = from;
+			for (; index <= limit - Long.BYTES; index += Long.BYTES) {
+				long word = view.getLong(index);
+				long matches = 0;
+				for (long pattern : this.lastBytePatterns) {
+					matches |= zeroBytes(word ^ pattern);
+				}
+				if (matches != 0) {
+					return index + (Long.numberOfTrailingZeros(matches) >>> 3);
+				}
+			}
+			for (; index < limit; index++) {
+				byte b = view.get(index);
+				for (byte lastByte : this.lastBytes) {
+					if (b == lastByte) {
+						return index;
 					}
 				}
+			}
+			return -1;
+		}
 
-				if (this.longestDelimiter != NO_DELIMITER) {
-					reset();
-					return pos;
+		/**
+		 * Return a word with the high bit set in each byte that is zero in the
+		 * given word, and in no other byte.
+		 */
+		private static long zeroBytes(long word) {
+			long sum = (word & LOW_BITS) + LOW_BITS;
+			return ~(sum | word | LOW_BITS);
+		}
+
+		/**
+		 * Return the longest delimiter ending at the given index, if any.
+		 */
+		@Nullable
+		private byte[] matchDelimiter(ByteBuffer view, int index, int from) {
+			byte b = view.get(index);
+			for (int i = 0; i < this.lastBytes.length; i++) {
+				if (this.lastBytes[i] == b) {
+					for (byte[] delimiter : this.delimiters[i]) {
+						if (endsWith(view, index, from, delimiter)) {
+							return delimiter;
+						}
+					}
+					return null;
 				}
 			}
-			return -1;
+			return null;
+		}
+
+		private boolean endsWith(ByteBuffer view, int index, int from, byte[] delimiter) {
+			for (int i = delimiter.length - 2, pos = index - 1; i >= 0; i--, pos--) {
+				byte b;
+				if (pos >= from) {
+					b = view.get(pos);
+				}
+				else {
+					int historyIndex = this.historyLength - (from - pos);
+					if (historyIndex < 0) {
+						return false;
+					}
+					b = this.history[historyIndex];
+				}
+				if (b != delimiter[i]) {
+					return false;
+				}
+			}
+			return true;
+		}
+
+		private void updateHistory(ByteBuffer view, int from, int limit) {
+			int capacity = this.history.length;
+			int consumed = limit - from;
+			if (consumed >= capacity) {
+				for (int i = 0; i < capacity; i++) {
+					this.history[i] = view.get(limit - capacity + i);
+				}
+				this.historyLength = capacity;
+			}
+			else {
+				int kept = Math.min(this.historyLength, capacity - consumed);
+				System.arraycopy(this.history, this.historyLength - kept, this.history, 0, kept);
+				for (int i = 0; i < consumed; i++) {
+					this.history[kept + i] = view.get(from + i);
+				}
+				this.historyLength = kept + consumed;
+			}
 		}
 
 		@Override
 		public byte[] delimiter() {
-			Assert.state(this.longestDelimiter != NO_DELIMITER, "Illegal state!");
-			return this.longestDelimiter;
+			Assert.state(this.matchedDelimiter != null, "Illegal state!");
+			return this.matchedDelimiter;
 		}
 
 		@Override
 		public void reset() {
-			for (NestedMatcher matcher : this.matchers) {
-				matcher.reset();
-			}
+			this.historyLength = 0;
+			this.viewBuffer = null;
+			this.view = null;
 		}
 	}
 
 
 	/**
-	 * Matcher that can be nested within {@link CompositeMatcher} where multiple
-	 * matchers advance together using the same index, one byte at a time.
+	 * Matcher for a single delimiter that can also be advanced one byte at a time.
 	 */
 	private interface NestedMatcher extends Matcher {
 
@@ -913,6 +1162,57 @@ public abstract class DataBufferUtils {
 	}
 
 
+	private static class MappedFileGenerator implements Consumer<SynchronousSink<DataBuffer>> {
+
+		private final FileChannel channel;
+
+		private final DataBufferFactory dataBufferFactory;
+
+		private final int bufferSize;
+
+		private long position;
+
+		@Nullable
+		private MappedByteBuffer region;
+
+		public MappedFileGenerator(
+				FileChannel channel, long position, DataBufferFactory dataBufferFactory, int bufferSize) {
+
+			this.channel = channel;
+			this.position = position;
+			this.dataBufferFactory = dataBufferFactory;
+			this.bufferSize = bufferSize;
+		}
+
+		@Override
+		public void accept(SynchronousSink<DataBuffer> sink) {
+			try {
+				MappedByteBuffer region = this.region;
+				if (region == null || !region.hasRemaining()) {
+					long remaining = this.channel.size() - this.position;
+					if (remaining <= 0) {
+						sink.complete();
+						return;
+					}
+					// Map in bounded regions, each released independently once unreferenced
+					long size = Math.min(remaining, Math.max(MAPPED_REGION_SIZE, this.bufferSize));
+					region = this.channel.map(FileChannel.MapMode.READ_ONLY, this.position, size);
+					this.region = region;
+					this.position += size;
+				}
+				ByteBuffer slice = region.slice();
+				int length = Math.min(slice.remaining(), this.bufferSize);
+				slice.limit(length);
+				region.position(region.position() + length);
+				sink.next(this.dataBufferFactory.wrap(slice));
+			}
+			catch (IOException ex) {
+				sink.error(ex);
+			}
+		}
+	}
+
+
 	private static class ReadCompletionHandler implements CompletionHandler<Integer, DataBuffer> {
 
 		private final AsynchronousFileChannel channel;
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2020 the original author or authors.
+ * Copyright 2002-2021 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -111,6 +111,7 @@ public class DefaultDataBufferFactory implements DataBufferFactory {
 	 * {@inheritDoc}
 	 * <p>This implementation creates a single {@link DefaultDataBuffer}
 	 * to contain the data in {@code dataBuffers}.
+	 * @see #compose(List)
 	 */
 	@Override
 	public DefaultDataBuffer join(List<? extends DataBuffer> dataBuffers) {
@@ -122,6 +123,27 @@ public class DefaultDataBufferFactory implements DataBufferFactory {
 		return result;
 	}
 
+	/**
+	 * Compose the given data buffers into a single composite buffer that
+	 * presents their readable bytes without copying them, as an alternative
+	 * to {@link #join(List)} for large amounts of data. Joining is thereby
+	 * proportional to the number of buffers rather than to their size.
+	 * <p>Note that the given data buffers do <strong>not</strong> have to be
+	 * released. They will be released as part of the returned composite,
+	 * which is a {@link PooledDataBuffer} for that purpose.
+	 * @param dataBuffers the data buffers to compose
+	 * @return the composite buffer, or the given buffer if there is only one
+	 * @since 5.3.8
+	 * @see DataBufferUtils#join(org.reactivestreams.Publisher, int, boolean)
+	 */
+	public DataBuffer compose(List<? extends DataBuffer> dataBuffers) {
+		Assert.notEmpty(dataBuffers, "DataBuffer List must not be empty");
+		if (dataBuffers.size() == 1) {
+			return dataBuffers.get(0);
+		}
+		return new CompositeDataBuffer(this, dataBuffers);
+	}
+
 
 	@Override
 	public String toString() {
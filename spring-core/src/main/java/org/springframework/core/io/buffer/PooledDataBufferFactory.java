@@ -0,0 +1,599 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.core.io.buffer;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.lang.Nullable;
+import org.springframework.util.Assert;
+
+/**
+ * {@link DefaultDataBufferFactory} that allocates {@link PooledDataBuffer}
+ * instances backed by recycled {@link ByteBuffer ByteBuffers}, for use on
+ * runtimes without Netty, e.g. via {@code setDataBufferFactory} on the
+ * {@code ServletHttpHandlerAdapter} or {@code UndertowHttpHandlerAdapter}.
+ *
+ * <p>Buffer capacities up to the {@linkplain #getMaxPooledCapacity() maximum
+ * pooled capacity} are rounded up to a power of two (at least 64 bytes), each
+ * such size class being pooled separately: first in a small cache per thread,
+ * then in one of several shared arenas (selected per thread). Larger buffers
+ * as well as {@linkplain #wrap wrapped} buffers are not pooled.
+ *
+ * <p>Allocated buffers start with a reference count of 1, returning their
+ * memory to the pool once {@link DataBufferUtils#release released} to 0.
+ * As with Netty buffers, {@linkplain DataBuffer#slice slices} share the
+ * reference count of their parent buffer. Slices and {@linkplain DataBuffer#asByteBuffer
+ * byte buffer views} keep referring to the memory of the parent buffer at the
+ * time of their creation: if the parent buffer changes its capacity afterwards,
+ * that memory is only returned to the pool once the parent buffer is released,
+ * rather than right away. Buffers that are never released are
+ * simply garbage collected; however, buffers must not be used after their
+ * release since their memory may be handed out again. The number of
+ * {@linkplain #getOutstandingBufferCount() outstanding buffers} may be used
+ * for detecting such leaks.
+ *
+ * <p>A factory that is no longer needed should be {@linkplain #dispose() disposed},
+ * dropping the pooled memory of all arenas and per-thread caches.
+ *
+ * @author Lars Hofmann
+ * @since 5.3.8
+ * @see PooledDataBuffer
+ */
+public class PooledDataBufferFactory extends DefaultDataBufferFactory {
+
+	/**
+	 * The default maximum capacity of pooled buffers: 64 KB.
+	 */
+	public static final int DEFAULT_MAX_POOLED_CAPACITY = 64 * 1024;
+
+	private static final int MIN_POOLED_CAPACITY_SHIFT = 6;
+
+	private static final int MAX_THREAD_CACHED_CAPACITY = 8 * 1024;
+
+	private static final int THREAD_CACHE_BYTES_PER_SIZE_CLASS = 16 * 1024;
+
+	private static final int ARENA_BYTES_PER_SIZE_CLASS = 256 * 1024;
+
+	private static final int ARENA_COUNT = Math.min(8, Runtime.getRuntime().availableProcessors());
+
+
+	private final boolean preferDirect;
+
+	private final int maxPooledCapacity;
+
+	private final Arena[] arenas;
+
+	private final ThreadLocal<ThreadCache> threadCache = ThreadLocal.withInitial(this::createThreadCache);
+
+	private final Set<ThreadCache> threadCaches = Collections.synchronizedSet(Collections.newSetFromMap(new WeakHashMap<>()));
+
+	private final AtomicLong outstandingBuffers = new AtomicLong();
+
+	private volatile boolean disposed;
+
+
+	/**
+	 * Create a new {@code PooledDataBufferFactory} with default settings,
+	 * allocating heap buffers.
+	 */
+	public PooledDataBufferFactory() {
+		this(false);
+	}
+
+	/**
+	 * Create a new {@code PooledDataBufferFactory}, indicating whether direct
+	 * buffers should be allocated.
+	 * @param preferDirect {@code true} if direct buffers are to be preferred;
+	 * {@code false} otherwise
+	 */
+	public PooledDataBufferFactory(boolean preferDirect) {
+		this(preferDirect, DEFAULT_INITIAL_CAPACITY, DEFAULT_MAX_POOLED_CAPACITY);
+	}
+
+	/**
+	 * Create a new {@code PooledDataBufferFactory}, indicating whether direct
+	 * buffers should be allocated, what the capacity is to be used for
+	 * {@link #allocateBuffer()}, and up to which capacity buffers are pooled.
+	 * @param preferDirect {@code true} if direct buffers are to be preferred;
+	 * {@code false} otherwise
+	 * @param defaultInitialCapacity the capacity for {@link #allocateBuffer()}
+	 * @param maxPooledCapacity the maximum capacity of pooled buffers
+	 * (rounded up to a power of two)
+	 */
+	public PooledDataBufferFactory(boolean preferDirect, int defaultInitialCapacity, int maxPooledCapacity) {
+		super(preferDirect, defaultInitialCapacity);
+		Assert.isTrue(maxPooledCapacity > 0 && maxPooledCapacity <= (1 << 30),
+				"'maxPooledCapacity' must be between 1 and 2^30");
+		this.preferDirect = preferDirect;
+		this.maxPooledCapacity = 1 << Math.max(sizeClassShift(maxPooledCapacity), MIN_POOLED_CAPACITY_SHIFT);
+		int sizeClassCount = sizeClass(this.maxPooledCapacity) + 1;
+		this.arenas = new Arena[ARENA_COUNT];
+		for (int i = 0; i < this.arenas.length; i++) {
+			this.arenas[i] = new Arena(sizeClassCount);
+		}
+	}
+
+
+	/**
+	 * Return the maximum capacity of pooled buffers.
+	 */
+	public int getMaxPooledCapacity() {
+		return this.maxPooledCapacity;
+	}
+
+	/**
+	 * Return the number of pooled buffers allocated by this factory that have
+	 * not been released yet, e.g. for leak detection in tests.
+	 * @see DataBufferUtils#release
+	 */
+	public long getOutstandingBufferCount() {
+		return this.outstandingBuffers.get();
+	}
+
+	/**
+	 * Drop all pooled memory, in the shared arenas as well as in the per-thread
+	 * caches of all threads. From then on, buffers are not pooled anymore:
+	 * outstanding buffers may still be used and released, but their memory
+	 * is not recycled.
+	 */
+	public void dispose() {
+		this.disposed = true;
+		for (Arena arena : this.arenas) {
+			arena.clear();
+		}
+		synchronized (this.threadCaches) {
+			for (ThreadCache cache : this.threadCaches) {
+				cache.clear();
+			}
+			this.threadCaches.clear();
+		}
+		this.threadCache.remove();
+	}
+
+	/**
+	 * Return whether this factory has been {@linkplain #dispose() disposed}.
+	 */
+	public boolean isDisposed() {
+		return this.disposed;
+	}
+
+	@Override
+	public DefaultDataBuffer allocateBuffer(int initialCapacity) {
+		ByteBuffer chunk = obtainChunk(initialCapacity, this.preferDirect);
+		if (chunk == null) {
+			return super.allocateBuffer(initialCapacity);
+		}
+		this.outstandingBuffers.incrementAndGet();
+		return new PooledByteBufferDataBuffer(this, chunk, initialCapacity);
+	}
+
+	/**
+	 * Obtain a pooled chunk for the given capacity, or {@code null} if
+	 * buffers of that capacity are not pooled.
+	 */
+	@Nullable
+	ByteBuffer obtainChunk(int capacity, boolean direct) {
+		if (capacity <= 0 || capacity > this.maxPooledCapacity || direct != this.preferDirect || this.disposed) {
+			return null;
+		}
+		int sizeClass = sizeClass(capacity);
+		ByteBuffer chunk = null;
+		if (capacity <= MAX_THREAD_CACHED_CAPACITY) {
+			chunk = this.threadCache.get().poll(sizeClass);
+		}
+		if (chunk == null) {
+			chunk = currentArena().poll(sizeClass);
+		}
+		if (chunk == null) {
+			int chunkCapacity = 1 << (sizeClass + MIN_POOLED_CAPACITY_SHIFT);
+			chunk = (direct ? ByteBuffer.allocateDirect(chunkCapacity) : ByteBuffer.allocate(chunkCapacity));
+		}
+		return chunk;
+	}
+
+	/**
+	 * Return the given chunk to the pool, dropping it if the pool is full.
+	 */
+	void recycleChunk(ByteBuffer chunk) {
+		if (this.disposed) {
+			return;
+		}
+		int sizeClass = sizeClass(chunk.capacity());
+		if (chunk.capacity() <= MAX_THREAD_CACHED_CAPACITY && this.threadCache.get().offer(sizeClass, chunk)) {
+			return;
+		}
+		currentArena().offer(sizeClass, chunk);
+	}
+
+	/**
+	 * Callback from a pooled buffer that got released to a reference count of 0.
+	 */
+	void bufferReleased() {
+		this.outstandingBuffers.decrementAndGet();
+	}
+
+	private ThreadCache createThreadCache() {
+		ThreadCache cache = new ThreadCache();
+		this.threadCaches.add(cache);
+		return cache;
+	}
+
+	private Arena currentArena() {
+		return this.arenas[(int) (Thread.currentThread().getId() % this.arenas.length)];
+	}
+
+	@Override
+	public String toString() {
+		return "PooledDataBufferFactory (preferDirect=" + this.preferDirect +
+				", maxPooledCapacity=" + this.maxPooledCapacity + ")";
+	}
+
+
+	private static int sizeClass(int capacity) {
+		return Math.max(sizeClassShift(capacity) - MIN_POOLED_CAPACITY_SHIFT, 0);
+	}
+
+	private static int sizeClassShift(int capacity) {
+		return 32 - Integer.numberOfLeadingZeros(capacity - 1);
+	}
+
+	private static int maxEntries(int sizeClass, int budget, int min) {
+		return Math.max(min, budget >>> (sizeClass + MIN_POOLED_CAPACITY_SHIFT));
+	}
+
+	private static ByteBuffer view(ByteBuffer chunk, int capacity) {
+		ByteBuffer view = chunk.duplicate();
+		view.clear().limit(capacity);
+		return view.slice();
+	}
+
+
+	/**
+	 * {@link InputStream} that releases the underlying buffer when closed.
+	 */
+	private static final class ReleasingInputStream extends FilterInputStream {
+
+		private final PooledDataBuffer dataBuffer;
+
+		private boolean closed;
+
+		ReleasingInputStream(InputStream inputStream, PooledDataBuffer dataBuffer) {
+			super(inputStream);
+			this.dataBuffer = dataBuffer;
+		}
+
+		@Override
+		public void close() throws IOException {
+			if (!this.closed) {
+				this.closed = true;
+				DataBufferUtils.release(this.dataBuffer);
+			}
+		}
+	}
+
+
+	/**
+	 * Bounded stack of chunks per size class, without synchronization.
+	 */
+	private static class ChunkStacks {
+
+		private final ByteBuffer[][] stacks;
+
+		private final int[] sizes;
+
+		ChunkStacks(int sizeClassCount, int budget, int min) {
+			this.stacks = new ByteBuffer[sizeClassCount][];
+			for (int i = 0; i < sizeClassCount; i++) {
+				this.stacks[i] = new ByteBuffer[maxEntries(i, budget, min)];
+			}
+			this.sizes = new int[sizeClassCount];
+		}
+
+		@Nullable
+		ByteBuffer poll(int sizeClass) {
+			int size = this.sizes[sizeClass];
+			if (size == 0) {
+				return null;
+			}
+			ByteBuffer[] stack = this.stacks[sizeClass];
+			ByteBuffer chunk = stack[--size];
+			stack[size] = null;
+			this.sizes[sizeClass] = size;
+			return chunk;
+		}
+
+		boolean offer(int sizeClass, ByteBuffer chunk) {
+			int size = this.sizes[sizeClass];
+			ByteBuffer[] stack = this.stacks[sizeClass];
+			if (size == stack.length) {
+				return false;
+			}
+			stack[size] = chunk;
+			this.sizes[sizeClass] = size + 1;
+			return true;
+		}
+
+		void clear() {
+			for (ByteBuffer[] stack : this.stacks) {
+				Arrays.fill(stack, null);
+			}
+			Arrays.fill(this.sizes, 0);
+		}
+	}
+
+
+	/**
+	 * Shared pool of chunks, used by a subset of threads.
+	 */
+	private static final class Arena extends ChunkStacks {
+
+		Arena(int sizeClassCount) {
+			super(sizeClassCount, ARENA_BYTES_PER_SIZE_CLASS, 4);
+		}
+
+		@Override
+		@Nullable
+		synchronized ByteBuffer poll(int sizeClass) {
+			return super.poll(sizeClass);
+		}
+
+		@Override
+		synchronized boolean offer(int sizeClass, ByteBuffer chunk) {
+			return super.offer(sizeClass, chunk);
+		}
+
+		@Override
+		synchronized void clear() {
+			super.clear();
+		}
+	}
+
+
+	/**
+	 * Per-thread cache of small chunks, taking load off the arenas.
+	 * Synchronized only for {@link #clear()} on disposal of the factory,
+	 * being uncontended otherwise.
+	 */
+	private static final class ThreadCache extends ChunkStacks {
+
+		ThreadCache() {
+			super(sizeClass(MAX_THREAD_CACHED_CAPACITY) + 1, THREAD_CACHE_BYTES_PER_SIZE_CLASS, 2);
+		}
+
+		@Override
+		@Nullable
+		synchronized ByteBuffer poll(int sizeClass) {
+			return super.poll(sizeClass);
+		}
+
+		@Override
+		synchronized boolean offer(int sizeClass, ByteBuffer chunk) {
+			return super.offer(sizeClass, chunk);
+		}
+
+		@Override
+		synchronized void clear() {
+			super.clear();
+		}
+	}
+
+
+	/**
+	 * {@link PooledDataBuffer} variant of {@link DefaultDataBuffer}, backed by
+	 * a pooled chunk as long as its capacity does not exceed the maximum pooled
+	 * capacity.
+	 */
+	private static final class PooledByteBufferDataBuffer extends DefaultDataBuffer implements PooledDataBuffer {
+
+		private static final AtomicIntegerFieldUpdater<PooledByteBufferDataBuffer> REF_COUNT_UPDATER =
+				AtomicIntegerFieldUpdater.newUpdater(PooledByteBufferDataBuffer.class, "refCount");
+
+		private final PooledDataBufferFactory factory;
+
+		@Nullable
+		private ByteBuffer chunk;
+
+		private boolean chunkShared;
+
+		@Nullable
+		private List<ByteBuffer> sharedChunks;
+
+		private volatile int refCount = 1;
+
+		PooledByteBufferDataBuffer(PooledDataBufferFactory factory, ByteBuffer chunk, int capacity) {
+			super(factory, view(chunk, capacity));
+			this.factory = factory;
+			this.chunk = chunk;
+		}
+
+		@Override
+		ByteBuffer allocate(int capacity, boolean direct) {
+			ByteBuffer chunk = this.factory.obtainChunk(capacity, direct);
+			this.chunk = chunk;
+			return (chunk != null ? view(chunk, capacity) : super.allocate(capacity, direct));
+		}
+
+		@Override
+		public DefaultDataBuffer capacity(int newCapacity) {
+			ByteBuffer oldChunk = this.chunk;
+			super.capacity(newCapacity);
+			if (oldChunk != null && oldChunk != this.chunk) {
+				if (this.chunkShared) {
+					// Still referenced by slices or views: keep it until the buffer is released.
+					if (this.sharedChunks == null) {
+						this.sharedChunks = new ArrayList<>(1);
+					}
+					this.sharedChunks.add(oldChunk);
+					this.chunkShared = false;
+				}
+				else {
+					this.factory.recycleChunk(oldChunk);
+				}
+			}
+			return this;
+		}
+
+		@Override
+		public DefaultDataBuffer slice(int index, int length) {
+			return new PooledSlicedDataBuffer(this, asByteBuffer(index, length), length);
+		}
+
+		@Override
+		public ByteBuffer asByteBuffer(int index, int length) {
+			this.chunkShared = true;
+			return super.asByteBuffer(index, length);
+		}
+
+		@Override
+		public DataBuffer write(CharSequence charSequence, Charset charset) {
+			// Encodes through transient views only, not to be retained beyond this call
+			boolean chunkShared = this.chunkShared;
+			super.write(charSequence, charset);
+			this.chunkShared = chunkShared;
+			return this;
+		}
+
+		@Override
+		public InputStream asInputStream(boolean releaseOnClose) {
+			InputStream inputStream = asInputStream();
+			return (releaseOnClose ? new ReleasingInputStream(inputStream, this) : inputStream);
+		}
+
+		@Override
+		public boolean isAllocated() {
+			return (this.refCount > 0);
+		}
+
+		@Override
+		public PooledDataBuffer retain() {
+			int refCount;
+			do {
+				refCount = this.refCount;
+				if (refCount <= 0) {
+					throw new IllegalStateException("Cannot retain released buffer: " + this);
+				}
+			}
+			while (!REF_COUNT_UPDATER.compareAndSet(this, refCount, refCount + 1));
+			return this;
+		}
+
+		@Override
+		public PooledDataBuffer touch(Object hint) {
+			return this;
+		}
+
+		@Override
+		public boolean release() {
+			int refCount;
+			do {
+				refCount = this.refCount;
+				if (refCount <= 0) {
+					throw new IllegalStateException("Buffer already released: " + this);
+				}
+			}
+			while (!REF_COUNT_UPDATER.compareAndSet(this, refCount, refCount - 1));
+			if (refCount > 1) {
+				return false;
+			}
+			ByteBuffer chunk = this.chunk;
+			this.chunk = null;
+			if (chunk != null) {
+				this.factory.recycleChunk(chunk);
+			}
+			List<ByteBuffer> sharedChunks = this.sharedChunks;
+			this.sharedChunks = null;
+			if (sharedChunks != null) {
+				for (ByteBuffer sharedChunk : sharedChunks) {
+					this.factory.recycleChunk(sharedChunk);
+				}
+			}
+			this.factory.bufferReleased();
+			return true;
+		}
+
+		@Override
+		public String toString() {
+			return String.format("PooledDataBuffer (r: %d, w: %d, c: %d, refCount: %d)",
+					readPosition(), writePosition(), capacity(), this.refCount);
+		}
+	}
+
+
+	/**
+	 * Slice of a {@link PooledByteBufferDataBuffer}, sharing its reference count.
+	 */
+	private static final class PooledSlicedDataBuffer extends DefaultDataBuffer implements PooledDataBuffer {
+
+		private final PooledByteBufferDataBuffer parent;
+
+		PooledSlicedDataBuffer(PooledByteBufferDataBuffer parent, ByteBuffer byteBuffer, int length) {
+			super(parent.factory, byteBuffer);
+			this.parent = parent;
+			writePosition(length);
+		}
+
+		@Override
+		public DefaultDataBuffer capacity(int newCapacity) {
+			throw new UnsupportedOperationException("Changing the capacity of a sliced buffer is not supported");
+		}
+
+		@Override
+		public DefaultDataBuffer slice(int index, int length) {
+			return new PooledSlicedDataBuffer(this.parent, asByteBuffer(index, length), length);
+		}
+
+		@Override
+		public InputStream asInputStream(boolean releaseOnClose) {
+			InputStream inputStream = asInputStream();
+			return (releaseOnClose ? new ReleasingInputStream(inputStream, this) : inputStream);
+		}
+
+		@Override
+		public boolean isAllocated() {
+			return this.parent.isAllocated();
+		}
+
+		@Override
+		public PooledDataBuffer retain() {
+			this.parent.retain();
+			return this;
+		}
+
+		@Override
+		public PooledDataBuffer touch(Object hint) {
+			return this;
+		}
+
+		@Override
+		public boolean release() {
+			return this.parent.release();
+		}
+	}
+
+}
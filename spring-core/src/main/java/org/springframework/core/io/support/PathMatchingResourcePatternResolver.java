@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2020 the original author or authors.
+ * Copyright 2002-2021 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -19,6 +19,7 @@ package org.springframework.core.io.support;
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.lang.reflect.InvocationHandler;
 import java.lang.reflect.Method;
 import java.net.JarURLConnection;
@@ -27,19 +28,27 @@ import java.net.URISyntaxException;
 import java.net.URL;
 import java.net.URLClassLoader;
 import java.net.URLConnection;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.Enumeration;
 import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
 import java.util.jar.JarEntry;
 import java.util.jar.JarFile;
+import java.util.stream.Collectors;
 import java.util.zip.ZipException;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 
+import org.springframework.core.SpringProperties;
 import org.springframework.core.io.DefaultResourceLoader;
 import org.springframework.core.io.FileSystemResource;
 import org.springframework.core.io.Resource;
@@ -138,6 +147,15 @@ import org.springframework.util.StringUtils;
  * and then off each resource the same PathMatcher resolution strategy described
  * above is used for the wildcard subpath.
  *
+ * <p><b>Parallel resolution:</b>
+ *
+ * <p>If a {@link #setForkJoinPool ForkJoinPool} has been specified (or the
+ * "spring.scanning.parallel" system property has been set to "true"), the root
+ * directories of a pattern are searched concurrently, with directory trees being
+ * split per subdirectory and the entries of large jar files being split across
+ * the pool as well. The order of the returned resources is the same as for
+ * sequential resolution.
+ *
  * <p><b>Other notes:</b>
  *
  * <p><b>WARNING:</b> Note that "{@code classpath*:}" when combined with
@@ -174,6 +192,7 @@ import org.springframework.util.StringUtils;
  * @author Marius Bogoevici
  * @author Costin Leau
  * @author Phillip Webb
+ * @author Lars Hofmann
  * @since 1.0.2
  * @see #CLASSPATH_ALL_URL_PREFIX
  * @see org.springframework.util.AntPathMatcher
@@ -182,6 +201,22 @@ import org.springframework.util.StringUtils;
  */
 public class PathMatchingResourcePatternResolver implements ResourcePatternResolver {
 
+	/**
+	 * System property that instructs Spring to resolve resource patterns and
+	 * to scan for candidate components in parallel, using the common
+	 * {@link ForkJoinPool}: {@code "spring.scanning.parallel"}.
+	 * <p>The default is "false", resolving resource patterns sequentially
+	 * unless a {@link #setForkJoinPool ForkJoinPool} has been specified.
+	 * @since 5.3.8
+	 */
+	public static final String PARALLEL_SCANNING_PROPERTY_NAME = "spring.scanning.parallel";
+
+	/**
+	 * Minimum number of jar entries for splitting the matching of a
+	 * jar file across the fork-join pool.
+	 */
+	private static final int PARALLEL_JAR_ENTRY_THRESHOLD = 1024;
+
 	private static final Log logger = LogFactory.getLog(PathMatchingResourcePatternResolver.class);
 
 	@Nullable
@@ -205,6 +240,10 @@ public class PathMatchingResourcePatternResolver implements ResourcePatternResol
 
 	private PathMatcher pathMatcher = new AntPathMatcher();
 
+	@Nullable
+	private ForkJoinPool forkJoinPool =
+			(SpringProperties.getFlag(PARALLEL_SCANNING_PROPERTY_NAME) ? ForkJoinPool.commonPool() : null);
+
 
 	/**
 	 * Create a new PathMatchingResourcePatternResolver with a DefaultResourceLoader.
@@ -268,6 +307,32 @@ public class PathMatchingResourcePatternResolver implements ResourcePatternResol
 		return this.pathMatcher;
 	}
 
+	/**
+	 * Specify a {@link ForkJoinPool} for resolving resource patterns in parallel:
+	 * searching root directories concurrently and splitting directory trees as
+	 * well as large jar files into fork-join tasks.
+	 * <p>Default is none, resolving resource patterns on the calling thread,
+	 * unless the {@link #PARALLEL_SCANNING_PROPERTY_NAME "spring.scanning.parallel"}
+	 * property is set, in which case the {@link ForkJoinPool#commonPool() common pool}
+	 * is used. The order of the returned resources is not affected by this setting.
+	 * <p>Note that {@link #doRetrieveMatchingFiles} is not called when traversing
+	 * directory trees in parallel, while {@link #listDirectory} still is.
+	 * @since 5.3.8
+	 */
+	public void setForkJoinPool(@Nullable ForkJoinPool forkJoinPool) {
+		this.forkJoinPool = forkJoinPool;
+	}
+
+	/**
+	 * Return the {@link ForkJoinPool} used for resolving resource patterns
+	 * in parallel, if any.
+	 * @since 5.3.8
+	 */
+	@Nullable
+	public ForkJoinPool getForkJoinPool() {
+		return this.forkJoinPool;
+	}
+
 
 	@Override
 	public Resource getResource(String location) {
@@ -496,24 +561,20 @@ public class PathMatchingResourcePatternResolver implements ResourcePatternResol
 		String subPattern = locationPattern.substring(rootDirPath.length());
 		Resource[] rootDirResources = getResources(rootDirPath);
 		Set<Resource> result = new LinkedHashSet<>(16);
-		for (Resource rootDirResource : rootDirResources) {
-			rootDirResource = resolveRootDirResource(rootDirResource);
-			URL rootDirUrl = rootDirResource.getURL();
-			if (equinoxResolveMethod != null && rootDirUrl.getProtocol().startsWith("bundle")) {
-				URL resolvedUrl = (URL) ReflectionUtils.invokeMethod(equinoxResolveMethod, null, rootDirUrl);
-				if (resolvedUrl != null) {
-					rootDirUrl = resolvedUrl;
-				}
-				rootDirResource = new UrlResource(rootDirUrl);
-			}
-			if (rootDirUrl.getProtocol().startsWith(ResourceUtils.URL_PROTOCOL_VFS)) {
-				result.addAll(VfsResourceMatchingDelegate.findMatchingResources(rootDirUrl, subPattern, getPathMatcher()));
+		ForkJoinPool forkJoinPool = this.forkJoinPool;
+		if (forkJoinPool != null && rootDirResources.length > 1) {
+			List<ForkJoinTask<Set<Resource>>> tasks = new ArrayList<>(rootDirResources.length);
+			for (Resource rootDirResource : rootDirResources) {
+				tasks.add(ForkJoinTask.adapt(() -> findPathMatchingResources(rootDirResource, subPattern)));
 			}
-			else if (ResourceUtils.isJarURL(rootDirUrl) || isJarResource(rootDirResource)) {
-				result.addAll(doFindPathMatchingJarResources(rootDirResource, rootDirUrl, subPattern));
+			invokeAll(forkJoinPool, tasks);
+			for (ForkJoinTask<Set<Resource>> task : tasks) {
+				result.addAll(join(task));
 			}
-			else {
-				result.addAll(doFindPathMatchingFileResources(rootDirResource, subPattern));
+		}
+		else {
+			for (Resource rootDirResource : rootDirResources) {
+				result.addAll(findPathMatchingResources(rootDirResource, subPattern));
 			}
 		}
 		if (logger.isTraceEnabled()) {
@@ -522,6 +583,31 @@ public class PathMatchingResourcePatternResolver implements ResourcePatternResol
 		return result.toArray(new Resource[0]);
 	}
 
+	/**
+	 * Find all resources underneath the given root directory that match the
+	 * given sub pattern, dispatching to the variant for the root directory type.
+	 */
+	private Set<Resource> findPathMatchingResources(Resource rootDirResource, String subPattern) throws IOException {
+		rootDirResource = resolveRootDirResource(rootDirResource);
+		URL rootDirUrl = rootDirResource.getURL();
+		if (equinoxResolveMethod != null && rootDirUrl.getProtocol().startsWith("bundle")) {
+			URL resolvedUrl = (URL) ReflectionUtils.invokeMethod(equinoxResolveMethod, null, rootDirUrl);
+			if (resolvedUrl != null) {
+				rootDirUrl = resolvedUrl;
+			}
+			rootDirResource = new UrlResource(rootDirUrl);
+		}
+		if (rootDirUrl.getProtocol().startsWith(ResourceUtils.URL_PROTOCOL_VFS)) {
+			return VfsResourceMatchingDelegate.findMatchingResources(rootDirUrl, subPattern, getPathMatcher());
+		}
+		else if (ResourceUtils.isJarURL(rootDirUrl) || isJarResource(rootDirResource)) {
+			return doFindPathMatchingJarResources(rootDirResource, rootDirUrl, subPattern);
+		}
+		else {
+			return doFindPathMatchingFileResources(rootDirResource, subPattern);
+		}
+	}
+
 	/**
 	 * Determine the root directory for the given location.
 	 * <p>Used for determining the starting point for file matching,
@@ -647,15 +733,21 @@ public class PathMatchingResourcePatternResolver implements ResourcePatternResol
 				// The Sun JRE does not return a slash here, but BEA JRockit does.
 				rootEntryPath = rootEntryPath + "/";
 			}
+			ForkJoinPool forkJoinPool = this.forkJoinPool;
+			if (forkJoinPool != null && jarFile.size() >= PARALLEL_JAR_ENTRY_THRESHOLD) {
+				String entryPathPrefix = rootEntryPath;
+				List<JarEntry> entries = Collections.list(jarFile.entries());
+				return invoke(forkJoinPool, ForkJoinTask.adapt(() -> entries.parallelStream()
+						.map(entry -> findMatchingJarResource(rootDirResource, entry, entryPathPrefix, subPattern))
+						.filter(Objects::nonNull)
+						.collect(Collectors.toCollection(LinkedHashSet::new))));
+			}
 			Set<Resource> result = new LinkedHashSet<>(8);
 			for (Enumeration<JarEntry> entries = jarFile.entries(); entries.hasMoreElements();) {
 				JarEntry entry = entries.nextElement();
-				String entryPath = entry.getName();
-				if (entryPath.startsWith(rootEntryPath)) {
-					String relativePath = entryPath.substring(rootEntryPath.length());
-					if (getPathMatcher().match(subPattern, relativePath)) {
-						result.add(rootDirResource.createRelative(relativePath));
-					}
+				Resource resource = findMatchingJarResource(rootDirResource, entry, rootEntryPath, subPattern);
+				if (resource != null) {
+					result.add(resource);
 				}
 			}
 			return result;
@@ -667,6 +759,28 @@ public class PathMatchingResourcePatternResolver implements ResourcePatternResol
 		}
 	}
 
+	/**
+	 * Return a resource for the given jar entry if it matches the given sub pattern.
+	 */
+	@Nullable
+	private Resource findMatchingJarResource(Resource rootDirResource, JarEntry entry, String rootEntryPath,
+			String subPattern) {
+
+		String entryPath = entry.getName();
+		if (entryPath.startsWith(rootEntryPath)) {
+			String relativePath = entryPath.substring(rootEntryPath.length());
+			if (getPathMatcher().match(subPattern, relativePath)) {
+				try {
+					return rootDirResource.createRelative(relativePath);
+				}
+				catch (IOException ex) {
+					throw new UncheckedIOException(ex);
+				}
+			}
+		}
+		return null;
+	}
+
 	/**
 	 * Resolve the given jar file URL into a JarFile object.
 	 */
@@ -776,6 +890,10 @@ public class PathMatchingResourcePatternResolver implements ResourcePatternResol
 			fullPattern += "/";
 		}
 		fullPattern = fullPattern + StringUtils.replace(pattern, File.separator, "/");
+		ForkJoinPool forkJoinPool = this.forkJoinPool;
+		if (forkJoinPool != null) {
+			return invoke(forkJoinPool, new RetrieveMatchingFilesTask(fullPattern, rootDir));
+		}
 		Set<File> result = new LinkedHashSet<>(8);
 		doRetrieveMatchingFiles(fullPattern, rootDir, result);
 		return result;
@@ -833,6 +951,111 @@ public class PathMatchingResourcePatternResolver implements ResourcePatternResol
 		return files;
 	}
 
+	/**
+	 * Run the given task in the given pool, or within the current task
+	 * if already running in that pool.
+	 */
+	private static <T> T invoke(ForkJoinPool forkJoinPool, ForkJoinTask<T> task) throws IOException {
+		if (ForkJoinTask.getPool() == forkJoinPool) {
+			task.fork();
+		}
+		else {
+			forkJoinPool.execute(task);
+		}
+		return join(task);
+	}
+
+	/**
+	 * Run the given tasks in the given pool, without waiting for their completion.
+	 */
+	private static void invokeAll(ForkJoinPool forkJoinPool, List<? extends ForkJoinTask<?>> tasks) {
+		boolean inPool = (ForkJoinTask.getPool() == forkJoinPool);
+		for (ForkJoinTask<?> task : tasks) {
+			if (inPool) {
+				task.fork();
+			}
+			else {
+				forkJoinPool.execute(task);
+			}
+		}
+	}
+
+	/**
+	 * Wait for the given task to complete, rethrowing any {@link IOException}.
+	 */
+	private static <T> T join(ForkJoinTask<T> task) throws IOException {
+		try {
+			return task.join();
+		}
+		catch (RuntimeException ex) {
+			// Possibly wrapped in UncheckedIOException and/or by the fork-join framework
+			Throwable cause = ex.getCause();
+			while (cause != null) {
+				if (cause instanceof IOException) {
+					throw (IOException) cause;
+				}
+				cause = cause.getCause();
+			}
+			throw ex;
+		}
+	}
+
+
+	/**
+	 * Fork-join task for the parallel variant of {@link #doRetrieveMatchingFiles},
+	 * forking a subtask per matching subdirectory and collecting the results in
+	 * the same order as a sequential traversal.
+	 */
+	@SuppressWarnings("serial")
+	private class RetrieveMatchingFilesTask extends RecursiveTask<Set<File>> {
+
+		private final String fullPattern;
+
+		private final File dir;
+
+		RetrieveMatchingFilesTask(String fullPattern, File dir) {
+			this.fullPattern = fullPattern;
+			this.dir = dir;
+		}
+
+		@Override
+		protected Set<File> compute() {
+			if (logger.isTraceEnabled()) {
+				logger.trace("Searching directory [" + this.dir.getAbsolutePath() +
+						"] for files matching pattern [" + this.fullPattern + "]");
+			}
+			// Either matching files or subtasks for subdirectories, in traversal order
+			List<Object> parts = new ArrayList<>();
+			for (File content : listDirectory(this.dir)) {
+				String currPath = StringUtils.replace(content.getAbsolutePath(), File.separator, "/");
+				if (content.isDirectory() && getPathMatcher().matchStart(this.fullPattern, currPath + "/")) {
+					if (!content.canRead()) {
+						if (logger.isDebugEnabled()) {
+							logger.debug("Skipping subdirectory [" + this.dir.getAbsolutePath() +
+									"] because the application is not allowed to read the directory");
+						}
+					}
+					else {
+						parts.add(new RetrieveMatchingFilesTask(this.fullPattern, content).fork());
+					}
+				}
+				if (getPathMatcher().match(this.fullPattern, currPath)) {
+					parts.add(content);
+				}
+			}
+			Set<File> result = new LinkedHashSet<>(8);
+			for (Object part : parts) {
+				if (part instanceof RetrieveMatchingFilesTask) {
+					result.addAll(((RetrieveMatchingFilesTask) part).join());
+				}
+				else {
+					result.add((File) part);
+				}
+			}
+			return result;
+		}
+	}
+
 
 	/**
 	 * Inner delegate class, avoiding a hard JBoss VFS API dependency at runtime.
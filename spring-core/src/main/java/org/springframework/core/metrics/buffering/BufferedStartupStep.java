@@ -0,0 +1,159 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.core.metrics.buffering;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+import org.springframework.core.metrics.StartupStep;
+import org.springframework.lang.Nullable;
+import org.springframework.util.Assert;
+
+/**
+ * {@link StartupStep} implementation for the {@link BufferingApplicationStartup}.
+ *
+ * @author Lars Hofmann
+ * @since 5.3.8
+ */
+class BufferedStartupStep implements StartupStep {
+
+	private final long id;
+
+	private final String name;
+
+	@Nullable
+	private final BufferedStartupStep parent;
+
+	private final long startTime;
+
+	private volatile long endTime;
+
+	private final BufferedTags tags = new BufferedTags();
+
+	private final Consumer<BufferedStartupStep> recordingCallback;
+
+	private volatile boolean ended;
+
+
+	BufferedStartupStep(long id, String name, @Nullable BufferedStartupStep parent,
+			Consumer<BufferedStartupStep> recordingCallback) {
+
+		this.id = id;
+		this.name = name;
+		this.parent = parent;
+		this.recordingCallback = recordingCallback;
+		this.startTime = System.nanoTime();
+	}
+
+
+	@Override
+	public String getName() {
+		return this.name;
+	}
+
+	@Override
+	public long getId() {
+		return this.id;
+	}
+
+	@Override
+	@Nullable
+	public Long getParentId() {
+		return (this.parent != null ? this.parent.getId() : null);
+	}
+
+	@Nullable
+	BufferedStartupStep getParent() {
+		return this.parent;
+	}
+
+	long getStartTime() {
+		return this.startTime;
+	}
+
+	long getEndTime() {
+		return this.endTime;
+	}
+
+	@Override
+	public StartupStep tag(String key, String value) {
+		Assert.state(!this.ended, "StartupStep has already ended");
+		this.tags.add(key, value);
+		return this;
+	}
+
+	@Override
+	public StartupStep tag(String key, Supplier<String> value) {
+		return tag(key, value.get());
+	}
+
+	@Override
+	public Tags getTags() {
+		return this.tags;
+	}
+
+	@Override
+	public void end() {
+		Assert.state(!this.ended, "StartupStep has already ended");
+		this.endTime = System.nanoTime();
+		this.ended = true;
+		this.recordingCallback.accept(this);
+	}
+
+
+	private static class BufferedTags implements Tags {
+
+		private final List<Tag> tags = new ArrayList<>(2);
+
+		void add(String key, String value) {
+			this.tags.add(new BufferedTag(key, value));
+		}
+
+		@Override
+		public Iterator<Tag> iterator() {
+			return Collections.unmodifiableList(this.tags).iterator();
+		}
+	}
+
+
+	private static class BufferedTag implements Tag {
+
+		private final String key;
+
+		private final String value;
+
+		BufferedTag(String key, String value) {
+			this.key = key;
+			this.value = value;
+		}
+
+		@Override
+		public String getKey() {
+			return this.key;
+		}
+
+		@Override
+		public String getValue() {
+			return this.value;
+		}
+	}
+
+}
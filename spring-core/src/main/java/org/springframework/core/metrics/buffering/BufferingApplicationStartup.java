@@ -0,0 +1,188 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.core.metrics.buffering;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Deque;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import org.springframework.core.metrics.ApplicationStartup;
+import org.springframework.core.metrics.StartupStep;
+import org.springframework.lang.Nullable;
+import org.springframework.util.Assert;
+
+/**
+ * {@link ApplicationStartup} implementation that records {@link StartupStep steps}
+ * in memory, for analysis through a {@link StartupReport} without external tooling.
+ *
+ * <p>Ended steps are kept in a ring buffer that is preallocated with the given
+ * capacity: once full, the oldest steps get overwritten. Recording can be
+ * {@link #stopRecording() stopped} at any time, after which this startup falls
+ * back to the no-op steps of {@link ApplicationStartup#DEFAULT}.
+ *
+ * <p>A {@link #setReportFile report file} can be specified for writing the
+ * report as JSON whenever the {@code spring.context.refresh} step of an application
+ * context ends, for tracking startup regressions in CI or production. Steps
+ * after startup, e.g. for prototype beans created at request time, are recorded
+ * as well unless recording gets {@link #stopRecording() stopped}:
+ * <pre class="code">
+ * BufferingApplicationStartup applicationStartup = new BufferingApplicationStartup(10000);
+ * applicationStartup.setReportFile(Paths.get("startup.json"));
+ * context.setApplicationStartup(applicationStartup);
+ * context.refresh();
+ * applicationStartup.stopRecording();
+ * </pre>
+ *
+ * <p>Steps are tracked per thread, as nested within the most recently started
+ * step of the starting thread that has not ended yet, consistent with
+ * {@link StartupStep#getParentId()}. Steps may end in any order and on any thread.
+ *
+ * @author Lars Hofmann
+ * @since 5.3.8
+ * @see StartupReport
+ */
+public class BufferingApplicationStartup implements ApplicationStartup {
+
+	private static final String REFRESH_STEP_NAME = "spring.context.refresh";
+
+	private static final Log logger = LogFactory.getLog(BufferingApplicationStartup.class);
+
+	private final BufferedStartupStep[] buffer;
+
+	private long recordedCount;
+
+	private final AtomicLong idGenerator = new AtomicLong();
+
+	private final ThreadLocal<Deque<BufferedStartupStep>> currentSteps =
+			ThreadLocal.withInitial(ConcurrentLinkedDeque::new);
+
+	private final long startTime = System.nanoTime();
+
+	private volatile boolean recording = true;
+
+	@Nullable
+	private volatile Path reportFile;
+
+
+	/**
+	 * Create a new buffering startup that keeps the given number of steps.
+	 * @param capacity the maximum number of steps to keep
+	 */
+	public BufferingApplicationStartup(int capacity) {
+		Assert.isTrue(capacity > 0, "Capacity must be greater than 0");
+		this.buffer = new BufferedStartupStep[capacity];
+	}
+
+
+	/**
+	 * Specify a file to write the {@link StartupReport#toJson() JSON report} to
+	 * whenever a {@code spring.context.refresh} step ends, or {@code null} for none
+	 * (the default).
+	 */
+	public void setReportFile(@Nullable Path reportFile) {
+		this.reportFile = reportFile;
+	}
+
+	/**
+	 * Return the file to write the JSON report to, if any.
+	 */
+	@Nullable
+	public Path getReportFile() {
+		return this.reportFile;
+	}
+
+	/**
+	 * Resume recording of steps, if previously stopped.
+	 */
+	public void startRecording() {
+		this.recording = true;
+	}
+
+	/**
+	 * Stop recording further steps. Steps that have been started already
+	 * will still be recorded when they end.
+	 */
+	public void stopRecording() {
+		this.recording = false;
+	}
+
+	/**
+	 * Return whether steps are currently being recorded.
+	 */
+	public boolean isRecording() {
+		return this.recording;
+	}
+
+
+	@Override
+	public StartupStep start(String name) {
+		if (!this.recording) {
+			return ApplicationStartup.DEFAULT.start(name);
+		}
+		Deque<BufferedStartupStep> steps = this.currentSteps.get();
+		BufferedStartupStep step = new BufferedStartupStep(
+				this.idGenerator.incrementAndGet(), name, steps.peekFirst(), ended -> record(ended, steps));
+		steps.addFirst(step);
+		return step;
+	}
+
+	private void record(BufferedStartupStep step, Deque<BufferedStartupStep> startingThreadSteps) {
+		startingThreadSteps.removeFirstOccurrence(step);
+		synchronized (this.buffer) {
+			this.buffer[(int) (this.recordedCount % this.buffer.length)] = step;
+			this.recordedCount++;
+		}
+		Path reportFile = this.reportFile;
+		if (reportFile != null && REFRESH_STEP_NAME.equals(step.getName())) {
+			writeReport(reportFile);
+		}
+	}
+
+	private void writeReport(Path reportFile) {
+		try {
+			Files.write(reportFile, getReport().toJson().getBytes(StandardCharsets.UTF_8));
+		}
+		catch (IOException ex) {
+			if (logger.isWarnEnabled()) {
+				logger.warn("Failed to write startup report to " + reportFile, ex);
+			}
+		}
+	}
+
+	/**
+	 * Return a report of the steps recorded so far.
+	 */
+	public StartupReport getReport() {
+		BufferedStartupStep[] steps;
+		long droppedCount;
+		synchronized (this.buffer) {
+			int size = (int) Math.min(this.recordedCount, this.buffer.length);
+			steps = new BufferedStartupStep[size];
+			System.arraycopy(this.buffer, 0, steps, 0, size);
+			droppedCount = this.recordedCount - size;
+		}
+		return new StartupReport(steps, droppedCount, this.startTime);
+	}
+
+}
@@ -0,0 +1,299 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.core.metrics.buffering;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import org.springframework.core.metrics.StartupStep;
+import org.springframework.lang.Nullable;
+
+/**
+ * Snapshot of the {@link StartupStep steps} recorded by a
+ * {@link BufferingApplicationStartup}, as a tree of nested steps.
+ *
+ * <p>Typical queries are based on the step names of the core container, e.g.
+ * {@code getSlowestSteps("spring.beans.instantiate", 10)} for the beans with the
+ * highest instantiation time (identified by their "beanName" tag),
+ * {@code getSteps("spring.context.beans.post-process")} for the cost of bean
+ * post-processor registration or {@code getSteps("spring.context.config-classes.parse")}
+ * for the time spent on parsing configuration classes.
+ *
+ * @author Lars Hofmann
+ * @since 5.3.8
+ * @see BufferingApplicationStartup#getReport()
+ */
+public final class StartupReport {
+
+	private final List<Step> steps;
+
+	private final List<Step> rootSteps;
+
+	private final long droppedStepCount;
+
+
+	StartupReport(BufferedStartupStep[] bufferedSteps, long droppedStepCount, long startTime) {
+		Arrays.sort(bufferedSteps, Comparator.comparingLong(BufferedStartupStep::getId));
+		List<Step> steps = new ArrayList<>(bufferedSteps.length);
+		List<Step> rootSteps = new ArrayList<>();
+		Map<Long, Step> stepsById = new HashMap<>(bufferedSteps.length * 2);
+		for (BufferedStartupStep bufferedStep : bufferedSteps) {
+			Step step = new Step(bufferedStep, startTime);
+			steps.add(step);
+			stepsById.put(step.getId(), step);
+			Step parent = (step.getParentId() != null ? stepsById.get(step.getParentId()) : null);
+			if (parent != null) {
+				parent.children.add(step);
+			}
+			else {
+				rootSteps.add(step);
+			}
+		}
+		this.steps = Collections.unmodifiableList(steps);
+		this.rootSteps = Collections.unmodifiableList(rootSteps);
+		this.droppedStepCount = droppedStepCount;
+	}
+
+
+	/**
+	 * Return all recorded steps, in the order they were started.
+	 */
+	public List<Step> getSteps() {
+		return this.steps;
+	}
+
+	/**
+	 * Return the top-level steps, in the order they were started.
+	 * <p>Steps whose parent step has been dropped from the buffer
+	 * are returned as top-level steps as well.
+	 */
+	public List<Step> getRootSteps() {
+		return this.rootSteps;
+	}
+
+	/**
+	 * Return all recorded steps with the given name, in the order they were started.
+	 * @param name the step name, e.g. "spring.beans.instantiate"
+	 */
+	public List<Step> getSteps(String name) {
+		return this.steps.stream().filter(step -> step.getName().equals(name)).collect(Collectors.toList());
+	}
+
+	/**
+	 * Return the recorded steps with the given name that took the longest,
+	 * ordered by descending {@link Step#getDuration() duration}.
+	 * @param name the step name, e.g. "spring.beans.instantiate"
+	 * @param limit the maximum number of steps to return
+	 */
+	public List<Step> getSlowestSteps(String name, int limit) {
+		return this.steps.stream().filter(step -> step.getName().equals(name))
+				.sorted(Comparator.comparing(Step::getDuration).reversed())
+				.limit(limit).collect(Collectors.toList());
+	}
+
+	/**
+	 * Return the number of steps that have been dropped from the buffer
+	 * since its capacity was exceeded.
+	 */
+	public long getDroppedStepCount() {
+		return this.droppedStepCount;
+	}
+
+	/**
+	 * Render this report as JSON, with nested steps as "children" of their
+	 * parent step and times in nanoseconds.
+	 */
+	public String toJson() {
+		StringBuilder json = new StringBuilder(this.steps.size() * 128 + 64);
+		json.append("{\"droppedStepCount\":").append(this.droppedStepCount).append(",\"steps\":");
+		appendSteps(this.rootSteps, json);
+		return json.append('}').toString();
+	}
+
+	private static void appendSteps(List<Step> steps, StringBuilder json) {
+		json.append('[');
+		for (int i = 0; i < steps.size(); i++) {
+			Step step = steps.get(i);
+			if (i > 0) {
+				json.append(',');
+			}
+			json.append("{\"id\":").append(step.getId());
+			json.append(",\"name\":");
+			appendString(step.getName(), json);
+			json.append(",\"startTime\":").append(step.getStartTime().toNanos());
+			json.append(",\"duration\":").append(step.getDuration().toNanos());
+			json.append(",\"selfDuration\":").append(step.getSelfDuration().toNanos());
+			json.append(",\"tags\":{");
+			boolean first = true;
+			for (Map.Entry<String, String> tag : step.getTags().entrySet()) {
+				if (!first) {
+					json.append(',');
+				}
+				appendString(tag.getKey(), json);
+				json.append(':');
+				appendString(tag.getValue(), json);
+				first = false;
+			}
+			json.append('}');
+			if (!step.getChildren().isEmpty()) {
+				json.append(",\"children\":");
+				appendSteps(step.getChildren(), json);
+			}
+			json.append('}');
+		}
+		json.append(']');
+	}
+
+	private static void appendString(String value, StringBuilder json) {
+		json.append('"');
+		for (int i = 0; i < value.length(); i++) {
+			char c = value.charAt(i);
+			if (c == '"' || c == '\\') {
+				json.append('\\').append(c);
+			}
+			else if (c < 0x20) {
+				json.append(String.format("\\u%04x", (int) c));
+			}
+			else {
+				json.append(c);
+			}
+		}
+		json.append('"');
+	}
+
+
+	/**
+	 * A recorded step within a {@link StartupReport}.
+	 */
+	public static final class Step {
+
+		private final long id;
+
+		@Nullable
+		private final Long parentId;
+
+		private final String name;
+
+		private final Duration startTime;
+
+		private final Duration duration;
+
+		private final Map<String, String> tags;
+
+		private final List<Step> children = new ArrayList<>(0);
+
+		Step(BufferedStartupStep step, long startTime) {
+			this.id = step.getId();
+			this.parentId = step.getParentId();
+			this.name = step.getName();
+			this.startTime = Duration.ofNanos(step.getStartTime() - startTime);
+			this.duration = Duration.ofNanos(step.getEndTime() - step.getStartTime());
+			Map<String, String> tags = new LinkedHashMap<>();
+			step.getTags().forEach(tag -> tags.put(tag.getKey(), tag.getValue()));
+			this.tags = Collections.unmodifiableMap(tags);
+		}
+
+		/**
+		 * Return the id of the step.
+		 * @see StartupStep#getId()
+		 */
+		public long getId() {
+			return this.id;
+		}
+
+		/**
+		 * Return the id of the parent step, if any.
+		 * @see StartupStep#getParentId()
+		 */
+		@Nullable
+		public Long getParentId() {
+			return this.parentId;
+		}
+
+		/**
+		 * Return the name of the step.
+		 * @see StartupStep#getName()
+		 */
+		public String getName() {
+			return this.name;
+		}
+
+		/**
+		 * Return the start time of the step, relative to the
+		 * creation of the {@link BufferingApplicationStartup}.
+		 */
+		public Duration getStartTime() {
+			return this.startTime;
+		}
+
+		/**
+		 * Return the duration of the step, including nested steps.
+		 */
+		public Duration getDuration() {
+			return this.duration;
+		}
+
+		/**
+		 * Return the duration of the step, excluding nested steps:
+		 * e.g. the instantiation time of a bean without its dependencies.
+		 */
+		public Duration getSelfDuration() {
+			Duration selfDuration = this.duration;
+			for (Step child : this.children) {
+				selfDuration = selfDuration.minus(child.getDuration());
+			}
+			return (selfDuration.isNegative() ? Duration.ZERO : selfDuration);
+		}
+
+		/**
+		 * Return the tags of the step, in the order they were added.
+		 */
+		public Map<String, String> getTags() {
+			return this.tags;
+		}
+
+		/**
+		 * Return the value of the given tag, if any.
+		 * @param key the tag key, e.g. "beanName"
+		 */
+		@Nullable
+		public String getTag(String key) {
+			return this.tags.get(key);
+		}
+
+		/**
+		 * Return the nested steps, in the order they were started.
+		 */
+		public List<Step> getChildren() {
+			return Collections.unmodifiableList(this.children);
+		}
+
+		@Override
+		public String toString() {
+			return this.name + this.tags + " (" + this.duration.toMillis() + " ms)";
+		}
+	}
+
+}
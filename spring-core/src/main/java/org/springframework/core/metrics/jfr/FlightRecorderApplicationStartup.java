@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2020 the original author or authors.
+ * Copyright 2002-2021 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -18,6 +18,7 @@ package org.springframework.core.metrics.jfr;
 
 import java.util.ArrayDeque;
 import java.util.Deque;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.springframework.core.metrics.ApplicationStartup;
 import org.springframework.core.metrics.StartupStep;
@@ -31,29 +32,33 @@ import org.springframework.core.metrics.StartupStep;
  * <p>Once this is configured on the application context, you can record data by
  * launching the application with recording enabled:
  * {@code java -XX:StartFlightRecording:filename=recording.jfr,duration=10s -jar app.jar}.
+ * <p>Steps may be started concurrently, e.g. when singletons are created through
+ * the bootstrap executor of a {@code DefaultListableBeanFactory}: the current step
+ * is tracked per thread, with a step started on a thread without a current step
+ * being recorded as a top-level step.
  *
  * @author Brian Clozel
+ * @author Lars Hofmann
  * @since 5.3
  */
 public class FlightRecorderApplicationStartup implements ApplicationStartup {
 
-	private long currentSequenceId;
+	private final AtomicLong currentSequenceId = new AtomicLong();
 
-	private final Deque<Long> currentSteps;
-
-
-	public FlightRecorderApplicationStartup() {
-		this.currentSequenceId = 0;
-		this.currentSteps = new ArrayDeque<>();
-		this.currentSteps.offerFirst(0L);
-	}
+	private final ThreadLocal<Deque<Long>> currentSteps = ThreadLocal.withInitial(() -> {
+		Deque<Long> steps = new ArrayDeque<>();
+		steps.offerFirst(0L);
+		return steps;
+	});
 
 
 	@Override
 	public StartupStep start(String name) {
-		FlightRecorderStartupStep step = new FlightRecorderStartupStep(++this.currentSequenceId, name,
-				this.currentSteps.getFirst(), committedStep -> this.currentSteps.removeFirst());
-		this.currentSteps.offerFirst(this.currentSequenceId);
+		long stepId = this.currentSequenceId.incrementAndGet();
+		Deque<Long> steps = this.currentSteps.get();
+		FlightRecorderStartupStep step = new FlightRecorderStartupStep(stepId, name, steps.getFirst(),
+				committedStep -> this.currentSteps.get().removeFirstOccurrence(stepId));
+		steps.offerFirst(stepId);
 		return step;
 	}
 
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2020 the original author or authors.
+ * Copyright 2002-2021 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -38,11 +38,14 @@ import org.springframework.util.concurrent.ListenableFutureTask;
  *
  * <p><b>NOTE: This implementation does not reuse threads!</b> Consider a
  * thread-pooling TaskExecutor implementation instead, in particular for
- * executing a large number of short-lived tasks.
+ * executing a large number of short-lived tasks. Alternatively, on JDK 21+,
+ * consider {@link #setVirtualThreads virtual threads}.
  *
  * @author Juergen Hoeller
+ * @author Lars Hofmann
  * @since 2.0
  * @see #setConcurrencyLimit
+ * @see #setVirtualThreads
  * @see SyncTaskExecutor
  * @see org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor
  * @see org.springframework.scheduling.commonj.WorkManagerTaskExecutor
@@ -73,6 +76,8 @@ public class SimpleAsyncTaskExecutor extends CustomizableThreadCreator
 	@Nullable
 	private TaskDecorator taskDecorator;
 
+	private boolean virtualThreads;
+
 
 	/**
 	 * Create a new SimpleAsyncTaskExecutor with default thread name prefix.
@@ -118,6 +123,33 @@ public class SimpleAsyncTaskExecutor extends CustomizableThreadCreator
 		return this.threadFactory;
 	}
 
+	/**
+	 * Switch this executor to virtual threads, creating a new virtual thread
+	 * for each task instead of a platform thread. Requires JDK 21 or higher.
+	 * <p>The default is {@code false}, indicating platform threads.
+	 * Set this flag to {@code true} in order to create virtual threads instead,
+	 * e.g. for a large number of concurrent tasks performing blocking I/O.
+	 * Thread name prefix, task decorator and concurrency limit apply as usual,
+	 * whereas a custom {@link #setThreadFactory ThreadFactory} takes precedence.
+	 * @throws IllegalStateException if virtual threads are not supported
+	 * @since 5.3.8
+	 * @see VirtualThreadTaskExecutor
+	 */
+	public void setVirtualThreads(boolean virtual) {
+		if (virtual && !VirtualThreadDelegate.isSupported()) {
+			throw new IllegalStateException("Virtual threads not supported on this JVM - requires JDK 21 or higher");
+		}
+		this.virtualThreads = virtual;
+	}
+
+	/**
+	 * Return whether this executor creates virtual threads.
+	 * @since 5.3.8
+	 */
+	public final boolean isVirtualThreads() {
+		return this.virtualThreads;
+	}
+
 	/**
 	 * Specify a custom {@link TaskDecorator} to be applied to any {@link Runnable}
 	 * about to be executed.
@@ -234,11 +266,21 @@ public class SimpleAsyncTaskExecutor extends CustomizableThreadCreator
 	 * <p>The default implementation creates a new Thread and starts it.
 	 * @param task the Runnable to execute
 	 * @see #setThreadFactory
+	 * @see #setVirtualThreads
 	 * @see #createThread
 	 * @see java.lang.Thread#start()
 	 */
 	protected void doExecute(Runnable task) {
-		Thread thread = (this.threadFactory != null ? this.threadFactory.newThread(task) : createThread(task));
+		Thread thread;
+		if (this.threadFactory != null) {
+			thread = this.threadFactory.newThread(task);
+		}
+		else if (this.virtualThreads) {
+			thread = VirtualThreadDelegate.newVirtualThread(nextThreadName(), task);
+		}
+		else {
+			thread = createThread(task);
+		}
 		thread.start();
 	}
 
@@ -0,0 +1,84 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.core.task;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ThreadFactory;
+
+import org.springframework.lang.Nullable;
+import org.springframework.util.ClassUtils;
+import org.springframework.util.ReflectionUtils;
+
+/**
+ * Internal delegate for virtual thread handling on JDK 21+, accessing
+ * {@code Thread.ofVirtual()} reflectively for compatibility with older JDKs.
+ *
+ * @author Lars Hofmann
+ * @since 5.3.8
+ * @see VirtualThreadTaskExecutor
+ * @see SimpleAsyncTaskExecutor#setVirtualThreads
+ */
+final class VirtualThreadDelegate {
+
+	@Nullable
+	private static final ThreadFactory virtualThreadFactory = createVirtualThreadFactory();
+
+
+	private VirtualThreadDelegate() {
+	}
+
+
+	/**
+	 * Determine whether virtual threads are supported on the current JVM.
+	 */
+	static boolean isSupported() {
+		return (virtualThreadFactory != null);
+	}
+
+	/**
+	 * Create a new unstarted virtual thread with the given name.
+	 * @param name the name of the thread
+	 * @param task the task to run on the thread
+	 * @throws IllegalStateException if virtual threads are not supported
+	 */
+	static Thread newVirtualThread(String name, Runnable task) {
+		if (virtualThreadFactory == null) {
+			throw new IllegalStateException("Virtual threads not supported on this JVM - requires JDK 21 or higher");
+		}
+		Thread thread = virtualThreadFactory.newThread(task);
+		thread.setName(name);
+		return thread;
+	}
+
+	@Nullable
+	private static ThreadFactory createVirtualThreadFactory() {
+		try {
+			Method ofVirtual = ReflectionUtils.findMethod(Thread.class, "ofVirtual");
+			if (ofVirtual == null) {
+				return null;
+			}
+			Class<?> builderClass = ClassUtils.forName("java.lang.Thread$Builder", Thread.class.getClassLoader());
+			Method factory = builderClass.getMethod("factory");
+			return (ThreadFactory) factory.invoke(ofVirtual.invoke(null));
+		}
+		catch (Throwable ex) {
+			// Not available or preview feature not enabled
+			return null;
+		}
+	}
+
+}
@@ -0,0 +1,67 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.core.task;
+
+/**
+ * {@link TaskExecutor} implementation that fires up a new virtual thread for
+ * each task, executing it asynchronously. Requires JDK 21 or higher, with
+ * virtual threads being detected reflectively.
+ *
+ * <p>Since virtual threads are cheap to create and to block, this executor is
+ * suitable for a large number of concurrent tasks performing blocking I/O,
+ * without any thread pool sizing. As a {@link SimpleAsyncTaskExecutor} variant,
+ * it supports a {@link #setTaskDecorator TaskDecorator} as well as limiting
+ * concurrent tasks through the "concurrencyLimit" bean property, e.g. for
+ * protecting a backend resource. By default, concurrency is unlimited.
+ *
+ * @author Lars Hofmann
+ * @since 5.3.8
+ * @see SimpleAsyncTaskExecutor#setVirtualThreads
+ * @see #isSupported()
+ */
+@SuppressWarnings("serial")
+public class VirtualThreadTaskExecutor extends SimpleAsyncTaskExecutor {
+
+	/**
+	 * Create a new VirtualThreadTaskExecutor with default thread name prefix.
+	 * @throws IllegalStateException if virtual threads are not supported
+	 */
+	public VirtualThreadTaskExecutor() {
+		super();
+		setVirtualThreads(true);
+	}
+
+	/**
+	 * Create a new VirtualThreadTaskExecutor with the given thread name prefix.
+	 * @param threadNamePrefix the prefix to use for the names of newly created threads
+	 * @throws IllegalStateException if virtual threads are not supported
+	 */
+	public VirtualThreadTaskExecutor(String threadNamePrefix) {
+		super(threadNamePrefix);
+		setVirtualThreads(true);
+	}
+
+
+	/**
+	 * Determine whether virtual threads are supported on the current JVM,
+	 * i.e. whether this executor can be used.
+	 */
+	public static boolean isSupported() {
+		return VirtualThreadDelegate.isSupported();
+	}
+
+}
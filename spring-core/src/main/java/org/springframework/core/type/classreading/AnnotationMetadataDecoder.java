@@ -0,0 +1,287 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.core.type.classreading;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Array;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.core.annotation.AnnotationFilter;
+import org.springframework.core.annotation.MergedAnnotation;
+import org.springframework.core.annotation.MergedAnnotations;
+import org.springframework.core.type.AnnotationMetadata;
+import org.springframework.core.type.MethodMetadata;
+import org.springframework.lang.Nullable;
+import org.springframework.util.ClassUtils;
+
+/**
+ * Decoder for binary annotation metadata payloads, creating
+ * {@link SimpleAnnotationMetadata} instances.
+ *
+ * <p>Each payload begins with its own string table, referenced by 1-based
+ * unsigned short indexes (0 representing {@code null}), followed by the class
+ * access flags, enclosing class, superclass, independent inner class flag,
+ * interfaces, member classes, class annotations and annotated methods (name,
+ * access flags, return type and annotations). Attribute values are tagged with
+ * their JVM type descriptor character, using {@code 's'} for strings and class
+ * names, {@code 'e'} for enum constants, {@code '@'} for nested annotations
+ * and {@code '['} for arrays.
+ *
+ * <p>Annotation and enum types are resolved against the given
+ * {@code ClassLoader}, applying the same rules as the ASM-based
+ * {@link SimpleAnnotationMetadataReadingVisitor}.
+ *
+ * @author Lars Hofmann
+ * @since 5.3.8
+ * @see AnnotationMetadataIndex
+ */
+final class AnnotationMetadataDecoder {
+
+	@Nullable
+	private final ClassLoader classLoader;
+
+
+	AnnotationMetadataDecoder(@Nullable ClassLoader classLoader) {
+		this.classLoader = classLoader;
+	}
+
+
+	/**
+	 * Decode the given payload.
+	 * @param className the name of the class that the payload describes
+	 * @param payload the binary payload
+	 * @return the decoded metadata
+	 * @throws IOException if the payload is corrupt
+	 */
+	public AnnotationMetadata decode(String className, byte[] payload) throws IOException {
+		return readMetadata(className, new DataInputStream(new ByteArrayInputStream(payload)));
+	}
+
+	private AnnotationMetadata readMetadata(String className, DataInput in) throws IOException {
+		String[] strings = new String[in.readUnsignedShort()];
+		for (int i = 0; i < strings.length; i++) {
+			strings[i] = in.readUTF();
+		}
+		int access = in.readInt();
+		String enclosingClassName = readString(in, strings);
+		String superClassName = readString(in, strings);
+		boolean independentInnerClass = in.readBoolean();
+		String[] interfaceNames = readStrings(in, strings);
+		String[] memberClassNames = readStrings(in, strings);
+		MergedAnnotations annotations = MergedAnnotations.of(readAnnotations(in, strings, className));
+		int methodCount = in.readUnsignedShort();
+		List<MethodMetadata> annotatedMethods = new ArrayList<>(methodCount);
+		for (int i = 0; i < methodCount; i++) {
+			String methodName = readNonNullString(in, strings);
+			int methodAccess = in.readInt();
+			String returnTypeName = readNonNullString(in, strings);
+			List<MergedAnnotation<?>> methodAnnotations = readAnnotations(in, strings, className + "." + methodName);
+			if (!methodAnnotations.isEmpty()) {
+				annotatedMethods.add(new SimpleMethodMetadata(methodName, methodAccess, className,
+						returnTypeName, MergedAnnotations.of(methodAnnotations)));
+			}
+		}
+		return new SimpleAnnotationMetadata(className, access, enclosingClassName, superClassName,
+				independentInnerClass, interfaceNames, memberClassNames,
+				annotatedMethods.toArray(new MethodMetadata[0]), annotations);
+	}
+
+	private List<MergedAnnotation<?>> readAnnotations(DataInput in, String[] strings, Object source)
+			throws IOException {
+
+		int count = in.readUnsignedShort();
+		if (count == 0) {
+			return Collections.emptyList();
+		}
+		List<MergedAnnotation<?>> annotations = new ArrayList<>(count);
+		for (int i = 0; i < count; i++) {
+			String typeName = readNonNullString(in, strings);
+			Class<? extends Annotation> annotationType = null;
+			if (!AnnotationFilter.PLAIN.matches(typeName)) {
+				try {
+					annotationType = loadAnnotationType(typeName, false);
+				}
+				catch (ClassNotFoundException | LinkageError ex) {
+					// Ignore, as for class-based metadata.
+				}
+			}
+			MergedAnnotation<?> annotation = readAnnotation(in, strings, source, annotationType);
+			if (annotation != null) {
+				annotations.add(annotation);
+			}
+		}
+		return annotations;
+	}
+
+	@Nullable
+	private MergedAnnotation<?> readAnnotation(DataInput in, String[] strings, Object source,
+			@Nullable Class<? extends Annotation> annotationType) throws IOException {
+
+		boolean skip = (annotationType == null);
+		int count = in.readUnsignedShort();
+		Map<String, Object> attributes = new LinkedHashMap<>(count * 2);
+		for (int i = 0; i < count; i++) {
+			String name = readNonNullString(in, strings);
+			Object value = readValue(in, strings, source, skip);
+			if (value != null) {
+				attributes.put(name, value);
+			}
+		}
+		return (annotationType != null ?
+				MergedAnnotation.of(this.classLoader, source, annotationType, attributes) : null);
+	}
+
+	@Nullable
+	private Object readValue(DataInput in, String[] strings, Object source, boolean skip) throws IOException {
+		byte tag = in.readByte();
+		switch (tag) {
+			case 'Z':
+				return in.readBoolean();
+			case 'B':
+				return in.readByte();
+			case 'C':
+				return in.readChar();
+			case 'S':
+				return in.readShort();
+			case 'I':
+				return in.readInt();
+			case 'J':
+				return in.readLong();
+			case 'F':
+				return in.readFloat();
+			case 'D':
+				return in.readDouble();
+			case 's':
+				return readNonNullString(in, strings);
+			case 'e':
+				String enumTypeName = readNonNullString(in, strings);
+				String constantName = readNonNullString(in, strings);
+				return (!skip ? resolveEnum(enumTypeName, constantName) : null);
+			case '@':
+				String typeName = readNonNullString(in, strings);
+				Class<? extends Annotation> annotationType = null;
+				if (!skip && !AnnotationFilter.PLAIN.matches(typeName)) {
+					try {
+						annotationType = loadAnnotationType(typeName, true);
+					}
+					catch (ClassNotFoundException ex) {
+						throw new IllegalStateException(ex);
+					}
+				}
+				return readAnnotation(in, strings, source, annotationType);
+			case '[':
+				int length = in.readUnsignedShort();
+				List<Object> elements = new ArrayList<>(length);
+				for (int i = 0; i < length; i++) {
+					Object element = readValue(in, strings, source, skip);
+					if (element != null) {
+						elements.add(element);
+					}
+				}
+				if (skip) {
+					return null;
+				}
+				Object array = Array.newInstance(getComponentType(elements), elements.size());
+				for (int i = 0; i < elements.size(); i++) {
+					Array.set(array, i, elements.get(i));
+				}
+				return array;
+			default:
+				throw new IOException("Unknown attribute value tag: " + (char) tag);
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	private Class<? extends Annotation> loadAnnotationType(String typeName, boolean resolve)
+			throws ClassNotFoundException {
+
+		return (Class<? extends Annotation>) (resolve ?
+				ClassUtils.resolveClassName(typeName, this.classLoader) : ClassUtils.forName(typeName, this.classLoader));
+	}
+
+	@SuppressWarnings({"unchecked", "rawtypes"})
+	private Enum<?> resolveEnum(String enumTypeName, String constantName) {
+		Class enumType = ClassUtils.resolveClassName(enumTypeName, this.classLoader);
+		return Enum.valueOf(enumType, constantName);
+	}
+
+	private static Class<?> getComponentType(List<Object> elements) {
+		if (elements.isEmpty()) {
+			return Object.class;
+		}
+		Object firstElement = elements.get(0);
+		if (firstElement instanceof Enum) {
+			return ((Enum<?>) firstElement).getDeclaringClass();
+		}
+		if (firstElement instanceof Boolean) {
+			return boolean.class;
+		}
+		if (firstElement instanceof Byte) {
+			return byte.class;
+		}
+		if (firstElement instanceof Character) {
+			return char.class;
+		}
+		if (firstElement instanceof Short) {
+			return short.class;
+		}
+		if (firstElement instanceof Integer) {
+			return int.class;
+		}
+		if (firstElement instanceof Long) {
+			return long.class;
+		}
+		if (firstElement instanceof Float) {
+			return float.class;
+		}
+		if (firstElement instanceof Double) {
+			return double.class;
+		}
+		return firstElement.getClass();
+	}
+
+	@Nullable
+	private static String readString(DataInput in, String[] strings) throws IOException {
+		int index = in.readUnsignedShort();
+		return (index != 0 ? strings[index - 1] : null);
+	}
+
+	private static String readNonNullString(DataInput in, String[] strings) throws IOException {
+		String value = readString(in, strings);
+		if (value == null) {
+			throw new IOException("Unexpected null string reference");
+		}
+		return value;
+	}
+
+	private static String[] readStrings(DataInput in, String[] strings) throws IOException {
+		String[] result = new String[in.readUnsignedShort()];
+		for (int i = 0; i < result.length; i++) {
+			result[i] = readNonNullString(in, strings);
+		}
+		return result;
+	}
+
+}
@@ -0,0 +1,427 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.core.type.classreading;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.reflect.Array;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+import org.springframework.asm.AnnotationVisitor;
+import org.springframework.asm.ClassVisitor;
+import org.springframework.asm.MethodVisitor;
+import org.springframework.asm.Opcodes;
+import org.springframework.asm.SpringAsmInfo;
+import org.springframework.asm.Type;
+import org.springframework.lang.Nullable;
+import org.springframework.util.Assert;
+import org.springframework.util.ClassUtils;
+
+/**
+ * ASM class visitor that encodes the same information as
+ * {@link SimpleAnnotationMetadataReadingVisitor} into the binary payload
+ * format read by {@link AnnotationMetadataDecoder}, without resolving
+ * any annotation or enum types.
+ *
+ * @author Lars Hofmann
+ * @since 5.3.8
+ */
+final class AnnotationMetadataEncoder extends ClassVisitor {
+
+	private static final int MAX_REFERENCES = 0xFFFF;
+
+
+	private final Map<String, Integer> strings = new LinkedHashMap<>();
+
+	private String className = "";
+
+	private int access;
+
+	@Nullable
+	private String superClassName;
+
+	private String[] interfaceNames = new String[0];
+
+	@Nullable
+	private String enclosingClassName;
+
+	private boolean independentInnerClass;
+
+	private final Set<String> memberClassNames = new LinkedHashSet<>(4);
+
+	private final Output annotations = new Output();
+
+	private final Output annotatedMethods = new Output();
+
+	@Nullable
+	private byte[] payload;
+
+
+	AnnotationMetadataEncoder() {
+		super(SpringAsmInfo.ASM_VERSION);
+	}
+
+
+	@Override
+	public void visit(int version, int access, String name, String signature,
+			@Nullable String supername, String[] interfaces) {
+
+		this.className = toClassName(name);
+		this.access = access;
+		if (supername != null && (access & Opcodes.ACC_INTERFACE) == 0) {
+			this.superClassName = toClassName(supername);
+		}
+		this.interfaceNames = new String[interfaces.length];
+		for (int i = 0; i < interfaces.length; i++) {
+			this.interfaceNames[i] = toClassName(interfaces[i]);
+		}
+	}
+
+	@Override
+	public void visitOuterClass(String owner, String name, String desc) {
+		this.enclosingClassName = toClassName(owner);
+	}
+
+	@Override
+	public void visitInnerClass(String name, @Nullable String outerName, String innerName, int access) {
+		if (outerName != null) {
+			String className = toClassName(name);
+			String outerClassName = toClassName(outerName);
+			if (this.className.equals(className)) {
+				this.enclosingClassName = outerClassName;
+				this.independentInnerClass = ((access & Opcodes.ACC_STATIC) != 0);
+			}
+			else if (this.className.equals(outerClassName)) {
+				this.memberClassNames.add(className);
+			}
+		}
+	}
+
+	@Override
+	@Nullable
+	public AnnotationVisitor visitAnnotation(String descriptor, boolean visible) {
+		return (visible ? new AnnotationEncoder(descriptor, this.annotations, true) : null);
+	}
+
+	@Override
+	@Nullable
+	public MethodVisitor visitMethod(
+			int access, String name, String descriptor, String signature, String[] exceptions) {
+
+		// Skip bridge methods, as for SimpleAnnotationMetadataReadingVisitor
+		if ((access & Opcodes.ACC_BRIDGE) != 0) {
+			return null;
+		}
+		return new MethodEncoder(access, name, descriptor);
+	}
+
+	@Override
+	public void visitEnd() {
+		try {
+			Output content = new Output();
+			content.out.writeInt(this.access);
+			writeString(content, this.enclosingClassName);
+			writeString(content, this.superClassName);
+			content.out.writeBoolean(this.independentInnerClass);
+			writeCount(content, this.interfaceNames.length);
+			for (String interfaceName : this.interfaceNames) {
+				writeString(content, interfaceName);
+			}
+			writeCount(content, this.memberClassNames.size());
+			for (String memberClassName : this.memberClassNames) {
+				writeString(content, memberClassName);
+			}
+			this.annotations.writeTo(content);
+			this.annotatedMethods.writeTo(content);
+
+			Output result = new Output();
+			writeCount(result, this.strings.size());
+			for (String string : this.strings.keySet()) {
+				result.out.writeUTF(string);
+			}
+			content.out.flush();
+			content.bytes.writeTo(result.out);
+			result.out.flush();
+			this.payload = result.bytes.toByteArray();
+		}
+		catch (IOException ex) {
+			throw new UncheckedIOException(ex);
+		}
+	}
+
+	/**
+	 * Return the name of the visited class.
+	 */
+	public String getClassName() {
+		return this.className;
+	}
+
+	/**
+	 * Return the encoded payload.
+	 * @throws IllegalStateException if the class metadata cannot be encoded,
+	 * e.g. due to an excessive number of distinct strings
+	 */
+	public byte[] getPayload() {
+		Assert.state(this.payload != null, "Payload not initialized");
+		return this.payload;
+	}
+
+	private void writeString(Output output, @Nullable String value) throws IOException {
+		if (value == null) {
+			output.out.writeShort(0);
+			return;
+		}
+		Integer index = this.strings.get(value);
+		if (index == null) {
+			index = this.strings.size() + 1;
+			Assert.state(index <= MAX_REFERENCES, "Too many distinct strings");
+			this.strings.put(value, index);
+		}
+		output.out.writeShort(index);
+	}
+
+	private static void writeCount(Output output, int count) throws IOException {
+		Assert.state(count <= MAX_REFERENCES, "Too many elements");
+		output.out.writeShort(count);
+	}
+
+	private static String toClassName(String name) {
+		return ClassUtils.convertResourcePathToClassName(name);
+	}
+
+
+	/**
+	 * Buffered output for a counted sequence of elements.
+	 */
+	private static class Output {
+
+		final ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+
+		final DataOutputStream out = new DataOutputStream(this.bytes);
+
+		int count;
+
+		void writeTo(Output target) throws IOException {
+			this.out.flush();
+			writeCount(target, this.count);
+			this.bytes.writeTo(target.out);
+		}
+	}
+
+
+	/**
+	 * {@link MethodVisitor} that encodes the runtime-visible annotations of a method.
+	 */
+	private class MethodEncoder extends MethodVisitor {
+
+		private final int access;
+
+		private final String name;
+
+		private final String descriptor;
+
+		private final Output annotations = new Output();
+
+		MethodEncoder(int access, String name, String descriptor) {
+			super(SpringAsmInfo.ASM_VERSION);
+			this.access = access;
+			this.name = name;
+			this.descriptor = descriptor;
+		}
+
+		@Override
+		@Nullable
+		public AnnotationVisitor visitAnnotation(String descriptor, boolean visible) {
+			return (visible ? new AnnotationEncoder(descriptor, this.annotations, true) : null);
+		}
+
+		@Override
+		public void visitEnd() {
+			if (this.annotations.count > 0) {
+				try {
+					Output methods = AnnotationMetadataEncoder.this.annotatedMethods;
+					writeString(methods, this.name);
+					methods.out.writeInt(this.access);
+					writeString(methods, Type.getReturnType(this.descriptor).getClassName());
+					this.annotations.writeTo(methods);
+					methods.count++;
+				}
+				catch (IOException ex) {
+					throw new UncheckedIOException(ex);
+				}
+			}
+		}
+	}
+
+
+	/**
+	 * {@link AnnotationVisitor} that encodes attribute values, either of an
+	 * annotation (with a type descriptor) or of an array (without one), and
+	 * appends them to the target output once complete.
+	 */
+	private class AnnotationEncoder extends AnnotationVisitor {
+
+		@Nullable
+		private final String descriptor;
+
+		private final Output target;
+
+		private final boolean topLevel;
+
+		private final Output values = new Output();
+
+		AnnotationEncoder(@Nullable String descriptor, Output target, boolean topLevel) {
+			super(SpringAsmInfo.ASM_VERSION);
+			this.descriptor = descriptor;
+			this.target = target;
+			this.topLevel = topLevel;
+		}
+
+		@Override
+		public void visit(String name, Object value) {
+			try {
+				writeName(name);
+				writeValue(value);
+			}
+			catch (IOException ex) {
+				throw new UncheckedIOException(ex);
+			}
+		}
+
+		@Override
+		public void visitEnum(String name, String descriptor, String value) {
+			try {
+				writeName(name);
+				this.values.out.writeByte('e');
+				writeString(this.values, Type.getType(descriptor).getClassName());
+				writeString(this.values, value);
+			}
+			catch (IOException ex) {
+				throw new UncheckedIOException(ex);
+			}
+		}
+
+		@Override
+		public AnnotationVisitor visitAnnotation(String name, String descriptor) {
+			try {
+				writeName(name);
+				this.values.out.writeByte('@');
+				return new AnnotationEncoder(descriptor, this.values, false);
+			}
+			catch (IOException ex) {
+				throw new UncheckedIOException(ex);
+			}
+		}
+
+		@Override
+		public AnnotationVisitor visitArray(String name) {
+			try {
+				writeName(name);
+				this.values.out.writeByte('[');
+				return new AnnotationEncoder(null, this.values, false);
+			}
+			catch (IOException ex) {
+				throw new UncheckedIOException(ex);
+			}
+		}
+
+		@Override
+		public void visitEnd() {
+			try {
+				if (this.descriptor != null) {
+					writeString(this.target, Type.getType(this.descriptor).getClassName());
+				}
+				this.values.writeTo(this.target);
+				if (this.topLevel) {
+					this.target.count++;
+				}
+			}
+			catch (IOException ex) {
+				throw new UncheckedIOException(ex);
+			}
+		}
+
+		private void writeName(@Nullable String name) throws IOException {
+			this.values.count++;
+			if (this.descriptor != null) {
+				writeString(this.values, name);
+			}
+		}
+
+		private void writeValue(Object value) throws IOException {
+			DataOutputStream out = this.values.out;
+			if (value instanceof Boolean) {
+				out.writeByte('Z');
+				out.writeBoolean((Boolean) value);
+			}
+			else if (value instanceof Byte) {
+				out.writeByte('B');
+				out.writeByte((Byte) value);
+			}
+			else if (value instanceof Character) {
+				out.writeByte('C');
+				out.writeChar((Character) value);
+			}
+			else if (value instanceof Short) {
+				out.writeByte('S');
+				out.writeShort((Short) value);
+			}
+			else if (value instanceof Integer) {
+				out.writeByte('I');
+				out.writeInt((Integer) value);
+			}
+			else if (value instanceof Long) {
+				out.writeByte('J');
+				out.writeLong((Long) value);
+			}
+			else if (value instanceof Float) {
+				out.writeByte('F');
+				out.writeFloat((Float) value);
+			}
+			else if (value instanceof Double) {
+				out.writeByte('D');
+				out.writeDouble((Double) value);
+			}
+			else if (value instanceof String) {
+				out.writeByte('s');
+				writeString(this.values, (String) value);
+			}
+			else if (value instanceof Type) {
+				out.writeByte('s');
+				writeString(this.values, ((Type) value).getClassName());
+			}
+			else if (value.getClass().isArray()) {
+				// Primitive array, as reported by ASM
+				int length = Array.getLength(value);
+				out.writeByte('[');
+				writeCount(this.values, length);
+				for (int i = 0; i < length; i++) {
+					writeValue(Array.get(value, i));
+				}
+			}
+			else {
+				throw new IllegalStateException("Unsupported annotation attribute value: " + value);
+			}
+		}
+	}
+
+}
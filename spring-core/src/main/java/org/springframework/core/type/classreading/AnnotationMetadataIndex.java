@@ -0,0 +1,153 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.core.type.classreading;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.springframework.core.annotation.MergedAnnotation;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.core.io.Resource;
+import org.springframework.core.type.AnnotationMetadata;
+import org.springframework.lang.Nullable;
+import org.springframework.util.ClassUtils;
+
+/**
+ * Index of pre-computed annotation metadata, typically generated at build time
+ * by the {@code spring-context-indexer} annotation processor, allowing for
+ * {@link MetadataReader} instances to be created without reading class files.
+ *
+ * <p>The metadata of each class is kept in its binary form until requested
+ * via {@link #getMetadataReader(String)}; annotation and enum types are then
+ * resolved against the index {@code ClassLoader}, applying the same rules as
+ * the ASM-based {@link SimpleMetadataReader}: only runtime-visible annotations
+ * are recorded, "plain" Java language annotations as well as annotations whose
+ * type cannot be loaded are ignored, and only explicitly declared attribute
+ * values are recorded (with defaults applied by {@link MergedAnnotation}).
+ *
+ * <p>An index resource starts with the {@link #MAGIC} number and the format
+ * {@link #VERSION}, followed by the number of entries and, for each entry, the
+ * class name and a length-prefixed binary payload in the format described in
+ * {@link AnnotationMetadataDecoder}.
+ *
+ * @author Lars Hofmann
+ * @since 5.3.8
+ * @see IndexedMetadataReaderFactory
+ */
+public final class AnnotationMetadataIndex {
+
+	/**
+	 * Magic number at the beginning of each index resource.
+	 */
+	public static final int MAGIC = 0x5350434D;
+
+	/**
+	 * Supported version of the index format.
+	 */
+	public static final int VERSION = 1;
+
+
+	@Nullable
+	private final ClassLoader classLoader;
+
+	private final AnnotationMetadataDecoder decoder;
+
+	private final Map<String, byte[]> entries = new HashMap<>(256);
+
+
+	/**
+	 * Create a new empty {@code AnnotationMetadataIndex}.
+	 * @param classLoader the ClassLoader to resolve annotation types against
+	 * (can be {@code null} to use the default)
+	 */
+	public AnnotationMetadataIndex(@Nullable ClassLoader classLoader) {
+		this.classLoader = classLoader;
+		this.decoder = new AnnotationMetadataDecoder(classLoader);
+	}
+
+
+	/**
+	 * Read the entries of the given index resource into this index.
+	 * <p>Entries for classes that are already present in this index are
+	 * ignored, in line with the class loading order.
+	 * <p>Not intended to be called once this index is in use.
+	 * @param inputStream the stream to read from (closed by the caller)
+	 * @throws IOException in case of I/O failure or an unsupported format
+	 */
+	public void read(InputStream inputStream) throws IOException {
+		DataInputStream in = new DataInputStream(inputStream);
+		if (in.readInt() != MAGIC) {
+			throw new IOException("Not an annotation metadata index");
+		}
+		int version = in.readUnsignedShort();
+		if (version != VERSION) {
+			throw new IOException("Unsupported annotation metadata index version: " + version);
+		}
+		int count = in.readInt();
+		for (int i = 0; i < count; i++) {
+			String className = in.readUTF();
+			byte[] payload = new byte[in.readInt()];
+			in.readFully(payload);
+			this.entries.putIfAbsent(className, payload);
+		}
+	}
+
+	/**
+	 * Return the number of classes in this index.
+	 */
+	public int size() {
+		return this.entries.size();
+	}
+
+	/**
+	 * Determine whether this index holds metadata for the given class.
+	 * @param className the fully qualified class name
+	 */
+	public boolean contains(String className) {
+		return this.entries.containsKey(className);
+	}
+
+	/**
+	 * Obtain a {@link MetadataReader} for the given class name from this index.
+	 * <p>The {@linkplain MetadataReader#getResource() resource} of the returned
+	 * reader points to the corresponding ".class" file but is not read.
+	 * @param className the fully qualified class name
+	 * @return the metadata reader, or {@code null} if the class is not indexed
+	 * @throws IllegalStateException if the indexed metadata is corrupt
+	 */
+	@Nullable
+	public MetadataReader getMetadataReader(String className) {
+		byte[] payload = this.entries.get(className);
+		if (payload == null) {
+			return null;
+		}
+		AnnotationMetadata metadata;
+		try {
+			metadata = this.decoder.decode(className, payload);
+		}
+		catch (IOException ex) {
+			throw new IllegalStateException("Corrupt annotation metadata index entry for class [" + className + "]", ex);
+		}
+		Resource resource = new ClassPathResource(
+				ClassUtils.convertClassNameToResourcePath(className) + ClassUtils.CLASS_FILE_SUFFIX, this.classLoader);
+		return new SimpleMetadataReader(resource, metadata);
+	}
+
+}
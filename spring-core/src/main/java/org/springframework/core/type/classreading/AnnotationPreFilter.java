@@ -0,0 +1,138 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.core.type.classreading;
+
+import java.lang.annotation.Annotation;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.springframework.asm.ClassReader;
+import org.springframework.asm.Type;
+import org.springframework.core.annotation.AnnotationFilter;
+import org.springframework.core.annotation.MergedAnnotation;
+import org.springframework.core.type.AnnotationMetadata;
+import org.springframework.util.Assert;
+
+/**
+ * Pre-filter for class files, rejecting classes that cannot be annotated or
+ * meta-annotated with any of a given set of candidate annotation types before
+ * their metadata gets built. Typically used for component scanning, where most
+ * scanned classes are not annotated with a stereotype annotation.
+ *
+ * <p>A class is rejected if its constant pool does not contain the name of the
+ * "RuntimeVisibleAnnotations" attribute, i.e. if neither the class nor any of its
+ * members carries a runtime-visible annotation. Otherwise, the class is accepted
+ * if its constant pool contains the descriptor of a candidate annotation type or
+ * of a stereotype known to be meta-annotated with a candidate annotation type.
+ * Finally, the annotations declared on the class are checked: the class is only
+ * rejected if all of them are known not to be meta-annotated with a candidate
+ * annotation type. Stereotypes are learned from the metadata of accepted classes,
+ * passed in via {@link #registerMetadata}.
+ *
+ * <p>Note that this pre-filter only considers annotations declared on the class
+ * itself, not on its superclasses or interfaces.
+ *
+ * <p>This class is thread-safe.
+ *
+ * @author Lars Hofmann
+ * @since 5.3.8
+ * @see SimpleMetadataReaderFactory#getMetadataReader(org.springframework.core.io.Resource, AnnotationPreFilter)
+ */
+public final class AnnotationPreFilter {
+
+	private static final String RUNTIME_VISIBLE_ANNOTATIONS = "RuntimeVisibleAnnotations";
+
+
+	private final Set<String> candidateTypes;
+
+	private final Set<String> stereotypes = ConcurrentHashMap.newKeySet();
+
+	private final Set<String> nonStereotypes = ConcurrentHashMap.newKeySet();
+
+	private volatile String[] stereotypeDescriptors;
+
+
+	/**
+	 * Create a new {@code AnnotationPreFilter} for the given annotation types.
+	 * @param candidateTypes the fully qualified names of the annotation types
+	 * a class may be annotated or meta-annotated with in order to be accepted
+	 */
+	public AnnotationPreFilter(Collection<String> candidateTypes) {
+		Assert.notEmpty(candidateTypes, "Candidate annotation types must not be empty");
+		this.candidateTypes = new LinkedHashSet<>(candidateTypes);
+		this.stereotypes.addAll(candidateTypes);
+		this.stereotypeDescriptors = toDescriptors(this.stereotypes);
+	}
+
+
+	/**
+	 * Determine whether the given class may be annotated or meta-annotated with
+	 * one of the candidate annotation types.
+	 * @param classReader the ASM ClassReader for the class
+	 * @return {@code false} if the class is known not to match,
+	 * {@code true} if it needs to be checked based on its full metadata
+	 */
+	public boolean mayMatch(ClassReader classReader) {
+		if (!classReader.containsUtf8(RUNTIME_VISIBLE_ANNOTATIONS)) {
+			return false;
+		}
+		if (classReader.containsUtf8(this.stereotypeDescriptors)) {
+			return true;
+		}
+		for (String descriptor : classReader.getVisibleAnnotationDescriptors()) {
+			String typeName = Type.getType(descriptor).getClassName();
+			if (this.stereotypes.contains(typeName) ||
+					(!this.nonStereotypes.contains(typeName) && !AnnotationFilter.PLAIN.matches(typeName))) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Register the metadata of a class accepted by {@link #mayMatch}, learning
+	 * which of its declared annotation types are stereotypes, i.e. meta-annotated
+	 * with one of the candidate annotation types.
+	 * @param metadata the metadata of the accepted class
+	 */
+	public void registerMetadata(AnnotationMetadata metadata) {
+		Set<String> declaredTypes = new LinkedHashSet<>();
+		boolean stereotypesAdded = false;
+		for (MergedAnnotation<Annotation> annotation : metadata.getAnnotations()) {
+			String rootType = annotation.getRoot().getType().getName();
+			declaredTypes.add(rootType);
+			if (this.candidateTypes.contains(annotation.getType().getName()) && this.stereotypes.add(rootType)) {
+				stereotypesAdded = true;
+			}
+		}
+		for (String declaredType : declaredTypes) {
+			if (!this.stereotypes.contains(declaredType)) {
+				this.nonStereotypes.add(declaredType);
+			}
+		}
+		if (stereotypesAdded) {
+			this.stereotypeDescriptors = toDescriptors(this.stereotypes);
+		}
+	}
+
+	private static String[] toDescriptors(Set<String> typeNames) {
+		return typeNames.stream().map(typeName -> 'L' + typeName.replace('.', '/') + ';').toArray(String[]::new);
+	}
+
+}
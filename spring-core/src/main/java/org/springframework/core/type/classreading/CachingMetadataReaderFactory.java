@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2018 the original author or authors.
+ * Copyright 2002-2021 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -116,30 +116,95 @@ public class CachingMetadataReaderFactory extends SimpleMetadataReaderFactory {
 
 	@Override
 	public MetadataReader getMetadataReader(Resource resource) throws IOException {
+		MetadataReader metadataReader = getCachedMetadataReader(resource);
+		if (metadataReader == null) {
+			metadataReader = createMetadataReader(resource);
+			cacheMetadataReader(resource, metadataReader);
+		}
+		return metadataReader;
+	}
+
+	/**
+	 * Obtain a MetadataReader for the given resource from the cache, or
+	 * otherwise create one unless the given pre-filter determines upfront
+	 * that the class cannot match. Rejected classes are not cached.
+	 * @since 5.3.8
+	 * @see #createMetadataReader(Resource, AnnotationPreFilter)
+	 */
+	@Override
+	@Nullable
+	public MetadataReader getMetadataReader(Resource resource, AnnotationPreFilter preFilter) throws IOException {
+		MetadataReader metadataReader = getCachedMetadataReader(resource);
+		if (metadataReader == null) {
+			metadataReader = createMetadataReader(resource, preFilter);
+			if (metadataReader != null) {
+				cacheMetadataReader(resource, metadataReader);
+			}
+		}
+		return metadataReader;
+	}
+
+	@Nullable
+	private MetadataReader getCachedMetadataReader(Resource resource) {
 		if (this.metadataReaderCache instanceof ConcurrentMap) {
 			// No synchronization necessary...
-			MetadataReader metadataReader = this.metadataReaderCache.get(resource);
-			if (metadataReader == null) {
-				metadataReader = super.getMetadataReader(resource);
-				this.metadataReaderCache.put(resource, metadataReader);
-			}
-			return metadataReader;
+			return this.metadataReaderCache.get(resource);
 		}
 		else if (this.metadataReaderCache != null) {
 			synchronized (this.metadataReaderCache) {
-				MetadataReader metadataReader = this.metadataReaderCache.get(resource);
-				if (metadataReader == null) {
-					metadataReader = super.getMetadataReader(resource);
-					this.metadataReaderCache.put(resource, metadataReader);
-				}
-				return metadataReader;
+				return this.metadataReaderCache.get(resource);
 			}
 		}
 		else {
-			return super.getMetadataReader(resource);
+			return null;
 		}
 	}
 
+	private void cacheMetadataReader(Resource resource, MetadataReader metadataReader) {
+		if (this.metadataReaderCache instanceof ConcurrentMap) {
+			this.metadataReaderCache.put(resource, metadataReader);
+		}
+		else if (this.metadataReaderCache != null) {
+			// Parsed outside of the lock, allowing for concurrent scanning...
+			synchronized (this.metadataReaderCache) {
+				this.metadataReaderCache.put(resource, metadataReader);
+			}
+		}
+	}
+
+	/**
+	 * Create a new {@link MetadataReader} for the given resource on a cache miss.
+	 * <p>The default implementation parses the class file via ASM.
+	 * Can be overridden in subclasses to obtain class metadata differently.
+	 * @param resource the resource (pointing to a ".class" file)
+	 * @return a holder for the ClassReader instance (never {@code null})
+	 * @throws IOException in case of I/O failure
+	 * @since 5.3.8
+	 */
+	protected MetadataReader createMetadataReader(Resource resource) throws IOException {
+		return super.getMetadataReader(resource);
+	}
+
+	/**
+	 * Create a new {@link MetadataReader} for the given resource on a cache miss,
+	 * unless the given pre-filter determines upfront that the class cannot match.
+	 * <p>The default implementation reads the class file via ASM, applying the
+	 * pre-filter before parsing. Can be overridden in subclasses along with
+	 * {@link #createMetadataReader(Resource)}.
+	 * @param resource the resource (pointing to a ".class" file)
+	 * @param preFilter the pre-filter to apply
+	 * @return a holder for the ClassReader instance, or {@code null}
+	 * if the class has been rejected by the pre-filter
+	 * @throws IOException in case of I/O failure
+	 * @since 5.3.8
+	 */
+	@Nullable
+	protected MetadataReader createMetadataReader(Resource resource, AnnotationPreFilter preFilter)
+			throws IOException {
+
+		return super.getMetadataReader(resource, preFilter);
+	}
+
 	/**
 	 * Clear the local MetadataReader cache, if any, removing all cached class metadata.
 	 */
@@ -0,0 +1,63 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.core.type.classreading;
+
+import java.io.IOException;
+
+import org.springframework.core.io.Resource;
+import org.springframework.util.Assert;
+
+/**
+ * {@link MetadataReaderFactory} decorator that serves {@link MetadataReader}
+ * instances from an {@link AnnotationMetadataIndex} for indexed classes,
+ * delegating to a target factory for all other classes and for resources.
+ *
+ * @author Lars Hofmann
+ * @since 5.3.8
+ */
+public class IndexedMetadataReaderFactory implements MetadataReaderFactory {
+
+	private final AnnotationMetadataIndex index;
+
+	private final MetadataReaderFactory delegate;
+
+
+	/**
+	 * Create a new IndexedMetadataReaderFactory for the given index.
+	 * @param index the index to serve metadata from
+	 * @param delegate the factory to use for classes not contained in the index
+	 */
+	public IndexedMetadataReaderFactory(AnnotationMetadataIndex index, MetadataReaderFactory delegate) {
+		Assert.notNull(index, "AnnotationMetadataIndex must not be null");
+		Assert.notNull(delegate, "Delegate MetadataReaderFactory must not be null");
+		this.index = index;
+		this.delegate = delegate;
+	}
+
+
+	@Override
+	public MetadataReader getMetadataReader(String className) throws IOException {
+		MetadataReader metadataReader = this.index.getMetadataReader(className);
+		return (metadataReader != null ? metadataReader : this.delegate.getMetadataReader(className));
+	}
+
+	@Override
+	public MetadataReader getMetadataReader(Resource resource) throws IOException {
+		return this.delegate.getMetadataReader(resource);
+	}
+
+}
@@ -0,0 +1,247 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.core.type.classreading;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.JarURLConnection;
+import java.net.URL;
+import java.net.URLConnection;
+import java.nio.file.Files;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+import java.util.zip.CRC32;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import org.springframework.asm.ClassReader;
+import org.springframework.core.io.DefaultResourceLoader;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.ResourceLoader;
+import org.springframework.core.type.AnnotationMetadata;
+import org.springframework.lang.Nullable;
+import org.springframework.util.Assert;
+import org.springframework.util.ResourceUtils;
+
+/**
+ * {@link CachingMetadataReaderFactory} that additionally persists the parsed
+ * class metadata in a cache directory, allowing subsequent JVM runs to obtain
+ * {@link MetadataReader} instances for unchanged class files without parsing
+ * them again.
+ *
+ * <p>Class files in jar files are keyed by the jar file path and entry name,
+ * validated against the CRC-32 checksum and size recorded in the jar's central
+ * directory, with all entries for a jar discarded once the size or
+ * last-modified timestamp of the jar file changes. Class files in the file
+ * system are keyed by their path and validated against a CRC-32 checksum of
+ * their content. Class files from other sources (e.g. nested jars) are parsed
+ * on every run, as with a regular {@code CachingMetadataReaderFactory}.
+ *
+ * <p>Metadata parsed in the current run is written to the cache directory on
+ * {@link #flush()} or {@link #clearCache()}; cache files are memory-mapped
+ * when read. A cache directory may be shared between applications with
+ * different class paths, with the last writer winning for a given jar file
+ * or class file directory.
+ *
+ * <p>To use this factory for configuration class processing and component
+ * scanning, register it with {@code ConfigurationClassPostProcessor} via
+ * {@code setMetadataReaderFactory}.
+ *
+ * @author Lars Hofmann
+ * @since 5.3.8
+ */
+public class PersistentMetadataReaderFactory extends CachingMetadataReaderFactory {
+
+	private static final int PARSING_OPTIONS = ClassReader.SKIP_DEBUG
+			| ClassReader.SKIP_CODE | ClassReader.SKIP_FRAMES;
+
+	private static final Log logger = LogFactory.getLog(PersistentMetadataReaderFactory.class);
+
+
+	private final PersistentMetadataStore store;
+
+	private final AnnotationMetadataDecoder decoder;
+
+
+	/**
+	 * Create a new PersistentMetadataReaderFactory for the default class loader,
+	 * using a local resource cache.
+	 * @param cacheDirectory the directory to persist class metadata in
+	 * (created on demand)
+	 */
+	public PersistentMetadataReaderFactory(File cacheDirectory) {
+		super();
+		Assert.notNull(cacheDirectory, "Cache directory must not be null");
+		this.store = new PersistentMetadataStore(cacheDirectory);
+		this.decoder = new AnnotationMetadataDecoder(getResourceLoader().getClassLoader());
+	}
+
+	/**
+	 * Create a new PersistentMetadataReaderFactory for the given {@link ClassLoader},
+	 * using a local resource cache.
+	 * @param cacheDirectory the directory to persist class metadata in
+	 * (created on demand)
+	 * @param classLoader the ClassLoader to use
+	 */
+	public PersistentMetadataReaderFactory(File cacheDirectory, @Nullable ClassLoader classLoader) {
+		super(classLoader);
+		Assert.notNull(cacheDirectory, "Cache directory must not be null");
+		this.store = new PersistentMetadataStore(cacheDirectory);
+		this.decoder = new AnnotationMetadataDecoder(getResourceLoader().getClassLoader());
+	}
+
+	/**
+	 * Create a new PersistentMetadataReaderFactory for the given {@link ResourceLoader},
+	 * using a shared resource cache if supported or a local resource cache otherwise.
+	 * @param cacheDirectory the directory to persist class metadata in
+	 * (created on demand)
+	 * @param resourceLoader the Spring ResourceLoader to use
+	 * (also determines the ClassLoader to use)
+	 * @see DefaultResourceLoader#getResourceCache
+	 */
+	public PersistentMetadataReaderFactory(File cacheDirectory, @Nullable ResourceLoader resourceLoader) {
+		super(resourceLoader);
+		Assert.notNull(cacheDirectory, "Cache directory must not be null");
+		this.store = new PersistentMetadataStore(cacheDirectory);
+		this.decoder = new AnnotationMetadataDecoder(getResourceLoader().getClassLoader());
+	}
+
+
+	@Override
+	protected MetadataReader createMetadataReader(Resource resource) throws IOException {
+		if (resource.isFile()) {
+			File file = resource.getFile();
+			File directory = file.getAbsoluteFile().getParentFile();
+			if (directory != null) {
+				byte[] content = Files.readAllBytes(file.toPath());
+				CRC32 crc = new CRC32();
+				crc.update(content);
+				long hash = hash(content.length, crc.getValue());
+				return createMetadataReader(resource, directory.getPath(), 0, file.getName(), hash, content);
+			}
+		}
+		else {
+			URL url = resource.getURL();
+			if (ResourceUtils.isJarURL(url)) {
+				URLConnection con = url.openConnection();
+				if (con instanceof JarURLConnection) {
+					JarURLConnection jarCon = (JarURLConnection) con;
+					ResourceUtils.useCachesIfNecessary(jarCon);
+					URL jarFileUrl = jarCon.getJarFileURL();
+					String name = jarCon.getEntryName();
+					if (ResourceUtils.isFileURL(jarFileUrl) && name != null) {
+						File file = ResourceUtils.getFile(jarFileUrl);
+						JarEntry jarEntry;
+						JarFile jarFile = jarCon.getJarFile();
+						try {
+							jarEntry = jarFile.getJarEntry(name);
+						}
+						finally {
+							if (!jarCon.getUseCaches()) {
+								jarFile.close();
+							}
+						}
+						if (jarEntry != null && jarEntry.getCrc() != -1 && jarEntry.getSize() != -1) {
+							long stamp = hash(file.length(), file.lastModified());
+							long hash = hash(jarEntry.getSize(), jarEntry.getCrc());
+							return createMetadataReader(resource, file.getAbsolutePath(), stamp, name, hash, null);
+						}
+					}
+				}
+			}
+		}
+		return super.createMetadataReader(resource);
+	}
+
+	/**
+	 * Create a new {@link MetadataReader} for the given resource on a cache miss,
+	 * ignoring the given pre-filter: class metadata is obtained from the cache
+	 * directory (or parsed once for storing it there) in any case.
+	 */
+	@Override
+	protected MetadataReader createMetadataReader(Resource resource, AnnotationPreFilter preFilter)
+			throws IOException {
+
+		return createMetadataReader(resource);
+	}
+
+	private MetadataReader createMetadataReader(Resource resource, String container, long stamp,
+			String name, long hash, @Nullable byte[] content) throws IOException {
+
+		PersistentMetadataStore.Entry entry = this.store.get(container, stamp, name, hash);
+		if (entry == null) {
+			AnnotationMetadataEncoder encoder = new AnnotationMetadataEncoder();
+			try {
+				getClassReader(resource, content).accept(encoder, PARSING_OPTIONS);
+				entry = new PersistentMetadataStore.Entry(hash, encoder.getClassName(), encoder.getPayload());
+			}
+			catch (IllegalArgumentException | IllegalStateException ex) {
+				// Unsupported class file version or not encodable: regular parsing
+				return super.createMetadataReader(resource);
+			}
+			this.store.put(container, stamp, name, entry);
+		}
+		try {
+			AnnotationMetadata metadata = this.decoder.decode(entry.getClassName(), entry.getPayload());
+			return new SimpleMetadataReader(resource, metadata);
+		}
+		catch (IOException | RuntimeException ex) {
+			// Truncated or otherwise undecodable cache entry: drop it, regular parsing
+			if (logger.isDebugEnabled()) {
+				logger.debug("Dropping unreadable metadata cache entry for " + resource, ex);
+			}
+			this.store.remove(container, stamp, name, entry);
+			return super.createMetadataReader(resource);
+		}
+	}
+
+	private static ClassReader getClassReader(Resource resource, @Nullable byte[] content) throws IOException {
+		if (content != null) {
+			return new ClassReader(content);
+		}
+		try (InputStream is = resource.getInputStream()) {
+			return new ClassReader(is);
+		}
+	}
+
+	/**
+	 * Write the class metadata parsed so far to the cache directory.
+	 * <p>Failures to write are logged at debug level and otherwise ignored.
+	 */
+	public void flush() {
+		this.store.flush();
+	}
+
+	/**
+	 * Clear the local MetadataReader cache, if any, after writing the class
+	 * metadata parsed so far to the cache directory.
+	 * @see #flush()
+	 */
+	@Override
+	public void clearCache() {
+		super.clearCache();
+		flush();
+	}
+
+
+	private static long hash(long high, long low) {
+		return (high << 32) ^ low;
+	}
+
+}
@@ -0,0 +1,417 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.core.type.classreading;
+
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import org.springframework.lang.Nullable;
+import org.springframework.util.DigestUtils;
+
+/**
+ * Disk-backed store of encoded class metadata for {@link PersistentMetadataReaderFactory}.
+ *
+ * <p>Entries are grouped by container (a jar file or a class file directory),
+ * with one cache file per container. Each entry is keyed by its name within
+ * the container and a content hash of the class file; a container additionally
+ * carries a stamp (e.g. the size and last-modified timestamp of a jar file),
+ * with all entries of a container discarded when its stamp changes.
+ *
+ * <p>Cache files are memory-mapped on first access to a container, with only
+ * the entry offsets being indexed upfront. Modified containers are written to
+ * a temporary file on {@link #flush()} and then moved into place, so that
+ * concurrent readers (including other processes sharing the cache directory)
+ * never observe a partially written cache file.
+ *
+ * @author Lars Hofmann
+ * @since 5.3.8
+ */
+final class PersistentMetadataStore {
+
+	private static final int MAGIC = 0x53504D43;
+
+	private static final int VERSION = 1;
+
+	private static final String FILE_SUFFIX = ".metadata";
+
+	private static final Log logger = LogFactory.getLog(PersistentMetadataStore.class);
+
+
+	private final File directory;
+
+	private final ConcurrentMap<String, Container> containers = new ConcurrentHashMap<>(64);
+
+
+	/**
+	 * Create a new store for the given cache directory.
+	 * @param directory the cache directory (created on demand)
+	 */
+	PersistentMetadataStore(File directory) {
+		this.directory = directory;
+	}
+
+
+	/**
+	 * Look up the entry with the given name and content hash.
+	 * @param container the path of the container
+	 * @param stamp the current stamp of the container
+	 * @param name the name of the entry within the container
+	 * @param hash the content hash of the entry
+	 * @return the entry, or {@code null} if not stored or stale
+	 */
+	@Nullable
+	Entry get(String container, long stamp, String name, long hash) {
+		Entry entry = getContainer(container, stamp).get(name);
+		return (entry != null && entry.hash == hash ? entry : null);
+	}
+
+	/**
+	 * Store the given entry, replacing any existing entry of the same name.
+	 * @param container the path of the container
+	 * @param stamp the current stamp of the container
+	 * @param name the name of the entry within the container
+	 * @param entry the entry to store
+	 */
+	void put(String container, long stamp, String name, Entry entry) {
+		getContainer(container, stamp).put(name, entry);
+	}
+
+	/**
+	 * Remove the given entry, e.g. since it turned out to be unreadable.
+	 * @param container the path of the container
+	 * @param stamp the current stamp of the container
+	 * @param name the name of the entry within the container
+	 * @param entry the entry to remove
+	 */
+	void remove(String container, long stamp, String name, Entry entry) {
+		getContainer(container, stamp).remove(name, entry);
+	}
+
+	/**
+	 * Write all containers with new or replaced entries to disk.
+	 * <p>I/O failures are logged and otherwise ignored: the affected
+	 * entries will simply be parsed again on the next run.
+	 */
+	void flush() {
+		for (Container container : this.containers.values()) {
+			container.flush();
+		}
+	}
+
+	private Container getContainer(String path, long stamp) {
+		Container container = this.containers.get(path);
+		if (container == null || container.stamp != stamp) {
+			Container newContainer = new Container(path, stamp, getCacheFile(path));
+			if (container == null) {
+				container = this.containers.putIfAbsent(path, newContainer);
+				if (container == null) {
+					container = newContainer;
+				}
+			}
+			else {
+				this.containers.replace(path, container, newContainer);
+				container = newContainer;
+			}
+		}
+		return container;
+	}
+
+	private File getCacheFile(String path) {
+		return new File(this.directory, DigestUtils.md5DigestAsHex(path.getBytes(StandardCharsets.UTF_8)) + FILE_SUFFIX);
+	}
+
+
+	/**
+	 * Encoded metadata of a single class, either read from a cache file
+	 * on demand or created for a newly parsed class.
+	 */
+	static final class Entry {
+
+		final long hash;
+
+		@Nullable
+		private final ByteBuffer buffer;
+
+		private final int position;
+
+		@Nullable
+		private String className;
+
+		@Nullable
+		private byte[] payload;
+
+		Entry(long hash, String className, byte[] payload) {
+			this.hash = hash;
+			this.buffer = null;
+			this.position = 0;
+			this.className = className;
+			this.payload = payload;
+		}
+
+		private Entry(long hash, ByteBuffer buffer, int position) {
+			this.hash = hash;
+			this.buffer = buffer;
+			this.position = position;
+		}
+
+		String getClassName() throws IOException {
+			resolve();
+			return this.className;
+		}
+
+		byte[] getPayload() throws IOException {
+			resolve();
+			return this.payload;
+		}
+
+		/**
+		 * Determine whether this entry can be read, i.e. is not truncated or otherwise corrupt.
+		 */
+		boolean isReadable() {
+			try {
+				resolve();
+				return true;
+			}
+			catch (IOException ex) {
+				return false;
+			}
+		}
+
+		private synchronized void resolve() throws IOException {
+			if (this.payload == null && this.buffer != null) {
+				ByteBuffer buffer = this.buffer.duplicate();
+				buffer.position(this.position);
+				DataInputStream in = new DataInputStream(new ByteBufferInputStream(buffer));
+				try {
+					String className = in.readUTF();
+					byte[] payload = new byte[in.readInt()];
+					in.readFully(payload);
+					this.className = className;
+					this.payload = payload;
+				}
+				catch (RuntimeException ex) {
+					// E.g. a corrupt length beyond the end of the cache file
+					throw new IOException("Corrupt metadata cache entry", ex);
+				}
+			}
+		}
+	}
+
+
+	/**
+	 * The entries of a single jar file or class file directory, backed by a cache file.
+	 */
+	private static final class Container {
+
+		private final String path;
+
+		private final long stamp;
+
+		private final File cacheFile;
+
+		@Nullable
+		private volatile Map<String, Entry> persistedEntries;
+
+		private final Map<String, Entry> addedEntries = new ConcurrentHashMap<>(16);
+
+		private volatile boolean dirty;
+
+		Container(String path, long stamp, File cacheFile) {
+			this.path = path;
+			this.stamp = stamp;
+			this.cacheFile = cacheFile;
+		}
+
+		@Nullable
+		Entry get(String name) {
+			Entry entry = this.addedEntries.get(name);
+			return (entry != null ? entry : getPersistedEntries().get(name));
+		}
+
+		void put(String name, Entry entry) {
+			this.addedEntries.put(name, entry);
+			this.dirty = true;
+		}
+
+		void remove(String name, Entry entry) {
+			this.addedEntries.remove(name, entry);
+			getPersistedEntries().remove(name, entry);
+			this.dirty = true;
+		}
+
+		synchronized void flush() {
+			if (!this.dirty) {
+				return;
+			}
+			this.dirty = false;
+			Map<String, Entry> entries = new TreeMap<>(getPersistedEntries());
+			entries.putAll(this.addedEntries);
+			// Drop corrupt entries from the previous cache file: to be parsed again
+			entries.values().removeIf(entry -> !entry.isReadable());
+			File directory = this.cacheFile.getParentFile();
+			Path tempFile = null;
+			try {
+				Files.createDirectories(directory.toPath());
+				tempFile = Files.createTempFile(directory.toPath(), this.cacheFile.getName(), ".tmp");
+				try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+						Files.newOutputStream(tempFile)))) {
+					out.writeInt(MAGIC);
+					out.writeShort(VERSION);
+					out.writeUTF(this.path);
+					out.writeLong(this.stamp);
+					out.writeInt(entries.size());
+					for (Map.Entry<String, Entry> entry : entries.entrySet()) {
+						out.writeUTF(entry.getKey());
+						out.writeLong(entry.getValue().hash);
+						out.writeUTF(entry.getValue().getClassName());
+						byte[] payload = entry.getValue().getPayload();
+						out.writeInt(payload.length);
+						out.write(payload);
+					}
+				}
+				try {
+					Files.move(tempFile, this.cacheFile.toPath(),
+							StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+				}
+				catch (AtomicMoveNotSupportedException ex) {
+					Files.move(tempFile, this.cacheFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+				}
+			}
+			catch (IOException ex) {
+				if (logger.isDebugEnabled()) {
+					logger.debug("Failed to write metadata cache file [" + this.cacheFile + "] for " + this.path, ex);
+				}
+				if (tempFile != null) {
+					try {
+						Files.deleteIfExists(tempFile);
+					}
+					catch (IOException ignored) {
+					}
+				}
+			}
+		}
+
+		private Map<String, Entry> getPersistedEntries() {
+			Map<String, Entry> entries = this.persistedEntries;
+			if (entries == null) {
+				synchronized (this) {
+					entries = this.persistedEntries;
+					if (entries == null) {
+						entries = readPersistedEntries();
+						this.persistedEntries = entries;
+					}
+				}
+			}
+			return entries;
+		}
+
+		private Map<String, Entry> readPersistedEntries() {
+			if (!this.cacheFile.isFile()) {
+				return new ConcurrentHashMap<>();
+			}
+			try (FileChannel channel = FileChannel.open(this.cacheFile.toPath(), StandardOpenOption.READ)) {
+				ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+				DataInputStream in = new DataInputStream(new ByteBufferInputStream(buffer));
+				if (in.readInt() != MAGIC || in.readUnsignedShort() != VERSION ||
+						!this.path.equals(in.readUTF()) || in.readLong() != this.stamp) {
+					// Container changed (or different format): all entries are stale
+					this.dirty = true;
+					return new ConcurrentHashMap<>();
+				}
+				int count = in.readInt();
+				Map<String, Entry> entries = new ConcurrentHashMap<>((int) (count / 0.75f) + 1);
+				for (int i = 0; i < count; i++) {
+					String name = in.readUTF();
+					long hash = in.readLong();
+					entries.put(name, new Entry(hash, buffer, buffer.position()));
+					in.skipBytes(in.readUnsignedShort());
+					int length = in.readInt();
+					buffer.position(buffer.position() + length);
+				}
+				return entries;
+			}
+			catch (IOException | RuntimeException ex) {
+				if (logger.isDebugEnabled()) {
+					logger.debug("Ignoring unreadable metadata cache file [" + this.cacheFile + "] for " + this.path, ex);
+				}
+				this.dirty = true;
+				return new ConcurrentHashMap<>();
+			}
+		}
+	}
+
+
+	/**
+	 * Unbuffered {@link InputStream} over a {@link ByteBuffer}, keeping the
+	 * buffer position in sync with the bytes read.
+	 */
+	private static final class ByteBufferInputStream extends InputStream {
+
+		private final ByteBuffer buffer;
+
+		ByteBufferInputStream(ByteBuffer buffer) {
+			this.buffer = buffer;
+		}
+
+		@Override
+		public int read() {
+			return (this.buffer.hasRemaining() ? this.buffer.get() & 0xFF : -1);
+		}
+
+		@Override
+		public int read(byte[] bytes, int off, int len) {
+			if (!this.buffer.hasRemaining()) {
+				return -1;
+			}
+			int count = Math.min(len, this.buffer.remaining());
+			this.buffer.get(bytes, off, count);
+			return count;
+		}
+
+		@Override
+		public long skip(long n) {
+			int count = (int) Math.min(n, this.buffer.remaining());
+			this.buffer.position(this.buffer.position() + count);
+			return count;
+		}
+
+		@Override
+		public int available() {
+			return this.buffer.remaining();
+		}
+	}
+
+}
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2018 the original author or authors.
+ * Copyright 2002-2021 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -19,6 +19,7 @@ package org.springframework.core.type.classreading;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 
+import org.springframework.asm.ClassReader;
 import org.springframework.core.io.DefaultResourceLoader;
 import org.springframework.core.io.Resource;
 import org.springframework.core.io.ResourceLoader;
@@ -30,6 +31,7 @@ import org.springframework.util.ClassUtils;
  * creating a new ASM {@link org.springframework.asm.ClassReader} for every request.
  *
  * @author Juergen Hoeller
+ * @author Lars Hofmann
  * @since 2.5
  */
 public class SimpleMetadataReaderFactory implements MetadataReaderFactory {
@@ -103,4 +105,30 @@ public class SimpleMetadataReaderFactory implements MetadataReaderFactory {
 		return new SimpleMetadataReader(resource, this.resourceLoader.getClassLoader());
 	}
 
+	/**
+	 * Obtain a MetadataReader for the given resource, unless the given
+	 * pre-filter determines upfront that the class cannot match.
+	 * <p>The class file is read once, with its metadata only being built if
+	 * accepted by the pre-filter; the metadata is then registered with the
+	 * pre-filter for subsequent classes to benefit from.
+	 * @param resource the resource (pointing to a ".class" file)
+	 * @param preFilter the pre-filter to apply
+	 * @return a holder for the ClassReader instance, or {@code null}
+	 * if the class has been rejected by the pre-filter
+	 * @throws IOException in case of I/O failure
+	 * @since 5.3.8
+	 * @see AnnotationPreFilter#mayMatch
+	 */
+	@Nullable
+	public MetadataReader getMetadataReader(Resource resource, AnnotationPreFilter preFilter) throws IOException {
+		ClassReader classReader = SimpleMetadataReader.getClassReader(resource);
+		if (!preFilter.mayMatch(classReader)) {
+			return null;
+		}
+		MetadataReader metadataReader =
+				new SimpleMetadataReader(resource, classReader, this.resourceLoader.getClassLoader());
+		preFilter.registerMetadata(metadataReader.getAnnotationMetadata());
+		return metadataReader;
+	}
+
 }
@@ -0,0 +1,619 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.util;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+
+import org.springframework.lang.Nullable;
+
+/**
+ * Bounded cache with lock-free reads and a frequency-aware eviction policy,
+ * as a drop-in alternative to {@link ConcurrentLruCache} for heavily shared
+ * caches.
+ *
+ * <p>Cached values are stored in a {@code ConcurrentHashMap} and retrieved
+ * without locking. Instead of reordering on every hit, reads are recorded in
+ * striped, lossy ring buffers that get replayed against the eviction policy
+ * in batches, under a lock that readers only ever try to acquire. Writes are
+ * queued as well and applied by whichever thread holds that lock: a writer
+ * only blocks on the lock if too many writes are pending, throttling writers
+ * until the eviction policy has caught up.
+ *
+ * <p>The eviction policy follows the W-TinyLFU design: new entries enter a
+ * small LRU admission window; entries evicted from the window compete for a
+ * place in the main space (a segmented LRU) against its eviction candidate,
+ * based on their access frequency as estimated by a 4-bit count-min sketch
+ * with periodic aging. As a consequence, a burst of one-off keys (such as a
+ * scan) cannot flush frequently used entries out of the cache, unlike with
+ * plain LRU. Note that this also means that a newly generated value may not
+ * be retained at all if the cache is full of more popular entries.
+ *
+ * <p>The {@linkplain #size() size} of the cache may temporarily exceed the
+ * size limit while concurrent writes are pending.
+ *
+ * @author Lars Hofmann
+ * @since 5.3.8
+ * @param <K> the type of the key used for cache retrieval
+ * @param <V> the type of the cached values
+ * @see #get
+ */
+public class ConcurrentTinyLfuCache<K, V> {
+
+	private static final int READ_BUFFER_STRIPES =
+			Math.min(16, ceilingPowerOfTwo(Runtime.getRuntime().availableProcessors()));
+
+	private static final int WRITE_BUFFER_LIMIT = 128;
+
+	private static final int ADMIT_HASHDOS_THRESHOLD = 5;
+
+
+	private final int sizeLimit;
+
+	private final Function<K, V> generator;
+
+	private final ConcurrentHashMap<K, Node<K, V>> cache = new ConcurrentHashMap<>();
+
+	private final ReadBuffer<K, V>[] readBuffers;
+
+	private final Queue<Node<K, V>> writeBuffer = new ConcurrentLinkedQueue<>();
+
+	private final AtomicInteger pendingWrites = new AtomicInteger();
+
+	private final ReentrantLock evictionLock = new ReentrantLock();
+
+	// Eviction policy state, guarded by evictionLock
+
+	private final FrequencySketch sketch;
+
+	private final AccessOrderDeque<K, V> window = new AccessOrderDeque<>();
+
+	private final AccessOrderDeque<K, V> probation = new AccessOrderDeque<>();
+
+	private final AccessOrderDeque<K, V> protectedSpace = new AccessOrderDeque<>();
+
+	private final int windowLimit;
+
+	private final int mainLimit;
+
+	private final int protectedLimit;
+
+
+	/**
+	 * Create a new cache instance with the given limit and generator function.
+	 * @param sizeLimit the maximum number of entries in the cache
+	 * (0 indicates no caching, always generating a new value)
+	 * @param generator a function to generate a new value for a given key
+	 */
+	@SuppressWarnings("unchecked")
+	public ConcurrentTinyLfuCache(int sizeLimit, Function<K, V> generator) {
+		Assert.isTrue(sizeLimit >= 0, "Cache size limit must not be negative");
+		Assert.notNull(generator, "Generator function must not be null");
+		this.sizeLimit = sizeLimit;
+		this.generator = generator;
+		this.readBuffers = new ReadBuffer[READ_BUFFER_STRIPES];
+		for (int i = 0; i < this.readBuffers.length; i++) {
+			this.readBuffers[i] = new ReadBuffer<>();
+		}
+		this.sketch = new FrequencySketch(sizeLimit);
+		this.windowLimit = Math.max(1, sizeLimit / 100);
+		this.mainLimit = Math.max(0, sizeLimit - this.windowLimit);
+		this.protectedLimit = (int) (this.mainLimit * 0.8);
+	}
+
+
+	/**
+	 * Retrieve an entry from the cache, potentially triggering generation
+	 * of the value.
+	 * <p>Concurrent retrievals of the same absent key may generate the value
+	 * more than once, with only one of the values being cached.
+	 * @param key the key to retrieve the entry for
+	 * @return the cached or newly generated value
+	 */
+	public V get(K key) {
+		if (this.sizeLimit == 0) {
+			return this.generator.apply(key);
+		}
+
+		Node<K, V> node = this.cache.get(key);
+		if (node != null) {
+			afterRead(node);
+			return node.value;
+		}
+
+		// Generate value outside of any lock, allowing for concurrent misses
+		V value = this.generator.apply(key);
+		Node<K, V> newNode = new Node<>(key, value);
+		node = this.cache.putIfAbsent(key, newNode);
+		if (node != null) {
+			afterRead(node);
+			return node.value;
+		}
+		afterWrite(newNode);
+		return value;
+	}
+
+	/**
+	 * Determine whether the given key is present in this cache.
+	 * @param key the key to check for
+	 * @return {@code true} if the key is present,
+	 * {@code false} if there was no matching key
+	 */
+	public boolean contains(K key) {
+		return this.cache.containsKey(key);
+	}
+
+	/**
+	 * Immediately remove the given key and any associated value.
+	 * @param key the key to evict the entry for
+	 * @return {@code true} if the key was present before,
+	 * {@code false} if there was no matching key
+	 */
+	public boolean remove(K key) {
+		Node<K, V> node = this.cache.remove(key);
+		if (node == null) {
+			return false;
+		}
+		node.alive = false;
+		afterWrite(node);
+		return true;
+	}
+
+	/**
+	 * Immediately remove all entries from this cache.
+	 */
+	public void clear() {
+		this.evictionLock.lock();
+		try {
+			maintenance();
+			for (Node<K, V> node : this.cache.values()) {
+				if (this.cache.remove(node.key, node)) {
+					node.alive = false;
+				}
+			}
+			this.window.clear();
+			this.probation.clear();
+			this.protectedSpace.clear();
+			this.sketch.clear();
+		}
+		finally {
+			this.evictionLock.unlock();
+		}
+		if (this.pendingWrites.get() > 0) {
+			tryMaintenance();
+		}
+	}
+
+	/**
+	 * Return the current size of the cache.
+	 * @see #sizeLimit()
+	 */
+	public int size() {
+		return this.cache.size();
+	}
+
+	/**
+	 * Return the maximum number of entries in the cache
+	 * (0 indicates no caching, always generating a new value).
+	 * @see #size()
+	 */
+	public int sizeLimit() {
+		return this.sizeLimit;
+	}
+
+
+	private void afterRead(Node<K, V> node) {
+		ReadBuffer<K, V> buffer = this.readBuffers[(int) Thread.currentThread().getId() & (READ_BUFFER_STRIPES - 1)];
+		if (!buffer.offer(node)) {
+			tryMaintenance();
+		}
+	}
+
+	private void afterWrite(Node<K, V> node) {
+		this.writeBuffer.offer(node);
+		if (this.pendingWrites.incrementAndGet() <= WRITE_BUFFER_LIMIT) {
+			tryMaintenance();
+			return;
+		}
+		// Too many pending writes: wait for the lock, letting the eviction policy catch up
+		this.evictionLock.lock();
+		try {
+			maintenance();
+		}
+		finally {
+			this.evictionLock.unlock();
+		}
+		if (this.pendingWrites.get() > 0) {
+			tryMaintenance();
+		}
+	}
+
+	private void tryMaintenance() {
+		// Writes must not be lost: a thread failing to acquire the lock leaves its
+		// writes to the current lock holder, which checks for pending writes again
+		// after releasing the lock.
+		do {
+			if (!this.evictionLock.tryLock()) {
+				return;
+			}
+			try {
+				maintenance();
+			}
+			finally {
+				this.evictionLock.unlock();
+			}
+		}
+		while (this.pendingWrites.get() > 0);
+	}
+
+	private void maintenance() {
+		for (ReadBuffer<K, V> buffer : this.readBuffers) {
+			buffer.drain(this);
+		}
+		Node<K, V> node;
+		while ((node = this.writeBuffer.poll()) != null) {
+			this.pendingWrites.decrementAndGet();
+			if (node.alive) {
+				onAdd(node);
+			}
+			else {
+				onRemove(node);
+			}
+		}
+	}
+
+	private void onAccess(Node<K, V> node) {
+		this.sketch.increment(node.key);
+		AccessOrderDeque<K, V> deque = node.deque;
+		if (deque == this.window) {
+			this.window.moveToBack(node);
+		}
+		else if (deque == this.probation) {
+			this.probation.remove(node);
+			this.protectedSpace.add(node);
+			if (this.protectedSpace.size > this.protectedLimit) {
+				Node<K, V> demoted = this.protectedSpace.poll();
+				if (demoted != null) {
+					this.probation.add(demoted);
+				}
+			}
+		}
+		else if (deque == this.protectedSpace) {
+			this.protectedSpace.moveToBack(node);
+		}
+	}
+
+	private void onAdd(Node<K, V> node) {
+		this.sketch.increment(node.key);
+		this.window.add(node);
+		while (this.window.size > this.windowLimit) {
+			Node<K, V> candidate = this.window.poll();
+			if (candidate == null) {
+				break;
+			}
+			if (this.probation.size + this.protectedSpace.size < this.mainLimit) {
+				this.probation.add(candidate);
+				continue;
+			}
+			Node<K, V> victim = this.probation.peek();
+			if (victim == null) {
+				victim = this.protectedSpace.peek();
+			}
+			if (victim != null && admit(candidate.key, victim.key)) {
+				victim.deque.remove(victim);
+				evict(victim);
+				this.probation.add(candidate);
+			}
+			else {
+				evict(candidate);
+			}
+		}
+	}
+
+	private void onRemove(Node<K, V> node) {
+		if (node.deque != null) {
+			node.deque.remove(node);
+		}
+	}
+
+	private boolean admit(K candidateKey, K victimKey) {
+		int victimFrequency = this.sketch.frequency(victimKey);
+		int candidateFrequency = this.sketch.frequency(candidateKey);
+		if (candidateFrequency > victimFrequency) {
+			return true;
+		}
+		else if (candidateFrequency <= ADMIT_HASHDOS_THRESHOLD) {
+			return false;
+		}
+		// Avoid a popular victim becoming permanent through colliding keys
+		return ((ThreadLocalRandom.current().nextInt() & 127) == 0);
+	}
+
+	private void evict(Node<K, V> node) {
+		if (this.cache.remove(node.key, node)) {
+			node.alive = false;
+		}
+	}
+
+	private static int ceilingPowerOfTwo(int x) {
+		return (x <= 1 ? 1 : Integer.highestOneBit(x - 1) << 1);
+	}
+
+
+	/**
+	 * A cache entry, also serving as a link in one of the access-order deques.
+	 */
+	private static final class Node<K, V> {
+
+		final K key;
+
+		final V value;
+
+		volatile boolean alive = true;
+
+		// Guarded by evictionLock
+
+		@Nullable
+		AccessOrderDeque<K, V> deque;
+
+		@Nullable
+		Node<K, V> prev;
+
+		@Nullable
+		Node<K, V> next;
+
+		Node(K key, V value) {
+			this.key = key;
+			this.value = value;
+		}
+	}
+
+
+	/**
+	 * Doubly-linked deque of nodes in access order, least recently used first.
+	 * Not thread-safe: only to be used under the eviction lock.
+	 */
+	private static final class AccessOrderDeque<K, V> {
+
+		@Nullable
+		private Node<K, V> first;
+
+		@Nullable
+		private Node<K, V> last;
+
+		int size;
+
+		@Nullable
+		Node<K, V> peek() {
+			return this.first;
+		}
+
+		@Nullable
+		Node<K, V> poll() {
+			Node<K, V> node = this.first;
+			if (node != null) {
+				remove(node);
+			}
+			return node;
+		}
+
+		void add(Node<K, V> node) {
+			node.deque = this;
+			node.prev = this.last;
+			node.next = null;
+			if (this.last != null) {
+				this.last.next = node;
+			}
+			else {
+				this.first = node;
+			}
+			this.last = node;
+			this.size++;
+		}
+
+		void remove(Node<K, V> node) {
+			if (node.prev != null) {
+				node.prev.next = node.next;
+			}
+			else {
+				this.first = node.next;
+			}
+			if (node.next != null) {
+				node.next.prev = node.prev;
+			}
+			else {
+				this.last = node.prev;
+			}
+			node.deque = null;
+			node.prev = null;
+			node.next = null;
+			this.size--;
+		}
+
+		void moveToBack(Node<K, V> node) {
+			if (node != this.last) {
+				remove(node);
+				add(node);
+			}
+		}
+
+		void clear() {
+			Node<K, V> node = this.first;
+			while (node != null) {
+				Node<K, V> next = node.next;
+				node.deque = null;
+				node.prev = null;
+				node.next = null;
+				node = next;
+			}
+			this.first = null;
+			this.last = null;
+			this.size = 0;
+		}
+	}
+
+
+	/**
+	 * Bounded, lossy ring buffer recording reads, with concurrent producers
+	 * and a single consumer under the eviction lock. Reads are dropped while
+	 * the buffer is full, which is acceptable as they are mere hints for the
+	 * eviction policy.
+	 */
+	private static final class ReadBuffer<K, V> {
+
+		private static final int BUFFER_SIZE = 16;
+
+		private static final int BUFFER_MASK = BUFFER_SIZE - 1;
+
+		private final AtomicLong writeCount = new AtomicLong();
+
+		private final AtomicLong readCount = new AtomicLong();
+
+		private final AtomicReferenceArray<Node<K, V>> buffer = new AtomicReferenceArray<>(BUFFER_SIZE);
+
+		/**
+		 * Record the given node, unless the buffer is full or contended.
+		 * @return {@code false} if the buffer is full and should be drained
+		 */
+		boolean offer(Node<K, V> node) {
+			long readCount = this.readCount.get();
+			long writeCount = this.writeCount.get();
+			if (writeCount - readCount >= BUFFER_SIZE) {
+				return false;
+			}
+			if (this.writeCount.compareAndSet(writeCount, writeCount + 1)) {
+				this.buffer.lazySet((int) (writeCount & BUFFER_MASK), node);
+			}
+			return true;
+		}
+
+		void drain(ConcurrentTinyLfuCache<K, V> cache) {
+			long readCount = this.readCount.get();
+			long writeCount = this.writeCount.get();
+			for (; readCount < writeCount; readCount++) {
+				int index = (int) (readCount & BUFFER_MASK);
+				Node<K, V> node = this.buffer.get(index);
+				if (node == null) {
+					// Not published yet
+					break;
+				}
+				this.buffer.lazySet(index, null);
+				if (node.alive) {
+					cache.onAccess(node);
+				}
+			}
+			this.readCount.lazySet(readCount);
+		}
+	}
+
+
+	/**
+	 * Count-min sketch with four rows of 4-bit counters, estimating the access
+	 * frequency of keys. All counters are halved once the number of recorded
+	 * increments reaches ten times the cache size, so that the sketch favors
+	 * recent popularity. Not thread-safe: only to be used under the eviction lock.
+	 */
+	private static final class FrequencySketch {
+
+		private static final long[] SEEDS = {
+				0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L, 0x9ae16a3b2f90404fL, 0xcbf29ce484222325L};
+
+		private static final long RESET_MASK = 0x7777777777777777L;
+
+		private final long[] table;
+
+		private final int tableMask;
+
+		private final int sampleSize;
+
+		private int size;
+
+		FrequencySketch(int sizeLimit) {
+			int length = ceilingPowerOfTwo(Math.max(sizeLimit, 8));
+			this.table = new long[length];
+			this.tableMask = length - 1;
+			this.sampleSize = (int) Math.min(10L * Math.max(sizeLimit, 8), Integer.MAX_VALUE);
+		}
+
+		int frequency(Object key) {
+			int hash = spread(key.hashCode());
+			int frequency = Integer.MAX_VALUE;
+			for (int i = 0; i < 4; i++) {
+				int offset = counterOffset(hash, i);
+				int count = (int) ((this.table[indexOf(hash, i)] >>> offset) & 0xFL);
+				frequency = Math.min(frequency, count);
+			}
+			return frequency;
+		}
+
+		void increment(Object key) {
+			int hash = spread(key.hashCode());
+			boolean added = false;
+			for (int i = 0; i < 4; i++) {
+				int index = indexOf(hash, i);
+				int offset = counterOffset(hash, i);
+				long mask = (0xFL << offset);
+				if ((this.table[index] & mask) != mask) {
+					this.table[index] += (1L << offset);
+					added = true;
+				}
+			}
+			if (added && ++this.size >= this.sampleSize) {
+				reset();
+			}
+		}
+
+		void clear() {
+			for (int i = 0; i < this.table.length; i++) {
+				this.table[i] = 0L;
+			}
+			this.size = 0;
+		}
+
+		private void reset() {
+			for (int i = 0; i < this.table.length; i++) {
+				this.table[i] = (this.table[i] >>> 1) & RESET_MASK;
+			}
+			this.size = (this.size >>> 1);
+		}
+
+		private int indexOf(int hash, int row) {
+			long h = (hash + SEEDS[row]) * SEEDS[row];
+			h += (h >>> 32);
+			return ((int) h) & this.tableMask;
+		}
+
+		private static int counterOffset(int hash, int row) {
+			// 16 counters of 4 bits per long, a different one per row
+			return ((hash >>> (row << 3)) & 0xF) << 2;
+		}
+
+		private static int spread(int x) {
+			x = ((x >>> 16) ^ x) * 0x45d9f3b;
+			x = ((x >>> 16) ^ x) * 0x45d9f3b;
+			return (x >>> 16) ^ x;
+		}
+	}
+
+}
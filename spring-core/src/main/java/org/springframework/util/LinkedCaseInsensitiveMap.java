@@ -17,8 +17,10 @@
 package org.springframework.util;
 
 import java.io.Serializable;
+import java.lang.reflect.Method;
 import java.util.AbstractCollection;
 import java.util.AbstractSet;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.Iterator;
@@ -41,17 +43,34 @@ import org.springframework.lang.Nullable;
  *
  * <p>Does <i>not</i> support {@code null} keys.
  *
+ * <p>As long as all keys consist of ASCII characters only, as is the case for
+ * HTTP header names, case-insensitive lookups are performed without converting
+ * the given key, hashing and comparing its characters case-insensitively instead.
+ * This does not apply to a Locale with special casing rules for ASCII characters
+ * (i.e. Turkish and Azerbaijani), or if {@link #convertKey} or {@link #getLocale}
+ * are overridden, in which case all keys are converted.
+ *
  * @author Juergen Hoeller
  * @author Phillip Webb
+ * @author Lars Hofmann
  * @since 3.0
  * @param <V> the value type
  */
 @SuppressWarnings("serial")
 public class LinkedCaseInsensitiveMap<V> implements Map<String, V>, Serializable, Cloneable {
 
+	private static final long NON_ASCII = -1;
+
+	private static final Map<Class<?>, Boolean> defaultKeyConversionCache = new ConcurrentReferenceHashMap<>(8);
+
+
 	private final LinkedHashMap<String, V> targetMap;
 
-	private final HashMap<String, String> caseInsensitiveKeys;
+	@Nullable
+	private AsciiKeyIndex asciiKeys;
+
+	@Nullable
+	private HashMap<String, String> caseInsensitiveKeys;
 
 	private final Locale locale;
 
@@ -125,8 +144,13 @@ public class LinkedCaseInsensitiveMap<V> implements Map<String, V>, Serializable
 				return doRemove;
 			}
 		};
-		this.caseInsensitiveKeys = CollectionUtils.newHashMap(expectedSize);
 		this.locale = (locale != null ? locale : Locale.getDefault());
+		if (isAsciiKeyLookupSupported()) {
+			this.asciiKeys = new AsciiKeyIndex(expectedSize);
+		}
+		else {
+			this.caseInsensitiveKeys = CollectionUtils.newHashMap(expectedSize);
+		}
 	}
 
 	/**
@@ -135,7 +159,12 @@ public class LinkedCaseInsensitiveMap<V> implements Map<String, V>, Serializable
 	@SuppressWarnings("unchecked")
 	private LinkedCaseInsensitiveMap(LinkedCaseInsensitiveMap<V> other) {
 		this.targetMap = (LinkedHashMap<String, V>) other.targetMap.clone();
-		this.caseInsensitiveKeys = (HashMap<String, String>) other.caseInsensitiveKeys.clone();
+		if (other.asciiKeys != null) {
+			this.asciiKeys = new AsciiKeyIndex(other.asciiKeys);
+		}
+		if (other.caseInsensitiveKeys != null) {
+			this.caseInsensitiveKeys = (HashMap<String, String>) other.caseInsensitiveKeys.clone();
+		}
 		this.locale = other.locale;
 	}
 
@@ -154,7 +183,7 @@ public class LinkedCaseInsensitiveMap<V> implements Map<String, V>, Serializable
 
 	@Override
 	public boolean containsKey(Object key) {
-		return (key instanceof String && this.caseInsensitiveKeys.containsKey(convertKey((String) key)));
+		return (key instanceof String && getCaseInsensitiveKey((String) key) != null);
 	}
 
 	@Override
@@ -166,7 +195,7 @@ public class LinkedCaseInsensitiveMap<V> implements Map<String, V>, Serializable
 	@Nullable
 	public V get(Object key) {
 		if (key instanceof String) {
-			String caseInsensitiveKey = this.caseInsensitiveKeys.get(convertKey((String) key));
+			String caseInsensitiveKey = getCaseInsensitiveKey((String) key);
 			if (caseInsensitiveKey != null) {
 				return this.targetMap.get(caseInsensitiveKey);
 			}
@@ -178,7 +207,7 @@ public class LinkedCaseInsensitiveMap<V> implements Map<String, V>, Serializable
 	@Nullable
 	public V getOrDefault(Object key, V defaultValue) {
 		if (key instanceof String) {
-			String caseInsensitiveKey = this.caseInsensitiveKeys.get(convertKey((String) key));
+			String caseInsensitiveKey = getCaseInsensitiveKey((String) key);
 			if (caseInsensitiveKey != null) {
 				return this.targetMap.get(caseInsensitiveKey);
 			}
@@ -189,7 +218,7 @@ public class LinkedCaseInsensitiveMap<V> implements Map<String, V>, Serializable
 	@Override
 	@Nullable
 	public V put(String key, @Nullable V value) {
-		String oldKey = this.caseInsensitiveKeys.put(convertKey(key), key);
+		String oldKey = putCaseInsensitiveKey(key, false);
 		V oldKeyValue = null;
 		if (oldKey != null && !oldKey.equals(key)) {
 			oldKeyValue = this.targetMap.remove(oldKey);
@@ -209,7 +238,7 @@ public class LinkedCaseInsensitiveMap<V> implements Map<String, V>, Serializable
 	@Override
 	@Nullable
 	public V putIfAbsent(String key, @Nullable V value) {
-		String oldKey = this.caseInsensitiveKeys.putIfAbsent(convertKey(key), key);
+		String oldKey = putCaseInsensitiveKey(key, true);
 		if (oldKey != null) {
 			V oldKeyValue = this.targetMap.get(oldKey);
 			if (oldKeyValue != null) {
@@ -225,7 +254,7 @@ public class LinkedCaseInsensitiveMap<V> implements Map<String, V>, Serializable
 	@Override
 	@Nullable
 	public V computeIfAbsent(String key, Function<? super String, ? extends V> mappingFunction) {
-		String oldKey = this.caseInsensitiveKeys.putIfAbsent(convertKey(key), key);
+		String oldKey = putCaseInsensitiveKey(key, true);
 		if (oldKey != null) {
 			V oldKeyValue = this.targetMap.get(oldKey);
 			if (oldKeyValue != null) {
@@ -252,7 +281,7 @@ public class LinkedCaseInsensitiveMap<V> implements Map<String, V>, Serializable
 
 	@Override
 	public void clear() {
-		this.caseInsensitiveKeys.clear();
+		clearCaseInsensitiveKeys();
 		this.targetMap.clear();
 	}
 
@@ -342,9 +371,279 @@ public class LinkedCaseInsensitiveMap<V> implements Map<String, V>, Serializable
 		return false;
 	}
 
+	/**
+	 * Determine whether keys may be looked up through their ASCII characters,
+	 * consistent with the default key conversion.
+	 */
+	private boolean isAsciiKeyLookupSupported() {
+		String language = this.locale.getLanguage();
+		if ("tr".equals(language) || "az".equals(language)) {
+			return false;
+		}
+		Class<?> mapClass = getClass();
+		return (mapClass == LinkedCaseInsensitiveMap.class ||
+				defaultKeyConversionCache.computeIfAbsent(mapClass, LinkedCaseInsensitiveMap::hasDefaultKeyConversion));
+	}
+
+	@Nullable
+	private String getCaseInsensitiveKey(String key) {
+		AsciiKeyIndex asciiKeys = this.asciiKeys;
+		if (asciiKeys != null) {
+			long hash = asciiHash(key);
+			if (hash == NON_ASCII) {
+				// Non-ASCII characters may still convert to an ASCII key
+				key = convertKey(key);
+				hash = asciiHash(key);
+				if (hash == NON_ASCII) {
+					return null;
+				}
+			}
+			return asciiKeys.get(key, (int) hash);
+		}
+		return getConvertedKeys().get(convertKey(key));
+	}
+
+	@Nullable
+	private String putCaseInsensitiveKey(String key, boolean onlyIfAbsent) {
+		AsciiKeyIndex asciiKeys = this.asciiKeys;
+		if (asciiKeys != null) {
+			long hash = asciiHash(key);
+			if (hash != NON_ASCII) {
+				return asciiKeys.put(key, (int) hash, onlyIfAbsent);
+			}
+			// Switch to converted keys for all keys from now on
+			HashMap<String, String> convertedKeys = CollectionUtils.newHashMap(asciiKeys.size() + 1);
+			asciiKeys.forEach(existingKey -> convertedKeys.put(convertKey(existingKey), existingKey));
+			this.caseInsensitiveKeys = convertedKeys;
+			this.asciiKeys = null;
+		}
+		HashMap<String, String> convertedKeys = getConvertedKeys();
+		String convertedKey = convertKey(key);
+		return (onlyIfAbsent ? convertedKeys.putIfAbsent(convertedKey, key) : convertedKeys.put(convertedKey, key));
+	}
+
 	@Nullable
 	private String removeCaseInsensitiveKey(String key) {
-		return this.caseInsensitiveKeys.remove(convertKey(key));
+		AsciiKeyIndex asciiKeys = this.asciiKeys;
+		if (asciiKeys != null) {
+			long hash = asciiHash(key);
+			if (hash == NON_ASCII) {
+				key = convertKey(key);
+				hash = asciiHash(key);
+				if (hash == NON_ASCII) {
+					return null;
+				}
+			}
+			return asciiKeys.remove(key, (int) hash);
+		}
+		return getConvertedKeys().remove(convertKey(key));
+	}
+
+	private void clearCaseInsensitiveKeys() {
+		if (this.asciiKeys != null) {
+			this.asciiKeys.clear();
+		}
+		else {
+			getConvertedKeys().clear();
+		}
+	}
+
+	private HashMap<String, String> getConvertedKeys() {
+		HashMap<String, String> convertedKeys = this.caseInsensitiveKeys;
+		Assert.state(convertedKeys != null, "No converted keys");
+		return convertedKeys;
+	}
+
+
+	/**
+	 * Determine whether the given map class keeps the default key conversion,
+	 * i.e. does not override {@link #convertKey} or {@link #getLocale}.
+	 */
+	private static boolean hasDefaultKeyConversion(Class<?> mapClass) {
+		Method convertKey = ReflectionUtils.findMethod(mapClass, "convertKey", String.class);
+		Method getLocale = ReflectionUtils.findMethod(mapClass, "getLocale");
+		return (convertKey != null && convertKey.getDeclaringClass() == LinkedCaseInsensitiveMap.class &&
+				getLocale != null && getLocale.getDeclaringClass() == LinkedCaseInsensitiveMap.class);
+	}
+
+	/**
+	 * Compute the hash of the lower-case variant of the given key,
+	 * or return {@link #NON_ASCII} if it contains non-ASCII characters.
+	 * <p>For a key that is lower-case already, this is the same as
+	 * {@link String#hashCode()}.
+	 */
+	private static long asciiHash(String key) {
+		int hash = 0;
+		for (int i = 0; i < key.length(); i++) {
+			char c = key.charAt(i);
+			if (c >= 0x80) {
+				return NON_ASCII;
+			}
+			hash = 31 * hash + toLowerCase(c);
+		}
+		return (hash & 0xFFFFFFFFL);
+	}
+
+	private static char toLowerCase(char c) {
+		return (c >= 'A' && c <= 'Z' ? (char) (c + ('a' - 'A')) : c);
+	}
+
+	private static boolean asciiEqualsIgnoreCase(String key, String other) {
+		if (key == other) {
+			return true;
+		}
+		int length = key.length();
+		if (length != other.length()) {
+			return false;
+		}
+		for (int i = 0; i < length; i++) {
+			char c1 = key.charAt(i);
+			char c2 = other.charAt(i);
+			if (c1 != c2 && toLowerCase(c1) != toLowerCase(c2)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+
+	/**
+	 * Open-addressing index of ASCII keys, hashing and comparing keys
+	 * case-insensitively without converting them.
+	 */
+	private static final class AsciiKeyIndex implements Serializable {
+
+		private String[] keys;
+
+		private int[] hashes;
+
+		private int size;
+
+		AsciiKeyIndex(int expectedSize) {
+			int capacity = 8;
+			while (capacity < expectedSize * 2) {
+				capacity <<= 1;
+			}
+			this.keys = new String[capacity];
+			this.hashes = new int[capacity];
+		}
+
+		AsciiKeyIndex(AsciiKeyIndex other) {
+			this.keys = other.keys.clone();
+			this.hashes = other.hashes.clone();
+			this.size = other.size;
+		}
+
+		int size() {
+			return this.size;
+		}
+
+		@Nullable
+		String get(String key, int hash) {
+			int index = indexOf(key, hash);
+			return (index >= 0 ? this.keys[index] : null);
+		}
+
+		@Nullable
+		String put(String key, int hash, boolean onlyIfAbsent) {
+			int index = indexOf(key, hash);
+			if (index >= 0) {
+				String oldKey = this.keys[index];
+				if (!onlyIfAbsent) {
+					this.keys[index] = key;
+				}
+				return oldKey;
+			}
+			index = -(index + 1);
+			this.keys[index] = key;
+			this.hashes[index] = hash;
+			if (++this.size * 2 > this.keys.length) {
+				resize();
+			}
+			return null;
+		}
+
+		@Nullable
+		String remove(String key, int hash) {
+			int index = indexOf(key, hash);
+			if (index < 0) {
+				return null;
+			}
+			String oldKey = this.keys[index];
+			// Shift subsequent keys of the same probe sequence back into the gap
+			int mask = this.keys.length - 1;
+			int gap = index;
+			int next = index;
+			while (true) {
+				next = (next + 1) & mask;
+				String nextKey = this.keys[next];
+				if (nextKey == null) {
+					break;
+				}
+				int home = spread(this.hashes[next]) & mask;
+				if (((next - home) & mask) >= ((next - gap) & mask)) {
+					this.keys[gap] = nextKey;
+					this.hashes[gap] = this.hashes[next];
+					gap = next;
+				}
+			}
+			this.keys[gap] = null;
+			this.size--;
+			return oldKey;
+		}
+
+		void clear() {
+			Arrays.fill(this.keys, null);
+			this.size = 0;
+		}
+
+		void forEach(Consumer<String> action) {
+			for (String key : this.keys) {
+				if (key != null) {
+					action.accept(key);
+				}
+			}
+		}
+
+		/**
+		 * Return the index of the given key, or {@code -(insertion index + 1)}.
+		 */
+		private int indexOf(String key, int hash) {
+			int mask = this.keys.length - 1;
+			int index = spread(hash) & mask;
+			while (true) {
+				String candidate = this.keys[index];
+				if (candidate == null) {
+					return -(index + 1);
+				}
+				if (this.hashes[index] == hash && asciiEqualsIgnoreCase(candidate, key)) {
+					return index;
+				}
+				index = (index + 1) & mask;
+			}
+		}
+
+		private void resize() {
+			String[] oldKeys = this.keys;
+			int[] oldHashes = this.hashes;
+			this.keys = new String[oldKeys.length * 2];
+			this.hashes = new int[oldKeys.length * 2];
+			int mask = this.keys.length - 1;
+			for (int i = 0; i < oldKeys.length; i++) {
+				if (oldKeys[i] != null) {
+					int index = spread(oldHashes[i]) & mask;
+					while (this.keys[index] != null) {
+						index = (index + 1) & mask;
+					}
+					this.keys[index] = oldKeys[i];
+					this.hashes[index] = oldHashes[i];
+				}
+			}
+		}
+
+		private static int spread(int hash) {
+			return (hash ^ (hash >>> 16));
+		}
 	}
 
 
@@ -469,7 +768,7 @@ public class LinkedCaseInsensitiveMap<V> implements Map<String, V>, Serializable
 		@Override
 		public void clear() {
 			this.delegate.clear();
-			caseInsensitiveKeys.clear();
+			clearCaseInsensitiveKeys();
 		}
 
 		@Override
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2020 the original author or authors.
+ * Copyright 2002-2021 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -348,7 +348,7 @@ public class MimeType implements Comparable<MimeType>, Serializable {
 		if (other == null) {
 			return false;
 		}
-		if (isWildcardType()) {
+		if (this == other || isWildcardType()) {
 			// */* includes anything
 			return true;
 		}
@@ -392,7 +392,7 @@ public class MimeType implements Comparable<MimeType>, Serializable {
 		if (other == null) {
 			return false;
 		}
-		if (isWildcardType() || other.isWildcardType()) {
+		if (this == other || isWildcardType() || other.isWildcardType()) {
 			return true;
 		}
 		else if (getType().equals(other.getType())) {
@@ -427,6 +427,9 @@ public class MimeType implements Comparable<MimeType>, Serializable {
 		if (other == null) {
 			return false;
 		}
+		if (this == other) {
+			return true;
+		}
 		return this.type.equalsIgnoreCase(other.type) && this.subtype.equalsIgnoreCase(other.subtype);
 	}
 
@@ -16,8 +16,10 @@
 
 package org.springframework.util;
 
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Properties;
 import java.util.Set;
@@ -35,8 +37,13 @@ import org.springframework.lang.Nullable;
  * <p>Values for substitution can be supplied using a {@link Properties} instance or
  * using a {@link PlaceholderResolver}.
  *
+ * <p>Strings containing placeholders are parsed once into a template of literal
+ * and placeholder parts, which is cached and subsequently evaluated against the
+ * given {@code PlaceholderResolver} without scanning the string again.
+ *
  * @author Juergen Hoeller
  * @author Rob Harrop
+ * @author Lars Hofmann
  * @since 3.0
  */
 public class PropertyPlaceholderHelper {
@@ -45,6 +52,11 @@ public class PropertyPlaceholderHelper {
 
 	private static final Map<String, String> wellKnownSimplePrefixes = new HashMap<>(4);
 
+	/**
+	 * The maximum number of parsed templates to cache per helper.
+	 */
+	private static final int TEMPLATE_CACHE_LIMIT = 256;
+
 	static {
 		wellKnownSimplePrefixes.put("}", "{");
 		wellKnownSimplePrefixes.put("]", "[");
@@ -63,6 +75,9 @@ public class PropertyPlaceholderHelper {
 
 	private final boolean ignoreUnresolvablePlaceholders;
 
+	private final ConcurrentTinyLfuCache<String, Template> templateCache =
+			new ConcurrentTinyLfuCache<>(TEMPLATE_CACHE_LIMIT, this::parseTemplate);
+
 
 	/**
 	 * Creates a new {@code PropertyPlaceholderHelper} that uses the supplied prefix and suffix.
@@ -129,66 +144,111 @@ public class PropertyPlaceholderHelper {
 	protected String parseStringValue(
 			String value, PlaceholderResolver placeholderResolver, @Nullable Set<String> visitedPlaceholders) {
 
-		int startIndex = value.indexOf(this.placeholderPrefix);
-		if (startIndex == -1) {
+		if (value.indexOf(this.placeholderPrefix) == -1) {
 			return value;
 		}
+		return resolveTemplate(this.templateCache.get(value), placeholderResolver, visitedPlaceholders);
+	}
+
+	private String resolveTemplate(
+			Template template, PlaceholderResolver placeholderResolver, @Nullable Set<String> visitedPlaceholders) {
+
+		if (template.parts.length == 0) {
+			return template.value;
+		}
 
-		StringBuilder result = new StringBuilder(value);
-		while (startIndex != -1) {
-			int endIndex = findPlaceholderEndIndex(result, startIndex);
-			if (endIndex != -1) {
-				String placeholder = result.substring(startIndex + this.placeholderPrefix.length(), endIndex);
-				String originalPlaceholder = placeholder;
-				if (visitedPlaceholders == null) {
-					visitedPlaceholders = new HashSet<>(4);
-				}
-				if (!visitedPlaceholders.add(originalPlaceholder)) {
-					throw new IllegalArgumentException(
-							"Circular placeholder reference '" + originalPlaceholder + "' in property definitions");
-				}
-				// Recursive invocation, parsing placeholders contained in the placeholder key.
-				placeholder = parseStringValue(placeholder, placeholderResolver, visitedPlaceholders);
-				// Now obtain the value for the fully resolved key...
-				String propVal = placeholderResolver.resolvePlaceholder(placeholder);
-				if (propVal == null && this.valueSeparator != null) {
+		StringBuilder result = new StringBuilder(template.value.length() + 16);
+		for (Object part : template.parts) {
+			if (part instanceof String) {
+				result.append((String) part);
+				continue;
+			}
+			Placeholder placeholderPart = (Placeholder) part;
+			String originalPlaceholder = placeholderPart.key.value;
+			if (visitedPlaceholders == null) {
+				visitedPlaceholders = new HashSet<>(4);
+			}
+			if (!visitedPlaceholders.add(originalPlaceholder)) {
+				throw new IllegalArgumentException(
+						"Circular placeholder reference '" + originalPlaceholder + "' in property definitions");
+			}
+			// Recursive invocation, resolving placeholders contained in the placeholder key.
+			String placeholder = resolveTemplate(placeholderPart.key, placeholderResolver, visitedPlaceholders);
+			// Now obtain the value for the fully resolved key...
+			String propVal = placeholderResolver.resolvePlaceholder(placeholder);
+			if (propVal == null && this.valueSeparator != null) {
+				String actualPlaceholder = placeholderPart.actualPlaceholder;
+				String defaultValue = placeholderPart.defaultValue;
+				if (placeholderPart.key.parts.length != 0) {
 					int separatorIndex = placeholder.indexOf(this.valueSeparator);
-					if (separatorIndex != -1) {
-						String actualPlaceholder = placeholder.substring(0, separatorIndex);
-						String defaultValue = placeholder.substring(separatorIndex + this.valueSeparator.length());
-						propVal = placeholderResolver.resolvePlaceholder(actualPlaceholder);
-						if (propVal == null) {
-							propVal = defaultValue;
-						}
-					}
+					actualPlaceholder = (separatorIndex != -1 ? placeholder.substring(0, separatorIndex) : null);
+					defaultValue = (separatorIndex != -1 ?
+							placeholder.substring(separatorIndex + this.valueSeparator.length()) : null);
 				}
-				if (propVal != null) {
-					// Recursive invocation, parsing placeholders contained in the
-					// previously resolved placeholder value.
-					propVal = parseStringValue(propVal, placeholderResolver, visitedPlaceholders);
-					result.replace(startIndex, endIndex + this.placeholderSuffix.length(), propVal);
-					if (logger.isTraceEnabled()) {
-						logger.trace("Resolved placeholder '" + placeholder + "'");
+				if (actualPlaceholder != null) {
+					propVal = placeholderResolver.resolvePlaceholder(actualPlaceholder);
+					if (propVal == null) {
+						propVal = defaultValue;
 					}
-					startIndex = result.indexOf(this.placeholderPrefix, startIndex + propVal.length());
 				}
-				else if (this.ignoreUnresolvablePlaceholders) {
-					// Proceed with unprocessed value.
-					startIndex = result.indexOf(this.placeholderPrefix, endIndex + this.placeholderSuffix.length());
-				}
-				else {
-					throw new IllegalArgumentException("Could not resolve placeholder '" +
-							placeholder + "'" + " in value \"" + value + "\"");
+			}
+			if (propVal != null) {
+				// Recursive invocation, parsing placeholders contained in the
+				// previously resolved placeholder value.
+				propVal = parseStringValue(propVal, placeholderResolver, visitedPlaceholders);
+				result.append(propVal);
+				if (logger.isTraceEnabled()) {
+					logger.trace("Resolved placeholder '" + placeholder + "'");
 				}
-				visitedPlaceholders.remove(originalPlaceholder);
+			}
+			else if (this.ignoreUnresolvablePlaceholders) {
+				// Proceed with unprocessed value.
+				result.append(placeholderPart.text);
 			}
 			else {
-				startIndex = -1;
+				throw new IllegalArgumentException("Could not resolve placeholder '" +
+						placeholder + "'" + " in value \"" + template.value + "\"");
 			}
+			visitedPlaceholders.remove(originalPlaceholder);
 		}
 		return result.toString();
 	}
 
+	/**
+	 * Parse the given value into a template of literal and placeholder parts,
+	 * scanning the value the same way as a placeholder resolution would do.
+	 */
+	private Template parseTemplate(String value) {
+		int startIndex = value.indexOf(this.placeholderPrefix);
+		if (startIndex == -1) {
+			return new Template(value, Template.NO_PARTS);
+		}
+
+		List<Object> parts = new ArrayList<>(4);
+		int literalIndex = 0;
+		while (startIndex != -1) {
+			int endIndex = findPlaceholderEndIndex(value, startIndex);
+			if (endIndex == -1) {
+				break;
+			}
+			if (startIndex > literalIndex) {
+				parts.add(value.substring(literalIndex, startIndex));
+			}
+			literalIndex = endIndex + this.placeholderSuffix.length();
+			String key = value.substring(startIndex + this.placeholderPrefix.length(), endIndex);
+			parts.add(new Placeholder(value.substring(startIndex, literalIndex), parseTemplate(key),
+					this.valueSeparator));
+			startIndex = value.indexOf(this.placeholderPrefix, literalIndex);
+		}
+		if (parts.isEmpty()) {
+			return new Template(value, Template.NO_PARTS);
+		}
+		if (literalIndex < value.length()) {
+			parts.add(value.substring(literalIndex));
+		}
+		return new Template(value, parts.toArray());
+	}
+
 	private int findPlaceholderEndIndex(CharSequence buf, int startIndex) {
 		int index = startIndex + this.placeholderPrefix.length();
 		int withinNestedPlaceholder = 0;
@@ -229,4 +289,57 @@ public class PropertyPlaceholderHelper {
 		String resolvePlaceholder(String placeholderName);
 	}
 
+
+	/**
+	 * A parsed value, consisting of literal {@code String} parts and
+	 * {@link Placeholder} parts, or no parts at all if the value does
+	 * not contain any placeholders.
+	 */
+	private static final class Template {
+
+		static final Object[] NO_PARTS = new Object[0];
+
+		final String value;
+
+		final Object[] parts;
+
+		Template(String value, Object[] parts) {
+			this.value = value;
+			this.parts = parts;
+		}
+	}
+
+
+	/**
+	 * A placeholder within a parsed {@link Template}, with the default value
+	 * split off upfront if the key does not contain nested placeholders.
+	 */
+	private static final class Placeholder {
+
+		final String text;
+
+		final Template key;
+
+		@Nullable
+		final String actualPlaceholder;
+
+		@Nullable
+		final String defaultValue;
+
+		Placeholder(String text, Template key, @Nullable String valueSeparator) {
+			this.text = text;
+			this.key = key;
+			int separatorIndex = (valueSeparator != null && key.parts.length == 0 ?
+					key.value.indexOf(valueSeparator) : -1);
+			if (separatorIndex != -1) {
+				this.actualPlaceholder = key.value.substring(0, separatorIndex);
+				this.defaultValue = key.value.substring(separatorIndex + valueSeparator.length());
+			}
+			else {
+				this.actualPlaceholder = null;
+				this.defaultValue = null;
+			}
+		}
+	}
+
 }
@@ -0,0 +1,169 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cglib.core;
+
+import java.io.InputStream;
+import java.lang.reflect.Method;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import org.springframework.cglib.proxy.CallbackFilter;
+import org.springframework.cglib.proxy.Enhancer;
+import org.springframework.cglib.proxy.MethodInterceptor;
+import org.springframework.cglib.proxy.NoOp;
+import org.springframework.lang.Nullable;
+import org.springframework.util.FileCopyUtils;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Tests for {@link PersistentClassCache}.
+ *
+ * @author Lars Hofmann
+ */
+class PersistentClassCacheTests {
+
+	private final ClassLoader classLoader = getClass().getClassLoader();
+
+
+	@Test
+	void storeAndLoad(@TempDir Path directory) throws Exception {
+		PersistentClassCache classCache = new PersistentClassCache(directory);
+		String className = Sample.class.getName();
+		byte[] bytes = readClassFile(Sample.class);
+
+		assertThat(classCache.load(className)).isNull();
+		classCache.store(className, bytes);
+		assertThat(directory.resolve(className.replace('.', '/') + ".class")).exists();
+		assertThat(classCache.load(className)).isEqualTo(bytes);
+		assertThat(new PersistentClassCache(directory).load(className)).isEqualTo(bytes);
+	}
+
+	@Test
+	void loadIgnoresClassFileForOtherClass(@TempDir Path directory) throws Exception {
+		PersistentClassCache classCache = new PersistentClassCache(directory);
+		String className = Sample.class.getName() + "$$EnhancerBySpringCGLIB$$12345678";
+		Path classFile = directory.resolve(className.replace('.', '/') + ".class");
+		Files.createDirectories(classFile.getParent());
+		Files.write(classFile, readClassFile(Sample.class));
+
+		assertThat(classCache.load(className)).isNull();
+	}
+
+	@Test
+	void stableKeyForSameInput(@TempDir Path directory) {
+		PersistentClassCache classCache = new PersistentClassCache(directory);
+		Object key = classCache.getStableKey("Enhancer", Sample.class.getName(), "input", this.classLoader);
+		Object sameKey = new PersistentClassCache(directory).getStableKey(
+				"Enhancer", Sample.class.getName(), "input", this.classLoader);
+
+		assertThat(key).isNotNull();
+		assertThat(sameKey).isNotNull();
+		assertThat(sameKey.hashCode()).isEqualTo(key.hashCode());
+		assertThat(sameKey.toString()).isEqualTo(key.toString());
+	}
+
+	@Test
+	void stableKeyForDifferentInput(@TempDir Path directory) {
+		PersistentClassCache classCache = new PersistentClassCache(directory);
+		Object key = classCache.getStableKey("Enhancer", Sample.class.getName(), "input", this.classLoader);
+
+		assertThat(key).isNotNull();
+		assertThat(classCache.getStableKey("Enhancer", Sample.class.getName(), "other", this.classLoader).hashCode())
+				.isNotEqualTo(key.hashCode());
+		assertThat(classCache.getStableKey("KeyFactory", Sample.class.getName(), "input", this.classLoader).hashCode())
+				.isNotEqualTo(key.hashCode());
+		assertThat(classCache.getStableKey("Enhancer", Other.class.getName(), "input", this.classLoader).hashCode())
+				.isNotEqualTo(key.hashCode());
+	}
+
+	@Test
+	void noStableKeyForIdentityHashCode(@TempDir Path directory) {
+		PersistentClassCache classCache = new PersistentClassCache(directory);
+		String input = Sample.class.getName() + "|" + new Object();
+
+		assertThat(classCache.getStableKey("Enhancer", Sample.class.getName(), input, this.classLoader)).isNull();
+	}
+
+	@Test
+	void enhancerStableKeyInputReflectsCallbackAssignment() {
+		AbstractClassGenerator<?> enhancer = createEnhancer(new IndexCallbackFilter(0));
+		String input = enhancer.getStableKeyInput();
+
+		assertThat(input).doesNotContain("@");
+		assertThat(createEnhancer(new IndexCallbackFilter(0)).getStableKeyInput()).isEqualTo(input);
+		assertThat(createEnhancer(new IndexCallbackFilter(1)).getStableKeyInput()).isNotEqualTo(input);
+	}
+
+	private AbstractClassGenerator<?> createEnhancer(CallbackFilter callbackFilter) {
+		Enhancer enhancer = new Enhancer();
+		enhancer.setSuperclass(Sample.class);
+		enhancer.setCallbackTypes(new Class<?>[] {NoOp.class, MethodInterceptor.class});
+		enhancer.setCallbackFilter(callbackFilter);
+		return enhancer;
+	}
+
+	private byte[] readClassFile(Class<?> clazz) throws Exception {
+		try (InputStream classFile = this.classLoader.getResourceAsStream(
+				clazz.getName().replace('.', '/') + ".class")) {
+			return FileCopyUtils.copyToByteArray(classFile);
+		}
+	}
+
+
+	public static class Sample {
+
+		public String getName() {
+			return "sample";
+		}
+	}
+
+	public static class Other {
+	}
+
+	/**
+	 * Filter with a shared hash code, like filters that derive their hash code
+	 * from advice configuration that does not determine the callback assignment.
+	 */
+	private static class IndexCallbackFilter implements CallbackFilter {
+
+		private final int index;
+
+		IndexCallbackFilter(int index) {
+			this.index = index;
+		}
+
+		@Override
+		public int accept(Method method) {
+			return (method.getName().equals("getName") ? this.index : 0);
+		}
+
+		@Override
+		public boolean equals(@Nullable Object other) {
+			return (other instanceof IndexCallbackFilter && this.index == ((IndexCallbackFilter) other).index);
+		}
+
+		@Override
+		public int hashCode() {
+			return IndexCallbackFilter.class.hashCode();
+		}
+	}
+
+}
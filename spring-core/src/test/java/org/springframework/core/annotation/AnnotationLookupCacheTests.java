@@ -0,0 +1,137 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.core.annotation;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+import java.lang.reflect.Method;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import org.springframework.lang.Nullable;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Tests for {@link AnnotationLookupCache}.
+ *
+ * @author Lars Hofmann
+ */
+class AnnotationLookupCacheTests {
+
+	@AfterEach
+	void clearCache() {
+		AnnotationLookupCache.clearCache();
+	}
+
+
+	@Test
+	void hasAnnotationWhenMetaPresentOnInterfaceMethod() throws Exception {
+		Method method = Impl.class.getMethod("handle");
+		AnnotationLookupCache.register(method);
+		assertThat(AnnotationLookupCache.hasAnnotation(method, Composed.class)).isTrue();
+		assertThat(AnnotationLookupCache.hasAnnotation(method, Meta.class)).isTrue();
+		assertThat(AnnotationLookupCache.hasAnnotation(method, Other.class)).isFalse();
+		assertThat(AnnotationLookupCache.hasAnnotation(method, Meta.class))
+				.isEqualTo(AnnotatedElementUtils.hasAnnotation(method, Meta.class));
+	}
+
+	@Test
+	void hasAnnotationWhenPlainAnnotation() throws Exception {
+		Method method = Impl.class.getMethod("plain");
+		assertThat(AnnotationLookupCache.hasAnnotation(method, Deprecated.class)).isTrue();
+		assertThat(AnnotationLookupCache.hasAnnotation(Impl.class, Nullable.class)).isFalse();
+	}
+
+	@Test
+	void hasAnnotationOnClass() {
+		assertThat(AnnotationLookupCache.hasAnnotation(Impl.class, Meta.class)).isTrue();
+		assertThat(AnnotationLookupCache.hasAnnotation(Impl.class, Other.class)).isFalse();
+		assertThat(AnnotationLookupCache.hasAnnotation(String.class, Meta.class)).isFalse();
+	}
+
+	@Test
+	void findMergedAnnotationConsistentWithAnnotatedElementUtils() throws Exception {
+		Method method = Impl.class.getMethod("handle");
+		Meta meta = AnnotationLookupCache.findMergedAnnotation(method, Meta.class);
+		assertThat(meta).isNotNull();
+		assertThat(meta.value()).isEqualTo("composed");
+		assertThat(meta).isEqualTo(AnnotatedElementUtils.findMergedAnnotation(method, Meta.class));
+		assertThat(AnnotationLookupCache.findMergedAnnotation(method, Other.class)).isNull();
+	}
+
+	@Test
+	void findMergedAnnotationReturnsSharedInstance() throws Exception {
+		Method method = Impl.class.getMethod("handle");
+		Meta meta = AnnotationLookupCache.findMergedAnnotation(method, Meta.class);
+		assertThat(AnnotationLookupCache.findMergedAnnotation(method, Meta.class)).isSameAs(meta);
+		AnnotationLookupCache.clearCache();
+		assertThat(AnnotationLookupCache.findMergedAnnotation(method, Meta.class)).isNotSameAs(meta).isEqualTo(meta);
+	}
+
+
+	@Test
+	void findMergedAnnotationRetainedAfterAnnotationUtilsClearCache() throws Exception {
+		Method method = Impl.class.getMethod("handle");
+		AnnotationLookupCache.register(method);
+		Meta meta = AnnotationLookupCache.findMergedAnnotation(method, Meta.class);
+		AnnotationUtils.clearCache();
+		assertThat(AnnotationLookupCache.findMergedAnnotation(method, Meta.class)).isSameAs(meta);
+	}
+
+	@Retention(RetentionPolicy.RUNTIME)
+	@Target({ElementType.TYPE, ElementType.METHOD, ElementType.ANNOTATION_TYPE})
+	@interface Meta {
+
+		String value() default "";
+	}
+
+	@Retention(RetentionPolicy.RUNTIME)
+	@Target({ElementType.TYPE, ElementType.METHOD})
+	@Meta
+	@interface Composed {
+
+		@AliasFor(annotation = Meta.class)
+		String value() default "composed";
+	}
+
+	@Retention(RetentionPolicy.RUNTIME)
+	@interface Other {
+	}
+
+	interface Handler {
+
+		@Composed
+		void handle();
+	}
+
+	@Meta
+	static class Impl implements Handler {
+
+		@Override
+		public void handle() {
+		}
+
+		@Deprecated
+		public void plain() {
+		}
+	}
+
+}
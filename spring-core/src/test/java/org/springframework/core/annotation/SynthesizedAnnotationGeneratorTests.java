@@ -0,0 +1,209 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.core.annotation;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.reflect.Proxy;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+
+/**
+ * Tests for {@link SynthesizedAnnotationGenerator}.
+ *
+ * @author Lars Hofmann
+ */
+class SynthesizedAnnotationGeneratorTests {
+
+	@Test
+	void synthesizeCreatesInstanceOfGeneratedClass() {
+		AllTypes synthesized = MergedAnnotation.of(AllTypes.class).synthesize();
+		assertThat(synthesized).isInstanceOf(SynthesizedAnnotation.class);
+		assertThat(Proxy.isProxyClass(synthesized.getClass())).isFalse();
+		assertThat(synthesized.annotationType()).isEqualTo(AllTypes.class);
+	}
+
+	@Test
+	void synthesizeReusesGeneratedClass() {
+		AllTypes synthesized1 = MergedAnnotation.of(AllTypes.class).synthesize();
+		AllTypes synthesized2 = MergedAnnotation.of(AllTypes.class).synthesize();
+		assertThat(synthesized1).isNotSameAs(synthesized2);
+		assertThat(synthesized1.getClass()).isSameAs(synthesized2.getClass());
+	}
+
+	@Test
+	void attributeMethodsReturnValues() {
+		AllTypes synthesized = MergedAnnotation.of(AllTypes.class).synthesize();
+		assertThat(synthesized.booleanValue()).isTrue();
+		assertThat(synthesized.byteValue()).isEqualTo((byte) 1);
+		assertThat(synthesized.charValue()).isEqualTo('c');
+		assertThat(synthesized.shortValue()).isEqualTo((short) 2);
+		assertThat(synthesized.intValue()).isEqualTo(3);
+		assertThat(synthesized.longValue()).isEqualTo(4L);
+		assertThat(synthesized.floatValue()).isEqualTo(5.0f);
+		assertThat(synthesized.doubleValue()).isEqualTo(6.0);
+		assertThat(synthesized.stringValue()).isEqualTo("seven");
+		assertThat(synthesized.classValue()).isEqualTo(String.class);
+		assertThat(synthesized.enumValue()).isEqualTo(ElementType.TYPE);
+		assertThat(synthesized.annotationValue().value()).isEqualTo("nested");
+		assertThat(synthesized.intArray()).containsExactly(1, 2);
+		assertThat(synthesized.stringArray()).containsExactly("a", "b");
+		assertThat(synthesized.emptyArray()).isEmpty();
+	}
+
+	@Test
+	void attributeMethodsCloneNonEmptyArrays() {
+		AllTypes synthesized = MergedAnnotation.of(AllTypes.class).synthesize();
+		synthesized.intArray()[0] = 42;
+		synthesized.stringArray()[0] = "z";
+		assertThat(synthesized.intArray()).containsExactly(1, 2);
+		assertThat(synthesized.stringArray()).containsExactly("a", "b");
+		assertThat(synthesized.intArray()).isNotSameAs(synthesized.intArray());
+	}
+
+	@Test
+	void equalsAndHashCodeConsistentWithJdkAnnotation() {
+		AllTypes annotation = Annotated.class.getAnnotation(AllTypes.class);
+		AllTypes synthesized = MergedAnnotation.of(AllTypes.class).synthesize();
+		assertThat(synthesized).isEqualTo(annotation);
+		assertThat(annotation).isEqualTo(synthesized);
+		assertThat(synthesized.hashCode()).isEqualTo(annotation.hashCode());
+		assertThat(synthesized.hashCode()).isEqualTo(synthesized.hashCode());
+	}
+
+	@Test
+	void equalsHashCodeAndToStringConsistentWithProxy() {
+		MergedAnnotation<AllTypes> merged = MergedAnnotation.of(AllTypes.class);
+		AllTypes synthesized = merged.synthesize();
+		AllTypes proxy = SynthesizedMergedAnnotationInvocationHandler.createProxy(merged, AllTypes.class);
+		assertThat(synthesized).isEqualTo(proxy);
+		assertThat(proxy).isEqualTo(synthesized);
+		assertThat(synthesized.hashCode()).isEqualTo(proxy.hashCode());
+		assertThat(synthesized.toString()).isEqualTo(proxy.toString());
+	}
+
+	@Test
+	void equalsWhenAttributeValuesDifferReturnsFalse() {
+		Map<String, Object> attributes = new HashMap<>();
+		attributes.put("value", "other");
+		Nested synthesized = MergedAnnotation.of(Nested.class, attributes).synthesize();
+		assertThat(synthesized).isNotEqualTo(MergedAnnotation.of(Nested.class).synthesize());
+		assertThat(synthesized).isEqualTo(MergedAnnotation.of(Nested.class, attributes).synthesize());
+		assertThat(synthesized).isNotEqualTo(null);
+		assertThat(synthesized).isNotEqualTo("other");
+	}
+
+	@Test
+	void equalsWithSignedZeroAndNaNConsistentWithJdkAnnotation() {
+		FloatingPoint annotation = Annotated.class.getAnnotation(FloatingPoint.class);
+		FloatingPoint synthesized = MergedAnnotation.of(FloatingPoint.class).synthesize();
+		assertThat(synthesized).isEqualTo(annotation);
+		assertThat(synthesized.hashCode()).isEqualTo(annotation.hashCode());
+		Map<String, Object> attributes = new HashMap<>();
+		attributes.put("zero", 0.0);
+		assertThat(MergedAnnotation.of(FloatingPoint.class, attributes).synthesize()).isNotEqualTo(annotation);
+	}
+
+	@Test
+	void synthesizeWhenAnnotationTypeIsNotPublicUsesProxy() {
+		NonPublic synthesized = MergedAnnotation.of(NonPublic.class).synthesize();
+		assertThat(Proxy.isProxyClass(synthesized.getClass())).isTrue();
+		assertThat(synthesized.value()).isEqualTo("default");
+	}
+
+	@Test
+	void synthesizeWhenValueIsMissingUsesProxyAndFailsOnAccess() {
+		WithoutDefault synthesized = MergedAnnotation.of(WithoutDefault.class, Collections.emptyMap()).synthesize();
+		assertThat(Proxy.isProxyClass(synthesized.getClass())).isTrue();
+		assertThatExceptionOfType(NoSuchElementException.class).isThrownBy(synthesized::value);
+	}
+
+
+	@Retention(RetentionPolicy.RUNTIME)
+	public @interface AllTypes {
+
+		boolean booleanValue() default true;
+
+		byte byteValue() default 1;
+
+		char charValue() default 'c';
+
+		short shortValue() default 2;
+
+		int intValue() default 3;
+
+		long longValue() default 4L;
+
+		float floatValue() default 5.0f;
+
+		double doubleValue() default 6.0;
+
+		String stringValue() default "seven";
+
+		Class<?> classValue() default String.class;
+
+		ElementType enumValue() default ElementType.TYPE;
+
+		Nested annotationValue() default @Nested("nested");
+
+		int[] intArray() default {1, 2};
+
+		String[] stringArray() default {"a", "b"};
+
+		String[] emptyArray() default {};
+	}
+
+	@Retention(RetentionPolicy.RUNTIME)
+	public @interface Nested {
+
+		String value() default "";
+	}
+
+	@Retention(RetentionPolicy.RUNTIME)
+	public @interface FloatingPoint {
+
+		double zero() default -0.0;
+
+		float nan() default Float.NaN;
+	}
+
+	@Retention(RetentionPolicy.RUNTIME)
+	public @interface WithoutDefault {
+
+		String value();
+	}
+
+	@Retention(RetentionPolicy.RUNTIME)
+	@interface NonPublic {
+
+		String value() default "default";
+	}
+
+	@AllTypes
+	@FloatingPoint
+	static class Annotated {
+	}
+
+}
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2020 the original author or authors.
+ * Copyright 2002-2021 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -656,6 +656,59 @@ class DefaultConversionServiceTests {
 		assertThat(result[2]).isEqualTo(3);
 	}
 
+	@Test
+	void convertIntArrayToLongArray() {
+		long[] result = conversionService.convert(new int[] {1, -2, Integer.MAX_VALUE}, long[].class);
+		assertThat(result).containsExactly(1L, -2L, Integer.MAX_VALUE);
+	}
+
+	@Test
+	void convertPrimitiveArraysToDoubleArray() {
+		assertThat(conversionService.convert(new int[] {1, 2}, double[].class)).containsExactly(1.0, 2.0);
+		assertThat(conversionService.convert(new long[] {3L, 4L}, double[].class)).containsExactly(3.0, 4.0);
+		assertThat(conversionService.convert(new float[] {0.5f, 1.5f}, double[].class)).containsExactly(0.5, 1.5);
+		assertThat(conversionService.convert(new short[] {5, 6}, double[].class)).containsExactly(5.0, 6.0);
+	}
+
+	@Test
+	void convertIntArrayToLongArrayWithCustomConverter() {
+		DefaultConversionService conversionService = new DefaultConversionService();
+		conversionService.addConverter(Integer.class, Long.class, source -> source * 10L);
+		long[] result = conversionService.convert(new int[] {1, 2, 3}, long[].class);
+		assertThat(result).containsExactly(10L, 20L, 30L);
+	}
+
+	@Test
+	void convertLongArrayToIntArrayWithOverflow() {
+		assertThatExceptionOfType(ConversionFailedException.class).isThrownBy(() ->
+				conversionService.convert(new long[] {1L, Long.MAX_VALUE}, int[].class));
+	}
+
+	@Test
+	void convertStringArrayToIntArrayWithEmptyElement() {
+		assertThatExceptionOfType(ConversionFailedException.class).isThrownBy(() ->
+				conversionService.convert(new String[] {"1", ""}, int[].class));
+	}
+
+	@Test
+	void convertStringArrayToIntArrayWithInvalidElement() {
+		assertThatExceptionOfType(ConversionFailedException.class).isThrownBy(() ->
+				conversionService.convert(new String[] {"1", "x"}, int[].class))
+				.withCauseInstanceOf(NumberFormatException.class);
+	}
+
+	@Test
+	void convertIntArrayToStringArray() {
+		String[] result = conversionService.convert(new int[] {1, 2, 3}, String[].class);
+		assertThat(result).containsExactly("1", "2", "3");
+	}
+
+	@Test
+	void convertListWithMixedElementTypesToIntArray() {
+		int[] result = conversionService.convert(Arrays.asList("1", 2L, 3, "4"), int[].class);
+		assertThat(result).containsExactly(1, 2, 3, 4);
+	}
+
 	@Test
 	void convertListOfNonStringifiable() {
 		List<Object> list = Arrays.asList(new TestEntity(1L), new TestEntity(2L));
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2019 the original author or authors.
+ * Copyright 2002-2021 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -33,6 +33,7 @@ import static org.assertj.core.api.Assertions.assertThatIllegalStateException;
 
 /**
  * @author Chris Beams
+ * @author Lars Hofmann
  * @since 3.1
  */
 class PropertySourcesPropertyResolverTests {
@@ -332,4 +333,65 @@ class PropertySourcesPropertyResolverTests {
 			.withMessageContaining("Could not resolve placeholder 'bogus' in value \"${p1}:${p2}:${bogus}\"");
 	}
 
+	@Test
+	void cacheResolvedPropertiesIsInvalidatedWhenPropertySourcesChange() {
+		PropertySourcesPropertyResolver resolver = new PropertySourcesPropertyResolver(propertySources);
+		resolver.setCacheResolvedProperties(true);
+		testProperties.put("foo", "bar");
+		testProperties.put("num", "42");
+		assertThat(resolver.getProperty("foo")).isEqualTo("bar");
+		assertThat(resolver.getProperty("num", Integer.class)).isEqualTo(42);
+		assertThat(resolver.getProperty("missing")).isNull();
+
+		// changes within a property source are not tracked
+		testProperties.put("foo", "changed");
+		testProperties.put("missing", "found");
+		assertThat(resolver.getProperty("foo")).isEqualTo("bar");
+		assertThat(resolver.getProperty("missing")).isNull();
+
+		propertySources.addFirst(new MockPropertySource().withProperty("num", "7"));
+		assertThat(resolver.getProperty("foo")).isEqualTo("changed");
+		assertThat(resolver.getProperty("num", Integer.class)).isEqualTo(7);
+		assertThat(resolver.getProperty("num")).isEqualTo("7");
+		assertThat(resolver.getProperty("missing")).isEqualTo("found");
+
+		propertySources.remove(MockPropertySource.MOCK_PROPERTIES_PROPERTY_SOURCE_NAME);
+		assertThat(resolver.getProperty("num", Integer.class)).isEqualTo(42);
+
+		propertySources.replace("testProperties", new MockPropertySource("testProperties"));
+		assertThat(resolver.getProperty("foo")).isNull();
+	}
+
+	@Test
+	void cacheResolvedPropertiesWithNestedPlaceholders() {
+		PropertySourcesPropertyResolver resolver = new PropertySourcesPropertyResolver(propertySources);
+		resolver.setCacheResolvedProperties(true);
+		testProperties.put("p1", "v1");
+		testProperties.put("p2", "${p1}");
+		assertThat(resolver.getProperty("p2")).isEqualTo("v1");
+		assertThat(resolver.getPropertyAsRawString("p2")).isEqualTo("${p1}");
+		assertThat(resolver.getProperty("p2")).isEqualTo("v1");
+	}
+
+	@Test
+	void cacheResolvedPropertiesDoesNotCacheMutableValues() {
+		PropertySourcesPropertyResolver resolver = new PropertySourcesPropertyResolver(propertySources);
+		resolver.setCacheResolvedProperties(true);
+		testProperties.put("list", "a,b");
+		String[] values = resolver.getProperty("list", String[].class);
+		assertThat(values).containsExactly("a", "b");
+		values[0] = "z";
+		assertThat(resolver.getProperty("list", String[].class)).containsExactly("a", "b");
+	}
+
+	@Test
+	void cacheResolvedPropertiesIsDisabledByDefault() {
+		PropertySourcesPropertyResolver resolver = new PropertySourcesPropertyResolver(propertySources);
+		assertThat(resolver.isCacheResolvedProperties()).isFalse();
+		testProperties.put("foo", "bar");
+		assertThat(resolver.getProperty("foo")).isEqualTo("bar");
+		testProperties.put("foo", "changed");
+		assertThat(resolver.getProperty("foo")).isEqualTo("changed");
+	}
+
 }
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2019 the original author or authors.
+ * Copyright 2002-2021 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -174,4 +174,20 @@ class SystemEnvironmentPropertySourceTests {
 		assertThat(ps.getProperty("A_KEY")).isEqualTo("a_value");
 	}
 
+	@Test
+	@SuppressWarnings({"rawtypes", "unchecked"})
+	void withActualSystemEnvironment() {
+		Map<String, String> systemEnvironment = System.getenv();
+		ps = new SystemEnvironmentPropertySource("sysEnv", (Map) systemEnvironment);
+		PropertySource<?> copy = new SystemEnvironmentPropertySource("copy", new HashMap<>(systemEnvironment));
+		for (Map.Entry<String, String> entry : systemEnvironment.entrySet()) {
+			String relaxedName = entry.getKey().toLowerCase().replace('_', '.');
+			Object expected = copy.getProperty(relaxedName);
+			assertThat(ps.getProperty(relaxedName)).isEqualTo(expected);
+			assertThat(ps.getProperty(relaxedName)).isEqualTo(expected);
+		}
+		assertThat(ps.getProperty("some.missing.key")).isNull();
+		assertThat(ps.containsProperty("some.missing.key")).isFalse();
+	}
+
 }
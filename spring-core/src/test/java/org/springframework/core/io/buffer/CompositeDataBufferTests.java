@@ -0,0 +1,191 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.core.io.buffer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.Test;
+
+import org.springframework.util.FileCopyUtils;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+import static org.assertj.core.api.Assertions.assertThatIllegalStateException;
+
+/**
+ * Tests for {@link CompositeDataBuffer}, as created through
+ * {@link DefaultDataBufferFactory#compose}.
+ *
+ * @author Lars Hofmann
+ */
+class CompositeDataBufferTests {
+
+	private final PooledDataBufferFactory bufferFactory = new PooledDataBufferFactory();
+
+
+	@Test
+	void readAcrossComponents() {
+		DataBuffer composite = compose("foo", "", "bar", "baz");
+		assertThat(composite).isInstanceOf(CompositeDataBuffer.class);
+		assertThat(composite.readableByteCount()).isEqualTo(9);
+		assertThat(composite.capacity()).isEqualTo(9);
+		assertThat(composite.getByte(3)).isEqualTo((byte) 'b');
+		assertThat(composite.indexOf(b -> b == 'z', 0)).isEqualTo(8);
+		assertThat(composite.indexOf(b -> b == 'a', 5)).isEqualTo(7);
+		assertThat(composite.lastIndexOf(b -> b == 'a', 6)).isEqualTo(4);
+		assertThat(composite.lastIndexOf(b -> b == 'f', 8)).isEqualTo(0);
+
+		byte[] bytes = new byte[5];
+		composite.read();
+		composite.read(bytes);
+		assertThat(new String(bytes, UTF_8)).isEqualTo("oobar");
+		assertThat(composite.toString(UTF_8)).isEqualTo("baz");
+		assertThat(composite.toString(0, 9, UTF_8)).isEqualTo("foobarbaz");
+		release(composite);
+	}
+
+	@Test
+	void readPositionOfComponentsIsRespected() {
+		DataBuffer first = stringBuffer("foo");
+		first.read();
+		DataBuffer composite = this.bufferFactory.compose(Arrays.asList(first, stringBuffer("bar")));
+		assertThat(composite.toString(UTF_8)).isEqualTo("oobar");
+		release(composite);
+	}
+
+	@Test
+	void composeSingleBuffer() {
+		DataBuffer buffer = stringBuffer("foo");
+		assertThat(this.bufferFactory.compose(Collections.singletonList(buffer))).isSameAs(buffer);
+		release(buffer);
+	}
+
+	@Test
+	void composeComposite() {
+		DataBuffer composite = this.bufferFactory.compose(Arrays.asList(compose("foo", "bar"), stringBuffer("baz")));
+		assertThat(composite.toString(UTF_8)).isEqualTo("foobarbaz");
+		assertThat(composite.toString()).contains("segments: 3");
+		release(composite);
+	}
+
+	@Test
+	void asByteBuffer() {
+		DataBuffer composite = compose("foo", "bar");
+		ByteBuffer shared = composite.asByteBuffer(3, 3);
+		shared.put(0, (byte) 'c');
+		assertThat(composite.toString(UTF_8)).isEqualTo("foocar");
+
+		ByteBuffer copy = composite.asByteBuffer();
+		assertThat(copy.remaining()).isEqualTo(6);
+		copy.put(0, (byte) 'g');
+		assertThat(composite.toString(UTF_8)).isEqualTo("foocar");
+		assertThat(UTF_8.decode(copy).toString()).isEqualTo("goocar");
+		release(composite);
+	}
+
+	@Test
+	void asInputStream() throws IOException {
+		DataBuffer composite = compose("foo", "bar", "baz");
+		composite.read();
+		InputStream inputStream = composite.asInputStream(true);
+		assertThat(inputStream.available()).isEqualTo(8);
+		assertThat(inputStream.read()).isEqualTo((int) 'o');
+		assertThat(new String(FileCopyUtils.copyToByteArray(inputStream), UTF_8)).isEqualTo("obarbaz");
+		assertThat(((PooledDataBuffer) composite).isAllocated()).isFalse();
+	}
+
+	@Test
+	void writeAppendsComponent() {
+		DataBuffer composite = compose("foo", "bar");
+		assertThat(composite.writableByteCount()).isEqualTo(0);
+		composite.write("baz", UTF_8);
+		composite.write((byte) '!');
+		assertThat(composite.capacity()).isGreaterThanOrEqualTo(10);
+		assertThat(composite.toString(UTF_8)).isEqualTo("foobarbaz!");
+		release(composite);
+	}
+
+	@Test
+	void writeIntoComponents() {
+		DataBuffer composite = compose("foo", "bar");
+		composite.readPosition(0).writePosition(2);
+		composite.write(new byte[] {'x', 'y', 'z'});
+		assertThat(composite.toString(UTF_8)).isEqualTo("foxyz");
+		release(composite);
+	}
+
+	@Test
+	void decreaseCapacity() {
+		DataBuffer composite = compose("foo", "bar", "baz");
+		composite.read();
+		composite.capacity(4);
+		assertThat(composite.capacity()).isEqualTo(4);
+		assertThat(composite.toString(UTF_8)).isEqualTo("oob");
+		release(composite);
+	}
+
+	@Test
+	void sliceAcrossComponents() {
+		DataBuffer composite = compose("foo", "bar", "baz");
+		DataBuffer slice = composite.retainedSlice(2, 5);
+		assertThat(slice.toString(UTF_8)).isEqualTo("obarb");
+		assertThat(slice.slice(1, 3).toString(UTF_8)).isEqualTo("bar");
+		assertThatExceptionOfType(UnsupportedOperationException.class).isThrownBy(() -> slice.capacity(10));
+
+		assertThat(release(composite)).isFalse();
+		assertThat(((PooledDataBuffer) composite).isAllocated()).isTrue();
+		assertThat(release(slice)).isTrue();
+		assertThat(((PooledDataBuffer) composite).isAllocated()).isFalse();
+	}
+
+	@Test
+	void releaseReleasesComponents() {
+		PooledDataBuffer first = (PooledDataBuffer) stringBuffer("foo");
+		PooledDataBuffer second = (PooledDataBuffer) stringBuffer("bar");
+		PooledDataBuffer composite = (PooledDataBuffer) this.bufferFactory.compose(Arrays.asList(first, second));
+		composite.retain();
+		assertThat(composite.release()).isFalse();
+		assertThat(first.isAllocated()).isTrue();
+		assertThat(composite.release()).isTrue();
+		assertThat(first.isAllocated()).isFalse();
+		assertThat(second.isAllocated()).isFalse();
+		assertThatIllegalStateException().isThrownBy(composite::release);
+	}
+
+
+	private DataBuffer compose(String... values) {
+		return this.bufferFactory.compose(Arrays.stream(values).map(this::stringBuffer).collect(Collectors.toList()));
+	}
+
+	private DataBuffer stringBuffer(String value) {
+		byte[] bytes = value.getBytes(UTF_8);
+		DataBuffer buffer = this.bufferFactory.allocateBuffer(Math.max(bytes.length, 1));
+		buffer.write(bytes);
+		return buffer;
+	}
+
+	private static boolean release(DataBuffer buffer) {
+		return DataBufferUtils.release(buffer);
+	}
+
+}
@@ -251,6 +251,39 @@ class DataBufferUtilsTests extends AbstractDataBufferAllocatingTests {
 				.verify(Duration.ofSeconds(5));
 	}
 
+	@ParameterizedDataBufferAllocatingTest
+	void readMappedPath(String displayName, DataBufferFactory bufferFactory) throws Exception {
+		super.bufferFactory = bufferFactory;
+
+		Flux<DataBuffer> flux = DataBufferUtils.readMapped(this.resource.getFile().toPath(), 0, super.bufferFactory, 3);
+
+		verifyReadData(flux);
+	}
+
+	@ParameterizedDataBufferAllocatingTest
+	void readMappedResourcePosition(String displayName, DataBufferFactory bufferFactory) throws Exception {
+		super.bufferFactory = bufferFactory;
+
+		Flux<DataBuffer> flux = DataBufferUtils.readMapped(this.resource, 6, super.bufferFactory, 4);
+
+		StepVerifier.create(flux)
+				.consumeNextWith(stringConsumer("bazq"))
+				.consumeNextWith(stringConsumer("ux"))
+				.expectComplete()
+				.verify(Duration.ofSeconds(5));
+	}
+
+	@ParameterizedDataBufferAllocatingTest
+	void readMappedResourcePositionBeyondEnd(String displayName, DataBufferFactory bufferFactory) throws Exception {
+		super.bufferFactory = bufferFactory;
+
+		Flux<DataBuffer> flux = DataBufferUtils.readMapped(this.resource, 100, super.bufferFactory, 3);
+
+		StepVerifier.create(flux)
+				.expectComplete()
+				.verify(Duration.ofSeconds(5));
+	}
+
 	private void verifyReadData(Flux<DataBuffer> buffers) {
 		StepVerifier.create(buffers)
 				.consumeNextWith(stringConsumer("foo"))
@@ -836,6 +869,41 @@ class DataBufferUtilsTests extends AbstractDataBufferAllocatingTests {
 				.verifyError(DataBufferLimitException.class);
 	}
 
+	@Test
+	void joinCopiesByDefault() {
+		DefaultDataBufferFactory bufferFactory = DefaultDataBufferFactory.sharedInstance;
+		Flux<DataBuffer> flux = Flux.just(bufferFactory.wrap("foo".getBytes(StandardCharsets.UTF_8)),
+				bufferFactory.wrap("bar".getBytes(StandardCharsets.UTF_8)));
+
+		StepVerifier.create(DataBufferUtils.join(flux))
+				.consumeNextWith(buf -> {
+					assertThat(buf).isInstanceOf(DefaultDataBuffer.class);
+					assertThat(buf.toString(StandardCharsets.UTF_8)).isEqualTo("foobar");
+				})
+				.verifyComplete();
+	}
+
+	@ParameterizedDataBufferAllocatingTest
+	void joinWithCompose(String displayName, DataBufferFactory bufferFactory) {
+		super.bufferFactory = bufferFactory;
+
+		DataBuffer foo = stringBuffer("foo");
+		DataBuffer bar = stringBuffer("bar");
+		DataBuffer baz = stringBuffer("baz");
+		Flux<DataBuffer> flux = Flux.just(foo, bar, baz);
+		Mono<DataBuffer> result = DataBufferUtils.join(flux, -1, true);
+
+		StepVerifier.create(result)
+				.consumeNextWith(buf -> {
+					if (bufferFactory instanceof DefaultDataBufferFactory) {
+						assertThat(buf).isInstanceOf(CompositeDataBuffer.class);
+					}
+					assertThat(buf.toString(StandardCharsets.UTF_8)).isEqualTo("foobarbaz");
+					release(buf);
+				})
+				.verifyComplete();
+	}
+
 	@Test // gh-26060
 	void joinWithLimitDoesNotOverRelease() {
 		NettyDataBufferFactory bufferFactory = new NettyDataBufferFactory(PooledByteBufAllocator.DEFAULT);
@@ -940,6 +1008,48 @@ class DataBufferUtilsTests extends AbstractDataBufferAllocatingTests {
 		release(foo);
 	}
 
+	@ParameterizedDataBufferAllocatingTest
+	void matcherMultipleDelimiters(String displayName, DataBufferFactory bufferFactory) {
+		super.bufferFactory = bufferFactory;
+
+		DataBuffer foo = stringBuffer("foo\r");
+		DataBuffer bar = stringBuffer("\nbar\nbaz-quux--");
+
+		DataBufferUtils.Matcher matcher = DataBufferUtils.matcher(
+				"\n".getBytes(StandardCharsets.UTF_8), "\r\n".getBytes(StandardCharsets.UTF_8),
+				"--".getBytes(StandardCharsets.UTF_8));
+		assertThat(matcher.match(foo)).isEqualTo(-1);
+		int endIndex = matcher.match(bar);
+		assertThat(endIndex).isEqualTo(0);
+		assertThat(matcher.delimiter()).isEqualTo("\r\n".getBytes(StandardCharsets.UTF_8));
+		bar.readPosition(endIndex + 1);
+		endIndex = matcher.match(bar);
+		assertThat(endIndex).isEqualTo(4);
+		assertThat(matcher.delimiter()).isEqualTo("\n".getBytes(StandardCharsets.UTF_8));
+		bar.readPosition(endIndex + 1);
+		endIndex = matcher.match(bar);
+		assertThat(endIndex).isEqualTo(14);
+		assertThat(matcher.delimiter()).isEqualTo("--".getBytes(StandardCharsets.UTF_8));
+		bar.readPosition(endIndex + 1);
+		assertThat(matcher.match(bar)).isEqualTo(-1);
+
+		release(foo, bar);
+	}
+
+	@ParameterizedDataBufferAllocatingTest
+	void matcherMultipleDelimitersWithPartialMatch(String displayName, DataBufferFactory bufferFactory) {
+		super.bufferFactory = bufferFactory;
+
+		DataBuffer foo = stringBuffer("cab");
+
+		DataBufferUtils.Matcher matcher = DataBufferUtils.matcher(
+				"b".getBytes(StandardCharsets.UTF_8), "cb".getBytes(StandardCharsets.UTF_8));
+		assertThat(matcher.match(foo)).isEqualTo(2);
+		assertThat(matcher.delimiter()).isEqualTo("b".getBytes(StandardCharsets.UTF_8));
+
+		release(foo);
+	}
+
 
 	private static class ZeroDemandSubscriber extends BaseSubscriber<DataBuffer> {
 
@@ -0,0 +1,162 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.core.io.buffer;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalStateException;
+
+/**
+ * Tests for {@link PooledDataBufferFactory}.
+ *
+ * @author Lars Hofmann
+ */
+class PooledDataBufferFactoryTests {
+
+	private final PooledDataBufferFactory bufferFactory = new PooledDataBufferFactory(false);
+
+
+	@Test
+	void releasedBufferIsRecycled() {
+		DefaultDataBuffer buffer = this.bufferFactory.allocateBuffer(100);
+		byte[] array = buffer.getNativeBuffer().array();
+		assertThat(array).hasSize(128);
+		assertThat(DataBufferUtils.release(buffer)).isTrue();
+
+		DefaultDataBuffer other = this.bufferFactory.allocateBuffer(120);
+		assertThat(other.capacity()).isEqualTo(120);
+		assertThat(other.getNativeBuffer().array()).isSameAs(array);
+		DataBufferUtils.release(other);
+	}
+
+	@Test
+	void retainedBufferIsNotRecycled() {
+		DefaultDataBuffer buffer = this.bufferFactory.allocateBuffer(100);
+		byte[] array = buffer.getNativeBuffer().array();
+		DataBufferUtils.retain(buffer);
+		assertThat(DataBufferUtils.release(buffer)).isFalse();
+
+		DefaultDataBuffer other = this.bufferFactory.allocateBuffer(100);
+		assertThat(other.getNativeBuffer().array()).isNotSameAs(array);
+		DataBufferUtils.release(buffer);
+		DataBufferUtils.release(other);
+	}
+
+	@Test
+	void capacityChangeRecyclesPreviousChunk() {
+		DefaultDataBuffer buffer = this.bufferFactory.allocateBuffer(100);
+		byte[] array = buffer.getNativeBuffer().array();
+		buffer.write("foo", StandardCharsets.UTF_8);
+		buffer.capacity(1000);
+		assertThat(buffer.toString(StandardCharsets.UTF_8)).isEqualTo("foo");
+
+		DefaultDataBuffer other = this.bufferFactory.allocateBuffer(100);
+		assertThat(other.getNativeBuffer().array()).isSameAs(array);
+		DataBufferUtils.release(buffer);
+		DataBufferUtils.release(other);
+	}
+
+	@Test
+	void capacityChangeKeepsPreviousChunkForSlices() {
+		DefaultDataBuffer buffer = this.bufferFactory.allocateBuffer(100);
+		buffer.write("foobar", StandardCharsets.UTF_8);
+		DataBuffer slice = buffer.slice(0, 3);
+		ByteBuffer view = buffer.asByteBuffer(3, 3);
+		byte[] array = buffer.getNativeBuffer().array();
+		buffer.capacity(1000);
+
+		DefaultDataBuffer other = this.bufferFactory.allocateBuffer(100);
+		assertThat(other.getNativeBuffer().array()).isNotSameAs(array);
+		other.write(new byte[100]);
+		assertThat(slice.toString(StandardCharsets.UTF_8)).isEqualTo("foo");
+		assertThat(StandardCharsets.UTF_8.decode(view).toString()).isEqualTo("bar");
+		DataBufferUtils.release(other);
+
+		assertThat(DataBufferUtils.release(buffer)).isTrue();
+		DefaultDataBuffer recycled = this.bufferFactory.allocateBuffer(100);
+		assertThat(recycled.getNativeBuffer().array()).isSameAs(array);
+		DataBufferUtils.release(recycled);
+	}
+
+	@Test
+	void sliceSharesReferenceCount() {
+		DefaultDataBuffer buffer = this.bufferFactory.allocateBuffer(100);
+		buffer.write("foobar", StandardCharsets.UTF_8);
+		DataBuffer slice = buffer.retainedSlice(0, 3);
+		assertThat(slice).isInstanceOf(PooledDataBuffer.class);
+		assertThat(slice.toString(StandardCharsets.UTF_8)).isEqualTo("foo");
+
+		assertThat(DataBufferUtils.release(buffer)).isFalse();
+		assertThat(DataBufferUtils.release(slice)).isTrue();
+		assertThat(((PooledDataBuffer) buffer).isAllocated()).isFalse();
+		assertThatIllegalStateException().isThrownBy(((PooledDataBuffer) slice)::release);
+	}
+
+	@Test
+	void outstandingBufferCount() {
+		DefaultDataBuffer buffer = this.bufferFactory.allocateBuffer(100);
+		DataBuffer slice = buffer.retainedSlice(0, 10);
+		DefaultDataBuffer other = this.bufferFactory.allocateBuffer(100);
+		other.capacity(PooledDataBufferFactory.DEFAULT_MAX_POOLED_CAPACITY * 2);
+		assertThat(this.bufferFactory.getOutstandingBufferCount()).isEqualTo(2);
+
+		DataBufferUtils.release(buffer);
+		assertThat(this.bufferFactory.getOutstandingBufferCount()).isEqualTo(2);
+		DataBufferUtils.release(slice);
+		DataBufferUtils.release(other);
+		assertThat(this.bufferFactory.getOutstandingBufferCount()).isEqualTo(0);
+	}
+
+	@Test
+	void disposeDropsPooledMemory() throws Exception {
+		DefaultDataBuffer buffer = this.bufferFactory.allocateBuffer(100);
+		byte[] array = buffer.getNativeBuffer().array();
+		DataBufferUtils.release(buffer);
+		// Recycled into the thread cache of another thread
+		Thread thread = new Thread(() -> DataBufferUtils.release(this.bufferFactory.allocateBuffer(200)));
+		thread.start();
+		thread.join();
+
+		DefaultDataBuffer outstanding = this.bufferFactory.allocateBuffer(100);
+		assertThat(outstanding.getNativeBuffer().array()).isSameAs(array);
+		this.bufferFactory.dispose();
+		assertThat(this.bufferFactory.isDisposed()).isTrue();
+		assertThat(DataBufferUtils.release(outstanding)).isTrue();
+		assertThat(this.bufferFactory.getOutstandingBufferCount()).isEqualTo(0);
+
+		DefaultDataBuffer other = this.bufferFactory.allocateBuffer(100);
+		assertThat(other).isNotInstanceOf(PooledDataBuffer.class);
+		assertThat(other.getNativeBuffer().array()).isNotSameAs(array);
+	}
+
+	@Test
+	void largeBufferIsNotPooled() {
+		DefaultDataBuffer buffer = this.bufferFactory.allocateBuffer(PooledDataBufferFactory.DEFAULT_MAX_POOLED_CAPACITY + 1);
+		assertThat(buffer).isNotInstanceOf(PooledDataBuffer.class);
+	}
+
+	@Test
+	void wrappedBufferIsNotPooled() {
+		DefaultDataBuffer buffer = this.bufferFactory.wrap(new byte[] {'a'});
+		assertThat(buffer).isNotInstanceOf(PooledDataBuffer.class);
+	}
+
+}
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2019 the original author or authors.
+ * Copyright 2002-2021 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -22,6 +22,7 @@ import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
 
 import org.junit.jupiter.api.Disabled;
 import org.junit.jupiter.api.Test;
@@ -40,6 +41,7 @@ import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
  * @author Juergen Hoeller
  * @author Chris Beams
  * @author Sam Brannen
+ * @author Lars Hofmann
  * @since 17.11.2004
  */
 class PathMatchingResourcePatternResolverTests {
@@ -129,6 +131,29 @@ class PathMatchingResourcePatternResolverTests {
 		assertThat(found).as("Could not find aspectj_1_5_0.dtd in the root of the aspectjweaver jar").isTrue();
 	}
 
+	@Test
+	void parallelResolutionOnFileSystem() throws IOException {
+		assertParallelResolutionMatchesSequentialResolution("classpath*:org/springframework/core/**/*.class");
+	}
+
+	@Test
+	void parallelResolutionInJar() throws IOException {
+		assertParallelResolutionMatchesSequentialResolution("classpath*:reactor/**/*.class");
+	}
+
+	@Test
+	void parallelResolutionAcrossJars() throws IOException {
+		assertParallelResolutionMatchesSequentialResolution("classpath*:org/**/*.class");
+	}
+
+
+	private void assertParallelResolutionMatchesSequentialResolution(String locationPattern) throws IOException {
+		PathMatchingResourcePatternResolver parallelResolver = new PathMatchingResourcePatternResolver();
+		parallelResolver.setForkJoinPool(ForkJoinPool.commonPool());
+		Resource[] resources = resolver.getResources(locationPattern);
+		assertThat(resources).isNotEmpty();
+		assertThat(parallelResolver.getResources(locationPattern)).containsExactly(resources);
+	}
 
 	private void assertProtocolAndFilenames(Resource[] resources, String protocol, String... filenames)
 			throws IOException {
@@ -0,0 +1,160 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.core.metrics.buffering;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import org.springframework.core.metrics.ApplicationStartup;
+import org.springframework.core.metrics.StartupStep;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalStateException;
+
+/**
+ * Tests for {@link BufferingApplicationStartup}.
+ *
+ * @author Lars Hofmann
+ */
+class BufferingApplicationStartupTests {
+
+	@Test
+	void recordNestedSteps() {
+		BufferingApplicationStartup applicationStartup = new BufferingApplicationStartup(16);
+		StartupStep refresh = applicationStartup.start("spring.context.refresh");
+		StartupStep first = applicationStartup.start("spring.beans.instantiate").tag("beanName", "first");
+		StartupStep second = applicationStartup.start("spring.beans.instantiate").tag("beanName", "second");
+		second.end();
+		first.end();
+		StartupStep third = applicationStartup.start("spring.beans.instantiate").tag("beanName", "third");
+		third.end();
+		refresh.end();
+
+		assertThat(first.getParentId()).isEqualTo(refresh.getId());
+		assertThat(second.getParentId()).isEqualTo(first.getId());
+		assertThat(third.getParentId()).isEqualTo(refresh.getId());
+
+		StartupReport report = applicationStartup.getReport();
+		assertThat(report.getSteps()).hasSize(4);
+		assertThat(report.getRootSteps()).hasSize(1);
+		StartupReport.Step root = report.getRootSteps().get(0);
+		assertThat(root.getName()).isEqualTo("spring.context.refresh");
+		assertThat(root.getChildren()).hasSize(2);
+		assertThat(root.getChildren().get(0).getTag("beanName")).isEqualTo("first");
+		assertThat(root.getChildren().get(0).getChildren().get(0).getTag("beanName")).isEqualTo("second");
+		assertThat(report.getSteps("spring.beans.instantiate")).hasSize(3);
+		List<StartupReport.Step> slowest = report.getSlowestSteps("spring.beans.instantiate", 2);
+		assertThat(slowest).hasSize(2);
+		assertThat(slowest.get(0).getDuration()).isGreaterThanOrEqualTo(slowest.get(1).getDuration());
+		assertThat(root.getSelfDuration()).isLessThanOrEqualTo(root.getDuration());
+		assertThat(report.getDroppedStepCount()).isEqualTo(0);
+	}
+
+	@Test
+	void recordStepsPerThread() throws Exception {
+		BufferingApplicationStartup applicationStartup = new BufferingApplicationStartup(16);
+		StartupStep refresh = applicationStartup.start("spring.context.refresh");
+		StartupStep first = applicationStartup.start("spring.beans.instantiate").tag("beanName", "first");
+
+		StartupStep[] background = new StartupStep[2];
+		Thread thread = new Thread(() -> {
+			background[0] = applicationStartup.start("spring.beans.instantiate").tag("beanName", "background");
+			background[1] = applicationStartup.start("spring.beans.instantiate").tag("beanName", "nested");
+		});
+		thread.start();
+		thread.join();
+
+		StartupStep second = applicationStartup.start("spring.beans.instantiate").tag("beanName", "second");
+		background[0].end();
+		first.end();
+		StartupStep third = applicationStartup.start("spring.beans.instantiate").tag("beanName", "third");
+		second.end();
+		background[1].end();
+		third.end();
+		refresh.end();
+
+		assertThat(first.getParentId()).isEqualTo(refresh.getId());
+		assertThat(background[0].getParentId()).isNull();
+		assertThat(background[1].getParentId()).isEqualTo(background[0].getId());
+		assertThat(second.getParentId()).isEqualTo(first.getId());
+		assertThat(third.getParentId()).isEqualTo(second.getId());
+
+		StartupStep afterRefresh = applicationStartup.start("spring.beans.instantiate");
+		afterRefresh.end();
+		assertThat(afterRefresh.getParentId()).isNull();
+	}
+
+	@Test
+	void dropOldestStepsWhenCapacityExceeded() {
+		BufferingApplicationStartup applicationStartup = new BufferingApplicationStartup(2);
+		for (int i = 0; i < 5; i++) {
+			applicationStartup.start("step").tag("index", String.valueOf(i)).end();
+		}
+		StartupReport report = applicationStartup.getReport();
+		assertThat(report.getSteps()).hasSize(2);
+		assertThat(report.getSteps().get(0).getTag("index")).isEqualTo("3");
+		assertThat(report.getSteps().get(1).getTag("index")).isEqualTo("4");
+		assertThat(report.getDroppedStepCount()).isEqualTo(3);
+	}
+
+	@Test
+	void stopRecording() {
+		BufferingApplicationStartup applicationStartup = new BufferingApplicationStartup(16);
+		applicationStartup.stopRecording();
+		StartupStep step = applicationStartup.start("step");
+		assertThat(step).isInstanceOf(ApplicationStartup.DEFAULT.start("step").getClass());
+		step.end();
+		assertThat(applicationStartup.getReport().getSteps()).isEmpty();
+
+		applicationStartup.startRecording();
+		applicationStartup.start("step").end();
+		assertThat(applicationStartup.getReport().getSteps()).hasSize(1);
+	}
+
+	@Test
+	void tagAfterEndIsRejected() {
+		StartupStep step = new BufferingApplicationStartup(16).start("step");
+		step.end();
+		assertThatIllegalStateException().isThrownBy(() -> step.tag("key", "value"));
+	}
+
+	@Test
+	void writeJsonReportWhenRefreshEnds(@TempDir Path tempDir) throws Exception {
+		Path reportFile = tempDir.resolve("startup.json");
+		BufferingApplicationStartup applicationStartup = new BufferingApplicationStartup(16);
+		applicationStartup.setReportFile(reportFile);
+		StartupStep refresh = applicationStartup.start("spring.context.refresh");
+		applicationStartup.start("spring.beans.instantiate").tag("beanName", "my\"bean").end();
+		assertThat(reportFile).doesNotExist();
+		refresh.end();
+
+		String json = new String(Files.readAllBytes(reportFile), StandardCharsets.UTF_8);
+		assertThat(json).startsWith("{\"droppedStepCount\":0,\"steps\":[{\"id\":1,\"name\":\"spring.context.refresh\"");
+		assertThat(json).contains("\"children\":[{\"id\":2,\"name\":\"spring.beans.instantiate\"");
+		assertThat(json).contains("\"tags\":{\"beanName\":\"my\\\"bean\"}");
+		assertThat(json).isEqualTo(applicationStartup.getReport().toJson());
+
+		applicationStartup.start("spring.beans.instantiate").tag("beanName", "prototype").end();
+		assertThat(new String(Files.readAllBytes(reportFile), StandardCharsets.UTF_8)).isEqualTo(json);
+	}
+
+}
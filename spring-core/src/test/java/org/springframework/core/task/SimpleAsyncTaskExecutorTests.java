@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2019 the original author or authors.
+ * Copyright 2002-2021 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -25,6 +25,8 @@ import org.springframework.util.ConcurrencyThrottleSupport;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
 import static org.assertj.core.api.Assertions.assertThatIllegalStateException;
+import static org.junit.jupiter.api.Assumptions.assumeFalse;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
 
 /**
  * @author Rick Evans
@@ -72,6 +74,29 @@ class SimpleAsyncTaskExecutorTests {
 		assertThat(task.getThreadName()).isEqualTo("test");
 	}
 
+	@Test
+	void virtualThreadNameAndTaskDecoratorApplied() throws Exception {
+		assumeTrue(VirtualThreadTaskExecutor.isSupported(), "Virtual threads not supported");
+		final Object monitor = new Object();
+		VirtualThreadTaskExecutor executor = new VirtualThreadTaskExecutor("virtual#");
+		executor.setTaskDecorator(runnable -> () -> {
+			Thread.currentThread().setName(Thread.currentThread().getName() + "-decorated");
+			runnable.run();
+		});
+		assertThat(executor.isVirtualThreads()).isTrue();
+		ThreadNameHarvester task = new ThreadNameHarvester(monitor);
+		executeAndWait(executor, task, monitor);
+		assertThat(task.getThreadName()).startsWith("virtual#").endsWith("-decorated");
+	}
+
+	@Test
+	void virtualThreadsRejectedIfNotSupported() throws Exception {
+		assumeFalse(VirtualThreadTaskExecutor.isSupported(), "Virtual threads supported");
+		assertThatIllegalStateException().isThrownBy(() ->
+				new SimpleAsyncTaskExecutor().setVirtualThreads(true));
+		assertThatIllegalStateException().isThrownBy(VirtualThreadTaskExecutor::new);
+	}
+
 	@Test
 	void throwsExceptionWhenSuppliedWithNullRunnable() throws Exception {
 		assertThatIllegalArgumentException().isThrownBy(() ->
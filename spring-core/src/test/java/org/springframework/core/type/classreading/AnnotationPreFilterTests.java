@@ -0,0 +1,149 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.core.type.classreading;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.util.Collections;
+
+import org.junit.jupiter.api.Test;
+
+import org.springframework.asm.ClassReader;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.core.io.Resource;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Tests for {@link AnnotationPreFilter}.
+ *
+ * @author Lars Hofmann
+ */
+class AnnotationPreFilterTests {
+
+	private final AnnotationPreFilter preFilter =
+			new AnnotationPreFilter(Collections.singleton(Candidate.class.getName()));
+
+
+	@Test
+	void rejectsClassWithoutAnnotations() throws IOException {
+		assertThat(this.preFilter.mayMatch(classReader(Plain.class))).isFalse();
+	}
+
+	@Test
+	void rejectsClassWithMemberAnnotationsOnly() throws IOException {
+		assertThat(this.preFilter.mayMatch(classReader(AnnotatedMethod.class))).isFalse();
+	}
+
+	@Test
+	void rejectsClassWithPlainJavaAnnotationsOnly() throws IOException {
+		assertThat(this.preFilter.mayMatch(classReader(PlainAnnotated.class))).isFalse();
+	}
+
+	@Test
+	void acceptsClassWithCandidateAnnotation() throws IOException {
+		assertThat(this.preFilter.mayMatch(classReader(CandidateAnnotated.class))).isTrue();
+	}
+
+	@Test
+	void acceptsClassWithUnknownAnnotation() throws IOException {
+		assertThat(this.preFilter.mayMatch(classReader(StereotypeAnnotated.class))).isTrue();
+		assertThat(this.preFilter.mayMatch(classReader(UnrelatedAnnotated.class))).isTrue();
+	}
+
+	@Test
+	void learnsStereotypesAndUnrelatedAnnotations() throws IOException {
+		SimpleMetadataReaderFactory factory = new SimpleMetadataReaderFactory();
+		factory.getMetadataReader(resource(StereotypeAnnotated.class), this.preFilter);
+		factory.getMetadataReader(resource(UnrelatedAnnotated.class), this.preFilter);
+		assertThat(this.preFilter.mayMatch(classReader(StereotypeAnnotated.class))).isTrue();
+		assertThat(this.preFilter.mayMatch(classReader(UnrelatedAnnotated.class))).isFalse();
+	}
+
+	@Test
+	void metadataReaderFactoryReturnsNullForRejectedClass() throws IOException {
+		SimpleMetadataReaderFactory factory = new SimpleMetadataReaderFactory();
+		assertThat(factory.getMetadataReader(resource(Plain.class), this.preFilter)).isNull();
+		MetadataReader metadataReader = factory.getMetadataReader(resource(CandidateAnnotated.class), this.preFilter);
+		assertThat(metadataReader).isNotNull();
+		assertThat(metadataReader.getAnnotationMetadata().hasAnnotation(Candidate.class.getName())).isTrue();
+	}
+
+	@Test
+	void cachingMetadataReaderFactoryReturnsCachedReaderRegardlessOfPreFilter() throws IOException {
+		CachingMetadataReaderFactory factory = new CachingMetadataReaderFactory();
+		assertThat(factory.getMetadataReader(resource(Plain.class), this.preFilter)).isNull();
+		MetadataReader metadataReader = factory.getMetadataReader(resource(Plain.class));
+		assertThat(factory.getMetadataReader(resource(Plain.class), this.preFilter)).isSameAs(metadataReader);
+	}
+
+
+	private static Resource resource(Class<?> clazz) {
+		return new ClassPathResource(clazz.getName().replace('.', '/') + ".class");
+	}
+
+	private static ClassReader classReader(Class<?> clazz) throws IOException {
+		try (InputStream inputStream = resource(clazz).getInputStream()) {
+			return new ClassReader(inputStream);
+		}
+	}
+
+
+	@Retention(RetentionPolicy.RUNTIME)
+	@interface Candidate {
+	}
+
+	@Retention(RetentionPolicy.RUNTIME)
+	@Candidate
+	@interface Stereotype {
+	}
+
+	@Retention(RetentionPolicy.RUNTIME)
+	@interface Unrelated {
+	}
+
+	static class Plain {
+	}
+
+	static class AnnotatedMethod {
+
+		@Unrelated
+		public void method() {
+		}
+	}
+
+	@FunctionalInterface
+	interface PlainAnnotated {
+
+		void method();
+	}
+
+	@Candidate
+	static class CandidateAnnotated {
+	}
+
+	@Stereotype
+	static class StereotypeAnnotated {
+	}
+
+	@Unrelated
+	static class UnrelatedAnnotated {
+	}
+
+}
@@ -0,0 +1,227 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.core.type.classreading;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.annotation.Annotation;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.List;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import org.springframework.core.annotation.MergedAnnotation;
+import org.springframework.core.annotation.Order;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.UrlResource;
+import org.springframework.core.type.AnnotationMetadata;
+import org.springframework.core.type.TestAutowired;
+import org.springframework.core.type.classreading.PersistentMetadataReaderFactoryTests.Outer.Inner;
+import org.springframework.util.FileCopyUtils;
+import org.springframework.util.StreamUtils;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Tests for {@link PersistentMetadataReaderFactory}.
+ *
+ * @author Lars Hofmann
+ */
+class PersistentMetadataReaderFactoryTests {
+
+	@TempDir
+	File cacheDirectory;
+
+	@TempDir
+	File classDirectory;
+
+
+	@Test
+	void cacheFilesAreWrittenOnFlush() throws Exception {
+		PersistentMetadataReaderFactory factory = new PersistentMetadataReaderFactory(this.cacheDirectory);
+		factory.getMetadataReader(Outer.class.getName());
+		assertThat(this.cacheDirectory.list()).isEmpty();
+		factory.flush();
+		assertThat(this.cacheDirectory.list()).hasSize(1);
+	}
+
+	@Test
+	void cacheFilesAreWrittenOnClearCache() throws Exception {
+		PersistentMetadataReaderFactory factory = new PersistentMetadataReaderFactory(this.cacheDirectory);
+		factory.getMetadataReader(Outer.class.getName());
+		factory.clearCache();
+		assertThat(this.cacheDirectory.list()).hasSize(1);
+	}
+
+	@Test
+	void cachedMetadataMatchesParsedMetadata() throws Exception {
+		PersistentMetadataReaderFactory factory = new PersistentMetadataReaderFactory(this.cacheDirectory);
+		factory.getMetadataReader(Outer.class.getName());
+		factory.getMetadataReader(Inner.class.getName());
+		factory.flush();
+
+		factory = new PersistentMetadataReaderFactory(this.cacheDirectory);
+		assertSameMetadata(factory.getMetadataReader(Outer.class.getName()), Outer.class);
+		assertSameMetadata(factory.getMetadataReader(Inner.class.getName()), Inner.class);
+	}
+
+	@Test
+	void changedClassFileIsParsedAgain() throws Exception {
+		File classFile = new File(this.classDirectory, "Sample.class");
+		copyClassFile(Outer.class, classFile);
+		PersistentMetadataReaderFactory factory = new PersistentMetadataReaderFactory(this.cacheDirectory);
+		assertThat(factory.getMetadataReader(new FileSystemResource(classFile))
+				.getClassMetadata().getClassName()).isEqualTo(Outer.class.getName());
+		factory.flush();
+
+		copyClassFile(Inner.class, classFile);
+		factory = new PersistentMetadataReaderFactory(this.cacheDirectory);
+		assertThat(factory.getMetadataReader(new FileSystemResource(classFile))
+				.getClassMetadata().getClassName()).isEqualTo(Inner.class.getName());
+	}
+
+	@Test
+	void jarEntriesAreCachedAndInvalidatedWhenJarChanges() throws Exception {
+		File jarFile = new File(this.classDirectory, "sample.jar");
+		writeJar(jarFile, Outer.class);
+		Resource resource = new UrlResource("jar:" + jarFile.toURI() + "!/Sample.class");
+		PersistentMetadataReaderFactory factory = new PersistentMetadataReaderFactory(this.cacheDirectory);
+		assertThat(factory.getMetadataReader(resource).getClassMetadata().getClassName())
+				.isEqualTo(Outer.class.getName());
+		factory.flush();
+
+		factory = new PersistentMetadataReaderFactory(this.cacheDirectory);
+		MetadataReader metadataReader = factory.getMetadataReader(resource);
+		assertThat(metadataReader.getResource()).isSameAs(resource);
+		assertSameMetadata(metadataReader, Outer.class);
+
+		writeJar(jarFile, Inner.class);
+		jarFile.setLastModified(jarFile.lastModified() + 2000);
+		factory = new PersistentMetadataReaderFactory(this.cacheDirectory);
+		assertThat(factory.getMetadataReader(new UrlResource(resource.getURL()))
+				.getClassMetadata().getClassName()).isEqualTo(Inner.class.getName());
+	}
+
+	@Test
+	void corruptCacheFileIsIgnored() throws Exception {
+		PersistentMetadataReaderFactory factory = new PersistentMetadataReaderFactory(this.cacheDirectory);
+		factory.getMetadataReader(Outer.class.getName());
+		factory.flush();
+		for (File file : this.cacheDirectory.listFiles()) {
+			Files.write(file.toPath(), new byte[] {1, 2, 3});
+		}
+
+		factory = new PersistentMetadataReaderFactory(this.cacheDirectory);
+		assertSameMetadata(factory.getMetadataReader(Outer.class.getName()), Outer.class);
+	}
+
+	@Test
+	void corruptCacheEntryIsDropped() throws Exception {
+		PersistentMetadataReaderFactory factory = new PersistentMetadataReaderFactory(this.cacheDirectory);
+		factory.getMetadataReader(Outer.class.getName());
+		factory.flush();
+		byte[] className = Outer.class.getName().getBytes(StandardCharsets.UTF_8);
+		for (File file : this.cacheDirectory.listFiles()) {
+			byte[] content = Files.readAllBytes(file.toPath());
+			for (int i = 0; i <= content.length - className.length; i++) {
+				if (Arrays.equals(Arrays.copyOfRange(content, i, i + className.length), className)) {
+					// Invalid modified UTF-8 in the class name of the entry
+					content[i] = (byte) 0xFF;
+					break;
+				}
+			}
+			Files.write(file.toPath(), content);
+		}
+
+		factory = new PersistentMetadataReaderFactory(this.cacheDirectory);
+		assertSameMetadata(factory.getMetadataReader(Outer.class.getName()), Outer.class);
+		factory.getMetadataReader(Inner.class.getName());
+		factory.flush();
+
+		factory = new PersistentMetadataReaderFactory(this.cacheDirectory);
+		assertSameMetadata(factory.getMetadataReader(Outer.class.getName()), Outer.class);
+		assertSameMetadata(factory.getMetadataReader(Inner.class.getName()), Inner.class);
+	}
+
+
+	private static void assertSameMetadata(MetadataReader metadataReader, Class<?> type) throws IOException {
+		AnnotationMetadata expected = new SimpleMetadataReaderFactory().getMetadataReader(type.getName())
+				.getAnnotationMetadata();
+		AnnotationMetadata actual = metadataReader.getAnnotationMetadata();
+		assertThat(actual.getClassName()).isEqualTo(expected.getClassName());
+		assertThat(actual.getSuperClassName()).isEqualTo(expected.getSuperClassName());
+		assertThat(actual.getEnclosingClassName()).isEqualTo(expected.getEnclosingClassName());
+		assertThat(actual.isIndependent()).isEqualTo(expected.isIndependent());
+		assertThat(actual.getInterfaceNames()).isEqualTo(expected.getInterfaceNames());
+		assertThat(actual.getMemberClassNames()).isEqualTo(expected.getMemberClassNames());
+		assertThat(synthesize(actual)).isNotEmpty().isEqualTo(synthesize(expected));
+		assertThat(actual.getAnnotatedMethods(TestAutowired.class.getName())).hasSameSizeAs(
+				expected.getAnnotatedMethods(TestAutowired.class.getName()));
+	}
+
+	private static List<Annotation> synthesize(AnnotationMetadata metadata) {
+		return metadata.getAnnotations().stream().map(MergedAnnotation::synthesize).collect(Collectors.toList());
+	}
+
+	private static void copyClassFile(Class<?> type, File target) throws IOException {
+		try (InputStream in = getClassResource(type).getInputStream()) {
+			FileCopyUtils.copy(in, Files.newOutputStream(target.toPath()));
+		}
+	}
+
+	private static void writeJar(File jarFile, Class<?> type) throws IOException {
+		try (JarOutputStream out = new JarOutputStream(Files.newOutputStream(jarFile.toPath()))) {
+			out.putNextEntry(new JarEntry("Sample.class"));
+			try (InputStream in = getClassResource(type).getInputStream()) {
+				StreamUtils.copy(in, out);
+			}
+			out.closeEntry();
+		}
+	}
+
+	private static Resource getClassResource(Class<?> type) {
+		return new ClassPathResource(type.getName().replace('.', '/') + ".class");
+	}
+
+
+	@Order(1)
+	static class Outer {
+
+		@TestAutowired
+		public Object annotated() {
+			return null;
+		}
+
+		@Order(2)
+		static class Inner extends Outer implements Runnable {
+
+			@Override
+			public void run() {
+			}
+		}
+	}
+
+}
@@ -0,0 +1,184 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Tests for {@link ConcurrentTinyLfuCache}.
+ *
+ * @author Lars Hofmann
+ */
+class ConcurrentTinyLfuCacheTests {
+
+	private final ConcurrentTinyLfuCache<String, String> cache = new ConcurrentTinyLfuCache<>(2, key -> key + "value");
+
+
+	@Test
+	void getAndSize() {
+		assertThat(this.cache.sizeLimit()).isEqualTo(2);
+		assertThat(this.cache.size()).isEqualTo(0);
+		assertThat(this.cache.get("k1")).isEqualTo("k1value");
+		assertThat(this.cache.size()).isEqualTo(1);
+		assertThat(this.cache.contains("k1")).isTrue();
+		assertThat(this.cache.get("k2")).isEqualTo("k2value");
+		assertThat(this.cache.size()).isEqualTo(2);
+		assertThat(this.cache.contains("k1")).isTrue();
+		assertThat(this.cache.contains("k2")).isTrue();
+		assertThat(this.cache.get("k3")).isEqualTo("k3value");
+		assertThat(this.cache.size()).isEqualTo(2);
+		assertThat(this.cache.contains("k3")).isTrue();
+	}
+
+	@Test
+	void removeAndSize() {
+		assertThat(this.cache.get("k1")).isEqualTo("k1value");
+		assertThat(this.cache.get("k2")).isEqualTo("k2value");
+		assertThat(this.cache.size()).isEqualTo(2);
+		assertThat(this.cache.remove("k2")).isTrue();
+		assertThat(this.cache.remove("k2")).isFalse();
+		assertThat(this.cache.size()).isEqualTo(1);
+		assertThat(this.cache.contains("k1")).isTrue();
+		assertThat(this.cache.contains("k2")).isFalse();
+		assertThat(this.cache.get("k3")).isEqualTo("k3value");
+		assertThat(this.cache.size()).isEqualTo(2);
+		assertThat(this.cache.contains("k1")).isTrue();
+		assertThat(this.cache.contains("k2")).isFalse();
+		assertThat(this.cache.contains("k3")).isTrue();
+	}
+
+	@Test
+	void clearAndSize() {
+		assertThat(this.cache.get("k1")).isEqualTo("k1value");
+		assertThat(this.cache.get("k2")).isEqualTo("k2value");
+		assertThat(this.cache.size()).isEqualTo(2);
+		this.cache.clear();
+		assertThat(this.cache.size()).isEqualTo(0);
+		assertThat(this.cache.contains("k1")).isFalse();
+		assertThat(this.cache.contains("k2")).isFalse();
+		assertThat(this.cache.get("k3")).isEqualTo("k3value");
+		assertThat(this.cache.size()).isEqualTo(1);
+		assertThat(this.cache.contains("k3")).isTrue();
+	}
+
+	@Test
+	void noCaching() {
+		AtomicInteger counter = new AtomicInteger();
+		ConcurrentTinyLfuCache<String, Integer> cache = new ConcurrentTinyLfuCache<>(0, key -> counter.incrementAndGet());
+		assertThat(cache.get("k1")).isEqualTo(1);
+		assertThat(cache.get("k1")).isEqualTo(2);
+		assertThat(cache.size()).isEqualTo(0);
+	}
+
+	@Test
+	void frequentlyUsedEntriesSurviveScan() {
+		ConcurrentTinyLfuCache<Integer, String> cache = new ConcurrentTinyLfuCache<>(100, String::valueOf);
+		for (int round = 0; round < 10; round++) {
+			for (int key = 0; key < 50; key++) {
+				cache.get(key);
+			}
+		}
+		// Each frequently used key is accessed once per 200 one-off keys:
+		// too rarely to be retained by an LRU cache of the same size
+		for (int key = 1000; key < 11000; key++) {
+			cache.get(key);
+			if (key % 4 == 0) {
+				cache.get((key / 4) % 50);
+			}
+		}
+		assertThat(cache.size()).isEqualTo(100);
+		for (int key = 0; key < 50; key++) {
+			assertThat(cache.contains(key)).isTrue();
+		}
+	}
+
+	@Test
+	void concurrentMissesStayBounded() throws InterruptedException {
+		ConcurrentTinyLfuCache<Integer, String> cache = new ConcurrentTinyLfuCache<>(64, String::valueOf);
+		int threadCount = 8;
+		CountDownLatch latch = new CountDownLatch(threadCount);
+		List<Throwable> failures = new ArrayList<>();
+		for (int i = 0; i < threadCount; i++) {
+			int offset = i * 10000;
+			new Thread(() -> {
+				try {
+					// One-off keys only: every retrieval is a write
+					for (int key = offset; key < offset + 10000; key++) {
+						assertThat(cache.get(key)).isEqualTo(String.valueOf(key));
+					}
+				}
+				catch (Throwable ex) {
+					synchronized (failures) {
+						failures.add(ex);
+					}
+				}
+				finally {
+					latch.countDown();
+				}
+			}).start();
+		}
+		latch.await();
+		assertThat(failures).isEmpty();
+		// No pending writes left behind once all writers are done
+		assertThat(cache.size()).isLessThanOrEqualTo(64);
+	}
+
+	@Test
+	void concurrentAccessStaysBounded() throws InterruptedException {
+		ConcurrentTinyLfuCache<Integer, String> cache = new ConcurrentTinyLfuCache<>(64, String::valueOf);
+		int threadCount = 8;
+		CountDownLatch latch = new CountDownLatch(threadCount);
+		List<Throwable> failures = new ArrayList<>();
+		for (int i = 0; i < threadCount; i++) {
+			new Thread(() -> {
+				try {
+					ThreadLocalRandom random = ThreadLocalRandom.current();
+					for (int j = 0; j < 10000; j++) {
+						int key = (random.nextBoolean() ? random.nextInt(32) : random.nextInt(1000));
+						assertThat(cache.get(key)).isEqualTo(String.valueOf(key));
+						if (j % 100 == 0) {
+							cache.remove(key);
+						}
+					}
+				}
+				catch (Throwable ex) {
+					synchronized (failures) {
+						failures.add(ex);
+					}
+				}
+				finally {
+					latch.countDown();
+				}
+			}).start();
+		}
+		latch.await();
+		assertThat(failures).isEmpty();
+		assertThat(cache.size()).isLessThanOrEqualTo(64);
+		cache.get(-1);
+		cache.clear();
+		assertThat(cache.size()).isEqualTo(0);
+	}
+
+}
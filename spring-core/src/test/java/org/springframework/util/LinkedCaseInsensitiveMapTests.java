@@ -17,6 +17,7 @@
 package org.springframework.util;
 
 import java.util.Iterator;
+import java.util.Locale;
 
 import org.junit.jupiter.api.Test;
 
@@ -27,6 +28,7 @@ import static org.assertj.core.api.Assertions.assertThat;
  *
  * @author Juergen Hoeller
  * @author Phillip Webb
+ * @author Lars Hofmann
  */
 class LinkedCaseInsensitiveMapTests {
 
@@ -218,6 +220,75 @@ class LinkedCaseInsensitiveMapTests {
 		assertThat(map.get("key")).isEqualTo("newvalue");
 	}
 
+	@Test
+	void putAndGetWithManyKeys() {
+		for (int i = 0; i < 100; i++) {
+			map.put("Header-" + i, "value" + i);
+		}
+		for (int i = 0; i < 100; i += 2) {
+			assertThat(map.remove("HEADER-" + i)).isEqualTo("value" + i);
+		}
+		assertThat(map.size()).isEqualTo(50);
+		for (int i = 0; i < 100; i++) {
+			assertThat(map.get("header-" + i)).isEqualTo(i % 2 == 0 ? null : "value" + i);
+		}
+		assertThat(map.keySet()).startsWith("Header-1", "Header-3");
+	}
+
+	@Test
+	void putAndGetWithNonAsciiKeys() {
+		map.put("Key", "value1");
+		map.put("Stra\u00dfe", "value2");
+		map.put("\u00c4rger", "value3");
+		assertThat(map.get("KEY")).isEqualTo("value1");
+		assertThat(map.get("\u212aey")).isEqualTo("value1");
+		assertThat(map.get("stra\u00dfe")).isEqualTo("value2");
+		assertThat(map.get("\u00e4RGER")).isEqualTo("value3");
+		assertThat(map.remove("\u00e4rger")).isEqualTo("value3");
+		assertThat(map.keySet()).containsExactly("Key", "Stra\u00dfe");
+	}
+
+	@Test
+	void getWithNonAsciiKeyConvertingToAsciiKey() {
+		map.put("Key", "value");
+		assertThat(map.containsKey("\u212aEY")).isTrue();
+		assertThat(map.remove("\u212aey")).isEqualTo("value");
+		assertThat(map.isEmpty()).isTrue();
+	}
+
+	@Test
+	void putAndGetWithTurkishLocale() {
+		LinkedCaseInsensitiveMap<String> map = new LinkedCaseInsensitiveMap<>(new Locale("tr"));
+		map.put("ID", "value");
+		assertThat(map.get("\u0131d")).isEqualTo("value");
+		assertThat(map.get("id")).isNull();
+	}
+
+	@Test
+	void putAndGetWithConvertKeyOverride() {
+		LinkedCaseInsensitiveMap<String> map = new LinkedCaseInsensitiveMap<String>() {
+			@Override
+			protected String convertKey(String key) {
+				return super.convertKey(key).replace('_', '-');
+			}
+		};
+		map.put("Content_Type", "value");
+		assertThat(map.get("content-type")).isEqualTo("value");
+		assertThat(map.clone().get("CONTENT-TYPE")).isEqualTo("value");
+	}
+
+	@Test
+	void cloneIsIndependent() {
+		map.put("Key", "value1");
+		LinkedCaseInsensitiveMap<String> copy = map.clone();
+		copy.put("KEY", "value2");
+		copy.put("Other", "value3");
+		assertThat(map.get("key")).isEqualTo("value1");
+		assertThat(map.containsKey("other")).isFalse();
+		assertThat(copy.get("key")).isEqualTo("value2");
+		assertThat(copy.keySet()).containsExactly("KEY", "Other");
+	}
+
 	private void nextAndRemove(Iterator<?> iterator) {
 		iterator.next();
 		iterator.remove();
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2019 the original author or authors.
+ * Copyright 2002-2021 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -27,6 +27,7 @@ import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException
 
 /**
  * @author Rob Harrop
+ * @author Lars Hofmann
  */
 class PropertyPlaceholderHelperTests {
 
@@ -108,4 +109,45 @@ class PropertyPlaceholderHelperTests {
 				helper.replacePlaceholders(text, props));
 	}
 
+	@Test
+	void repeatedResolutionReflectsCurrentValues() {
+		String text = "foo=${foo},bar=${bar:${foo}-default}";
+		PropertyPlaceholderHelper helper = new PropertyPlaceholderHelper("${", "}", ":", false);
+		Properties props = new Properties();
+		props.setProperty("foo", "one");
+
+		assertThat(helper.replacePlaceholders(text, props)).isEqualTo("foo=one,bar=one-default");
+		props.setProperty("foo", "two");
+		assertThat(helper.replacePlaceholders(text, props)).isEqualTo("foo=two,bar=two-default");
+		props.setProperty("bar", "${foo}!");
+		assertThat(helper.replacePlaceholders(text, props)).isEqualTo("foo=two,bar=two!");
+	}
+
+	@Test
+	void defaultValueWithNestedPlaceholderInKey() {
+		String text = "${prefix.${name}:fallback}";
+		PropertyPlaceholderHelper helper = new PropertyPlaceholderHelper("${", "}", ":", false);
+		Properties props = new Properties();
+		props.setProperty("name", "key");
+
+		assertThat(helper.replacePlaceholders(text, props)).isEqualTo("fallback");
+		props.setProperty("prefix.key", "value");
+		assertThat(helper.replacePlaceholders(text, props)).isEqualTo("value");
+		props.setProperty("name", "key:other");
+		assertThat(helper.replacePlaceholders(text, props)).isEqualTo("value");
+	}
+
+	@Test
+	void circularReferenceIsDetectedOnRepeatedResolution() {
+		Properties props = new Properties();
+		props.setProperty("a", "${b}");
+		props.setProperty("b", "${a}");
+
+		for (int i = 0; i < 2; i++) {
+			assertThatIllegalArgumentException().isThrownBy(() ->
+					this.helper.replacePlaceholders("${a}", props))
+				.withMessageContaining("Circular placeholder reference");
+		}
+	}
+
 }
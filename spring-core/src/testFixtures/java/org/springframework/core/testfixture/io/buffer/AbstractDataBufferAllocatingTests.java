@@ -46,6 +46,7 @@ import org.springframework.core.io.buffer.DataBufferFactory;
 import org.springframework.core.io.buffer.DataBufferUtils;
 import org.springframework.core.io.buffer.DefaultDataBufferFactory;
 import org.springframework.core.io.buffer.NettyDataBufferFactory;
+import org.springframework.core.io.buffer.PooledDataBufferFactory;
 
 import static java.nio.charset.StandardCharsets.UTF_8;
 import static org.assertj.core.api.Assertions.assertThat;
@@ -144,6 +145,10 @@ public abstract class AbstractDataBufferAllocatingTests {
 				}
 			}
 		}
+		else if (this.bufferFactory instanceof PooledDataBufferFactory) {
+			long total = ((PooledDataBufferFactory) this.bufferFactory).getOutstandingBufferCount();
+			assertThat(total).as("PooledDataBuffer Leak: " + total + " unreleased buffers").isEqualTo(0);
+		}
 	}
 
 	private static long getAllocations(List<PoolArenaMetric> metrics) {
@@ -174,7 +179,11 @@ public abstract class AbstractDataBufferAllocatingTests {
 			arguments("DefaultDataBufferFactory - preferDirect = true",
 					new DefaultDataBufferFactory(true)),
 			arguments("DefaultDataBufferFactory - preferDirect = false",
-					new DefaultDataBufferFactory(false))
+					new DefaultDataBufferFactory(false)),
+			arguments("PooledDataBufferFactory - preferDirect = true",
+					new PooledDataBufferFactory(true)),
+			arguments("PooledDataBufferFactory - preferDirect = false",
+					new PooledDataBufferFactory(false))
 		);
 	}
 
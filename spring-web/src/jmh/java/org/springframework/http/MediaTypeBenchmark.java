@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2020 the original author or authors.
+ * Copyright 2002-2021 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -18,6 +18,7 @@ package org.springframework.http;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 import java.util.stream.IntStream;
 
@@ -39,6 +40,7 @@ import org.springframework.util.MimeTypeUtils;
  * The publicly accessible method is backed by a LRUCache for better performance.
  *
  * @author Brian Clozel
+ * @author Lars Hofmann
  * @see MimeTypeUtils
  */
 @BenchmarkMode(Mode.Throughput)
@@ -58,6 +60,36 @@ public class MediaTypeBenchmark {
 		}
 	}
 
+	@Benchmark
+	public void parseAndSortAcceptHeader(BenchmarkData data, Blackhole bh) {
+		for (List<String> acceptHeader : data.acceptHeaders) {
+			List<MediaType> mediaTypes = MediaType.parseMediaTypes(acceptHeader);
+			MediaType.sortBySpecificityAndQuality(mediaTypes);
+			bh.consume(mediaTypes);
+		}
+	}
+
+	@Benchmark
+	public void parseAndSortAcceptHeaderCached(BenchmarkData data, Blackhole bh) {
+		for (List<String> acceptHeader : data.acceptHeaders) {
+			bh.consume(MediaType.parseAndSortMediaTypes(acceptHeader));
+		}
+	}
+
+	@Benchmark
+	public void negotiateProducibleType(BenchmarkData data, Blackhole bh) {
+		for (List<String> acceptHeader : data.acceptHeaders) {
+			for (MediaType acceptable : MediaType.parseAndSortMediaTypes(acceptHeader)) {
+				for (MediaType producible : data.producibleMediaTypes) {
+					if (acceptable.isCompatibleWith(producible)) {
+						bh.consume(producible);
+						break;
+					}
+				}
+			}
+		}
+	}
+
 	/**
 	 * Benchmark data holding typical raw Media Types.
 	 * A {@code customTypesCount} parameter can be used to pad the list with artificial types.
@@ -77,6 +109,10 @@ public class MediaTypeBenchmark {
 
 		public List<String> requestedMediaTypes;
 
+		public List<List<String>> acceptHeaders;
+
+		public List<MediaType> producibleMediaTypes;
+
 		@Setup(Level.Trial)
 		public void fillCache() {
 			this.mediaTypes = new ArrayList<>();
@@ -114,6 +150,17 @@ public class MediaTypeBenchmark {
 
 			// ensure that all known MIME types are parsed once and cached
 			this.mediaTypes.forEach(MediaType::parseMediaType);
+
+			// Accept headers as sent by browsers, HTTP clients and API tools
+			this.acceptHeaders = Arrays.asList(
+					Collections.singletonList("text/html,application/xhtml+xml,application/xml;q=0.9," +
+							"image/avif,image/webp,image/apng,*/*;q=0.8,application/signed-exchange;v=b3;q=0.9"),
+					Collections.singletonList("application/json, text/plain, */*"),
+					Collections.singletonList("*/*"),
+					Collections.singletonList("application/json"),
+					Collections.singletonList("text/event-stream"));
+			this.producibleMediaTypes = Arrays.asList(MediaType.APPLICATION_JSON,
+					MediaType.parseMediaType("application/*+json"), MediaType.TEXT_PLAIN, MediaType.ALL);
 		}
 
 	}
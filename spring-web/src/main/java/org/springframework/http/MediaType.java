@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2020 the original author or authors.
+ * Copyright 2002-2021 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -23,6 +23,7 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
@@ -30,6 +31,7 @@ import java.util.Map;
 import org.springframework.lang.Nullable;
 import org.springframework.util.Assert;
 import org.springframework.util.CollectionUtils;
+import org.springframework.util.ConcurrentTinyLfuCache;
 import org.springframework.util.InvalidMimeTypeException;
 import org.springframework.util.MimeType;
 import org.springframework.util.MimeTypeUtils;
@@ -45,6 +47,7 @@ import org.springframework.util.StringUtils;
  * @author Sebastien Deleuze
  * @author Kazuki Shimizu
  * @author Sam Brannen
+ * @author Lars Hofmann
  * @since 3.0
  * @see <a href="https://tools.ietf.org/html/rfc7231#section-3.1.1.1">
  *     HTTP 1.1: Semantics and Content, section 3.1.1.1</a>
@@ -389,6 +392,14 @@ public class MediaType extends MimeType implements Serializable {
 
 	private static final String PARAM_QUALITY_FACTOR = "q";
 
+	private static final Map<String, MediaType> knownMediaTypes = new HashMap<>(64);
+
+	private static final ConcurrentTinyLfuCache<String, MediaType> cachedMediaTypes =
+			new ConcurrentTinyLfuCache<>(64, MediaType::parseMediaTypeInternal);
+
+	private static final ConcurrentTinyLfuCache<String, List<MediaType>> cachedSortedMediaTypes =
+			new ConcurrentTinyLfuCache<>(64, MediaType::parseAndSortMediaTypesInternal);
+
 
 	static {
 		// Not using "valueOf' to avoid static init cost
@@ -419,6 +430,17 @@ public class MediaType extends MimeType implements Serializable {
 		TEXT_MARKDOWN = new MediaType("text", "markdown");
 		TEXT_PLAIN = new MediaType("text", "plain");
 		TEXT_XML = new MediaType("text", "xml");
+
+		// Canonical instances for parsing the corresponding String values
+		MediaType[] knownTypes = {ALL, APPLICATION_ATOM_XML, APPLICATION_CBOR, APPLICATION_FORM_URLENCODED,
+				APPLICATION_JSON, APPLICATION_JSON_UTF8, APPLICATION_NDJSON, APPLICATION_OCTET_STREAM,
+				APPLICATION_PDF, APPLICATION_PROBLEM_JSON, APPLICATION_PROBLEM_JSON_UTF8, APPLICATION_PROBLEM_XML,
+				APPLICATION_RSS_XML, APPLICATION_STREAM_JSON, APPLICATION_XHTML_XML, APPLICATION_XML,
+				IMAGE_GIF, IMAGE_JPEG, IMAGE_PNG, MULTIPART_FORM_DATA, MULTIPART_MIXED, MULTIPART_RELATED,
+				TEXT_EVENT_STREAM, TEXT_HTML, TEXT_MARKDOWN, TEXT_PLAIN, TEXT_XML};
+		for (MediaType knownType : knownTypes) {
+			knownMediaTypes.put(knownType.toString(), knownType);
+		}
 	}
 
 
@@ -607,11 +629,26 @@ public class MediaType extends MimeType implements Serializable {
 
 	/**
 	 * Parse the given String into a single {@code MediaType}.
+	 * <p>Recently parsed media types are cached for further retrieval, and the
+	 * String values of the {@code MediaType} constants (e.g. "application/json")
+	 * resolve to the constants themselves.
 	 * @param mediaType the string to parse
 	 * @return the media type
 	 * @throws InvalidMediaTypeException if the media type value cannot be parsed
 	 */
 	public static MediaType parseMediaType(String mediaType) {
+		// do not cache multipart media types with random boundaries
+		if (!StringUtils.hasLength(mediaType) || mediaType.startsWith("multipart")) {
+			return parseMediaTypeInternal(mediaType);
+		}
+		return cachedMediaTypes.get(mediaType);
+	}
+
+	private static MediaType parseMediaTypeInternal(String mediaType) {
+		MediaType knownType = knownMediaTypes.get(mediaType);
+		if (knownType != null) {
+			return knownType;
+		}
 		MimeType type;
 		try {
 			type = MimeTypeUtils.parseMimeType(mediaType);
@@ -674,6 +711,42 @@ public class MediaType extends MimeType implements Serializable {
 		}
 	}
 
+	/**
+	 * Parse the given list of (potentially) comma-separated strings into a
+	 * list of {@code MediaType} objects, sorted by specificity and quality,
+	 * as suitable for the values of an Accept header.
+	 * <p>The result for a single string is cached for further retrieval,
+	 * so the returned list is unmodifiable and potentially shared.
+	 * @param mediaTypes the strings to parse
+	 * @return the sorted list of media types
+	 * @throws InvalidMediaTypeException if the media type value cannot be parsed
+	 * @since 5.3.8
+	 * @see #sortBySpecificityAndQuality(List)
+	 */
+	public static List<MediaType> parseAndSortMediaTypes(@Nullable List<String> mediaTypes) {
+		if (CollectionUtils.isEmpty(mediaTypes)) {
+			return Collections.emptyList();
+		}
+		else if (mediaTypes.size() == 1) {
+			String mediaType = mediaTypes.get(0);
+			if (!StringUtils.hasLength(mediaType)) {
+				return Collections.emptyList();
+			}
+			return cachedSortedMediaTypes.get(mediaType);
+		}
+		else {
+			List<MediaType> result = parseMediaTypes(mediaTypes);
+			sortBySpecificityAndQuality(result);
+			return Collections.unmodifiableList(result);
+		}
+	}
+
+	private static List<MediaType> parseAndSortMediaTypesInternal(String mediaTypes) {
+		List<MediaType> result = parseMediaTypes(mediaTypes);
+		sortBySpecificityAndQuality(result);
+		return Collections.unmodifiableList(result);
+	}
+
 	/**
 	 * Re-create the given mime types as media types.
 	 * @since 5.0
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2020 the original author or authors.
+ * Copyright 2002-2021 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -33,6 +33,7 @@ import org.springframework.core.BridgeMethodResolver;
 import org.springframework.core.MethodParameter;
 import org.springframework.core.ResolvableType;
 import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.core.annotation.AnnotationLookupCache;
 import org.springframework.core.annotation.SynthesizingMethodParameter;
 import org.springframework.http.HttpStatus;
 import org.springframework.lang.NonNull;
@@ -300,10 +301,11 @@ public class HandlerMethod {
 	 * @param annotationType the type of annotation to introspect the method for
 	 * @return the annotation, or {@code null} if none found
 	 * @see AnnotatedElementUtils#findMergedAnnotation
+	 * @see AnnotationLookupCache#findMergedAnnotation
 	 */
 	@Nullable
 	public <A extends Annotation> A getMethodAnnotation(Class<A> annotationType) {
-		return AnnotatedElementUtils.findMergedAnnotation(this.method, annotationType);
+		return AnnotationLookupCache.findMergedAnnotation(this.method, annotationType);
 	}
 
 	/**
@@ -311,9 +313,10 @@ public class HandlerMethod {
 	 * @param annotationType the annotation type to look for
 	 * @since 4.3
 	 * @see AnnotatedElementUtils#hasAnnotation
+	 * @see AnnotationLookupCache#hasAnnotation
 	 */
 	public <A extends Annotation> boolean hasMethodAnnotation(Class<A> annotationType) {
-		return AnnotatedElementUtils.hasAnnotation(this.method, annotationType);
+		return AnnotationLookupCache.hasAnnotation(this.method, annotationType);
 	}
 
 	/**
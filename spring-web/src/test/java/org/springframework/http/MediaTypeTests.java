@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2020 the original author or authors.
+ * Copyright 2002-2021 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -18,6 +18,7 @@ package org.springframework.http;
 
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.List;
@@ -38,6 +39,7 @@ import static org.assertj.core.api.Assertions.within;
  * @author Arjen Poutsma
  * @author Juergen Hoeller
  * @author Sam Brannen
+ * @author Lars Hofmann
  */
 public class MediaTypeTests {
 
@@ -162,6 +164,34 @@ public class MediaTypeTests {
 		assertThat(mediaTypes.size()).as("Invalid amount of media types").isEqualTo(0);
 	}
 
+	@Test
+	public void parseMediaTypeReturnsCanonicalInstances() {
+		assertThat(MediaType.parseMediaType("application/json")).isSameAs(MediaType.APPLICATION_JSON);
+		assertThat(MediaType.parseMediaType("*/*")).isSameAs(MediaType.ALL);
+		assertThat(MediaType.parseMediaType("multipart/form-data")).isSameAs(MediaType.MULTIPART_FORM_DATA);
+		assertThat(MediaType.parseMediaType("text/x-custom")).isSameAs(MediaType.parseMediaType("text/x-custom"));
+		assertThat(MediaType.parseMediaType("Application/JSON")).isEqualTo(MediaType.APPLICATION_JSON);
+	}
+
+	@Test
+	public void parseAndSortMediaTypes() {
+		String s = "text/plain; q=0.5, text/html, text/x-dvi; q=0.8, text/x-c";
+		List<MediaType> mediaTypes = MediaType.parseAndSortMediaTypes(Collections.singletonList(s));
+		List<MediaType> expected = MediaType.parseMediaTypes(s);
+		MediaType.sortBySpecificityAndQuality(expected);
+		assertThat(mediaTypes).isEqualTo(expected);
+		assertThat(MediaType.parseAndSortMediaTypes(Collections.singletonList(s))).isSameAs(mediaTypes);
+		assertThatExceptionOfType(UnsupportedOperationException.class).isThrownBy(() ->
+				mediaTypes.add(MediaType.ALL));
+
+		List<MediaType> multiple = MediaType.parseAndSortMediaTypes(Arrays.asList("text/plain; q=0.5", "text/html"));
+		assertThat(multiple).containsExactly(MediaType.TEXT_HTML, MediaType.parseMediaType("text/plain; q=0.5"));
+		assertThat(MediaType.parseAndSortMediaTypes(Collections.singletonList(""))).isEmpty();
+		assertThat(MediaType.parseAndSortMediaTypes(null)).isEmpty();
+		assertThatExceptionOfType(InvalidMediaTypeException.class).isThrownBy(() ->
+				MediaType.parseAndSortMediaTypes(Collections.singletonList("textplain; q=0.5")));
+	}
+
 	@Test  // gh-23241
 	public void parseMediaTypesWithTrailingComma() {
 		List<MediaType> mediaTypes = MediaType.parseMediaTypes("text/plain, text/html, ");
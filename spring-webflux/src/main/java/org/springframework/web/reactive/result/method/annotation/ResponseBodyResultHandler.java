@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2018 the original author or authors.
+ * Copyright 2002-2021 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -22,7 +22,7 @@ import reactor.core.publisher.Mono;
 
 import org.springframework.core.MethodParameter;
 import org.springframework.core.ReactiveAdapterRegistry;
-import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.core.annotation.AnnotationLookupCache;
 import org.springframework.http.codec.HttpMessageWriter;
 import org.springframework.web.bind.annotation.ResponseBody;
 import org.springframework.web.reactive.HandlerResult;
@@ -75,7 +75,7 @@ public class ResponseBodyResultHandler extends AbstractMessageWriterResultHandle
 	public boolean supports(HandlerResult result) {
 		MethodParameter returnType = result.getReturnTypeSource();
 		Class<?> containingClass = returnType.getContainingClass();
-		return (AnnotatedElementUtils.hasAnnotation(containingClass, ResponseBody.class) ||
+		return (AnnotationLookupCache.hasAnnotation(containingClass, ResponseBody.class) ||
 				returnType.hasMethodAnnotation(ResponseBody.class));
 	}
 